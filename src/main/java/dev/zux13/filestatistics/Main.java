@@ -1,84 +1,240 @@
 package dev.zux13.filestatistics;
 
+import dev.zux13.filestatistics.analysis.CommentAnalyzer;
+import dev.zux13.filestatistics.analysis.ContentDeduplicator;
+import dev.zux13.filestatistics.analysis.FileAnalyzer;
 import dev.zux13.filestatistics.analysis.model.AnalysisResult;
+import dev.zux13.filestatistics.cache.AnalysisCache;
 import dev.zux13.filestatistics.cli.ArgumentParser;
 import dev.zux13.filestatistics.cli.Config;
+import dev.zux13.filestatistics.cli.HelpRequestedException;
+import dev.zux13.filestatistics.cli.MergeConfig;
+import dev.zux13.filestatistics.daemon.DaemonClient;
+import dev.zux13.filestatistics.daemon.DaemonServer;
+import dev.zux13.filestatistics.git.GitDiffAnalyzer;
 import dev.zux13.filestatistics.output.ConsolePrinter;
 import dev.zux13.filestatistics.output.FormatterFactory;
+import dev.zux13.filestatistics.output.perfile.ColumnarFormat;
+import dev.zux13.filestatistics.output.perfile.NdjsonFormat;
+import dev.zux13.filestatistics.output.perfile.PerFileFormat;
+import dev.zux13.filestatistics.output.perfile.PerFileWriter;
 import dev.zux13.filestatistics.output.formatter.OutputFormatter;
 import dev.zux13.filestatistics.processing.AnalysisService;
+import dev.zux13.filestatistics.processing.FileTaskRunner;
+import dev.zux13.filestatistics.processing.TaskRunnerFactory;
 import dev.zux13.filestatistics.scan.FileScanner;
 import dev.zux13.filestatistics.scan.GitIgnoreManager;
 import dev.zux13.filestatistics.analysis.StatisticsAggregator;
-import dev.zux13.filestatistics.scan.model.ScanResult;
+import dev.zux13.filestatistics.scan.model.IgnoredFilesStats;
+import dev.zux13.filestatistics.shard.PartialResult;
+import dev.zux13.filestatistics.shard.PartialResultMerger;
+import dev.zux13.filestatistics.watch.TreeWatcher;
 
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
 
 @Slf4j
 public class Main {
 
+    private static final String MERGE_COMMAND = "merge";
+    private static final String SERVE_COMMAND = "serve";
+
+    private final Path workingDirectory;
+    private final RunResources resources;
+
+    private Main(Path workingDirectory, RunResources resources) {
+        this.workingDirectory = workingDirectory;
+        this.resources = resources;
+    }
+
     public static void main(String[] args) {
+        int status;
+        if (args.length > 0 && args[0].equals(SERVE_COMMAND)) {
+            status = DaemonServer.serve(Arrays.copyOfRange(args, 1, args.length));
+        } else if (DaemonClient.isRequested(args)) {
+            status = DaemonClient.run(args);
+        } else {
+            status = execute(args, Paths.get(""), RunResources.fresh());
+        }
+        if (status != 0) {
+            System.exit(status);
+        }
+    }
+
+    /**
+     * Runs one command line and returns its exit status. Relative paths in {@code args} are
+     * resolved against {@code workingDirectory}.
+     */
+    public static int execute(String[] args, Path workingDirectory, RunResources resources) {
         try {
-            new Main().run(args);
+            new Main(workingDirectory, resources).run(args);
+            return 0;
+        } catch (HelpRequestedException e) {
+            ConsolePrinter.printHelp();
+            return 0;
         } catch (Exception e) {
             log.error("An error occurred: {}", e.getMessage());
             ConsolePrinter.printHelp();
-            System.exit(1);
+            return 1;
         }
     }
 
     private void run(String[] args) throws IOException {
+        if (args.length > 0 && args[0].equals(MERGE_COMMAND)) {
+            runMerge(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
 
         Config config = parseArguments(args);
-        ScanResult scanResult = scanFiles(config);
-        AnalysisResult analysisResult = analyzeFiles(config, scanResult);
-        StatisticsAggregator aggregator = aggregate(scanResult, analysisResult);
+        if (config.watchInterval() != null) {
+            runWatch(config);
+            return;
+        }
+        IgnoredFilesStats ignoredFilesStats = new IgnoredFilesStats();
+        FileScanner scanner = createScanner(config);
+        ContentDeduplicator deduplicator = config.deduplicateContent() ? new ContentDeduplicator() : null;
+        FileAnalyzer fileAnalyzer = new FileAnalyzer(createCommentAnalyzer(config), config.mmapThreshold(), deduplicator);
+        AnalysisResult analysisResult;
+        try (PerFileWriter<?> perFileWriter = openPerFileWriter(config)) {
+            analysisResult = scanAndAnalyzeFiles(config, scanner, fileAnalyzer, perFileWriter, ignoredFilesStats);
+        }
+        StatisticsAggregator aggregator = aggregate(ignoredFilesStats, analysisResult, deduplicator);
+
+        if (config.partialOutput() != null) {
+            PartialResult.of(config, fileAnalyzer.getFingerprint(), aggregator).write(config.partialOutput());
+        }
+        // Per-file records without a file take the place of the report on standard output
+        if (!config.perFile() || config.perFileOutput() != null || config.outputFile() != null) {
+            printResult(config.outputFormat(), config.outputFile(), aggregator);
+        }
+        if (config.verbose()) {
+            printIgnoredStats(aggregator, config.deduplicateContent());
+        }
+    }
+
+    /**
+     * {@code merge <partial>...}: adds up the partial results of {@code --partial} runs and
+     * prints them as one report.
+     */
+    private void runMerge(String[] args) throws IOException {
+        MergeConfig config = new ArgumentParser(workingDirectory).parseMerge(args);
+        StatisticsAggregator aggregator = PartialResultMerger.merge(config.partials());
 
-        printResult(config, aggregator);
-        printIgnoredStatsIfVerbose(config, aggregator);
+        printResult(config.outputFormat(), config.outputFile(), aggregator);
+        if (config.verbose()) {
+            printIgnoredStats(aggregator, aggregator.getDeduplicatedFileCount() > 0);
+        }
+    }
+
+    /**
+     * {@code --watch}: prints the report after a full scan and again whenever the tree changes,
+     * until the process is stopped.
+     */
+    private void runWatch(Config config) throws IOException {
+        // Reusable, so that a changed .gitignore can be reloaded
+        GitIgnoreManager ignoreManager = config.useGitIgnore() ? new GitIgnoreManager(config.path(), true) : null;
+        FileScanner scanner = new FileScanner(config, ignoreManager);
+        ContentDeduplicator deduplicator = config.deduplicateContent() ? new ContentDeduplicator() : null;
+        FileAnalyzer fileAnalyzer = new FileAnalyzer(createCommentAnalyzer(config), config.mmapThreshold(), deduplicator);
+        FileTaskRunner taskRunner = TaskRunnerFactory.createRunner(
+                config.executor(), config.numThreads(), config.maxConcurrency());
+        AnalysisCache analysisCache = resources.analysisCache(config.cacheDirectory(), fileAnalyzer.getFingerprint());
+
+        try (TreeWatcher watcher = new TreeWatcher(config.path(), scanner, ignoreManager, fileAnalyzer,
+                analysisCache, taskRunner)) {
+            watcher.watch(config.watchInterval(), totals -> {
+                IgnoredFilesStats ignoredFilesStats = new IgnoredFilesStats();
+                totals.addTo(ignoredFilesStats);
+                StatisticsAggregator aggregator = aggregate(ignoredFilesStats, totals.toAnalysisResult(), deduplicator);
+                printResult(config.outputFormat(), config.outputFile(), aggregator);
+                if (config.verbose()) {
+                    printIgnoredStats(aggregator, config.deduplicateContent());
+                }
+            });
+        }
     }
 
     private Config parseArguments(String[] args) {
-        return new ArgumentParser().parse(args);
+        return new ArgumentParser(workingDirectory).parse(args);
     }
 
-    private ScanResult scanFiles(Config config) throws IOException {
-        GitIgnoreManager ignoreManager = config.useGitIgnore()
-                ? new GitIgnoreManager(config.path())
+    private FileScanner createScanner(Config config) {
+        // Files listed by Git have already passed its ignore rules
+        GitIgnoreManager ignoreManager = config.useGitIgnore() && !config.gitTracked()
+                ? resources.gitIgnoreManager(config.path())
                 : null;
 
-        return new FileScanner(config, ignoreManager).scanFiles();
+        return new FileScanner(config, ignoreManager);
+    }
+
+    private PerFileWriter<?> openPerFileWriter(Config config) throws IOException {
+        if (!config.perFile()) {
+            return null;
+        }
+        PerFileFormat<?> format = config.perFileFormat().equals("columnar") ? new ColumnarFormat() : new NdjsonFormat();
+        return PerFileWriter.open(config.path(), format, config.perFileOutput(), config.perFileGzip());
+    }
+
+    private AnalysisResult scanAndAnalyzeFiles(Config config, FileScanner scanner, FileAnalyzer fileAnalyzer,
+                                               PerFileWriter<?> perFileWriter,
+                                               IgnoredFilesStats ignoredFilesStats) throws IOException {
+        FileTaskRunner taskRunner = TaskRunnerFactory.createRunner(
+                config.executor(), config.numThreads(), config.maxConcurrency());
+        AnalysisCache analysisCache = resources.analysisCache(config.cacheDirectory(), fileAnalyzer.getFingerprint());
+
+        AnalysisService analysisService = new AnalysisService(taskRunner, fileAnalyzer, analysisCache, perFileWriter);
+
+        AnalysisResult result = config.gitDiffState() != null
+                ? new GitDiffAnalyzer(config, scanner, fileAnalyzer, analysisService).analyze(ignoredFilesStats)
+                : analysisService.processFiles(sink -> scanner.scanFiles(sink, ignoredFilesStats), ignoredFilesStats);
+
+        if (analysisCache != null) {
+            analysisCache.save();
+        }
+        return result;
     }
 
-    private AnalysisResult analyzeFiles(Config config, ScanResult scanResult) {
-        return new AnalysisService(config.numThreads())
-                .processFiles(scanResult.filesToAnalyze(), scanResult.ignoredFilesStats());
+    private CommentAnalyzer createCommentAnalyzer(Config config) throws IOException {
+        return resources.commentAnalyzer(config.commentSyntaxFile());
     }
 
-    private StatisticsAggregator aggregate(ScanResult scanResult,
-                                           AnalysisResult analysisResult) {
+    private StatisticsAggregator aggregate(IgnoredFilesStats ignoredFilesStats,
+                                           AnalysisResult analysisResult,
+                                           ContentDeduplicator deduplicator) {
 
         StatisticsAggregator aggregator = new StatisticsAggregator();
 
         aggregator.setStatisticsByExtension(analysisResult.extensionStatistics());
-        aggregator.setIgnoredByGitignoreCount(scanResult.ignoredFilesStats().getIgnoredByGitignore());
-        aggregator.setIgnoredByExtensionCount(scanResult.ignoredFilesStats().getIgnoredByExtension());
-        aggregator.setIgnoredBinaryOrEncodingCount(scanResult.ignoredFilesStats().getIgnoredBinaryOrEncoding());
+        aggregator.setIgnoredByGitignoreCount(ignoredFilesStats.getIgnoredByGitignore());
+        aggregator.setIgnoredByExtensionCount(ignoredFilesStats.getIgnoredByExtension());
+        aggregator.setIgnoredBinaryOrEncodingCount(ignoredFilesStats.getIgnoredBinaryOrEncoding());
+        aggregator.setIgnoredDuplicatesCount(ignoredFilesStats.getIgnoredDuplicates());
+        if (deduplicator != null) {
+            aggregator.setDeduplicatedFileCount(deduplicator.getDeduplicatedFiles());
+            aggregator.setDeduplicatedBytes(deduplicator.getDeduplicatedBytes());
+        }
 
         return aggregator;
     }
 
-    private void printResult(Config config, StatisticsAggregator aggregator) {
-        OutputFormatter formatter = FormatterFactory.createFormatter(config.outputFormat());
-        ConsolePrinter.print(formatter.format(aggregator));
+    private void printResult(String outputFormat, Path outputFile, StatisticsAggregator aggregator) throws IOException {
+        OutputFormatter formatter = FormatterFactory.createFormatter(outputFormat);
+        if (outputFile != null) {
+            try (Writer writer = Files.newBufferedWriter(outputFile)) {
+                formatter.write(aggregator, writer);
+            }
+        } else {
+            formatter.write(aggregator, ConsolePrinter.writer());
+        }
     }
 
-    private void printIgnoredStatsIfVerbose(Config config, StatisticsAggregator aggregator) {
-        if (!config.verbose()) {
-            return;
-        }
+    private void printIgnoredStats(StatisticsAggregator aggregator, boolean deduplicated) {
         String ignoredStats = String.format(
                 """
                 ---
@@ -86,12 +242,21 @@ public class Main {
                   .gitignore: %d
                   по расширению: %d
                   бинарные/кодировка: %d
+                  повторные ссылки на тот же файл: %d
                 """,
                 aggregator.getIgnoredByGitignoreCount(),
                 aggregator.getIgnoredByExtensionCount(),
-                aggregator.getIgnoredBinaryOrEncodingCount());
+                aggregator.getIgnoredBinaryOrEncodingCount(),
+                aggregator.getIgnoredDuplicatesCount());
 
         ConsolePrinter.print(ignoredStats);
+
+        if (deduplicated) {
+            ConsolePrinter.print(String.format(
+                    "Повторное содержимое (--dedup): %d файлов, %d байт не анализировались заново%n",
+                    aggregator.getDeduplicatedFileCount(),
+                    aggregator.getDeduplicatedBytes()));
+        }
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,50 @@
+package dev.zux13.filestatistics;
+
+import dev.zux13.filestatistics.analysis.CommentAnalyzer;
+import dev.zux13.filestatistics.analysis.definition.CommentSyntaxLoader;
+import dev.zux13.filestatistics.cache.AnalysisCache;
+import dev.zux13.filestatistics.scan.GitIgnoreManager;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Objects a run needs that are expensive to build. A single invocation builds them
+ * {@link #fresh()}; the daemon keeps them between requests.
+ */
+public interface RunResources {
+
+    /**
+     * @param commentSyntaxFile the {@code --comment-syntax} file, or {@code null}
+     */
+    CommentAnalyzer commentAnalyzer(Path commentSyntaxFile) throws IOException;
+
+    GitIgnoreManager gitIgnoreManager(Path root);
+
+    /**
+     * @param directory the {@code --cache} directory, or {@code null}
+     * @return the cache to use, or {@code null} for none; the run saves it when it is done
+     */
+    AnalysisCache analysisCache(Path directory, String fingerprint) throws IOException;
+
+    static RunResources fresh() {
+        return new RunResources() {
+            @Override
+            public CommentAnalyzer commentAnalyzer(Path commentSyntaxFile) throws IOException {
+                return commentSyntaxFile != null
+                        ? new CommentAnalyzer(CommentSyntaxLoader.load(commentSyntaxFile))
+                        : new CommentAnalyzer();
+            }
+
+            @Override
+            public GitIgnoreManager gitIgnoreManager(Path root) {
+                return new GitIgnoreManager(root);
+            }
+
+            @Override
+            public AnalysisCache analysisCache(Path directory, String fingerprint) throws IOException {
+                return directory != null ? AnalysisCache.open(directory, fingerprint) : null;
+            }
+        };
+    }
+}
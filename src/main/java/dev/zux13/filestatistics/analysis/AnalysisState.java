@@ -6,5 +6,40 @@ import lombok.Setter;
 @Getter
 @Setter
 public class AnalysisState {
-    private boolean inMultiLineComment = false;
+    /**
+     * Number of unclosed block comments; above one only for languages that nest them.
+     */
+    private int blockDepth = 0;
+    /**
+     * Index of the block comment pair that is open while {@code blockDepth > 0}.
+     */
+    private int activeBlock = 0;
+    /**
+     * Whether a multi-line string literal, such as a Java text block, is still open.
+     */
+    private boolean inString = false;
+    /**
+     * Index of the multi-line string delimiter that is open while {@code inString} is set.
+     */
+    private int activeString = 0;
+    /**
+     * Whether a single-line string literal is open where the previous range ended.
+     */
+    private boolean inQuote = false;
+    /**
+     * Index of the string delimiter that is open while {@code inQuote} is set.
+     */
+    private int activeQuote = 0;
+    /**
+     * Whether the previous range ended inside a line comment.
+     */
+    private boolean inLineComment = false;
+    /**
+     * Whether the previous range ended inside a line, which the next range continues.
+     */
+    private boolean midLine = false;
+    /**
+     * Whether the line continued while {@code midLine} is set has non-whitespace text so far.
+     */
+    private boolean textOnLine = false;
 }
@@ -0,0 +1,42 @@
+package dev.zux13.filestatistics.analysis;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Reusable read buffers shared by all analysis threads. Unlike thread-locals this also
+ * works for virtual threads, which never analyze more than one file each. The pool holds
+ * at most one buffer per concurrently analyzed file: a read that outgrows its buffer hands
+ * back the larger one in its place, or the original when the larger one exceeds the
+ * pooled size.
+ */
+public class BufferPool {
+
+    private final int initialSize;
+    private final int maxPooledSize;
+    private final Queue<ByteBuffer> freeBuffers = new ConcurrentLinkedQueue<>();
+
+    public BufferPool(int initialSize, int maxPooledSize) {
+        this.initialSize = initialSize;
+        this.maxPooledSize = maxPooledSize;
+    }
+
+    public ByteBuffer acquire() {
+        ByteBuffer buffer = freeBuffers.poll();
+        return buffer != null ? buffer : ByteBuffer.allocate(initialSize);
+    }
+
+    /**
+     * Returns the buffer of one read to the pool.
+     *
+     * @param acquired the buffer {@link #acquire()} returned
+     * @param used     the buffer the content ended up in, {@code acquired} or one that
+     *                 replaced it
+     */
+    public void release(ByteBuffer acquired, ByteBuffer used) {
+        ByteBuffer kept = used.capacity() <= maxPooledSize ? used : acquired;
+        kept.clear();
+        freeBuffers.offer(kept);
+    }
+}
@@ -3,35 +3,63 @@ package dev.zux13.filestatistics.analysis;
 import dev.zux13.filestatistics.analysis.definition.*;
 
 import java.nio.file.Path;
-import java.util.Map;
+import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.function.Function;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.TreeMap;
 
+/**
+ * Maps file extensions to compiled comment definitions; a file without an extension, such as
+ * {@code Dockerfile}, is looked up by its name. Syntaxes are collected from the
+ * built-in table, then from {@link CommentSyntaxProvider} services, then from the syntaxes
+ * passed in; a later syntax replaces an earlier one for the extensions it lists.
+ */
 public class CommentAnalyzer {
 
-    private static final Map<String, Function<Void, CommentDefinition>> DEFINITION_MAP = new HashMap<>();
+    private final Map<String, CommentDefinition> definitions = new HashMap<>();
+    private final String fingerprint;
 
-    static {
-        DEFINITION_MAP.put("java", v -> new JavaCommentDefinition());
-        DEFINITION_MAP.put("bash", v -> new BashCommentDefinition());
-        DEFINITION_MAP.put("sh", v -> new BashCommentDefinition());
+    public CommentAnalyzer() {
+        this(List.of());
     }
 
-    private final CommentDefinition defaultDefinition = new DefaultCommentDefinition();
+    public CommentAnalyzer(List<CommentSyntax> additionalSyntaxes) {
+        List<CommentSyntax> syntaxes = new ArrayList<>(new BuiltInCommentSyntaxes().syntaxes());
+        ServiceLoader.load(CommentSyntaxProvider.class).forEach(provider -> syntaxes.addAll(provider.syntaxes()));
+        syntaxes.addAll(additionalSyntaxes);
 
-    public long countCommentLines(Iterable<String> lines, Path filePath) {
-        String extension = getExtension(filePath);
-        Function<Void, CommentDefinition> definitionFunc = DEFINITION_MAP.getOrDefault(extension, v -> defaultDefinition);
-        CommentDefinition definition = definitionFunc.apply(null);
-
-        AnalysisState state = new AnalysisState();
-        long count = 0;
-        for (String line : lines) {
-            if (definition.isComment(line, state)) {
-                count++;
+        Map<String, CommentSyntax> syntaxByExtension = new TreeMap<>();
+        for (CommentSyntax syntax : syntaxes) {
+            for (String extension : syntax.extensions()) {
+                syntaxByExtension.put(extension.toLowerCase(), syntax);
             }
         }
-        return count;
+
+        Map<CommentSyntax, CommentDefinition> compiled = new IdentityHashMap<>();
+        syntaxByExtension.forEach((extension, syntax) ->
+                definitions.put(extension, compiled.computeIfAbsent(syntax, CommentDefinition::compile)));
+
+        String mapping = syntaxByExtension.toString() + new TreeMap<>(BuiltInCommentSyntaxes.FILE_NAME_EXTENSIONS);
+        fingerprint = String.format("%d:%08x", syntaxByExtension.size(), mapping.hashCode());
+    }
+
+    /**
+     * Identifies the active extension-to-syntax mapping, so cached results can be
+     * discarded when it changes.
+     */
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    public CommentDefinition getDefinition(Path filePath) {
+        String extension = getExtension(filePath);
+        if (extension == null) {
+            return CommentDefinition.NONE;
+        }
+        return definitions.getOrDefault(extension, CommentDefinition.NONE);
     }
 
     private String getExtension(Path path) {
@@ -40,6 +68,7 @@ public class CommentAnalyzer {
         if (lastDotIndex > 0 && lastDotIndex < fileName.length() - 1) {
             return fileName.substring(lastDotIndex + 1).toLowerCase();
         }
-        return null;
+        // Files such as Dockerfile are named after their syntax instead of having an extension
+        return BuiltInCommentSyntaxes.FILE_NAME_EXTENSIONS.get(fileName.toLowerCase());
     }
 }
@@ -0,0 +1,98 @@
+package dev.zux13.filestatistics.analysis;
+
+import dev.zux13.filestatistics.analysis.definition.CommentDefinition;
+import dev.zux13.filestatistics.analysis.model.FileStatistics;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Remembers the statistics of recently analyzed contents by size and {@link ContentHash}, so
+ * byte-identical copies of a file, such as vendored libraries, are counted once. The comment
+ * definition is part of the key: the same bytes in a {@code .c} and a {@code .py} file have
+ * different comment lines.
+ * <p>
+ * Shared by all analysis threads. At most {@code maxEntries} contents are remembered; beyond
+ * that the oldest entry is dropped, so memory stays bounded on trees with few duplicates.
+ * Two threads that meet the same new content at once both count it.
+ */
+public class ContentDeduplicator {
+
+    public static final int DEFAULT_MAX_ENTRIES = 1 << 16;
+
+    /**
+     * Stands for a binary file, which has no statistics.
+     */
+    private static final FileStatistics BINARY = new FileStatistics(0, 0, 0, 0);
+
+    private final int maxEntries;
+    private final ConcurrentMap<Key, FileStatistics> entries = new ConcurrentHashMap<>();
+    private final Queue<Key> insertionOrder = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final LongAdder deduplicatedFiles = new LongAdder();
+    private final LongAdder deduplicatedBytes = new LongAdder();
+
+    public ContentDeduplicator() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    public ContentDeduplicator(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Returns the statistics of an earlier content with the same definition, size and hash,
+     * or runs {@code analysis} and remembers its result. {@code null} means binary, as usual.
+     */
+    <E extends Exception> FileStatistics getOrAnalyze(CommentDefinition definition, long sizeInBytes, long hash,
+                                                      Analysis<E> analysis) throws E {
+        Key key = new Key(definition, sizeInBytes, hash);
+        FileStatistics known = entries.get(key);
+        if (known != null) {
+            deduplicatedFiles.increment();
+            deduplicatedBytes.add(sizeInBytes);
+            return known == BINARY ? null : known;
+        }
+
+        FileStatistics statistics = analysis.run();
+        if (entries.putIfAbsent(key, statistics != null ? statistics : BINARY) == null) {
+            insertionOrder.offer(key);
+            if (size.incrementAndGet() > maxEntries) {
+                evictOldest();
+            }
+        }
+        return statistics;
+    }
+
+    public long getDeduplicatedFiles() {
+        return deduplicatedFiles.sum();
+    }
+
+    public long getDeduplicatedBytes() {
+        return deduplicatedBytes.sum();
+    }
+
+    private void evictOldest() {
+        Key oldest = insertionOrder.poll();
+        if (oldest != null) {
+            entries.remove(oldest);
+            size.decrementAndGet();
+        }
+    }
+
+    @FunctionalInterface
+    interface Analysis<E extends Exception> {
+        FileStatistics run() throws E;
+    }
+
+    /**
+     * Definitions are compared by identity, so all analyzers sharing a deduplicator must share
+     * one {@link CommentAnalyzer}.
+     */
+    private record Key(CommentDefinition definition, long sizeInBytes, long hash) {
+    }
+}
@@ -0,0 +1,203 @@
+package dev.zux13.filestatistics.analysis;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+import java.nio.ByteBuffer;
+
+import static dev.zux13.filestatistics.analysis.TextEncoding.*;
+
+/**
+ * Tells the encoding of a file from its first {@link #SAMPLE_SIZE} bytes without decoding
+ * them. A byte order mark decides outright. Without one, zero bytes that repeat at every
+ * second or fourth position mark UTF-16 or UTF-32 text, and any other zero or control byte
+ * marks a binary file. What remains is validated as UTF-8, eight ASCII bytes per step,
+ * and falls back to {@link TextEncoding#SINGLE_BYTE} when it is not valid.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public class EncodingSniffer {
+
+    static final int SAMPLE_SIZE = 512;
+
+    private static final long HIGH_BITS = 0x8080808080808080L;
+    private static final long SPACES = 0x2020202020202020L;
+    private static final TextEncoding[] BY_BOM = {UTF_32LE, UTF_32BE, UTF_8, UTF_16LE, UTF_16BE};
+
+    /**
+     * Sniffs {@code content} from index 0. {@code length} is the length of the whole file,
+     * of which {@code content} may hold only a prefix; it lets a wide encoding be rejected
+     * when the file does not end on a code unit boundary.
+     */
+    public static TextEncoding sniff(ByteBuffer content, long length) {
+        int sampleLength = (int) Math.min(Math.min(length, content.limit()), SAMPLE_SIZE);
+        boolean wholeFile = sampleLength == length;
+
+        for (TextEncoding encoding : BY_BOM) {
+            int bomLength = encoding.bomLength(content);
+            if (bomLength > 0 && bomLength <= sampleLength) {
+                if (encoding.isWide()) {
+                    return checkCodeUnits(content, bomLength, sampleLength, length, encoding);
+                }
+                return checkAsciiCompatible(content, bomLength, sampleLength, wholeFile) == BINARY ? BINARY : UTF_8;
+            }
+        }
+
+        TextEncoding wide = wideByZeroBytes(content, sampleLength);
+        if (wide != null) {
+            return checkCodeUnits(content, 0, sampleLength, length, wide);
+        }
+        return checkAsciiCompatible(content, 0, sampleLength, wholeFile);
+    }
+
+    /**
+     * ASCII text in UTF-16 has a zero high byte in every code unit, and in UTF-32 three
+     * zero bytes per unit. Requiring a quarter of the units to look like that, and the other
+     * byte lane to be almost free of zeros, still accepts text that is mostly non-Latin.
+     */
+    private static TextEncoding wideByZeroBytes(ByteBuffer content, int sampleLength) {
+        int end = sampleLength & ~3;
+        int[] zeros = new int[4];
+        for (int i = 0; i < end; i++) {
+            if (content.get(i) == 0) {
+                zeros[i & 3]++;
+            }
+        }
+
+        int units = end / 4;
+        if (units == 0) {
+            return null;
+        }
+        if (zeros[3] == units && zeros[2] * 10 >= units * 9 && zeros[0] < units) {
+            return UTF_32LE;
+        }
+        if (zeros[0] == units && zeros[1] * 10 >= units * 9 && zeros[3] < units) {
+            return UTF_32BE;
+        }
+        int even = zeros[0] + zeros[2];
+        int odd = zeros[1] + zeros[3];
+        if (odd * 2 >= units && even * 16 <= odd) {
+            return UTF_16LE;
+        }
+        if (even * 2 >= units && odd * 16 <= even) {
+            return UTF_16BE;
+        }
+        return null;
+    }
+
+    private static TextEncoding checkCodeUnits(ByteBuffer content, int from, int sampleLength,
+                                               long length, TextEncoding encoding) {
+        int width = encoding.unitWidth();
+        if ((length - from) % width != 0) {
+            return BINARY;
+        }
+        ByteBuffer units = content.duplicate().order(encoding.byteOrder());
+        boolean expectLowSurrogate = false;
+        for (int i = from; i + width <= sampleLength; i += width) {
+            int unit = width == 2 ? units.getChar(i) : units.getInt(i);
+            if (isControl(unit)) {
+                return BINARY;
+            }
+            if (width == 4) {
+                if (unit < 0 || unit > Character.MAX_CODE_POINT
+                        || (unit >= Character.MIN_SURROGATE && unit <= Character.MAX_SURROGATE)) {
+                    return BINARY;
+                }
+            } else {
+                char c = (char) unit;
+                if (expectLowSurrogate != Character.isLowSurrogate(c)) {
+                    return BINARY;
+                }
+                expectLowSurrogate = Character.isHighSurrogate(c);
+            }
+        }
+        return encoding;
+    }
+
+    /**
+     * Words of eight printable ASCII bytes are skipped in one step; any other word is
+     * checked byte by byte. A sequence cut off by the end of the sample, but not by the end
+     * of the file, counts as valid.
+     */
+    private static TextEncoding checkAsciiCompatible(ByteBuffer content, int from, int sampleLength,
+                                                     boolean wholeFile) {
+        boolean validUtf8 = true;
+        int i = from;
+        while (i < sampleLength) {
+            int wordEnd = Math.min(i + Long.BYTES, sampleLength);
+            if (wordEnd - i == Long.BYTES) {
+                long word = content.getLong(i);
+                if ((word & HIGH_BITS) == 0 && ((word - SPACES) & ~word & HIGH_BITS) == 0) {
+                    i = wordEnd;
+                    continue;
+                }
+            }
+            while (i < wordEnd) {
+                byte b = content.get(i);
+                if (b >= 0) {
+                    if (isControl(b)) {
+                        return BINARY;
+                    }
+                    i++;
+                } else {
+                    int width = utf8SequenceLength(content, i, sampleLength, wholeFile);
+                    if (width == 0) {
+                        validUtf8 = false;
+                        width = 1;
+                    }
+                    i += width;
+                }
+            }
+        }
+        return validUtf8 ? UTF_8 : SINGLE_BYTE;
+    }
+
+    /**
+     * Returns the length of the well-formed UTF-8 sequence starting at {@code index}, or 0.
+     * Overlong forms, surrogates and code points past U+10FFFF are rejected through the
+     * allowed range of the second byte.
+     */
+    private static int utf8SequenceLength(ByteBuffer content, int index, int sampleLength, boolean wholeFile) {
+        int lead = content.get(index) & 0xFF;
+        int length;
+        int secondMin = 0x80;
+        int secondMax = 0xBF;
+        if (lead >= 0xC2 && lead <= 0xDF) {
+            length = 2;
+        } else if (lead >= 0xE0 && lead <= 0xEF) {
+            length = 3;
+            if (lead == 0xE0) {
+                secondMin = 0xA0;
+            } else if (lead == 0xED) {
+                secondMax = 0x9F;
+            }
+        } else if (lead >= 0xF0 && lead <= 0xF4) {
+            length = 4;
+            if (lead == 0xF0) {
+                secondMin = 0x90;
+            } else if (lead == 0xF4) {
+                secondMax = 0x8F;
+            }
+        } else {
+            return 0;
+        }
+
+        for (int k = 1; k < length; k++) {
+            if (index + k >= sampleLength) {
+                return wholeFile ? 0 : sampleLength - index;
+            }
+            int b = content.get(index + k) & 0xFF;
+            if (b < (k == 1 ? secondMin : 0x80) || b > (k == 1 ? secondMax : 0xBF)) {
+                return 0;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Control characters other than {@code \t}, {@code \n}, vertical tab, form feed and
+     * {@code \r}, which do not occur in text files.
+     */
+    private static boolean isControl(int c) {
+        return (c >= 0 && c < 0x09) || (c > 0x0D && c < 0x20);
+    }
+}
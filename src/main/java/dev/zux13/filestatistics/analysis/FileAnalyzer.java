@@ -1,69 +1,285 @@
 package dev.zux13.filestatistics.analysis;
 
+import dev.zux13.filestatistics.analysis.definition.CommentDefinition;
 import dev.zux13.filestatistics.analysis.model.FileStatistics;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.nio.charset.*;
-import java.nio.file.Files;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Path;
-import java.util.ArrayList;
-import java.util.List;
+import java.nio.file.StandardOpenOption;
 
 public class FileAnalyzer {
 
-    private static final int SAMPLE_SIZE = 512;
+    /**
+     * Bump whenever a change alters the statistics produced for the same file content.
+     */
+    public static final int ANALYZER_VERSION = 4;
+    public static final long DEFAULT_MMAP_THRESHOLD = 4L * 1024 * 1024;
+
+    private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_BUFFER_SIZE = Integer.MAX_VALUE - 8;
+    private static final int MAX_MAPPED_WINDOW = 1 << 30;
 
     private final CommentAnalyzer commentAnalyzer;
+    private final long mmapThreshold;
+    private final ContentDeduplicator deduplicator;
+    private final int mappedWindow;
+    private final LineCounter lineCounter = LineCounter.create();
+    /**
+     * Large enough for every file read into memory, so steady reading allocates nothing.
+     */
+    private final int maxPooledBufferSize;
+    private final BufferPool bufferPool;
 
     public FileAnalyzer(CommentAnalyzer commentAnalyzer) {
+        this(commentAnalyzer, DEFAULT_MMAP_THRESHOLD);
+    }
+
+    public FileAnalyzer(CommentAnalyzer commentAnalyzer, long mmapThreshold) {
+        this(commentAnalyzer, mmapThreshold, null);
+    }
+
+    /**
+     * @param deduplicator when not {@code null}, every file is hashed before it is counted and
+     *                     a content seen before reuses the earlier statistics
+     */
+    public FileAnalyzer(CommentAnalyzer commentAnalyzer, long mmapThreshold, ContentDeduplicator deduplicator) {
+        this(commentAnalyzer, mmapThreshold, deduplicator, MAX_MAPPED_WINDOW);
+    }
+
+    /**
+     * @param mappedWindow how much of a mapped file is counted at a time, a multiple of four
+     */
+    FileAnalyzer(CommentAnalyzer commentAnalyzer, long mmapThreshold, ContentDeduplicator deduplicator,
+                 int mappedWindow) {
         this.commentAnalyzer = commentAnalyzer;
+        this.mmapThreshold = mmapThreshold;
+        this.deduplicator = deduplicator;
+        this.mappedWindow = mappedWindow;
+        this.maxPooledBufferSize = (int) Math.max(INITIAL_BUFFER_SIZE, Math.min(mmapThreshold, MAX_BUFFER_SIZE - 1) + 1);
+        this.bufferPool = new BufferPool(INITIAL_BUFFER_SIZE, maxPooledBufferSize);
+    }
+
+    public String getFingerprint() {
+        return ANALYZER_VERSION + ";" + commentAnalyzer.getFingerprint();
     }
 
     public FileStatistics analyzeFile(Path filePath) throws IOException {
-        if (isBinary(filePath)) {
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            return analyze(filePath, channel, channel.size());
+        }
+    }
+
+    /**
+     * Same as {@link #analyzeFile(Path)} for a file whose size is already known, e.g. from the
+     * walk, which saves a {@code stat} per file. The size only picks the read strategy and the
+     * buffer size; a file that changed since is still read to its current end.
+     */
+    public FileStatistics analyzeFile(Path filePath, long expectedSize) throws IOException {
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            return analyze(filePath, channel, expectedSize);
+        }
+    }
+
+    private FileStatistics analyze(Path filePath, FileChannel channel, long expectedSize) throws IOException {
+        CommentDefinition definition = commentAnalyzer.getDefinition(filePath);
+
+        return expectedSize > mmapThreshold
+                ? analyzeMapped(channel, channel.size(), definition)
+                : analyzeBuffered(channel, expectedSize, definition);
+    }
+
+    /**
+     * Analyzes content that is already in memory, such as a blob read from a Git repository.
+     * {@code name} only selects the comment definition.
+     */
+    public FileStatistics analyzeContent(Path name, byte[] content) {
+        return countDeduplicated(ByteBuffer.wrap(content), commentAnalyzer.getDefinition(name));
+    }
+
+    private FileStatistics analyzeBuffered(FileChannel channel, long sizeInBytes,
+                                           CommentDefinition definition) throws IOException {
+        ByteBuffer acquired = bufferPool.acquire();
+        ByteBuffer content = acquired;
+        try {
+            content = readFully(channel, sizeInBytes, acquired);
+            return countDeduplicated(content, definition);
+        } finally {
+            bufferPool.release(acquired, content);
+        }
+    }
+
+    private FileStatistics countDeduplicated(ByteBuffer content, CommentDefinition definition) {
+        if (deduplicator == null) {
+            return count(content, definition);
+        }
+        long hash = ContentHash.hash(content, 0, content.limit(), 0);
+        return deduplicator.getOrAnalyze(definition, content.limit(), hash, () -> count(content, definition));
+    }
+
+    private FileStatistics count(ByteBuffer content, CommentDefinition definition) {
+        int length = content.limit();
+        TextEncoding encoding = EncodingSniffer.sniff(content, length);
+        if (encoding == TextEncoding.BINARY) {
             return null;
         }
+        int bomLength = encoding.bomLength(content);
+        if (encoding.isWide()) {
+            WideTextCounter counter = new WideTextCounter(lineCounter, definition, encoding);
+            counter.feed(content, bomLength, length);
+            return counter.finish(length);
+        }
+        FileStatistics statistics = lineCounter.count(content, bomLength, length, definition, new AnalysisState());
+        return withSize(statistics, length);
+    }
 
-        long sizeInBytes = Files.size(filePath);
+    private FileStatistics analyzeMapped(FileChannel channel, long sizeInBytes,
+                                         CommentDefinition definition) throws IOException {
+        if (deduplicator == null) {
+            return countMapped(channel, sizeInBytes, definition);
+        }
+        long hash = hashMapped(channel, sizeInBytes);
+        return deduplicator.getOrAnalyze(definition, sizeInBytes, hash,
+                () -> countMapped(channel, sizeInBytes, definition));
+    }
 
-        List<String> lines = readAllLinesSafely(filePath);
+    /**
+     * Chains the hashes of fixed windows, so the result depends only on the content.
+     */
+    private long hashMapped(FileChannel channel, long sizeInBytes) throws IOException {
+        long hash = 0;
+        try {
+            for (long position = 0; position < sizeInBytes; position += MAX_MAPPED_WINDOW) {
+                long windowSize = Math.min(sizeInBytes - position, MAX_MAPPED_WINDOW);
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, windowSize);
+                hash = ContentHash.hash(window, 0, window.limit(), hash);
+            }
+        } catch (InternalError e) {
+            throw new IOException("File changed while being read", e);
+        }
+        return hash;
+    }
 
-        long totalLines = lines.size();
-        long nonEmptyLines = lines.stream().map(String::strip).filter(s -> !s.isEmpty()).count();
-        long commentLines = commentAnalyzer.countCommentLines(lines, filePath);
+    private FileStatistics countMapped(FileChannel channel, long sizeInBytes,
+                                       CommentDefinition definition) throws IOException {
+        AnalysisState state = new AnalysisState();
+        FileStatistics total = new FileStatistics(0, 0, 0, 0);
+        TextEncoding encoding = null;
+        WideTextCounter wideCounter = null;
+        long position = 0;
 
-        return new FileStatistics(sizeInBytes, totalLines, nonEmptyLines, commentLines);
+        try {
+            while (position < sizeInBytes) {
+                long windowSize = Math.min(sizeInBytes - position, mappedWindow);
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, windowSize);
+
+                int start = 0;
+                if (position == 0) {
+                    encoding = EncodingSniffer.sniff(window, sizeInBytes);
+                    if (encoding == TextEncoding.BINARY) {
+                        return null;
+                    }
+                    start = encoding.bomLength(window);
+                    if (encoding.isWide()) {
+                        wideCounter = new WideTextCounter(lineCounter, definition, encoding);
+                    }
+                }
+
+                if (wideCounter != null) {
+                    // Windows are a multiple of four bytes long, so none splits a code unit
+                    wideCounter.feed(window, start, window.limit());
+                    position += windowSize;
+                    continue;
+                }
+
+                boolean lastWindow = position + windowSize == sizeInBytes;
+                int end = lastWindow ? window.limit() : cutPoint(window, start);
+
+                total = total.plus(lineCounter.count(window, start, end, definition, state));
+                position += end;
+            }
+        } catch (InternalError e) {
+            // Raised when a mapped page disappears, e.g. the file was truncated while being read
+            throw new IOException("File changed while being read", e);
+        }
+        return wideCounter != null ? wideCounter.finish(sizeInBytes) : withSize(total, sizeInBytes);
     }
 
-    private List<String> readAllLinesSafely(Path file) {
-        try (InputStream in = Files.newInputStream(file);
-             BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+    /**
+     * Counters see the content without its byte order mark; the reported size includes it.
+     */
+    private FileStatistics withSize(FileStatistics statistics, long sizeInBytes) {
+        return new FileStatistics(sizeInBytes, statistics.totalLines(),
+                statistics.nonEmptyLines(), statistics.commentLines());
+    }
 
-            List<String> lines = new ArrayList<>();
-            String line;
-            while ((line = reader.readLine()) != null) {
-                lines.add(line);
+    /**
+     * Returns where to end the count of a window that is not the last one: after its last line
+     * feed, or, in a window without one, inside the line that fills it. The line counter
+     * carries that line into the next window; the cut is moved back so it splits neither a
+     * UTF-8 character nor a CRLF pair.
+     */
+    private int cutPoint(ByteBuffer window, int start) {
+        int limit = window.limit();
+        for (int i = limit - 1; i >= start; i--) {
+            if (window.get(i) == '\n') {
+                return i + 1;
             }
-            return lines;
+        }
+        int end = limit;
+        int lead = limit - 1;
+        while (lead > start && limit - lead < 4 && (window.get(lead) & 0xC0) == 0x80) {
+            lead--;
+        }
+        if (lead + utf8Length(window.get(lead)) > limit) {
+            end = lead;
+        }
+        if (end > start && window.get(end - 1) == '\r') {
+            end--;
+        }
+        return end;
+    }
 
-        } catch (IOException e) {
-            return List.of();
+    /**
+     * Length of the UTF-8 sequence that {@code lead} starts, or 1 for a byte that starts none.
+     */
+    private static int utf8Length(byte lead) {
+        int b = lead & 0xFF;
+        if (b >= 0xF0) {
+            return 4;
         }
+        if (b >= 0xE0) {
+            return 3;
+        }
+        return b >= 0xC0 ? 2 : 1;
     }
 
-    private boolean isBinary(Path file) throws IOException {
-        try (InputStream in = Files.newInputStream(file)) {
-            byte[] buffer = new byte[SAMPLE_SIZE];
-            int read = in.read(buffer);
-            for (int i = 0; i < read; i++) {
-                byte b = buffer[i];
-                if (b < 0x09) return true;
-                if (b > 0x0D && b < 0x20) return true;
+    private ByteBuffer readFully(FileChannel channel, long expectedSize, ByteBuffer pooled) throws IOException {
+        // One spare byte lets the read loop see EOF without growing the buffer
+        ByteBuffer buffer = ensureCapacity(pooled, expectedSize + 1);
+
+        while (channel.read(buffer) != -1) {
+            if (!buffer.hasRemaining()) {
+                ByteBuffer previous = buffer.flip();
+                buffer = ensureCapacity(previous, (long) previous.capacity() * 2);
+                buffer.put(previous);
             }
         }
-        return false;
+        return buffer.flip();
+    }
+
+    private ByteBuffer ensureCapacity(ByteBuffer buffer, long capacity) throws IOException {
+        if (buffer.capacity() >= capacity) {
+            return buffer;
+        }
+        if (capacity > MAX_BUFFER_SIZE) {
+            throw new IOException("File is too large to be analyzed: " + capacity + " bytes");
+        }
+        // Growing at least twofold, up to the pooled size, lets a pooled buffer reach the size
+        // of the largest files in a few steps instead of one allocation per larger file
+        long grown = Math.max(capacity, Math.min(2L * buffer.capacity(), maxPooledBufferSize));
+        return ByteBuffer.allocate((int) grown);
     }
 }
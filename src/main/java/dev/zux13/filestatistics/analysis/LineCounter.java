@@ -0,0 +1,236 @@
+package dev.zux13.filestatistics.analysis;
+
+import dev.zux13.filestatistics.analysis.definition.CommentDefinition;
+import dev.zux13.filestatistics.analysis.model.FileStatistics;
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+/**
+ * Counts lines, non-empty lines and comment lines directly over UTF-8 bytes.
+ * Line splitting follows {@link java.io.BufferedReader#readLine()} and blank
+ * detection follows {@link String#strip()}, so results match the decoded view
+ * of the file without creating a {@code String} per line. The content may live
+ * on the heap or in a mapped file region. The {@link CommentDefinition} finds the
+ * end of each line while lexing it, so every byte is read once.
+ * <p>
+ * This is the scalar kernel. {@link #create()} picks {@link VectorLineCounter}
+ * instead when the incubating Vector API is available.
+ */
+@Slf4j
+public class LineCounter {
+
+    private static final String VECTOR_KERNEL = "dev.zux13.filestatistics.analysis.VectorLineCounter";
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+    private static final boolean VECTOR_KERNEL_AVAILABLE = probeVectorKernel();
+
+    /**
+     * Returns the vector kernel when the JVM was started with
+     * {@code --add-modules jdk.incubator.vector}, and the scalar one otherwise.
+     */
+    public static LineCounter create() {
+        if (VECTOR_KERNEL_AVAILABLE) {
+            try {
+                return newVectorKernel();
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Vector kernel was available at startup", e);
+            }
+        }
+        return new LineCounter();
+    }
+
+    public static boolean isVectorKernelAvailable() {
+        return VECTOR_KERNEL_AVAILABLE;
+    }
+
+    /**
+     * Loads the vector kernel reflectively, so this class never links against the incubator
+     * module, and checks it on a sample before trusting it.
+     */
+    private static boolean probeVectorKernel() {
+        if (ModuleLayer.boot().findModule(VECTOR_MODULE).isEmpty()) {
+            log.debug("Module {} is not available, using the scalar line counter", VECTOR_MODULE);
+            return false;
+        }
+        try {
+            ByteBuffer sample = ByteBuffer.wrap("a\r\n  \n\u2003# b\nc".getBytes(StandardCharsets.UTF_8));
+            CommentDefinition definition = new CommentAnalyzer().getDefinition(Path.of("sample.sh"));
+            boolean matches = newVectorKernel().count(sample, definition)
+                    .equals(new LineCounter().count(sample, definition));
+            log.debug("Vector line counter {}", matches ? "enabled" : "disagrees with the scalar one, not used");
+            return matches;
+        } catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+            log.debug("Vector line counter is not usable: {}", e.toString());
+            return false;
+        }
+    }
+
+    private static LineCounter newVectorKernel() throws ReflectiveOperationException {
+        return (LineCounter) Class.forName(VECTOR_KERNEL).getDeclaredConstructor().newInstance();
+    }
+
+    public FileStatistics count(ByteBuffer content, CommentDefinition definition) {
+        return count(content, content.position(), content.limit(), definition, new AnalysisState());
+    }
+
+    /**
+     * Counts the lines in {@code [from, to)}. The range must start at a line boundary or
+     * where the previous range of the same file ended, and must not end between a carriage
+     * return and a line feed; {@code state} lets consecutive ranges be counted separately and
+     * the results summed. A line cut by the end of a range is counted in the range where it
+     * starts and continued in the next one.
+     */
+    public final FileStatistics count(ByteBuffer content, int from, int to,
+                                      CommentDefinition definition, AnalysisState state) {
+        if (!state.isMidLine() || from == to) {
+            FileStatistics statistics = countLines(content, from, to, definition, state);
+            recordCutLine(content, from, to, state);
+            return statistics;
+        }
+        long nonEmptyLines = 0;
+        long commentLines = 0;
+
+        int textStart = from;
+        int lineEnd;
+        if (state.isTextOnLine()) {
+            lineEnd = definition.continueLine(content, from, to, state);
+        } else {
+            // A blank start of a line was counted as a comment when it lies in a block comment
+            boolean counted = state.getBlockDepth() > 0;
+            textStart = skipWhitespace(content, from, to);
+            int scanned = definition.scanLine(content, textStart, to, state);
+            lineEnd = scanned < 0 ? ~scanned : scanned;
+            if (textStart < lineEnd) {
+                nonEmptyLines++;
+                state.setTextOnLine(true);
+            }
+            if (scanned < 0 && !counted) {
+                commentLines++;
+            }
+        }
+        if (lineEnd == to) {
+            return new FileStatistics(to - from, 0, nonEmptyLines, commentLines);
+        }
+        state.setMidLine(false);
+
+        int next = nextLineStart(content, lineEnd, to);
+        FileStatistics rest = countLines(content, next, to, definition, state);
+        recordCutLine(content, next, to, state);
+        return new FileStatistics(to - from, rest.totalLines(),
+                rest.nonEmptyLines() + nonEmptyLines, rest.commentLines() + commentLines);
+    }
+
+    /**
+     * Counts the lines in {@code [from, to)}, which starts at a line boundary.
+     */
+    FileStatistics countLines(ByteBuffer content, int from, int to,
+                              CommentDefinition definition, AnalysisState state) {
+        long totalLines = 0;
+        long nonEmptyLines = 0;
+        long commentLines = 0;
+
+        int lineStart = from;
+        while (lineStart < to) {
+            int textStart = skipWhitespace(content, lineStart, to);
+            int scanned = definition.scanLine(content, textStart, to, state);
+            int lineEnd = scanned < 0 ? ~scanned : scanned;
+
+            totalLines++;
+            if (textStart < lineEnd) {
+                nonEmptyLines++;
+            }
+            if (scanned < 0) {
+                commentLines++;
+            }
+
+            lineStart = nextLineStart(content, lineEnd, to);
+        }
+
+        return new FileStatistics(to - from, totalLines, nonEmptyLines, commentLines);
+    }
+
+    /**
+     * Notes in {@code state} a last line of {@code [from, to)} that has no terminator, so the
+     * next range continues it. Checked once per range rather than per line, which keeps the
+     * counting loops as tight as they were.
+     */
+    private void recordCutLine(ByteBuffer content, int from, int to, AnalysisState state) {
+        if (from == to || isTerminator(content.get(to - 1))) {
+            return;
+        }
+        int lineStart = to - 1;
+        while (lineStart > from && !isTerminator(content.get(lineStart - 1))) {
+            lineStart--;
+        }
+        state.setMidLine(true);
+        state.setTextOnLine(skipWhitespace(content, lineStart, to) < to);
+    }
+
+    private static boolean isTerminator(byte b) {
+        return b == '\n' || b == '\r';
+    }
+
+    int nextLineStart(ByteBuffer content, int lineEnd, int length) {
+        if (lineEnd >= length) {
+            return length;
+        }
+        if (content.get(lineEnd) == '\r' && lineEnd + 1 < length && content.get(lineEnd + 1) == '\n') {
+            return lineEnd + 2;
+        }
+        return lineEnd + 1;
+    }
+
+    /**
+     * Returns the index of the first non-whitespace byte from {@code from}, stopping at the
+     * line terminator.
+     */
+    int skipWhitespace(ByteBuffer content, int from, int to) {
+        int i = from;
+        while (i < to) {
+            byte b = content.get(i);
+            if (b >= 0) {
+                if (b == '\n' || b == '\r' || !isAsciiWhitespace(b)) {
+                    return i;
+                }
+                i++;
+            } else {
+                int width = unicodeWhitespaceWidth(content, i, to);
+                if (width == 0) {
+                    return i;
+                }
+                i += width;
+            }
+        }
+        return to;
+    }
+
+    static boolean isAsciiWhitespace(byte b) {
+        return b == ' ' || (b >= 0x09 && b <= 0x0D) || (b >= 0x1C && b <= 0x1F);
+    }
+
+    /**
+     * Returns the encoded length of a non-ASCII whitespace character starting at
+     * {@code index}, or 0 if there is none. Every such character
+     * (U+1680, U+2000..U+200A except U+2007, U+2028, U+2029, U+205F, U+3000)
+     * is encoded in exactly three bytes.
+     */
+    private int unicodeWhitespaceWidth(ByteBuffer content, int index, int to) {
+        if (to - index < 3) {
+            return 0;
+        }
+        int b0 = content.get(index) & 0xFF;
+        int b1 = content.get(index + 1) & 0xFF;
+        int b2 = content.get(index + 2) & 0xFF;
+
+        boolean whitespace = switch (b0) {
+            case 0xE1 -> b1 == 0x9A && b2 == 0x80;
+            case 0xE2 -> (b1 == 0x80 && ((b2 >= 0x80 && b2 <= 0x8A && b2 != 0x87) || b2 == 0xA8 || b2 == 0xA9))
+                    || (b1 == 0x81 && b2 == 0x9F);
+            case 0xE3 -> b1 == 0x80 && b2 == 0x80;
+            default -> false;
+        };
+        return whitespace ? 3 : 0;
+    }
+}
@@ -18,6 +18,9 @@ public class StatisticsAggregator {
     private long ignoredByGitignoreCount;
     private long ignoredByExtensionCount;
     private long ignoredBinaryOrEncodingCount;
+    private long ignoredDuplicatesCount;
+    private long deduplicatedFileCount;
+    private long deduplicatedBytes;
 
     public OutputStatistics getOutputStatistics() {
         if (statisticsByExtension == null) {
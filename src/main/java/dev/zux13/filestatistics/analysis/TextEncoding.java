@@ -0,0 +1,64 @@
+package dev.zux13.filestatistics.analysis;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Encodings {@link EncodingSniffer} tells apart. The ASCII-compatible ones are counted over
+ * their raw bytes; the wide ones go through {@link WideTextCounter} one code unit at a time.
+ */
+public enum TextEncoding {
+
+    BINARY(0, ByteOrder.BIG_ENDIAN),
+    UTF_8(1, ByteOrder.BIG_ENDIAN, 0xEF, 0xBB, 0xBF),
+    /**
+     * Text that is not valid UTF-8 but free of control bytes, such as Latin-1 or Windows-1251.
+     * Line terminators and ASCII comment tokens are the same bytes as in UTF-8.
+     */
+    SINGLE_BYTE(1, ByteOrder.BIG_ENDIAN),
+    UTF_16LE(2, ByteOrder.LITTLE_ENDIAN, 0xFF, 0xFE),
+    UTF_16BE(2, ByteOrder.BIG_ENDIAN, 0xFE, 0xFF),
+    UTF_32LE(4, ByteOrder.LITTLE_ENDIAN, 0xFF, 0xFE, 0x00, 0x00),
+    UTF_32BE(4, ByteOrder.BIG_ENDIAN, 0x00, 0x00, 0xFE, 0xFF);
+
+    private final int unitWidth;
+    private final ByteOrder byteOrder;
+    private final byte[] bom;
+
+    TextEncoding(int unitWidth, ByteOrder byteOrder, int... bom) {
+        this.unitWidth = unitWidth;
+        this.byteOrder = byteOrder;
+        this.bom = new byte[bom.length];
+        for (int i = 0; i < bom.length; i++) {
+            this.bom[i] = (byte) bom[i];
+        }
+    }
+
+    public int unitWidth() {
+        return unitWidth;
+    }
+
+    public ByteOrder byteOrder() {
+        return byteOrder;
+    }
+
+    public boolean isWide() {
+        return unitWidth > 1;
+    }
+
+    /**
+     * Returns the length of this encoding's byte order mark if {@code content} starts with
+     * one at index 0, and 0 otherwise.
+     */
+    public int bomLength(ByteBuffer content) {
+        if (bom.length == 0 || content.limit() < bom.length) {
+            return 0;
+        }
+        for (int i = 0; i < bom.length; i++) {
+            if (content.get(i) != bom[i]) {
+                return 0;
+            }
+        }
+        return bom.length;
+    }
+}
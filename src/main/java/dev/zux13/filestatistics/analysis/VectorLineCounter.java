@@ -0,0 +1,264 @@
+package dev.zux13.filestatistics.analysis;
+
+import dev.zux13.filestatistics.analysis.definition.CommentDefinition;
+import dev.zux13.filestatistics.analysis.model.FileStatistics;
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * {@link LineCounter} kernel built on the incubating Vector API. The two searches every line
+ * needs — the first non-whitespace byte and the line terminator — compare a whole vector of
+ * bytes at once, 32 with AVX2 and 64 with AVX-512, and take the first matching lane. Lexed
+ * syntaxes search for the terminator and the token start bytes together, so a line of plain
+ * code is never handed to the lexer.
+ * <p>
+ * Content with short lines, judged from a sample at its start, is left to the scalar kernel.
+ * Otherwise the scalar path takes over only for a line that starts inside a block comment or
+ * multi-line string, that holds a token, or whose first non-whitespace byte may begin
+ * non-ASCII whitespace. Mask-to-bitmap conversions are avoided because JDK 17 does not compile them
+ * to vector instructions. Only loaded through {@link LineCounter#create()}, so the incubator
+ * module is never required.
+ */
+class VectorLineCounter extends LineCounter {
+
+    private static final VectorSpecies<Byte> SPECIES = ByteVector.SPECIES_PREFERRED;
+    private static final int WIDTH = SPECIES.length();
+    private static final int MAX_TOKEN_START_BYTES = 8;
+    /**
+     * Bytes checked one by one before the first vector load. Short indentation ends within
+     * them, where a vector compare costs more than it saves.
+     */
+    private static final int SCALAR_PREFIX = 16;
+    /**
+     * Content whose sampled lines are shorter than this on average is counted by the scalar
+     * kernel: per line, the vector searches cost more than they save.
+     */
+    private static final int LONG_LINE = 48;
+    private static final int SAMPLE_SIZE = 4096;
+
+    @Override
+    FileStatistics countLines(ByteBuffer content, int from, int to,
+                              CommentDefinition definition, AnalysisState state) {
+        byte[] tokenStarts = definition.tokenStartBytes();
+        Blocks blocks = new Blocks(content, to, tokenStarts);
+        if (tokenStarts.length > MAX_TOKEN_START_BYTES || !blocks.hasLongLines(from)) {
+            return super.countLines(content, from, to, definition, state);
+        }
+        boolean lexed = definition.isLexed();
+
+        long totalLines = 0;
+        long nonEmptyLines = 0;
+        long commentLines = 0;
+
+        int lineStart = from;
+        while (lineStart < to) {
+            int textStart;
+            int lineEnd = -1;
+            if (state.getBlockDepth() == 0 && !state.isInString()) {
+                textStart = blocks.findTextOrTerminator(lineStart);
+                byte first = textStart < to ? content.get(textStart) : (byte) '\n';
+                if (isTerminator(first)) {
+                    lineEnd = textStart;
+                } else if (mayBeUnicodeWhitespace(first)) {
+                    textStart = skipWhitespace(content, textStart, to);
+                } else if (lexed) {
+                    int stop = blocks.findTerminatorOrTokenStart(textStart);
+                    if (stop == to || isTerminator(content.get(stop))) {
+                        lineEnd = stop;
+                    }
+                } else if (!contains(tokenStarts, first)) {
+                    lineEnd = blocks.findTerminator(textStart);
+                }
+            } else {
+                textStart = skipWhitespace(content, lineStart, to);
+            }
+
+            if (lineEnd < 0) {
+                int scanned = definition.scanLine(content, textStart, to, state);
+                lineEnd = scanned < 0 ? ~scanned : scanned;
+                if (scanned < 0) {
+                    commentLines++;
+                }
+            }
+
+            totalLines++;
+            if (textStart < lineEnd) {
+                nonEmptyLines++;
+            }
+            lineStart = nextLineStart(content, lineEnd, to);
+        }
+
+        return new FileStatistics(to - from, totalLines, nonEmptyLines, commentLines);
+    }
+
+    /**
+     * Lead bytes of the three-byte encodings of all non-ASCII whitespace characters.
+     */
+    private static boolean mayBeUnicodeWhitespace(byte b) {
+        return b == (byte) 0xE1 || b == (byte) 0xE2 || b == (byte) 0xE3;
+    }
+
+    private static boolean isTerminator(byte b) {
+        return b == '\n' || b == '\r';
+    }
+
+    private static boolean contains(byte[] bytes, byte b) {
+        for (byte candidate : bytes) {
+            if (candidate == b) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Vector searches over one buffer. Each returns the index of the first matching byte at or
+     * after {@code from}, or {@code to}. The first {@link #SCALAR_PREFIX} bytes and the bytes
+     * past the last full vector are checked one by one.
+     */
+    private static final class Blocks {
+
+        private final ByteBuffer content;
+        private final byte[] array;
+        private final int arrayOffset;
+        private final int to;
+        private final int lastBlock;
+        private final byte[] tokenStarts;
+        /**
+         * Token start bytes and line terminators, indexed by unsigned byte value.
+         */
+        private final boolean[] stops = new boolean[256];
+
+        Blocks(ByteBuffer content, int to, byte[] tokenStarts) {
+            this.content = content;
+            this.array = content.hasArray() ? content.array() : null;
+            this.arrayOffset = array != null ? content.arrayOffset() : 0;
+            this.to = to;
+            this.lastBlock = to - WIDTH;
+            this.tokenStarts = tokenStarts;
+            for (byte b : tokenStarts) {
+                stops[b & 0xFF] = true;
+            }
+            stops['\n'] = true;
+            stops['\r'] = true;
+        }
+
+        /**
+         * Whether the lines in the first {@link #SAMPLE_SIZE} bytes from {@code from} average
+         * at least {@link #LONG_LINE} bytes. Content shorter than the sample is too small for
+         * the choice to matter and counts as short.
+         */
+        boolean hasLongLines(int from) {
+            if (to - from < SAMPLE_SIZE) {
+                return false;
+            }
+            int terminators = 0;
+            for (int i = from; i < from + SAMPLE_SIZE; i += WIDTH) {
+                terminators += terminators(load(i)).trueCount();
+            }
+            return terminators * LONG_LINE <= SAMPLE_SIZE;
+        }
+
+        int findTextOrTerminator(int from) {
+            int i = from;
+            for (int prefixEnd = Math.min(from + SCALAR_PREFIX, to); i < prefixEnd; i++) {
+                if (isTextOrTerminator(byteAt(i))) {
+                    return i;
+                }
+            }
+            for (; i <= lastBlock; i += WIDTH) {
+                ByteVector block = load(i);
+                int lane = whitespace(block).not().or(terminators(block)).firstTrue();
+                if (lane < WIDTH) {
+                    return i + lane;
+                }
+            }
+            for (; i < to; i++) {
+                if (isTextOrTerminator(byteAt(i))) {
+                    return i;
+                }
+            }
+            return to;
+        }
+
+        int findTerminator(int from) {
+            int i = from;
+            for (int prefixEnd = Math.min(from + SCALAR_PREFIX, to); i < prefixEnd; i++) {
+                if (isTerminator(byteAt(i))) {
+                    return i;
+                }
+            }
+            for (; i <= lastBlock; i += WIDTH) {
+                int lane = terminators(load(i)).firstTrue();
+                if (lane < WIDTH) {
+                    return i + lane;
+                }
+            }
+            for (; i < to; i++) {
+                if (isTerminator(byteAt(i))) {
+                    return i;
+                }
+            }
+            return to;
+        }
+
+        int findTerminatorOrTokenStart(int from) {
+            int i = from;
+            for (int prefixEnd = Math.min(from + SCALAR_PREFIX, to); i < prefixEnd; i++) {
+                if (stops[byteAt(i) & 0xFF]) {
+                    return i;
+                }
+            }
+            for (; i <= lastBlock; i += WIDTH) {
+                ByteVector block = load(i);
+                VectorMask<Byte> stops = terminators(block);
+                for (byte b : tokenStarts) {
+                    stops = stops.or(block.eq(b));
+                }
+                int lane = stops.firstTrue();
+                if (lane < WIDTH) {
+                    return i + lane;
+                }
+            }
+            for (; i < to; i++) {
+                if (stops[byteAt(i) & 0xFF]) {
+                    return i;
+                }
+            }
+            return to;
+        }
+
+        private byte byteAt(int index) {
+            return array != null ? array[arrayOffset + index] : content.get(index);
+        }
+
+        private static boolean isTextOrTerminator(byte b) {
+            return isTerminator(b) || b < 0 || !isAsciiWhitespace(b);
+        }
+
+        private ByteVector load(int index) {
+            return array != null
+                    ? ByteVector.fromArray(SPECIES, array, arrayOffset + index)
+                    : ByteVector.fromByteBuffer(SPECIES, content, index, ByteOrder.nativeOrder());
+        }
+
+        private VectorMask<Byte> terminators(ByteVector block) {
+            return block.eq((byte) '\n').or(block.eq((byte) '\r'));
+        }
+
+        /**
+         * Lanes holding ASCII whitespace as {@link String#strip()} sees it: space,
+         * {@code 0x09..0x0D} and {@code 0x1C..0x1F}.
+         */
+        private VectorMask<Byte> whitespace(ByteVector block) {
+            return block.eq((byte) ' ')
+                    .or(block.sub((byte) 0x09).compare(VectorOperators.UNSIGNED_LT, (byte) 5))
+                    .or(block.sub((byte) 0x1C).compare(VectorOperators.UNSIGNED_LT, (byte) 4));
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package dev.zux13.filestatistics.analysis;
+
+import dev.zux13.filestatistics.analysis.definition.CommentDefinition;
+import dev.zux13.filestatistics.analysis.model.FileStatistics;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Counts UTF-16 and UTF-32 text with a {@link LineCounter} by narrowing every code unit to
+ * one byte: ASCII units keep their value, whitespace units become a space and all others
+ * become {@code 0x80}, which never starts a token and is never whitespace. Lines, blank
+ * lines and ASCII comment tokens therefore come out as in the decoded text; tokens with
+ * non-ASCII characters never match.
+ * <p>
+ * Content is fed in any number of pieces, each holding whole code units. Narrowed bytes are
+ * counted a chunk at a time, cut after the last line feed so no line is split between
+ * chunks. A line longer than the chunk is counted in pieces, its state carried from one to
+ * the next, so memory stays bounded.
+ */
+class WideTextCounter {
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final byte NON_ASCII = (byte) 0x80;
+
+    private final LineCounter lineCounter;
+    private final CommentDefinition definition;
+    private final TextEncoding encoding;
+    private final AnalysisState state = new AnalysisState();
+
+    private final byte[] narrowed = new byte[CHUNK_SIZE];
+    private int filled;
+    private FileStatistics total = new FileStatistics(0, 0, 0, 0);
+
+    WideTextCounter(LineCounter lineCounter, CommentDefinition definition, TextEncoding encoding) {
+        this.lineCounter = lineCounter;
+        this.definition = definition;
+        this.encoding = encoding;
+    }
+
+    void feed(ByteBuffer content, int from, int to) {
+        ByteBuffer units = content.duplicate().order(encoding.byteOrder());
+        int width = encoding.unitWidth();
+        for (int i = from; i + width <= to; i += width) {
+            if (filled == narrowed.length) {
+                flush();
+            }
+            int unit = width == 2 ? units.getChar(i) : units.getInt(i);
+            narrowed[filled++] = narrow(unit);
+        }
+    }
+
+    /**
+     * Counts what is left and reports {@code sizeInBytes}, the size of the encoded file.
+     */
+    FileStatistics finish(long sizeInBytes) {
+        count(filled);
+        filled = 0;
+        return new FileStatistics(sizeInBytes, total.totalLines(), total.nonEmptyLines(), total.commentLines());
+    }
+
+    private void flush() {
+        int end = filled;
+        while (end > 0 && narrowed[end - 1] != '\n') {
+            end--;
+        }
+        if (end == 0) {
+            // No line feed in the whole chunk: count the partial line, keeping a trailing
+            // carriage return for the next chunk in case a line feed follows it
+            end = narrowed[filled - 1] == '\r' ? filled - 1 : filled;
+        }
+        count(end);
+        System.arraycopy(narrowed, end, narrowed, 0, filled - end);
+        filled -= end;
+    }
+
+    private void count(int end) {
+        total = total.plus(lineCounter.count(ByteBuffer.wrap(narrowed), 0, end, definition, state));
+    }
+
+    private static byte narrow(int unit) {
+        if (unit >= 0 && unit < 0x80) {
+            return (byte) unit;
+        }
+        return Character.isWhitespace(unit) ? (byte) ' ' : NON_ASCII;
+    }
+}
@@ -0,0 +1,93 @@
+package dev.zux13.filestatistics.analysis.definition;
+
+import dev.zux13.filestatistics.analysis.definition.CommentSyntax.BlockComment;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Comment syntaxes known without any configuration. Markup languages list no string
+ * delimiters, because quotes in their text are usually prose rather than literals.
+ */
+public class BuiltInCommentSyntaxes implements CommentSyntaxProvider {
+
+    private static final List<String> SLASH_LINE = List.of("//");
+    private static final List<String> HASH_LINE = List.of("#");
+    private static final List<BlockComment> SLASH_STAR = List.of(new BlockComment("/*", "*/"));
+    private static final List<BlockComment> MARKUP = List.of(new BlockComment("<!--", "-->"));
+    private static final List<String> QUOTES = List.of("\"", "'");
+    private static final List<String> TRIPLE_QUOTES = List.of("\"\"\"");
+    private static final List<String> TRIPLE_QUOTES_BOTH = List.of("\"\"\"", "'''");
+    private static final List<String> BACKTICK = List.of("`");
+
+    /**
+     * Lower-case names of files that carry no extension but a well-known syntax, mapped to the
+     * extension whose syntax they use.
+     */
+    public static final Map<String, String> FILE_NAME_EXTENSIONS = Map.of(
+            "dockerfile", "dockerfile",
+            "containerfile", "dockerfile"
+    );
+
+    private static final List<CommentSyntax> SYNTAXES = List.of(
+            cFamily("java", List.of("java"), false, QUOTES, TRIPLE_QUOTES),
+            cFamily("c", List.of("c", "h"), false, QUOTES, List.of()),
+            cFamily("cpp", List.of("cpp", "cc", "cxx", "hpp", "hh", "hxx", "ino"), false, QUOTES, List.of()),
+            cFamily("csharp", List.of("cs"), false, QUOTES, TRIPLE_QUOTES),
+            cFamily("objective-c", List.of("m", "mm"), false, QUOTES, List.of()),
+            cFamily("javascript", List.of("js", "mjs", "cjs", "jsx"), false, QUOTES, BACKTICK),
+            cFamily("typescript", List.of("ts", "mts", "cts", "tsx"), false, QUOTES, BACKTICK),
+            cFamily("go", List.of("go"), false, QUOTES, BACKTICK),
+            cFamily("kotlin", List.of("kt", "kts"), true, QUOTES, TRIPLE_QUOTES),
+            cFamily("scala", List.of("scala", "sc"), true, QUOTES, TRIPLE_QUOTES),
+            cFamily("groovy", List.of("groovy", "gradle"), false, QUOTES, TRIPLE_QUOTES_BOTH),
+            cFamily("dart", List.of("dart"), true, QUOTES, TRIPLE_QUOTES_BOTH),
+            // A quote in Rust may start a lifetime rather than a character literal
+            cFamily("rust", List.of("rs"), true, List.of("\""), List.of()),
+            cFamily("swift", List.of("swift"), true, List.of("\""), TRIPLE_QUOTES),
+            cFamily("protobuf", List.of("proto"), false, QUOTES, List.of()),
+            cFamily("scss", List.of("scss", "less"), false, QUOTES, List.of()),
+            new CommentSyntax("php", List.of("php"), List.of("//", "#"), SLASH_STAR, false, QUOTES, List.of()),
+            new CommentSyntax("css", List.of("css"), List.of(), SLASH_STAR, false, QUOTES, List.of()),
+            new CommentSyntax("sql", List.of("sql"), List.of("--"), SLASH_STAR, false, List.of("'", "\""), List.of()),
+            new CommentSyntax("lua", List.of("lua"), List.of("--"), List.of(new BlockComment("--[[", "]]")), false, QUOTES, List.of()),
+            new CommentSyntax("haskell", List.of("hs"), List.of("--"), List.of(new BlockComment("{-", "-}")), true, List.of("\""), List.of()),
+            new CommentSyntax("powershell", List.of("ps1", "psm1"), HASH_LINE, List.of(new BlockComment("<#", "#>")), false, QUOTES, List.of()),
+            new CommentSyntax("xml", List.of("xml", "xsd", "xsl", "xslt", "svg", "pom", "fxml"), List.of(), MARKUP, false, List.of(), List.of()),
+            new CommentSyntax("html", List.of("html", "htm", "xhtml", "vue"), List.of(), MARKUP, false, List.of(), List.of()),
+            new CommentSyntax("markdown", List.of("md", "markdown"), List.of(), MARKUP, false, List.of(), List.of()),
+            hashLine("shell", List.of("sh", "bash", "zsh", "ksh", "fish")),
+            new CommentSyntax("python", List.of("py", "pyi", "pyw"), HASH_LINE, List.of(), false, QUOTES, TRIPLE_QUOTES_BOTH),
+            hashLine("ruby", List.of("rb", "rake", "gemspec")),
+            hashLine("perl", List.of("pl", "pm")),
+            hashLine("r", List.of("r")),
+            hashLine("yaml", List.of("yml", "yaml")),
+            hashLine("toml", List.of("toml")),
+            hashLine("make", List.of("mk", "mak")),
+            hashLine("cmake", List.of("cmake")),
+            hashLine("dockerfile", List.of("dockerfile")),
+            hashLine("terraform", List.of("tf", "tfvars")),
+            new CommentSyntax("properties", List.of("properties"), List.of("#", "!"), List.of(), false, List.of(), List.of()),
+            new CommentSyntax("ini", List.of("ini", "cfg", "conf"), List.of(";", "#"), List.of(), false, List.of(), List.of()),
+            new CommentSyntax("erlang", List.of("erl", "hrl"), List.of("%"), List.of(), false, List.of(), List.of()),
+            new CommentSyntax("tex", List.of("tex", "sty", "cls"), List.of("%"), List.of(), false, List.of(), List.of()),
+            new CommentSyntax("lisp", List.of("lisp", "el", "clj", "cljs", "edn", "scm"), List.of(";"), List.of(), false, List.of(), List.of()),
+            new CommentSyntax("vim", List.of("vim"), List.of("\""), List.of(), false, List.of(), List.of()),
+            new CommentSyntax("batch", List.of("bat", "cmd"), List.of("::", "REM ", "rem "), List.of(), false, List.of(), List.of())
+    );
+
+    @Override
+    public List<CommentSyntax> syntaxes() {
+        return SYNTAXES;
+    }
+
+    private static CommentSyntax cFamily(String name, List<String> extensions, boolean nestedBlocks,
+                                         List<String> stringDelimiters, List<String> multiLineStrings) {
+        return new CommentSyntax(name, extensions, SLASH_LINE, SLASH_STAR, nestedBlocks, stringDelimiters,
+                multiLineStrings);
+    }
+
+    private static CommentSyntax hashLine(String name, List<String> extensions) {
+        return new CommentSyntax(name, extensions, HASH_LINE, List.of(), false, List.of(), List.of());
+    }
+}
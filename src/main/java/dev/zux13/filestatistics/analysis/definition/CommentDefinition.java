@@ -1,7 +1,427 @@
 package dev.zux13.filestatistics.analysis.definition;
 
 import dev.zux13.filestatistics.analysis.AnalysisState;
+import dev.zux13.filestatistics.analysis.definition.CommentSyntax.BlockComment;
 
-public interface CommentDefinition {
-    boolean isComment(String line, AnalysisState state);
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A {@link CommentSyntax} compiled into a byte state machine: a trie of all its tokens stored
+ * as a transition table with 256 entries per state. Finding the token at a position is one
+ * table lookup per byte, and the row of the start state doubles as the set of bytes that can
+ * begin any token.
+ * <p>
+ * A line counts as a comment when it starts inside a block comment or its first
+ * non-whitespace token opens one. For syntaxes with block comments or multi-line strings the
+ * line is then lexed to its end in the same pass that finds the end: string and character
+ * literals are skipped, text blocks carry over to the next lines, and a block opened after
+ * code makes the following lines comments. Other syntaxes keep no state between lines, so
+ * their lines are only searched for the terminator, eight bytes at a time. This class is
+ * final to keep the per-line call in the counting loop monomorphic.
+ */
+public final class CommentDefinition {
+
+    /**
+     * Matches nothing; used for extensions without a known syntax.
+     */
+    public static final CommentDefinition NONE = compile(
+            new CommentSyntax("none", List.of("-"), List.of(), List.of(), false, List.of(), List.of()));
+
+    private static final int NO_TOKEN = -1;
+    private static final int LINE_COMMENT = 1;
+    private static final int QUOTE = 2;
+    private static final int MULTI_LINE_STRING = 3;
+    private static final int BLOCK_OPEN = 4;
+    private static final int KIND_SHIFT = 16;
+    private static final int INDEX_MASK = 0xFFFF;
+
+    private static final byte BACKSLASH = '\\';
+    private static final long LOW_BITS = 0x0101010101010101L;
+    private static final long HIGH_BITS = 0x8080808080808080L;
+    private static final long LINE_FEEDS = LOW_BITS * '\n';
+    private static final long CARRIAGE_RETURNS = LOW_BITS * '\r';
+
+    private final byte[][] blockOpens;
+    private final byte[][] blockCloses;
+    private final byte[][] quotes;
+    private final byte[][] multiLineStrings;
+    private final boolean nestedBlocks;
+    private final boolean lexed;
+
+    /**
+     * {@code transitions[state * 256 + byte]} is the next state, or 0 when no token continues.
+     */
+    private final int[] transitions;
+    /**
+     * Token recognized on reaching each state, as {@code kind << 16 | index}, or {@link #NO_TOKEN}.
+     */
+    private final int[] accepts;
+    /**
+     * Bytes where a run of code ends: the start of any token or a line terminator.
+     */
+    private final boolean[] stops = new boolean[256];
+
+    private CommentDefinition(CommentSyntax syntax) {
+        this.blockOpens = toBytes(syntax.blockComments().stream().map(BlockComment::open).toList());
+        this.blockCloses = toBytes(syntax.blockComments().stream().map(BlockComment::close).toList());
+        this.quotes = toBytes(syntax.stringDelimiters());
+        this.multiLineStrings = toBytes(syntax.multiLineStrings());
+        this.nestedBlocks = syntax.nestedBlocks();
+        this.lexed = blockOpens.length > 0 || multiLineStrings.length > 0;
+
+        byte[][] lineComments = toBytes(syntax.lineComments());
+        int stateCount = 1 + tokenBytes(lineComments) + tokenBytes(quotes)
+                + tokenBytes(multiLineStrings) + tokenBytes(blockOpens);
+        this.transitions = new int[stateCount * 256];
+        this.accepts = new int[stateCount];
+        Arrays.fill(accepts, NO_TOKEN);
+
+        // Later kinds win on an identical token, so a delimiter that also opens a block is a block
+        int states = 1;
+        states = addTokens(lineComments, LINE_COMMENT, states);
+        states = addTokens(quotes, QUOTE, states);
+        states = addTokens(multiLineStrings, MULTI_LINE_STRING, states);
+        addTokens(blockOpens, BLOCK_OPEN, states);
+
+        for (int b = 0; b < 256; b++) {
+            stops[b] = transitions[b] != 0 || b == '\n' || b == '\r';
+        }
+    }
+
+    public static CommentDefinition compile(CommentSyntax syntax) {
+        return new CommentDefinition(syntax);
+    }
+
+    /**
+     * Whether {@link #scanLine} reads whole lines and may carry state to the next one. When it
+     * does not, only the first token of a line matters.
+     */
+    public boolean isLexed() {
+        return lexed;
+    }
+
+    /**
+     * The distinct bytes that may begin a token. A line holding none of them, starting with
+     * no block comment or multi-line string open, is plain code for {@link #scanLine}.
+     */
+    public byte[] tokenStartBytes() {
+        byte[] bytes = new byte[256];
+        int count = 0;
+        for (int b = 0; b < 256; b++) {
+            if (transitions[b] != 0) {
+                bytes[count++] = (byte) b;
+            }
+        }
+        return Arrays.copyOf(bytes, count);
+    }
+
+    /**
+     * Consumes one line and decides whether it is a comment, from the state it starts in and
+     * its first token. {@code state} is updated with the block comment or multi-line string
+     * left open at the end of the line.
+     *
+     * @param content buffer holding the file content, indexed absolutely
+     * @param from    index of the first non-whitespace byte of the line, or of its terminator
+     * @param to      end of the content
+     * @param state   state carried between lines of the same file
+     * @return index of the line terminator, or {@code to} for the last line; complemented
+     * with {@code ~} when the line is a comment
+     */
+    public int scanLine(ByteBuffer content, int from, int to, AnalysisState state) {
+        if (state.getBlockDepth() > 0) {
+            return ~lexLine(content, from, to, state);
+        }
+        if (!state.isInString() && from < to && transitions[content.get(from) & 0xFF] != 0) {
+            int token = matchToken(content, from, to);
+            int kind = token >>> KIND_SHIFT;
+            if (kind == LINE_COMMENT) {
+                int end = findTerminator(content, from, to);
+                if (end == to) {
+                    state.setInLineComment(true);
+                }
+                return ~end;
+            }
+            if (kind == BLOCK_OPEN) {
+                int block = token & INDEX_MASK;
+                state.setActiveBlock(block);
+                state.setBlockDepth(1);
+                return ~lexLine(content, from + blockOpens[block].length, to, state);
+            }
+        }
+        return lexed ? lexLine(content, from, to, state) : findTerminator(content, from, to);
+    }
+
+    /**
+     * Consumes the rest of a line whose start {@link #scanLine} read at the end of the
+     * previous range; whether it is a comment was decided there. A line comment or string
+     * literal open at that point goes on, but a token cut by it is not recognized.
+     *
+     * @return index of the line terminator, or {@code to} when the line goes on
+     */
+    public int continueLine(ByteBuffer content, int from, int to, AnalysisState state) {
+        if (state.isInLineComment()) {
+            int end = findTerminator(content, from, to);
+            state.setInLineComment(end == to);
+            return end;
+        }
+        int i = from;
+        if (state.isInQuote()) {
+            state.setInQuote(false);
+            i = skipQuote(content, from, to, state.getActiveQuote(), state);
+        }
+        return lexed ? lexLine(content, i, to, state) : findTerminator(content, i, to);
+    }
+
+    private int lexLine(ByteBuffer content, int from, int to, AnalysisState state) {
+        int i = from;
+        if (state.getBlockDepth() > 0) {
+            i = skipBlockComment(content, i, to, state);
+        } else if (state.isInString()) {
+            i = skipMultiLineString(content, i, to, state);
+        }
+
+        boolean[] codeStops = stops;
+        while (i < to) {
+            if (state.getBlockDepth() > 0 || state.isInString()) {
+                return i;
+            }
+            while (i < to && !codeStops[content.get(i) & 0xFF]) {
+                i++;
+            }
+            if (i == to || isTerminator(content.get(i))) {
+                return i;
+            }
+
+            int token = matchToken(content, i, to);
+            int index = token & INDEX_MASK;
+            switch (token >>> KIND_SHIFT) {
+                case LINE_COMMENT -> {
+                    int end = findTerminator(content, i, to);
+                    if (end == to) {
+                        state.setInLineComment(true);
+                    }
+                    return end;
+                }
+                case QUOTE -> i = skipQuote(content, i + quotes[index].length, to, index, state);
+                case MULTI_LINE_STRING -> {
+                    state.setInString(true);
+                    state.setActiveString(index);
+                    i = skipMultiLineString(content, i + multiLineStrings[index].length, to, state);
+                }
+                case BLOCK_OPEN -> {
+                    state.setActiveBlock(index);
+                    state.setBlockDepth(1);
+                    i = skipBlockComment(content, i + blockOpens[index].length, to, state);
+                }
+                default -> i++;
+            }
+        }
+        return to;
+    }
+
+    /**
+     * Walks the trie from {@code index} and returns the longest token found there, so Lua's
+     * {@code --[[} is taken over {@code --}. Tokens hold no line terminator, so the walk
+     * never leaves the line.
+     */
+    private int matchToken(ByteBuffer content, int index, int to) {
+        int[] next = transitions;
+        int state = 0;
+        int token = NO_TOKEN;
+        for (int i = index; i < to; i++) {
+            state = next[(state << 8) | (content.get(i) & 0xFF)];
+            if (state == 0) {
+                break;
+            }
+            if (accepts[state] != NO_TOKEN) {
+                token = accepts[state];
+            }
+        }
+        return token;
+    }
+
+    /**
+     * Returns the index just past the closing delimiter, leaving the block when it is the
+     * outermost one, or the index of the line terminator while the block stays open.
+     */
+    private int skipBlockComment(ByteBuffer content, int from, int to, AnalysisState state) {
+        byte[] close = blockCloses[state.getActiveBlock()];
+        if (!nestedBlocks) {
+            int end = indexOfOnLine(content, from, to, close);
+            if (end < 0) {
+                return ~end;
+            }
+            state.setBlockDepth(0);
+            return end + close.length;
+        }
+
+        byte[] open = blockOpens[state.getActiveBlock()];
+        int depth = state.getBlockDepth();
+        int i = from;
+        while (i < to && !isTerminator(content.get(i))) {
+            if (matches(content, i, to, close)) {
+                i += close.length;
+                if (--depth == 0) {
+                    break;
+                }
+            } else if (matches(content, i, to, open)) {
+                i += open.length;
+                depth++;
+            } else {
+                i++;
+            }
+        }
+        state.setBlockDepth(depth);
+        return i;
+    }
+
+    private int skipMultiLineString(ByteBuffer content, int from, int to, AnalysisState state) {
+        int end = skipString(content, from, to, multiLineStrings[state.getActiveString()]);
+        if (end < 0) {
+            return ~end;
+        }
+        state.setInString(false);
+        return end;
+    }
+
+    /**
+     * Finds {@code token} on the current line, skipping eight bytes at a time that hold
+     * neither its first byte nor a line terminator.
+     *
+     * @return the index of the token, or {@code ~end} where {@code end} is the index of the
+     * line terminator or {@code to}
+     */
+    private int indexOfOnLine(ByteBuffer content, int from, int to, byte[] token) {
+        byte first = token[0];
+        long firstWord = LOW_BITS * (first & 0xFF);
+        int i = from;
+        while (i < to) {
+            if (to - i >= Long.BYTES) {
+                long word = content.getLong(i);
+                if (!containsByte(word, firstWord) && !containsByte(word, LINE_FEEDS)
+                        && !containsByte(word, CARRIAGE_RETURNS)) {
+                    i += Long.BYTES;
+                    continue;
+                }
+            }
+            byte b = content.get(i);
+            if (isTerminator(b)) {
+                return ~i;
+            }
+            if (b == first && matches(content, i, to, token)) {
+                return i;
+            }
+            i++;
+        }
+        return ~to;
+    }
+
+    /**
+     * Whether any byte of {@code word} equals the byte repeated in {@code byteWord}.
+     */
+    private static boolean containsByte(long word, long byteWord) {
+        long x = word ^ byteWord;
+        return ((x - LOW_BITS) & ~x & HIGH_BITS) != 0;
+    }
+
+    /**
+     * Skips a string literal whose opening delimiter ends at {@code from}. A backslash escapes
+     * the next byte unless that byte ends the line.
+     *
+     * @return the index just past the closing delimiter, or {@code ~end} where {@code end} is
+     * the index of the line terminator or {@code to} when the literal is still open
+     */
+    private int skipString(ByteBuffer content, int from, int to, byte[] delimiter) {
+        byte first = delimiter[0];
+        int i = from;
+        while (i < to) {
+            byte b = content.get(i);
+            if (isTerminator(b)) {
+                return ~i;
+            }
+            if (b == BACKSLASH) {
+                i += i + 1 < to && !isTerminator(content.get(i + 1)) ? 2 : 1;
+            } else if (b == first && matches(content, i, to, delimiter)) {
+                return i + delimiter.length;
+            } else {
+                i++;
+            }
+        }
+        return ~to;
+    }
+
+    /**
+     * Skips a string literal like {@link #skipString}, noting in {@code state} a literal
+     * still open at the end of the range.
+     *
+     * @return the index just past the closing delimiter, or of the line terminator or
+     * {@code to} when the literal is still open
+     */
+    private int skipQuote(ByteBuffer content, int from, int to, int quote, AnalysisState state) {
+        int end = skipString(content, from, to, quotes[quote]);
+        if (end == ~to) {
+            state.setInQuote(true);
+            state.setActiveQuote(quote);
+        }
+        return end < 0 ? ~end : end;
+    }
+
+    private static int findTerminator(ByteBuffer content, int from, int to) {
+        int i = from;
+        while (to - i >= Long.BYTES) {
+            long word = content.getLong(i);
+            if (containsByte(word, LINE_FEEDS) || containsByte(word, CARRIAGE_RETURNS)) {
+                break;
+            }
+            i += Long.BYTES;
+        }
+        while (i < to && !isTerminator(content.get(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean isTerminator(byte b) {
+        return b == '\n' || b == '\r';
+    }
+
+    private boolean matches(ByteBuffer content, int index, int to, byte[] token) {
+        if (to - index < token.length) {
+            return false;
+        }
+        for (int k = 0; k < token.length; k++) {
+            if (content.get(index + k) != token[k]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int addTokens(byte[][] tokens, int kind, int stateCount) {
+        for (int t = 0; t < tokens.length; t++) {
+            int state = 0;
+            for (byte b : tokens[t]) {
+                int slot = (state << 8) | (b & 0xFF);
+                if (transitions[slot] == 0) {
+                    transitions[slot] = stateCount++;
+                }
+                state = transitions[slot];
+            }
+            accepts[state] = (kind << KIND_SHIFT) | t;
+        }
+        return stateCount;
+    }
+
+    private static int tokenBytes(byte[][] tokens) {
+        return Arrays.stream(tokens).mapToInt(token -> token.length).sum();
+    }
+
+    private static byte[][] toBytes(List<String> tokens) {
+        return tokens.stream()
+                .map(token -> token.getBytes(StandardCharsets.UTF_8))
+                .toArray(byte[][]::new);
+    }
 }
@@ -0,0 +1,64 @@
+package dev.zux13.filestatistics.analysis.definition;
+
+import java.util.List;
+
+/**
+ * Declarative description of how one language writes comments. It is compiled into a
+ * {@link CommentDefinition} before any file is counted.
+ *
+ * @param lineComments     tokens that make the rest of the line a comment, e.g. {@code //}
+ * @param blockComments    delimiter pairs that may span lines, e.g. {@code /*} and its closing counterpart
+ * @param nestedBlocks     whether a block comment may contain another one of the same kind
+ * @param stringDelimiters quotes whose content cannot open a comment; a backslash escapes the next byte
+ * @param multiLineStrings delimiters of string literals that may span lines, e.g. Java text blocks
+ */
+public record CommentSyntax(
+        String name,
+        List<String> extensions,
+        List<String> lineComments,
+        List<BlockComment> blockComments,
+        boolean nestedBlocks,
+        List<String> stringDelimiters,
+        List<String> multiLineStrings
+) {
+
+    public record BlockComment(String open, String close) {
+
+        public BlockComment {
+            if (!isToken(open) || !isToken(close)) {
+                throw new IllegalArgumentException("Block comment delimiters must be non-empty and single-line");
+            }
+        }
+    }
+
+    public CommentSyntax {
+        if (name == null || name.isBlank()) {
+            throw new IllegalArgumentException("Comment syntax requires a name");
+        }
+        extensions = copyOf(extensions);
+        lineComments = copyOf(lineComments);
+        blockComments = blockComments == null ? List.of() : List.copyOf(blockComments);
+        stringDelimiters = copyOf(stringDelimiters);
+        multiLineStrings = copyOf(multiLineStrings);
+        if (extensions.isEmpty()) {
+            throw new IllegalArgumentException("Comment syntax '" + name + "' has no extensions");
+        }
+    }
+
+    private static List<String> copyOf(List<String> tokens) {
+        if (tokens == null) {
+            return List.of();
+        }
+        if (!tokens.stream().allMatch(CommentSyntax::isToken)) {
+            throw new IllegalArgumentException("Comment syntax tokens must be non-empty and single-line");
+        }
+        return List.copyOf(tokens);
+    }
+
+    /**
+     * Tokens never contain a line terminator, so matching one cannot run into the next line.
+     */
+    private static boolean isToken(String token) {
+        return token != null && !token.isEmpty() && token.indexOf('\n') < 0 && token.indexOf('\r') < 0;
+    }
+}
@@ -0,0 +1,39 @@
+package dev.zux13.filestatistics.analysis.definition;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import tools.jackson.core.JacksonException;
+import tools.jackson.core.type.TypeReference;
+import tools.jackson.databind.DeserializationFeature;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Reads user-supplied comment syntaxes from a JSON array such as
+ * <pre>{@code
+ * [{"name": "elixir", "extensions": ["ex", "exs"], "lineComments": ["#"]}]
+ * }</pre>
+ * Omitted lists are empty and {@code nestedBlocks} defaults to {@code false}.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public class CommentSyntaxLoader {
+
+    private static final ObjectMapper objectMapper = JsonMapper.builder()
+            .disable(DeserializationFeature.FAIL_ON_NULL_FOR_PRIMITIVES)
+            .enable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+            .build();
+
+    public static List<CommentSyntax> load(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return List.copyOf(objectMapper.readValue(in, new TypeReference<List<CommentSyntax>>() {}));
+        } catch (JacksonException e) {
+            throw new IllegalArgumentException("Invalid comment syntax file " + file + ": " + e.getOriginalMessage());
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package dev.zux13.filestatistics.analysis.definition;
+
+import java.util.List;
+
+/**
+ * Service interface for contributing comment syntaxes from other jars. Implementations are
+ * discovered with {@link java.util.ServiceLoader}, so they are registered in
+ * {@code META-INF/services/dev.zux13.filestatistics.analysis.definition.CommentSyntaxProvider}.
+ * Their syntaxes take precedence over the built-in ones for the same extension.
+ */
+public interface CommentSyntaxProvider {
+
+    List<CommentSyntax> syntaxes();
+}
@@ -1,46 +1,52 @@
 package dev.zux13.filestatistics.analysis.model;
 
-import jakarta.xml.bind.annotation.XmlElement;
-import jakarta.xml.bind.annotation.XmlRootElement;
-
-@XmlRootElement(name = "extension")
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Totals for one extension. Any number of analysis threads may add to the same instance:
+ * every counter is a {@link LongAdder}, so concurrent updates land in separate cells
+ * instead of contending for one cache line, and the getters sum them up exactly once
+ * all writers are done.
+ */
 public class ExtensionStatistics {
-    private long fileCount = 0;
-    private long totalSizeInBytes = 0;
-    private long totalLines = 0;
-    private long totalNonEmptyLines = 0;
-    private long totalCommentLines = 0;
+    private final LongAdder fileCount = new LongAdder();
+    private final LongAdder totalSizeInBytes = new LongAdder();
+    private final LongAdder totalLines = new LongAdder();
+    private final LongAdder totalNonEmptyLines = new LongAdder();
+    private final LongAdder totalCommentLines = new LongAdder();
 
     public void addFileStats(FileStatistics stats) {
-        this.fileCount++;
-        this.totalSizeInBytes += stats.sizeInBytes();
-        this.totalLines += stats.totalLines();
-        this.totalNonEmptyLines += stats.nonEmptyLines();
-        this.totalCommentLines += stats.commentLines();
+        addTotals(1, stats);
+    }
+
+    /**
+     * Adds the summed statistics of {@code fileCount} files at once, e.g. totals restored from a previous run.
+     */
+    public void addTotals(long fileCount, FileStatistics totals) {
+        this.fileCount.add(fileCount);
+        this.totalSizeInBytes.add(totals.sizeInBytes());
+        this.totalLines.add(totals.totalLines());
+        this.totalNonEmptyLines.add(totals.nonEmptyLines());
+        this.totalCommentLines.add(totals.commentLines());
     }
 
-    @XmlElement
     public long getFileCount() {
-        return fileCount;
+        return fileCount.sum();
     }
 
-    @XmlElement
     public long getTotalSizeInBytes() {
-        return totalSizeInBytes;
+        return totalSizeInBytes.sum();
     }
 
-    @XmlElement
     public long getTotalLines() {
-        return totalLines;
+        return totalLines.sum();
     }
 
-    @XmlElement
     public long getTotalNonEmptyLines() {
-        return totalNonEmptyLines;
+        return totalNonEmptyLines.sum();
     }
 
-    @XmlElement
     public long getTotalCommentLines() {
-        return totalCommentLines;
+        return totalCommentLines.sum();
     }
-}
\ No newline at end of file
+}
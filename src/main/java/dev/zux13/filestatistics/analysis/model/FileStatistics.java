@@ -5,4 +5,23 @@ public record FileStatistics(
         long totalLines,
         long nonEmptyLines,
         long commentLines
-) {}
\ No newline at end of file
+) {
+
+    public FileStatistics plus(FileStatistics other) {
+        return new FileStatistics(
+                sizeInBytes + other.sizeInBytes,
+                totalLines + other.totalLines,
+                nonEmptyLines + other.nonEmptyLines,
+                commentLines + other.commentLines
+        );
+    }
+
+    public FileStatistics minus(FileStatistics other) {
+        return new FileStatistics(
+                sizeInBytes - other.sizeInBytes,
+                totalLines - other.totalLines,
+                nonEmptyLines - other.nonEmptyLines,
+                commentLines - other.commentLines
+        );
+    }
+}
@@ -0,0 +1,209 @@
+package dev.zux13.filestatistics.cache;
+
+import dev.zux13.filestatistics.analysis.model.FileStatistics;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * On-disk cache of per-file statistics keyed by absolute path and validated by size,
+ * modification time and file key, so unchanged files are not read again on the next run.
+ * <p>
+ * The whole cache is loaded up front and written back by {@link #save()}. Saving holds an
+ * exclusive lock on a sibling lock file, merges entries written meanwhile by other processes
+ * and atomically replaces the cache file, so concurrent runs never see a partial file.
+ * Entries unused for {@link #RETENTION} are dropped, and the cache never grows beyond
+ * {@link #MAX_ENTRIES} entries, keeping the most recently used ones.
+ * A cache written for a different analyzer fingerprint is ignored.
+ * <p>
+ * An instance may serve several runs, as in the daemon: each {@link #save()} ends a run, and
+ * entries used after it are marked with the time of the next one.
+ */
+@Slf4j
+public class AnalysisCache {
+
+    public static final long MAX_ENTRIES = 5_000_000;
+    public static final Duration RETENTION = Duration.ofDays(30);
+
+    private static final String CACHE_FILE = "file-stats.cache";
+    private static final String LOCK_FILE = "file-stats.cache.lock";
+
+    private final Path directory;
+    private final Path cacheFile;
+    private final String fingerprint;
+    private volatile long runEpochSecond = Instant.now().getEpochSecond();
+    private final ConcurrentMap<String, CacheEntry> entries;
+    private CacheFileVersion loadedVersion;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    private AnalysisCache(Path directory, String fingerprint, Map<String, CacheEntry> entries, CacheFileVersion loadedVersion) {
+        this.directory = directory;
+        this.cacheFile = directory.resolve(CACHE_FILE);
+        this.fingerprint = fingerprint;
+        this.entries = new ConcurrentHashMap<>(entries);
+        this.loadedVersion = loadedVersion;
+    }
+
+    public static AnalysisCache open(Path directory, String fingerprint) throws IOException {
+        Files.createDirectories(directory);
+        Path cacheFile = directory.resolve(CACHE_FILE);
+
+        CacheFileVersion version = CacheFileVersion.of(cacheFile);
+        Map<String, CacheEntry> entries = version != null ? readSafely(cacheFile, fingerprint) : Map.of();
+
+        return new AnalysisCache(directory, fingerprint, entries, version);
+    }
+
+    /**
+     * Returns the cached statistics of {@code file} if it has not changed since they were stored,
+     * otherwise runs {@code analyzer} and remembers its result. As with the analyzer itself,
+     * {@code null} means the file is binary.
+     */
+    public FileStatistics getOrAnalyze(Path file, FileStatisticsLoader analyzer) throws IOException {
+        return getOrAnalyze(file, Files.readAttributes(file, BasicFileAttributes.class), analyzer);
+    }
+
+    /**
+     * Same as {@link #getOrAnalyze(Path, FileStatisticsLoader)} with attributes the caller has
+     * already read, e.g. while walking the tree.
+     */
+    public FileStatistics getOrAnalyze(Path file, BasicFileAttributes attributes,
+                                       FileStatisticsLoader analyzer) throws IOException {
+        String key = file.toAbsolutePath().normalize().toString();
+        long size = attributes.size();
+        long modified = toNanos(attributes.lastModifiedTime());
+        long fileKeyHash = hashFileKey(attributes.fileKey());
+
+        CacheEntry cached = entries.get(key);
+        if (cached != null && cached.matches(size, modified, fileKeyHash)) {
+            hits.increment();
+            if (cached.lastUsedEpochSecond() != runEpochSecond) {
+                entries.put(key, cached.withLastUsed(runEpochSecond));
+            }
+            return cached.statistics();
+        }
+
+        misses.increment();
+        FileStatistics stats = analyzer.analyze(file);
+        entries.put(key, new CacheEntry(size, modified, fileKeyHash, stats, runEpochSecond));
+        return stats;
+    }
+
+    public void save() throws IOException {
+        try (FileChannel lockChannel = FileChannel.open(directory.resolve(LOCK_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             FileLock ignored = lockChannel.lock()) {
+
+            Map<String, CacheEntry> merged = new HashMap<>(entries);
+            if (changedSinceLoad()) {
+                readSafely(cacheFile, fingerprint).forEach((key, entry) ->
+                        merged.merge(key, entry, AnalysisCache::mostRecentlyUsed));
+            }
+
+            List<Map.Entry<String, CacheEntry>> retained = evict(merged);
+            retained.sort(Map.Entry.comparingByKey());
+
+            Path tempFile = Files.createTempFile(directory, CACHE_FILE, ".tmp");
+            try {
+                CacheFileFormat.write(tempFile, fingerprint, retained);
+                Files.move(tempFile, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+            // Still under the lock, so no other process can have replaced the file since
+            loadedVersion = CacheFileVersion.of(cacheFile);
+        }
+        runEpochSecond = Instant.now().getEpochSecond();
+        log.debug("Analysis cache saved: {} hits, {} misses", hits.sum(), misses.sum());
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    private boolean changedSinceLoad() throws IOException {
+        CacheFileVersion current = CacheFileVersion.of(cacheFile);
+        return current != null && !current.equals(loadedVersion);
+    }
+
+    private List<Map.Entry<String, CacheEntry>> evict(Map<String, CacheEntry> merged) {
+        long oldestAllowed = runEpochSecond - RETENTION.toSeconds();
+        List<Map.Entry<String, CacheEntry>> retained = new ArrayList<>(merged.size());
+        for (Map.Entry<String, CacheEntry> entry : merged.entrySet()) {
+            if (entry.getValue().lastUsedEpochSecond() >= oldestAllowed) {
+                retained.add(entry);
+            }
+        }
+
+        if (retained.size() > MAX_ENTRIES) {
+            retained.sort(Comparator.comparingLong(
+                    (Map.Entry<String, CacheEntry> entry) -> entry.getValue().lastUsedEpochSecond()).reversed());
+            retained = new ArrayList<>(retained.subList(0, (int) MAX_ENTRIES));
+        }
+        return retained;
+    }
+
+    private static CacheEntry mostRecentlyUsed(CacheEntry ours, CacheEntry theirs) {
+        return theirs.lastUsedEpochSecond() > ours.lastUsedEpochSecond() ? theirs : ours;
+    }
+
+    private static Map<String, CacheEntry> readSafely(Path cacheFile, String fingerprint) {
+        try {
+            return CacheFileFormat.read(cacheFile, fingerprint);
+        } catch (IOException e) {
+            log.warn("Ignoring unreadable analysis cache {}: {}", cacheFile, e.getMessage());
+            return Map.of();
+        }
+    }
+
+    /**
+     * Every save replaces the cache file, so a new file key (inode) reliably marks a newer
+     * version even when the modification times are equal at the filesystem's granularity.
+     */
+    private record CacheFileVersion(Object fileKey, FileTime modifiedTime, long size) {
+
+        static CacheFileVersion of(Path cacheFile) throws IOException {
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(cacheFile, BasicFileAttributes.class);
+                return new CacheFileVersion(attributes.fileKey(), attributes.lastModifiedTime(), attributes.size());
+            } catch (NoSuchFileException e) {
+                return null;
+            }
+        }
+    }
+
+    private static long toNanos(FileTime time) {
+        return time.to(TimeUnit.NANOSECONDS);
+    }
+
+    private static long hashFileKey(Object fileKey) {
+        if (fileKey == null) {
+            return 0;
+        }
+        // 64-bit FNV-1a over the key's string form, e.g. "(dev=803,ino=1234)"
+        long hash = 0xcbf29ce484222325L;
+        String text = fileKey.toString();
+        for (int i = 0; i < text.length(); i++) {
+            hash ^= text.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+}
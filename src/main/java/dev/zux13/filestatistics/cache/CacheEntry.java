@@ -0,0 +1,26 @@
+package dev.zux13.filestatistics.cache;
+
+import dev.zux13.filestatistics.analysis.model.FileStatistics;
+
+/**
+ * Cached analysis result of one file. {@code statistics} is {@code null} for files
+ * that were skipped as binary.
+ */
+record CacheEntry(
+        long sizeInBytes,
+        long modifiedNanos,
+        long fileKeyHash,
+        FileStatistics statistics,
+        long lastUsedEpochSecond
+) {
+
+    boolean matches(long sizeInBytes, long modifiedNanos, long fileKeyHash) {
+        return this.sizeInBytes == sizeInBytes
+                && this.modifiedNanos == modifiedNanos
+                && this.fileKeyHash == fileKeyHash;
+    }
+
+    CacheEntry withLastUsed(long epochSecond) {
+        return new CacheEntry(sizeInBytes, modifiedNanos, fileKeyHash, statistics, epochSecond);
+    }
+}
@@ -0,0 +1,180 @@
+package dev.zux13.filestatistics.cache;
+
+import dev.zux13.filestatistics.analysis.model.FileStatistics;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Binary layout of the cache file:
+ * <pre>
+ * int     magic "FSTC"
+ * int     format version
+ * UTF     analyzer fingerprint
+ * varint  entry count
+ * entries sorted by path, each:
+ *   varint  length of the prefix shared with the previous path
+ *   varint  suffix length, followed by the UTF-8 suffix bytes
+ *   varlong size, long modification time in nanoseconds, long file key hash
+ *   byte    flags (1 = binary file, no counters follow)
+ *   varlong total lines, non-empty lines, comment lines
+ *   varlong last used, epoch seconds
+ * long    CRC32 of everything above
+ * </pre>
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+class CacheFileFormat {
+
+    private static final int MAGIC = 0x46535443;
+    private static final int FORMAT_VERSION = 1;
+    private static final int FLAG_BINARY = 1;
+    /**
+     * Longer than any path a file system accepts; a longer suffix means the file is corrupted.
+     */
+    private static final int MAX_PATH_BYTES = 64 * 1024;
+
+    static void write(Path target, String fingerprint, List<Map.Entry<String, CacheEntry>> sortedEntries) throws IOException {
+        CRC32 crc = new CRC32();
+        try (OutputStream raw = new BufferedOutputStream(Files.newOutputStream(target), 64 * 1024);
+             DataOutputStream out = new DataOutputStream(new CheckedOutputStream(raw, crc))) {
+
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeUTF(fingerprint);
+            writeVarLong(out, sortedEntries.size());
+
+            byte[] previousPath = new byte[0];
+            for (Map.Entry<String, CacheEntry> mapEntry : sortedEntries) {
+                byte[] path = mapEntry.getKey().getBytes(StandardCharsets.UTF_8);
+                int prefix = commonPrefixLength(previousPath, path);
+                writeVarLong(out, prefix);
+                writeVarLong(out, path.length - prefix);
+                out.write(path, prefix, path.length - prefix);
+                writeEntry(out, mapEntry.getValue());
+                previousPath = path;
+            }
+
+            out.flush();
+            new DataOutputStream(raw).writeLong(crc.getValue());
+        }
+    }
+
+    /**
+     * Returns the entries stored in {@code source}, or an empty map when the file was written
+     * for another fingerprint or format version.
+     *
+     * @throws IOException if the file cannot be read or is corrupted
+     */
+    static Map<String, CacheEntry> read(Path source, String fingerprint) throws IOException {
+        CRC32 crc = new CRC32();
+        try (InputStream raw = new BufferedInputStream(Files.newInputStream(source), 64 * 1024);
+             DataInputStream in = new DataInputStream(new CheckedInputStream(raw, crc))) {
+
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a cache file: " + source);
+            }
+            if (in.readInt() != FORMAT_VERSION || !in.readUTF().equals(fingerprint)) {
+                return new HashMap<>();
+            }
+
+            // The checksum is only known at the end, so counts and lengths are checked before use
+            long count = readVarLong(in);
+            if (count < 0) {
+                throw new IOException("Corrupted cache file " + source + ": entry count " + count);
+            }
+            Map<String, CacheEntry> entries = new HashMap<>((int) Math.min(count, 1 << 20));
+            byte[] path = new byte[256];
+            int previousLength = 0;
+            for (long i = 0; i < count; i++) {
+                long prefixValue = readVarLong(in);
+                long suffixValue = readVarLong(in);
+                if (prefixValue < 0 || prefixValue > previousLength || suffixValue < 0 || suffixValue > MAX_PATH_BYTES) {
+                    throw new IOException("Corrupted cache file " + source + ": path prefix " + prefixValue
+                            + " and suffix " + suffixValue + " after a path of " + previousLength + " bytes");
+                }
+                int prefix = (int) prefixValue;
+                int suffix = (int) suffixValue;
+                if (prefix + suffix > path.length) {
+                    byte[] grown = new byte[Math.max(prefix + suffix, path.length * 2)];
+                    System.arraycopy(path, 0, grown, 0, prefix);
+                    path = grown;
+                }
+                in.readFully(path, prefix, suffix);
+                previousLength = prefix + suffix;
+                entries.put(new String(path, 0, prefix + suffix, StandardCharsets.UTF_8), readEntry(in));
+            }
+
+            long expectedCrc = crc.getValue();
+            if (new DataInputStream(raw).readLong() != expectedCrc) {
+                throw new IOException("Checksum mismatch in cache file " + source);
+            }
+            return entries;
+        }
+    }
+
+    private static void writeEntry(DataOutputStream out, CacheEntry entry) throws IOException {
+        writeVarLong(out, entry.sizeInBytes());
+        out.writeLong(entry.modifiedNanos());
+        out.writeLong(entry.fileKeyHash());
+
+        FileStatistics stats = entry.statistics();
+        out.writeByte(stats == null ? FLAG_BINARY : 0);
+        if (stats != null) {
+            writeVarLong(out, stats.totalLines());
+            writeVarLong(out, stats.nonEmptyLines());
+            writeVarLong(out, stats.commentLines());
+        }
+        writeVarLong(out, entry.lastUsedEpochSecond());
+    }
+
+    private static CacheEntry readEntry(DataInputStream in) throws IOException {
+        long size = readVarLong(in);
+        long modified = in.readLong();
+        long fileKeyHash = in.readLong();
+
+        FileStatistics stats = null;
+        if ((in.readByte() & FLAG_BINARY) == 0) {
+            stats = new FileStatistics(size, readVarLong(in), readVarLong(in), readVarLong(in));
+        }
+        return new CacheEntry(size, modified, fileKeyHash, stats, readVarLong(in));
+    }
+
+    private static int commonPrefixLength(byte[] first, byte[] second) {
+        int limit = Math.min(first.length, second.length);
+        int i = 0;
+        while (i < limit && first[i] == second[i]) {
+            i++;
+        }
+        return i;
+    }
+
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint in cache file");
+    }
+}
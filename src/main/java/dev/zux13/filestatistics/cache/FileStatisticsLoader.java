@@ -0,0 +1,11 @@
+package dev.zux13.filestatistics.cache;
+
+import dev.zux13.filestatistics.analysis.model.FileStatistics;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+@FunctionalInterface
+public interface FileStatisticsLoader {
+    FileStatistics analyze(Path file) throws IOException;
+}
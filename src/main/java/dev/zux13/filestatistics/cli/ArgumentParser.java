@@ -1,14 +1,17 @@
 package dev.zux13.filestatistics.cli;
 
-import dev.zux13.filestatistics.output.ConsolePrinter;
+import dev.zux13.filestatistics.analysis.FileAnalyzer;
+import dev.zux13.filestatistics.scan.model.Shard;
 
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 public class ArgumentParser {
@@ -16,18 +19,56 @@ public class ArgumentParser {
     private static final String HELP_FLAG_SHORT = "-h";
     private static final String HELP_FLAG_LONG = "--help";
     private static final Set<String> VALID_OUTPUT_FORMATS = Set.of("plain", "xml", "json");
+    private static final Set<String> VALID_PER_FILE_FORMATS = Set.of("ndjson", "columnar");
+    private static final Set<String> VALID_EXECUTORS = Set.of("platform", "virtual");
+    private static final int DEFAULT_MAX_CONCURRENCY = 256;
+    private static final Duration DEFAULT_WATCH_INTERVAL = Duration.ofSeconds(5);
+    private static final Map<Character, Long> SIZE_UNITS = Map.of(
+            'k', 1024L,
+            'm', 1024L * 1024,
+            'g', 1024L * 1024 * 1024
+    );
 
     private String pathStr;
     private boolean recursive;
     private int maxDepth;
     private int numThreads;
+    private long mmapThreshold;
+    private Path commentSyntaxFile;
+    private String executor;
+    private int maxConcurrency;
+    private int scanThreads;
+    private Path cacheDirectory;
+    private boolean deduplicateContent;
+    private Path gitDiffState;
     private List<String> includeExtensions;
     private List<String> excludeExtensions;
     private boolean useGitIgnore;
+    private boolean gitTracked;
+    private boolean gitUntracked;
     private String outputFormat;
+    private Path outputFile;
     private boolean verbose;
+    private boolean perFile;
+    private Path perFileOutput;
+    private boolean perFileGzip;
+    private String perFileFormat;
+    private Shard shard;
+    private Path partialOutput;
+    private Duration watchInterval;
+
+    private final Path workingDirectory;
 
     public ArgumentParser() {
+        this(Paths.get(""));
+    }
+
+    /**
+     * @param workingDirectory the directory relative paths in the arguments are resolved
+     *                         against, e.g. the client's one when a daemon runs the request
+     */
+    public ArgumentParser(Path workingDirectory) {
+        this.workingDirectory = workingDirectory;
         reset();
     }
 
@@ -36,17 +77,34 @@ public class ArgumentParser {
         recursive = false;
         maxDepth = -1;
         numThreads = 1;
+        mmapThreshold = FileAnalyzer.DEFAULT_MMAP_THRESHOLD;
+        commentSyntaxFile = null;
+        executor = "platform";
+        maxConcurrency = DEFAULT_MAX_CONCURRENCY;
+        scanThreads = 1;
+        cacheDirectory = null;
+        deduplicateContent = false;
+        gitDiffState = null;
         includeExtensions = new ArrayList<>();
         excludeExtensions = new ArrayList<>();
         useGitIgnore = false;
+        gitTracked = false;
+        gitUntracked = false;
         outputFormat = "plain";
+        outputFile = null;
         verbose = false;
+        perFile = false;
+        perFileOutput = null;
+        perFileGzip = false;
+        perFileFormat = "ndjson";
+        shard = null;
+        partialOutput = null;
+        watchInterval = null;
     }
 
     public Config parse(String[] args) throws IllegalArgumentException {
         if (args.length == 0 || Arrays.asList(args).contains(HELP_FLAG_SHORT) || Arrays.asList(args).contains(HELP_FLAG_LONG)) {
-            ConsolePrinter.printHelp();
-            System.exit(0);
+            throw new HelpRequestedException();
         }
 
         reset();
@@ -77,19 +135,35 @@ public class ArgumentParser {
             case "recursive" -> handleRecursiveFlag(value);
             case "max-depth" -> handleMaxDepthFlag(value);
             case "thread" -> handleThreadFlag(value);
+            case "mmap-threshold" -> handleMmapThresholdFlag(value);
+            case "comment-syntax" -> handleCommentSyntaxFlag(value);
+            case "executor" -> handleExecutorFlag(value);
+            case "max-concurrency" -> handleMaxConcurrencyFlag(value);
+            case "scan-threads" -> handleScanThreadsFlag(value);
+            case "cache" -> handleCacheFlag(value);
+            case "dedup" -> handleDedupFlag(value);
+            case "git-diff" -> handleGitDiffFlag(value);
             case "include-ext" -> handleIncludeExtFlag(value);
             case "exclude-ext" -> handleExcludeExtFlag(value);
             case "git-ignore" -> handleGitIgnoreFlag(value);
+            case "git-tracked" -> handleGitTrackedFlag(value);
+            case "git-untracked" -> handleGitUntrackedFlag(value);
             case "output" -> handleOutputFlag(value);
+            case "output-file" -> handleOutputFileFlag(value);
             case "verbose" -> handleVerboseFlag(value);
+            case "per-file" -> handlePerFileFlag(value);
+            case "gzip" -> handleGzipFlag(value);
+            case "per-file-format" -> handlePerFileFormatFlag(value);
+            case "shard" -> handleShardFlag(value);
+            case "partial" -> handlePartialFlag(value);
+            case "watch" -> handleWatchFlag(value);
             default -> throw new IllegalArgumentException("Unknown argument: " + arg);
         }
     }
 
     private void parseShortArgument(String arg) {
         if (arg.equals(HELP_FLAG_SHORT)) {
-            ConsolePrinter.printHelp();
-            System.exit(0);
+            throw new HelpRequestedException();
         } else {
             throw new IllegalArgumentException("Unknown short argument: " + arg);
         }
@@ -149,6 +223,126 @@ public class ArgumentParser {
         }
     }
 
+    private void handleExecutorFlag(String value) {
+        if (value == null) {
+            throw new IllegalArgumentException("The --executor parameter requires a value. Usage: --executor=<platform,virtual>");
+        }
+        if (!VALID_EXECUTORS.contains(value.toLowerCase())) {
+            String allowed = String.join(", ", VALID_EXECUTORS);
+            String message = String.format(
+                    "Invalid value for --executor: '%s'. Allowed values are: %s", value, allowed
+            );
+            throw new IllegalArgumentException(message);
+        }
+        this.executor = value.toLowerCase();
+    }
+
+    private void handleMaxConcurrencyFlag(String value) {
+        if (value == null) {
+            throw new IllegalArgumentException("The --max-concurrency parameter requires a numeric value. Usage: --max-concurrency=<number>");
+        }
+        try {
+            int concurrency = Integer.parseInt(value);
+            if (concurrency <= 0) {
+                throw new NumberFormatException();
+            }
+            this.maxConcurrency = concurrency;
+        } catch (NumberFormatException e) {
+            String message = String.format(
+                    "Invalid value for --max-concurrency: '%s'. A positive integer is expected.", value
+            );
+            throw new IllegalArgumentException(message);
+        }
+    }
+
+    private void handleScanThreadsFlag(String value) {
+        if (value == null) {
+            throw new IllegalArgumentException("The --scan-threads parameter requires a numeric value. Usage: --scan-threads=<number>");
+        }
+        try {
+            int threads = Integer.parseInt(value);
+            if (threads <= 0) {
+                throw new NumberFormatException();
+            }
+            this.scanThreads = threads;
+        } catch (NumberFormatException e) {
+            String message = String.format(
+                    "Invalid value for --scan-threads: '%s'. A positive integer is expected.", value
+            );
+            throw new IllegalArgumentException(message);
+        }
+    }
+
+    private void handleCacheFlag(String value) {
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException("The --cache parameter requires a directory. Usage: --cache=<dir>");
+        }
+        Path directory = resolve(value).toAbsolutePath().normalize();
+        if (Files.exists(directory) && !Files.isDirectory(directory)) {
+            throw new IllegalArgumentException("The cache path is not a directory: " + value);
+        }
+        this.cacheDirectory = directory;
+    }
+
+    private void handleDedupFlag(String value) {
+        if (value != null) {
+            throw new IllegalArgumentException("The --dedup flag does not take a value. Usage: --dedup");
+        }
+        this.deduplicateContent = true;
+    }
+
+    private void handleGitDiffFlag(String value) {
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException("The --git-diff parameter requires a state file. Usage: --git-diff=<file>");
+        }
+        Path stateFile = resolve(value).toAbsolutePath().normalize();
+        if (Files.isDirectory(stateFile)) {
+            throw new IllegalArgumentException("The git diff state path is a directory: " + value);
+        }
+        this.gitDiffState = stateFile;
+    }
+
+    private void handleCommentSyntaxFlag(String value) {
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException("The --comment-syntax parameter requires a file. Usage: --comment-syntax=<file>");
+        }
+        Path syntaxFile = resolve(value).toAbsolutePath().normalize();
+        if (!Files.isRegularFile(syntaxFile)) {
+            throw new IllegalArgumentException("The comment syntax file does not exist: " + value);
+        }
+        this.commentSyntaxFile = syntaxFile;
+    }
+
+    private void handleMmapThresholdFlag(String value) {
+        if (value == null) {
+            throw new IllegalArgumentException("The --mmap-threshold parameter requires a size value. Usage: --mmap-threshold=<bytes>[k|m|g]");
+        }
+        try {
+            this.mmapThreshold = parseSize(value);
+        } catch (NumberFormatException | ArithmeticException e) {
+            String message = String.format(
+                    "Invalid value for --mmap-threshold: '%s'. A non-negative size such as 8388608, 512k or 8m is expected.", value
+            );
+            throw new IllegalArgumentException(message);
+        }
+    }
+
+    private long parseSize(String value) {
+        String normalized = value.trim().toLowerCase();
+        if (normalized.isEmpty()) {
+            throw new NumberFormatException();
+        }
+        long multiplier = SIZE_UNITS.getOrDefault(normalized.charAt(normalized.length() - 1), 1L);
+        if (multiplier != 1L) {
+            normalized = normalized.substring(0, normalized.length() - 1);
+        }
+        long size = Long.parseLong(normalized);
+        if (size < 0) {
+            throw new NumberFormatException();
+        }
+        return Math.multiplyExact(size, multiplier);
+    }
+
     private void handleIncludeExtFlag(String value) {
         if (value == null) {
             throw new IllegalArgumentException("The --include-ext parameter requires a list of extensions. Usage: --include-ext=<ext1,ext2,..>");
@@ -180,6 +374,20 @@ public class ArgumentParser {
         this.useGitIgnore = true;
     }
 
+    private void handleGitTrackedFlag(String value) {
+        if (value != null) {
+            throw new IllegalArgumentException("The --git-tracked flag does not take a value. Usage: --git-tracked");
+        }
+        this.gitTracked = true;
+    }
+
+    private void handleGitUntrackedFlag(String value) {
+        if (value != null) {
+            throw new IllegalArgumentException("The --git-untracked flag does not take a value. Usage: --git-untracked");
+        }
+        this.gitUntracked = true;
+    }
+
     private void handleOutputFlag(String value) {
         if (value == null) {
             throw new IllegalArgumentException("The --output parameter requires a value. Usage: --output=<plain,xml,json>");
@@ -194,6 +402,13 @@ public class ArgumentParser {
         this.outputFormat = value.toLowerCase();
     }
 
+    private void handleOutputFileFlag(String value) {
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException("The --output-file parameter requires a value. Usage: --output-file=<file>");
+        }
+        this.outputFile = resolve(value);
+    }
+
     private void handleVerboseFlag(String value) {
         if (value != null) {
             throw new IllegalArgumentException("The --verbose flag does not take a value. Usage: --verbose");
@@ -201,18 +416,152 @@ public class ArgumentParser {
         this.verbose = true;
     }
 
+    private void handlePerFileFlag(String value) {
+        if (value != null && value.isBlank()) {
+            throw new IllegalArgumentException("The --per-file parameter requires a file name after '='. Usage: --per-file[=<file>]");
+        }
+        this.perFile = true;
+        this.perFileOutput = value != null ? resolve(value) : null;
+    }
+
+    private void handleGzipFlag(String value) {
+        if (value != null) {
+            throw new IllegalArgumentException("The --gzip flag does not take a value. Usage: --gzip");
+        }
+        this.perFileGzip = true;
+    }
+
+    private void handlePerFileFormatFlag(String value) {
+        if (value == null) {
+            throw new IllegalArgumentException("The --per-file-format parameter requires a value. Usage: --per-file-format=<ndjson,columnar>");
+        }
+        if (!VALID_PER_FILE_FORMATS.contains(value.toLowerCase())) {
+            String allowed = String.join(", ", VALID_PER_FILE_FORMATS);
+            String message = String.format(
+                    "Invalid value for --per-file-format: '%s'. Allowed values are: %s", value, allowed
+            );
+            throw new IllegalArgumentException(message);
+        }
+        this.perFileFormat = value.toLowerCase();
+    }
+
+    private void handleShardFlag(String value) {
+        String usage = "Usage: --shard=<number>/<count>, e.g. --shard=1/4";
+        if (value == null) {
+            throw new IllegalArgumentException("The --shard parameter requires a value. " + usage);
+        }
+        String[] parts = value.split("/", -1);
+        try {
+            if (parts.length != 2) {
+                throw new NumberFormatException();
+            }
+            this.shard = new Shard(Integer.parseInt(parts[0].trim()), Integer.parseInt(parts[1].trim()));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid value for --shard: '" + value + "'. " + usage
+                    + ", where 1 <= number <= count");
+        }
+    }
+
+    private void handlePartialFlag(String value) {
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException("The --partial parameter requires a value. Usage: --partial=<file>");
+        }
+        this.partialOutput = resolve(value);
+    }
+
+    private void handleWatchFlag(String value) {
+        if (value == null) {
+            this.watchInterval = DEFAULT_WATCH_INTERVAL;
+            return;
+        }
+        try {
+            int seconds = Integer.parseInt(value.trim());
+            if (seconds < 1) {
+                throw new NumberFormatException();
+            }
+            this.watchInterval = Duration.ofSeconds(seconds);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid value for --watch: '" + value
+                    + "'. Usage: --watch[=<seconds>], where seconds >= 1");
+        }
+    }
+
+    /**
+     * Parses the arguments of {@code merge}, which follow the subcommand name:
+     * {@code <partial>... [--output=<format>] [--output-file=<file>] [--verbose]}.
+     */
+    public MergeConfig parseMerge(String[] args) throws IllegalArgumentException {
+        reset();
+        List<Path> partials = new ArrayList<>();
+        for (String arg : args) {
+            if (!arg.startsWith("-")) {
+                partials.add(resolve(arg));
+                continue;
+            }
+            String[] parts = arg.split("=", 2);
+            String value = parts.length > 1 ? parts[1] : null;
+            switch (parts[0]) {
+                case "--output" -> handleOutputFlag(value);
+                case "--output-file" -> handleOutputFileFlag(value);
+                case "--verbose" -> handleVerboseFlag(value);
+                default -> throw new IllegalArgumentException("Unknown argument for merge: " + arg);
+            }
+        }
+        if (partials.isEmpty()) {
+            throw new IllegalArgumentException("A required argument is missing: <partial>... Usage: merge <partial>...");
+        }
+        for (Path partial : partials) {
+            if (!Files.isRegularFile(partial)) {
+                throw new IllegalArgumentException("The specified partial result does not exist: " + partial);
+            }
+        }
+        return new MergeConfig(List.copyOf(partials), outputFormat, outputFile, verbose);
+    }
+
     private Config buildConfig() {
         validatePath();
         validateExtensions();
-        Path path = Paths.get(pathStr).toAbsolutePath().normalize();
-        return new Config(path, recursive, maxDepth, numThreads, includeExtensions, excludeExtensions, useGitIgnore, verbose, outputFormat);
+        validateGitDiff();
+        validateGitTracked();
+        validatePerFile();
+        validateWatch();
+        Path path = resolve(pathStr).toAbsolutePath().normalize();
+        return Config.builder()
+                .path(path)
+                .recursive(recursive)
+                .maxDepth(maxDepth)
+                .numThreads(numThreads)
+                .mmapThreshold(mmapThreshold)
+                .commentSyntaxFile(commentSyntaxFile)
+                .executor(executor)
+                .maxConcurrency(maxConcurrency)
+                .scanThreads(scanThreads)
+                .cacheDirectory(cacheDirectory)
+                .deduplicateContent(deduplicateContent)
+                .gitDiffState(gitDiffState)
+                .includeExtensions(includeExtensions)
+                .excludeExtensions(excludeExtensions)
+                .useGitIgnore(useGitIgnore)
+                .gitTracked(gitTracked)
+                .gitUntracked(gitUntracked)
+                .verbose(verbose)
+                .outputFormat(outputFormat)
+                .outputFile(outputFile)
+                .perFile(perFile)
+                .perFileOutput(perFileOutput)
+                .perFileGzip(perFileGzip)
+                .perFileFormat(perFileFormat)
+                .shard(shard)
+                .partialOutput(partialOutput)
+                .watchInterval(watchInterval)
+                .build();
     }
 
     private void validatePath() {
         if (pathStr == null) {
             throw new IllegalArgumentException("A required argument is missing: <path>");
         }
-        Path path = Paths.get(pathStr);
+        Path path = resolve(pathStr);
         if (!Files.exists(path)) {
             throw new IllegalArgumentException("The specified path does not exist: " + pathStr);
         }
@@ -221,6 +570,58 @@ public class ArgumentParser {
         }
     }
 
+    private void validateGitDiff() {
+        // Git reports no changes for ignored files, so they must not be counted in the first place
+        if (gitDiffState != null && !useGitIgnore) {
+            throw new IllegalArgumentException("The --git-diff parameter requires --git-ignore");
+        }
+        // The stored state tracks every file of the tree by path
+        if (gitDiffState != null && shard != null) {
+            throw new IllegalArgumentException("The --shard parameter cannot be combined with --git-diff");
+        }
+        if (gitDiffState != null && gitTracked) {
+            throw new IllegalArgumentException("The --git-diff parameter cannot be combined with --git-tracked");
+        }
+    }
+
+    private void validateWatch() {
+        if (watchInterval == null) {
+            return;
+        }
+        // Watching keeps its own totals, file by file, for the tree it walks
+        if (gitDiffState != null || gitTracked || shard != null || partialOutput != null || perFile) {
+            throw new IllegalArgumentException(
+                    "The --watch flag cannot be combined with --git-diff, --git-tracked, --shard, --partial or --per-file");
+        }
+    }
+
+    private void validateGitTracked() {
+        if (gitUntracked && !gitTracked) {
+            throw new IllegalArgumentException("The --git-untracked flag requires --git-tracked");
+        }
+    }
+
+    private void validatePerFile() {
+        if (perFileGzip && !perFile) {
+            throw new IllegalArgumentException("The --gzip flag requires --per-file");
+        }
+        if (!perFileFormat.equals("ndjson") && !perFile) {
+            throw new IllegalArgumentException("The --per-file-format parameter requires --per-file");
+        }
+        // The columnar format is already compact and its reader expects it uncompressed
+        if (perFileGzip && perFileFormat.equals("columnar")) {
+            throw new IllegalArgumentException("The --gzip flag cannot be combined with --per-file-format=columnar");
+        }
+        // Unchanged files are not analyzed again, so they would have no record
+        if (perFile && gitDiffState != null) {
+            throw new IllegalArgumentException("The --per-file parameter cannot be combined with --git-diff");
+        }
+        // Records on standard output must not be interleaved with the report
+        if (perFile && perFileOutput == null && verbose) {
+            throw new IllegalArgumentException("The --verbose flag requires --per-file=<file>");
+        }
+    }
+
     private void validateExtensions() {
         Set<String> includeSet = new HashSet<>(includeExtensions);
         includeSet.retainAll(new HashSet<>(excludeExtensions));
@@ -229,4 +630,8 @@ public class ArgumentParser {
         }
     }
 
-}
\ No newline at end of file
+
+    private Path resolve(String value) {
+        return workingDirectory.resolve(value);
+    }
+}
@@ -1,16 +1,39 @@
 package dev.zux13.filestatistics.cli;
 
+import dev.zux13.filestatistics.scan.model.Shard;
+import lombok.Builder;
+
 import java.nio.file.Path;
+import java.time.Duration;
 import java.util.List;
 
+@Builder(toBuilder = true)
 public record Config(
         Path path,
         boolean recursive,
         int maxDepth,
         int numThreads,
+        long mmapThreshold,
+        Path commentSyntaxFile,
+        String executor,
+        int maxConcurrency,
+        int scanThreads,
+        Path cacheDirectory,
+        boolean deduplicateContent,
+        Path gitDiffState,
         List<String> includeExtensions,
         List<String> excludeExtensions,
         boolean useGitIgnore,
+        boolean gitTracked,
+        boolean gitUntracked,
         boolean verbose,
-        String outputFormat
+        String outputFormat,
+        Path outputFile,
+        boolean perFile,
+        Path perFileOutput,
+        boolean perFileGzip,
+        String perFileFormat,
+        Shard shard,
+        Path partialOutput,
+        Duration watchInterval
 ) {}
\ No newline at end of file
@@ -0,0 +1,7 @@
+package dev.zux13.filestatistics.cli;
+
+/**
+ * Thrown by {@link ArgumentParser} when the arguments ask for the help text instead of a run.
+ */
+public class HelpRequestedException extends RuntimeException {
+}
@@ -0,0 +1,14 @@
+package dev.zux13.filestatistics.cli;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Options of the {@code merge} subcommand.
+ */
+public record MergeConfig(
+        List<Path> partials,
+        String outputFormat,
+        Path outputFile,
+        boolean verbose
+) {}
@@ -0,0 +1,155 @@
+package dev.zux13.filestatistics.daemon;
+
+import dev.zux13.filestatistics.Main;
+import dev.zux13.filestatistics.RunResources;
+import dev.zux13.filestatistics.output.ConsolePrinter;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sends a command line to a running {@link DaemonServer} and replays its output.
+ * {@code --server[=<socket>]} anywhere among the arguments selects this mode; the other
+ * arguments are passed on unchanged and relative paths in them are resolved against the
+ * client's working directory. When no daemon listens on the socket, the command runs in
+ * this process instead, so scripts keep working while the daemon is down. So does
+ * {@code --watch}, which would otherwise keep the daemon busy for good, and a socket that
+ * does not belong to the current user, which might be another user's process.
+ */
+@Slf4j
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public class DaemonClient {
+
+    private static final String SERVER_FLAG = "--server";
+    private static final String WATCH_FLAG = "--watch";
+
+    public static boolean isRequested(String[] args) {
+        for (String arg : args) {
+            if (arg.equals(SERVER_FLAG) || arg.startsWith(SERVER_FLAG + "=")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the exit status of the command
+     */
+    public static int run(String[] args) {
+        return run(args, new FileOutputStream(FileDescriptor.out), new FileOutputStream(FileDescriptor.err));
+    }
+
+    static int run(String[] args, OutputStream stdout, OutputStream stderr) {
+        Path socket = DaemonProtocol.defaultSocket();
+        List<String> forwarded = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.equals(SERVER_FLAG)) {
+                continue;
+            }
+            if (arg.startsWith(SERVER_FLAG + "=")) {
+                socket = Paths.get(arg.substring(SERVER_FLAG.length() + 1));
+                continue;
+            }
+            forwarded.add(arg);
+        }
+        Path workingDirectory = Paths.get("").toAbsolutePath();
+        String[] command = forwarded.toArray(String[]::new);
+
+        // A watch never finishes and would hold the daemon, which answers one command at a time
+        if (forwarded.stream().anyMatch(arg -> arg.equals(WATCH_FLAG) || arg.startsWith(WATCH_FLAG + "="))) {
+            log.info("{} runs in this process, not in the daemon", WATCH_FLAG);
+            return Main.execute(command, workingDirectory, RunResources.fresh());
+        }
+        if (!isOwnDaemon(socket)) {
+            log.warn("The socket {} does not belong to the current user, running in this process", socket);
+            return Main.execute(command, workingDirectory, RunResources.fresh());
+        }
+        SocketChannel connection;
+        try {
+            connection = SocketChannel.open(UnixDomainSocketAddress.of(socket));
+        } catch (IOException e) {
+            log.warn("No daemon is listening on {}, running in this process", socket);
+            return Main.execute(command, workingDirectory, RunResources.fresh());
+        }
+        try (connection) {
+            send(connection, workingDirectory, command);
+            return replay(connection, stdout, stderr);
+        } catch (IOException e) {
+            log.error("The daemon on {} failed to answer: {}", socket, e.getMessage());
+            return 1;
+        }
+    }
+
+    /**
+     * Whether {@code socket}, if it exists, was created by the current user in a place nobody
+     * else can replace it, so that arguments and output never go to another user's process.
+     */
+    private static boolean isOwnDaemon(Path socket) {
+        Path directory = socket.toAbsolutePath().getParent();
+        try {
+            return DaemonProtocol.isOwnedByCurrentUser(socket, directory);
+        } catch (NoSuchFileException e) {
+            // Nothing listens; connecting fails and the command runs in this process
+            return true;
+        } catch (IOException e) {
+            log.debug("Cannot check the owner of {}: {}", socket, e.toString());
+            return false;
+        }
+    }
+
+    private static void send(SocketChannel connection, Path workingDirectory, String[] command) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(connection)));
+        out.writeInt(DaemonProtocol.MAGIC);
+        out.writeInt(DaemonProtocol.VERSION);
+        out.writeUTF(workingDirectory.toString());
+        out.writeUTF(ConsolePrinter.standardOutputCharset().name());
+        out.writeInt(command.length);
+        for (String arg : command) {
+            out.writeUTF(arg);
+        }
+        out.flush();
+    }
+
+    private static int replay(SocketChannel connection, OutputStream stdout, OutputStream stderr) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(connection), 64 * 1024));
+        byte[] buffer = new byte[64 * 1024];
+        try {
+            while (true) {
+                byte tag = in.readByte();
+                if (tag == DaemonProtocol.EXIT) {
+                    return in.readInt();
+                }
+                int length = in.readInt();
+                if (length > buffer.length) {
+                    buffer = new byte[length];
+                }
+                in.readFully(buffer, 0, length);
+                switch (tag) {
+                    case DaemonProtocol.STDOUT -> stdout.write(buffer, 0, length);
+                    case DaemonProtocol.STDERR -> stderr.write(buffer, 0, length);
+                    default -> throw new IOException("Unexpected frame " + tag);
+                }
+            }
+        } catch (EOFException e) {
+            throw new IOException("Connection closed before the command finished", e);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package dev.zux13.filestatistics.daemon;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.util.Set;
+
+/**
+ * The exchange between {@link DaemonClient} and {@link DaemonServer} over a Unix domain socket.
+ * <pre>
+ * request:  int magic "FSDR", int version, UTF working directory, UTF charset name of the
+ *           client's standard output, int argument count, UTF each argument
+ * response: frames until {@link #EXIT}, each a byte tag and
+ *           {@link #STDOUT} or {@link #STDERR}: int length, bytes
+ *           {@link #EXIT}: int exit status
+ * </pre>
+ * Strings are written with {@link java.io.DataOutput#writeUTF(String)}.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+final class DaemonProtocol {
+
+    static final int MAGIC = 0x46534452;
+    static final int VERSION = 1;
+
+    static final byte STDOUT = 'O';
+    static final byte STDERR = 'E';
+    static final byte EXIT = 'X';
+
+    static final String SOCKET_OPTION = "--socket";
+
+    private static final String SOCKET_NAME = "file-stats.sock";
+
+    /**
+     * A socket in a directory only the current user can enter: {@code $XDG_RUNTIME_DIR} when
+     * it is set, or {@code file-stats-<user>} in the temporary directory otherwise. Nobody
+     * else can create the socket there, so a daemon of another user cannot take its place.
+     */
+    static Path defaultSocket() {
+        String runtimeDirectory = System.getenv("XDG_RUNTIME_DIR");
+        if (runtimeDirectory != null && !runtimeDirectory.isEmpty()) {
+            return Paths.get(runtimeDirectory, SOCKET_NAME).toAbsolutePath();
+        }
+        return Paths.get(System.getProperty("java.io.tmpdir"), "file-stats-" + System.getProperty("user.name"), SOCKET_NAME)
+                .toAbsolutePath();
+    }
+
+    /**
+     * Creates the directory of the default socket with access for the owner only, or checks
+     * that an existing one belongs to the current user and is closed to everyone else.
+     *
+     * @throws IOException if the directory cannot be created or is not private
+     */
+    static void ensurePrivateDirectory(Path directory) throws IOException {
+        try {
+            Files.createDirectory(directory, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+        } catch (FileAlreadyExistsException e) {
+            // Checked below
+        } catch (UnsupportedOperationException e) {
+            // Not a POSIX file system; access is then governed by the parent directory
+            Files.createDirectories(directory);
+        }
+        if (!Files.isDirectory(directory, LinkOption.NOFOLLOW_LINKS) || !isOwnedByCurrentUser(directory)) {
+            throw new IOException("Socket directory " + directory + " does not belong to the current user");
+        }
+        try {
+            Set<PosixFilePermission> permissions = Files.getPosixFilePermissions(directory, LinkOption.NOFOLLOW_LINKS);
+            if (!Set.of(PosixFilePermission.OWNER_READ, PosixFilePermission.OWNER_WRITE, PosixFilePermission.OWNER_EXECUTE)
+                    .containsAll(permissions)) {
+                throw new IOException("Socket directory " + directory + " is accessible to other users");
+            }
+        } catch (UnsupportedOperationException e) {
+            // Not a POSIX file system
+        }
+    }
+
+    /**
+     * Tells whether a daemon listening on {@code socket} was started by the current user: the
+     * socket must belong to the current user, and its directory to the current user or to
+     * {@code root}, so that nobody else can replace it.
+     */
+    static boolean isOwnedByCurrentUser(Path socket, Path directory) throws IOException {
+        if (!isOwnedByCurrentUser(socket)) {
+            return false;
+        }
+        UserPrincipal directoryOwner = Files.getOwner(directory, LinkOption.NOFOLLOW_LINKS);
+        return directoryOwner.equals(currentUser()) || directoryOwner.getName().equals("root");
+    }
+
+    private static boolean isOwnedByCurrentUser(Path path) throws IOException {
+        return Files.getOwner(path, LinkOption.NOFOLLOW_LINKS).equals(currentUser());
+    }
+
+    private static UserPrincipal currentUser() throws IOException {
+        return Paths.get("").getFileSystem().getUserPrincipalLookupService()
+                .lookupPrincipalByName(System.getProperty("user.name"));
+    }
+}
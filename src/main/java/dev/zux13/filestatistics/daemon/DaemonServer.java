@@ -0,0 +1,245 @@
+package dev.zux13.filestatistics.daemon;
+
+import dev.zux13.filestatistics.Main;
+import dev.zux13.filestatistics.output.ConsolePrinter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+
+/**
+ * {@code serve [--socket=<path>]}: a resident process that runs command lines sent by
+ * {@link DaemonClient}, so they skip JVM startup and class loading, run JIT-compiled code and
+ * reuse the {@link ResidentResources} of earlier requests.
+ * <p>
+ * Requests are answered one at a time, each already using as many threads as it asks for.
+ * While a request runs, its standard output and standard error, including log messages, are
+ * sent to the client. The socket is only accessible to the user running the daemon, and the
+ * default one lies in a directory private to that user (see {@link DaemonProtocol#defaultSocket()}).
+ */
+@Slf4j
+public class DaemonServer {
+
+    private static final int FRAME_SIZE = 64 * 1024;
+
+    private final Path socket;
+    private final ResidentResources resources = new ResidentResources();
+
+    DaemonServer(Path socket) {
+        this.socket = socket;
+    }
+
+    /**
+     * Runs the daemon until the process is stopped. Returns only if it cannot start.
+     */
+    public static int serve(String[] args) {
+        Path socket = null;
+        for (String arg : args) {
+            if (arg.startsWith(DaemonProtocol.SOCKET_OPTION + "=") && arg.length() > DaemonProtocol.SOCKET_OPTION.length() + 1) {
+                socket = Paths.get(arg.substring(DaemonProtocol.SOCKET_OPTION.length() + 1)).toAbsolutePath();
+            } else {
+                log.error("Unknown argument for serve: {}. Usage: serve [--socket=<path>]", arg);
+                return 1;
+            }
+        }
+        try {
+            if (socket == null) {
+                socket = DaemonProtocol.defaultSocket();
+                DaemonProtocol.ensurePrivateDirectory(socket.getParent());
+            }
+        } catch (IOException e) {
+            log.error("Cannot serve on {}: {}", socket, e.getMessage());
+            return 1;
+        }
+        try (ServerSocketChannel server = bind(socket)) {
+            log.info("Listening on {}", socket);
+            new DaemonServer(socket).acceptLoop(server);
+            return 0;
+        } catch (IOException e) {
+            log.error("Cannot serve on {}: {}", socket, e.getMessage());
+            return 1;
+        }
+    }
+
+    static ServerSocketChannel bind(Path socket) throws IOException {
+        if (Files.exists(socket)) {
+            if (isListening(socket)) {
+                throw new IOException("Another daemon is already listening");
+            }
+            // Left behind by a daemon that did not shut down cleanly
+            Files.delete(socket);
+        }
+        ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        try {
+            server.bind(UnixDomainSocketAddress.of(socket));
+            restrictToOwner(socket);
+        } catch (IOException e) {
+            server.close();
+            throw e;
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                Files.deleteIfExists(socket);
+            } catch (IOException ignored) {
+                // The next daemon removes it
+            }
+        }));
+        return server;
+    }
+
+    /**
+     * Answers connections until {@code server} is closed.
+     *
+     * @throws IOException if accepting a connection fails for another reason
+     */
+    void acceptLoop(ServerSocketChannel server) throws IOException {
+        while (true) {
+            SocketChannel connection;
+            try {
+                connection = server.accept();
+            } catch (ClosedChannelException e) {
+                log.debug("Stopped listening on {}", socket);
+                return;
+            }
+            try (connection) {
+                answer(connection);
+            } catch (IOException e) {
+                log.warn("Request failed: {}", e.toString());
+            }
+        }
+    }
+
+    private void answer(SocketChannel connection) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(connection)));
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(connection), FRAME_SIZE));
+
+        int magic;
+        try {
+            magic = in.readInt();
+        } catch (EOFException e) {
+            // A peer that only checks whether a daemon listens, such as a starting serve
+            log.debug("Connection closed before a request was sent");
+            return;
+        }
+        if (magic != DaemonProtocol.MAGIC) {
+            throw new IOException("Not a file-stats client");
+        }
+        int version = in.readInt();
+        if (version != DaemonProtocol.VERSION) {
+            throw new IOException("Unsupported client protocol version " + version);
+        }
+        Path workingDirectory = Paths.get(in.readUTF());
+        Charset charset = Charset.forName(in.readUTF());
+        String[] args = new String[in.readInt()];
+        for (int i = 0; i < args.length; i++) {
+            args[i] = in.readUTF();
+        }
+
+        int status;
+        FrameOutputStream stdout = new FrameOutputStream(out, DaemonProtocol.STDOUT);
+        FrameOutputStream stderr = new FrameOutputStream(out, DaemonProtocol.STDERR);
+        ConsolePrinter.redirect(stdout, stderr, charset);
+        try {
+            status = Main.execute(args, workingDirectory, resources);
+        } finally {
+            ConsolePrinter.restore();
+        }
+        stdout.flush();
+        stderr.flush();
+        synchronized (out) {
+            out.writeByte(DaemonProtocol.EXIT);
+            out.writeInt(status);
+            out.flush();
+        }
+    }
+
+    private static boolean isListening(Path socket) {
+        try (SocketChannel ignored = SocketChannel.open(UnixDomainSocketAddress.of(socket))) {
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static void restrictToOwner(Path socket) throws IOException {
+        try {
+            Files.setPosixFilePermissions(socket, PosixFilePermissions.fromString("rw-------"));
+        } catch (UnsupportedOperationException e) {
+            // Not a POSIX file system; access is then governed by the directory
+        }
+    }
+
+    /**
+     * Buffers what a run writes to one stream and sends it as frames. Standard output and
+     * standard error share the connection, so frames are written under its lock.
+     */
+    private static final class FrameOutputStream extends OutputStream {
+
+        private final DataOutputStream connection;
+        private final byte tag;
+        private final byte[] buffer = new byte[FRAME_SIZE];
+        private int count;
+
+        FrameOutputStream(DataOutputStream connection, byte tag) {
+            this.connection = connection;
+            this.tag = tag;
+        }
+
+        @Override
+        public synchronized void write(int b) throws IOException {
+            if (count == buffer.length) {
+                flush();
+            }
+            buffer[count++] = (byte) b;
+        }
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (count == buffer.length) {
+                    flush();
+                }
+                int chunk = Math.min(len, buffer.length - count);
+                System.arraycopy(b, off, buffer, count, chunk);
+                count += chunk;
+                off += chunk;
+                len -= chunk;
+            }
+        }
+
+        @Override
+        public synchronized void flush() throws IOException {
+            if (count == 0) {
+                return;
+            }
+            synchronized (connection) {
+                connection.writeByte(tag);
+                connection.writeInt(count);
+                connection.write(buffer, 0, count);
+                connection.flush();
+            }
+            count = 0;
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
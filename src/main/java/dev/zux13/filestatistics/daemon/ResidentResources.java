@@ -0,0 +1,98 @@
+package dev.zux13.filestatistics.daemon;
+
+import dev.zux13.filestatistics.RunResources;
+import dev.zux13.filestatistics.analysis.CommentAnalyzer;
+import dev.zux13.filestatistics.analysis.definition.CommentSyntaxLoader;
+import dev.zux13.filestatistics.cache.AnalysisCache;
+import dev.zux13.filestatistics.scan.GitIgnoreManager;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Resources the daemon keeps between requests. Each is checked before it is handed out, so a
+ * request sees the same results as a fresh process would:
+ * <ul>
+ *     <li>comment analyzers are rebuilt when their {@code --comment-syntax} file changes;</li>
+ *     <li>compiled {@code .gitignore} rules, per tree, are dropped when any of the files
+ *     they were read from changes;</li>
+ *     <li>a {@code --cache} is kept open instead of being loaded again; without {@code --cache}
+ *     every file is analyzed anew, as in a single invocation.</li>
+ * </ul>
+ * Only the most recently used {@link #MAX_TREES} trees and caches are kept. Not thread-safe:
+ * the daemon answers one request at a time.
+ */
+class ResidentResources implements RunResources {
+
+    static final int MAX_TREES = 16;
+
+    private CommentAnalyzer defaultCommentAnalyzer;
+    private final Map<Path, LoadedSyntax> commentAnalyzers = new LeastRecentlyUsed<>();
+    private final Map<Path, GitIgnoreManager> ignoreManagers = new LeastRecentlyUsed<>();
+    private final Map<CacheKey, AnalysisCache> analysisCaches = new LeastRecentlyUsed<>();
+
+    @Override
+    public CommentAnalyzer commentAnalyzer(Path commentSyntaxFile) throws IOException {
+        if (commentSyntaxFile == null) {
+            if (defaultCommentAnalyzer == null) {
+                defaultCommentAnalyzer = new CommentAnalyzer();
+            }
+            return defaultCommentAnalyzer;
+        }
+        FileTime modifiedTime = Files.getLastModifiedTime(commentSyntaxFile);
+        LoadedSyntax loaded = commentAnalyzers.get(commentSyntaxFile);
+        if (loaded == null || !loaded.modifiedTime().equals(modifiedTime)) {
+            loaded = new LoadedSyntax(modifiedTime, new CommentAnalyzer(CommentSyntaxLoader.load(commentSyntaxFile)));
+            commentAnalyzers.put(commentSyntaxFile, loaded);
+        }
+        return loaded.analyzer();
+    }
+
+    @Override
+    public GitIgnoreManager gitIgnoreManager(Path root) {
+        GitIgnoreManager manager = ignoreManagers.get(root);
+        if (manager == null) {
+            manager = new GitIgnoreManager(root, true);
+            ignoreManagers.put(root, manager);
+        } else {
+            manager.revalidate();
+        }
+        return manager;
+    }
+
+    @Override
+    public AnalysisCache analysisCache(Path directory, String fingerprint) throws IOException {
+        if (directory == null) {
+            return null;
+        }
+        CacheKey key = new CacheKey(directory, fingerprint);
+        AnalysisCache cache = analysisCaches.get(key);
+        if (cache == null) {
+            cache = AnalysisCache.open(directory, fingerprint);
+            analysisCaches.put(key, cache);
+        }
+        return cache;
+    }
+
+    private record LoadedSyntax(FileTime modifiedTime, CommentAnalyzer analyzer) {
+    }
+
+    private record CacheKey(Path directory, String fingerprint) {
+    }
+
+    private static final class LeastRecentlyUsed<K, V> extends LinkedHashMap<K, V> {
+
+        LeastRecentlyUsed() {
+            super(16, 0.75f, true);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+            return size() > MAX_TREES;
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package dev.zux13.filestatistics.git;
+
+import dev.zux13.filestatistics.analysis.FileAnalyzer;
+import dev.zux13.filestatistics.analysis.model.AnalysisResult;
+import dev.zux13.filestatistics.analysis.model.FileStatistics;
+import dev.zux13.filestatistics.cache.FileStatisticsLoader;
+import dev.zux13.filestatistics.cli.Config;
+import dev.zux13.filestatistics.incremental.FileContribution;
+import dev.zux13.filestatistics.incremental.RunningTotals;
+import dev.zux13.filestatistics.processing.AnalysisService;
+import dev.zux13.filestatistics.scan.FileScanner;
+import dev.zux13.filestatistics.scan.model.IgnoredFilesStats;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.Status;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.dircache.DirCacheCheckout;
+import org.eclipse.jgit.dircache.DirCacheCheckout.CheckoutMetadata;
+import org.eclipse.jgit.errors.IncorrectObjectTypeException;
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectLoader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevTree;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.eclipse.jgit.treewalk.EmptyTreeIterator;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.WorkingTreeOptions;
+import org.eclipse.jgit.treewalk.filter.PathFilterGroup;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Incremental analysis driven by Git. The totals of every run are stored together with the
+ * commit they were taken at; the next run asks Git which files differ between that commit,
+ * {@code HEAD} and the working tree, re-analyzes only those and applies the difference to the
+ * stored totals.
+ * <p>
+ * The earlier contribution of a changed file is recomputed from the old commit's blob, with
+ * the same end-of-line conversion and smudge filters a checkout applies. Files that were dirty
+ * during the previous run are the exception: their contribution is stored in the state.
+ * The whole tree is scanned when there is no usable state, the options changed, the old commit
+ * is gone, a {@code .gitignore} changed or a changed path was a symbolic link.
+ * <p>
+ * Git does not report changes to ignored files, so this mode relies on {@code --git-ignore},
+ * and the count of files ignored by {@code .gitignore} is carried over from the last full scan.
+ */
+@Slf4j
+public class GitDiffAnalyzer {
+
+    private static final String GITIGNORE_FILE = ".gitignore";
+
+    private final Config config;
+    private final FileScanner scanner;
+    private final FileAnalyzer fileAnalyzer;
+    private final AnalysisService analysisService;
+
+    public GitDiffAnalyzer(Config config, FileScanner scanner, FileAnalyzer fileAnalyzer,
+                           AnalysisService analysisService) {
+        this.config = config;
+        this.scanner = scanner;
+        this.fileAnalyzer = fileAnalyzer;
+        this.analysisService = analysisService;
+    }
+
+    public AnalysisResult analyze(IgnoredFilesStats ignoredFilesStats) throws IOException {
+        try (Repository repository = openRepository()) {
+            Path workTree = repository.getWorkTree().toPath().toAbsolutePath().normalize();
+            ObjectId head = repository.resolve(Constants.HEAD);
+            Set<String> dirtyPaths = dirtyPaths(repository);
+            String fingerprint = fingerprint();
+
+            Map<String, FileContribution> dirtyFiles = new HashMap<>();
+            RunningTotals totals = null;
+
+            GitDiffState previous = GitDiffState.read(config.gitDiffState());
+            if (previous != null && fingerprint.equals(previous.fingerprint())) {
+                totals = applyChanges(repository, workTree, previous, head, dirtyPaths, dirtyFiles);
+            }
+            if (totals == null) {
+                totals = fullScan();
+                for (String path : dirtyPaths) {
+                    dirtyFiles.put(path, workingTreeContribution(workTree.resolve(path)));
+                }
+            }
+
+            String commitId = head != null ? head.name() : null;
+            GitDiffState.of(commitId, fingerprint, totals, dirtyFiles).write(config.gitDiffState());
+            totals.addTo(ignoredFilesStats);
+            return totals.toAnalysisResult();
+        }
+    }
+
+    private Repository openRepository() throws IOException {
+        FileRepositoryBuilder builder = new FileRepositoryBuilder().findGitDir(config.path().toFile());
+        if (builder.getGitDir() == null) {
+            throw new IllegalArgumentException("The --git-diff parameter requires a path inside a Git working tree: " + config.path());
+        }
+        return builder.build();
+    }
+
+    private RunningTotals fullScan() throws IOException {
+        log.debug("Scanning the whole tree");
+        IgnoredFilesStats stats = new IgnoredFilesStats();
+
+        // With --git-ignore the scanner never enters .git, which never shows up in a diff either
+        AnalysisResult result = analysisService.processFiles(sink -> scanner.scanFiles(sink, stats), stats);
+
+        return RunningTotals.of(result, stats);
+    }
+
+    /**
+     * Returns the stored totals updated to the current working tree, or {@code null} when
+     * the difference cannot be computed reliably and the tree has to be scanned again.
+     */
+    private RunningTotals applyChanges(Repository repository, Path workTree, GitDiffState previous, ObjectId head,
+                                       Set<String> dirtyPaths, Map<String, FileContribution> dirtyFiles) throws IOException {
+        RevTree previousTree;
+        RevTree headTree;
+        try (RevWalk revWalk = new RevWalk(repository)) {
+            previousTree = previous.commitId() != null
+                    ? revWalk.parseCommit(ObjectId.fromString(previous.commitId())).getTree()
+                    : null;
+            headTree = head != null ? revWalk.parseCommit(head).getTree() : null;
+        } catch (MissingObjectException | IncorrectObjectTypeException e) {
+            log.debug("Previous commit {} is no longer available", previous.commitId());
+            return null;
+        }
+
+        Set<String> changedPaths = new TreeSet<>(changedBetween(repository, previousTree, headTree));
+        changedPaths.addAll(dirtyPaths);
+        changedPaths.addAll(previous.dirtyFiles().keySet());
+
+        if (changedPaths.stream().anyMatch(path -> isFileName(path, GITIGNORE_FILE))) {
+            log.debug("A .gitignore file changed since commit {}", previous.commitId());
+            return null;
+        }
+        if (changedPaths.stream().anyMatch(path -> Files.isSymbolicLink(workTree.resolve(path)))) {
+            log.debug("A symbolic link changed since commit {}", previous.commitId());
+            return null;
+        }
+
+        Map<String, FileContribution> before = new HashMap<>(previous.dirtyFiles());
+        Set<String> committedPaths = new HashSet<>(changedPaths);
+        committedPaths.removeAll(before.keySet());
+        if (!readCommittedContributions(repository, workTree, previousTree, committedPaths, before)) {
+            return null;
+        }
+
+        RunningTotals totals = previous.totals();
+        for (String path : changedPaths) {
+            FileContribution after = workingTreeContribution(workTree.resolve(path));
+            totals.remove(path, before.getOrDefault(path, FileContribution.ABSENT));
+            totals.add(path, after);
+            if (dirtyPaths.contains(path)) {
+                dirtyFiles.put(path, after);
+            }
+        }
+
+        log.debug("Applied {} changed files since commit {}", changedPaths.size(), previous.commitId());
+        return totals;
+    }
+
+    private Set<String> changedBetween(Repository repository, RevTree from, RevTree to) throws IOException {
+        Set<String> paths = new HashSet<>();
+        try (TreeWalk walk = new TreeWalk(repository)) {
+            addTree(walk, from);
+            addTree(walk, to);
+            walk.setRecursive(true);
+            walk.setFilter(TreeFilter.ANY_DIFF);
+            while (walk.next()) {
+                paths.add(walk.getPathString());
+            }
+        }
+        return paths;
+    }
+
+    private void addTree(TreeWalk walk, RevTree tree) throws IOException {
+        if (tree != null) {
+            walk.addTree(tree);
+        } else {
+            walk.addTree(new EmptyTreeIterator());
+        }
+    }
+
+    private Set<String> dirtyPaths(Repository repository) throws IOException {
+        Status status;
+        try {
+            status = Git.wrap(repository).status().call();
+        } catch (GitAPIException e) {
+            throw new IOException("Cannot read the working tree status: " + e.getMessage(), e);
+        }
+
+        Set<String> paths = new HashSet<>();
+        paths.addAll(status.getAdded());
+        paths.addAll(status.getChanged());
+        paths.addAll(status.getRemoved());
+        paths.addAll(status.getMissing());
+        paths.addAll(status.getModified());
+        paths.addAll(status.getUntracked());
+        paths.addAll(status.getConflicting());
+        return paths;
+    }
+
+    /**
+     * Computes what {@code paths} contributed when they matched {@code tree}. Paths missing
+     * from the tree contributed nothing. Returns {@code false} if one of them was a symbolic
+     * link, since the file it pointed to at the time is unknown.
+     */
+    private boolean readCommittedContributions(Repository repository, Path workTree, RevTree tree,
+                                               Set<String> paths, Map<String, FileContribution> contributions) throws IOException {
+        if (tree == null || paths.isEmpty()) {
+            return true;
+        }
+
+        WorkingTreeOptions options = repository.getConfig().get(WorkingTreeOptions.KEY);
+        try (TreeWalk walk = new TreeWalk(repository)) {
+            walk.setOperationType(TreeWalk.OperationType.CHECKOUT_OP);
+            walk.addTree(tree);
+            walk.setRecursive(true);
+            walk.setFilter(PathFilterGroup.createFromStrings(paths));
+
+            while (walk.next()) {
+                String path = walk.getPathString();
+                FileMode mode = walk.getFileMode(0);
+                if (!paths.contains(path) || mode == FileMode.GITLINK) {
+                    continue;
+                }
+                if (mode == FileMode.SYMLINK) {
+                    log.debug("Symbolic link {} changed", path);
+                    return false;
+                }
+
+                CheckoutMetadata metadata = new CheckoutMetadata(
+                        walk.getEolStreamType(TreeWalk.OperationType.CHECKOUT_OP),
+                        walk.getFilterCommand(Constants.ATTR_FILTER_TYPE_SMUDGE));
+                ObjectLoader blob = walk.getObjectReader().open(walk.getObjectId(0));
+
+                contributions.put(path, contributionOf(workTree.resolve(path), file -> {
+                    ByteArrayOutputStream content = new ByteArrayOutputStream();
+                    DirCacheCheckout.getContent(repository, path, metadata, blob, options, content);
+                    return fileAnalyzer.analyzeContent(file, content.toByteArray());
+                }));
+            }
+        }
+        return true;
+    }
+
+    private FileContribution workingTreeContribution(Path file) {
+        if (!Files.isRegularFile(file)) {
+            return FileContribution.ABSENT;
+        }
+        try {
+            return contributionOf(file, fileAnalyzer::analyzeFile);
+        } catch (IOException | RuntimeException e) {
+            // Same outcome as in a full scan: the file is reported and left out
+            log.error("Failed to analyze file {}: {}", file, e.getMessage());
+            return FileContribution.ABSENT;
+        }
+    }
+
+    private FileContribution contributionOf(Path file, FileStatisticsLoader loader) throws IOException {
+        if (!scanner.isInScope(file)) {
+            return FileContribution.ABSENT;
+        }
+        return switch (scanner.decide(file)) {
+            case SKIP -> FileContribution.ABSENT;
+            case IGNORED_BY_GITIGNORE -> FileContribution.IGNORED_BY_GITIGNORE;
+            case IGNORED_BY_EXTENSION -> FileContribution.IGNORED_BY_EXTENSION;
+            case ACCEPT -> {
+                FileStatistics stats = loader.analyze(file);
+                yield stats != null ? FileContribution.counted(stats) : FileContribution.BINARY;
+            }
+        };
+    }
+
+    /**
+     * Identifies the options that shape the totals; a state written under other options is not reused.
+     */
+    private String fingerprint() {
+        return String.join(";",
+                fileAnalyzer.getFingerprint(),
+                config.path().toString(),
+                String.valueOf(config.recursive()),
+                String.valueOf(config.maxDepth()),
+                String.join(",", new TreeSet<>(config.includeExtensions())),
+                String.join(",", new TreeSet<>(config.excludeExtensions())),
+                String.valueOf(config.useGitIgnore()));
+    }
+
+    private static boolean isFileName(String path, String name) {
+        return path.equals(name) || path.endsWith("/" + name);
+    }
+}
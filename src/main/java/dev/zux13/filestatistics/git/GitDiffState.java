@@ -0,0 +1,88 @@
+package dev.zux13.filestatistics.git;
+
+import dev.zux13.filestatistics.incremental.ExtensionTotals;
+import dev.zux13.filestatistics.incremental.FileContribution;
+import dev.zux13.filestatistics.incremental.RunningTotals;
+import lombok.extern.slf4j.Slf4j;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+
+/**
+ * Totals of a previous run together with the commit they were taken at.
+ * <p>
+ * Files that differed from that commit at the time (uncommitted edits, untracked files) are
+ * recorded individually in {@code dirtyFiles}, because their earlier contribution cannot be
+ * recomputed from the repository later. {@code commitId} is {@code null} when {@code HEAD}
+ * had no commits yet.
+ */
+@Slf4j
+record GitDiffState(
+        int formatVersion,
+        String commitId,
+        String fingerprint,
+        Map<String, ExtensionTotals> extensions,
+        long ignoredByGitignore,
+        long ignoredByExtension,
+        long ignoredBinaryOrEncoding,
+        Map<String, FileContribution> dirtyFiles
+) {
+
+    static final int FORMAT_VERSION = 1;
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    static GitDiffState of(String commitId, String fingerprint, RunningTotals totals,
+                           Map<String, FileContribution> dirtyFiles) {
+        return new GitDiffState(FORMAT_VERSION, commitId, fingerprint, totals.extensions(),
+                totals.ignoredByGitignore(), totals.ignoredByExtension(), totals.ignoredBinaryOrEncoding(), dirtyFiles);
+    }
+
+    RunningTotals totals() {
+        return new RunningTotals(extensions, ignoredByGitignore, ignoredByExtension, ignoredBinaryOrEncoding);
+    }
+
+    /**
+     * Returns the stored state, or {@code null} when there is none or it cannot be used.
+     */
+    static GitDiffState read(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            GitDiffState state = objectMapper.readValue(in, GitDiffState.class);
+            if (state.formatVersion() != FORMAT_VERSION) {
+                log.info("Ignoring git diff state {} written by another version", file);
+                return null;
+            }
+            return state;
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (JacksonException e) {
+            log.warn("Ignoring unreadable git diff state {}: {}", file, e.getOriginalMessage());
+            return null;
+        }
+    }
+
+    void write(Path file) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+
+        Path tempFile = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(tempFile)) {
+                objectMapper.writeValue(out, this);
+            } catch (JacksonException e) {
+                throw new IOException("Cannot write git diff state " + file, e);
+            }
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+}
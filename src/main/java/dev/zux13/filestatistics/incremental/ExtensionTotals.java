@@ -0,0 +1,16 @@
+package dev.zux13.filestatistics.incremental;
+
+import dev.zux13.filestatistics.analysis.model.FileStatistics;
+
+public record ExtensionTotals(long fileCount, FileStatistics totals) {
+
+    public static final ExtensionTotals EMPTY = new ExtensionTotals(0, new FileStatistics(0, 0, 0, 0));
+
+    public ExtensionTotals plus(FileStatistics statistics) {
+        return new ExtensionTotals(fileCount + 1, totals.plus(statistics));
+    }
+
+    public ExtensionTotals minus(FileStatistics statistics) {
+        return new ExtensionTotals(fileCount - 1, totals.minus(statistics));
+    }
+}
@@ -0,0 +1,28 @@
+package dev.zux13.filestatistics.incremental;
+
+import dev.zux13.filestatistics.analysis.model.FileStatistics;
+
+/**
+ * What a single file adds to the report: its statistics when it is counted,
+ * otherwise the counter of ignored files it lands in.
+ */
+public record FileContribution(Kind kind, FileStatistics statistics) {
+
+    public static final FileContribution ABSENT = new FileContribution(Kind.ABSENT, null);
+    public static final FileContribution BINARY = new FileContribution(Kind.BINARY, null);
+    public static final FileContribution IGNORED_BY_GITIGNORE = new FileContribution(Kind.IGNORED_BY_GITIGNORE, null);
+    public static final FileContribution IGNORED_BY_EXTENSION = new FileContribution(Kind.IGNORED_BY_EXTENSION, null);
+
+    public static FileContribution counted(FileStatistics statistics) {
+        return new FileContribution(Kind.COUNTED, statistics);
+    }
+
+    public enum Kind {
+        /** The file does not exist or is not reached by the scan. */
+        ABSENT,
+        COUNTED,
+        BINARY,
+        IGNORED_BY_GITIGNORE,
+        IGNORED_BY_EXTENSION
+    }
+}
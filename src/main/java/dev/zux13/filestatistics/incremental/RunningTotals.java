@@ -0,0 +1,118 @@
+package dev.zux13.filestatistics.incremental;
+
+import dev.zux13.filestatistics.analysis.model.AnalysisResult;
+import dev.zux13.filestatistics.analysis.model.ExtensionStatistics;
+import dev.zux13.filestatistics.analysis.model.FileStatistics;
+import dev.zux13.filestatistics.scan.model.IgnoredFilesStats;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Report totals that single file contributions can be added to and taken back out of.
+ * Used by the modes that keep totals up to date instead of counting everything again.
+ */
+public class RunningTotals {
+
+    private final Map<String, ExtensionTotals> extensions;
+    private long ignoredByGitignore;
+    private long ignoredByExtension;
+    private long ignoredBinaryOrEncoding;
+
+    public RunningTotals(Map<String, ExtensionTotals> extensions, long ignoredByGitignore,
+                         long ignoredByExtension, long ignoredBinaryOrEncoding) {
+        this.extensions = new HashMap<>(extensions);
+        this.ignoredByGitignore = ignoredByGitignore;
+        this.ignoredByExtension = ignoredByExtension;
+        this.ignoredBinaryOrEncoding = ignoredBinaryOrEncoding;
+    }
+
+    public static RunningTotals empty() {
+        return new RunningTotals(Map.of(), 0, 0, 0);
+    }
+
+    public static RunningTotals of(AnalysisResult result, IgnoredFilesStats ignoredFilesStats) {
+        Map<String, ExtensionTotals> extensions = new HashMap<>();
+        result.extensionStatistics().forEach((extension, stats) -> extensions.put(extension,
+                new ExtensionTotals(stats.getFileCount(), new FileStatistics(
+                        stats.getTotalSizeInBytes(),
+                        stats.getTotalLines(),
+                        stats.getTotalNonEmptyLines(),
+                        stats.getTotalCommentLines()))));
+
+        return new RunningTotals(extensions, ignoredFilesStats.getIgnoredByGitignore(),
+                ignoredFilesStats.getIgnoredByExtension(), ignoredFilesStats.getIgnoredBinaryOrEncoding());
+    }
+
+    /**
+     * @param path the file's path, which its extension is taken from
+     */
+    public void add(String path, FileContribution contribution) {
+        apply(path, contribution, 1);
+    }
+
+    public void remove(String path, FileContribution contribution) {
+        apply(path, contribution, -1);
+    }
+
+    private void apply(String path, FileContribution contribution, int sign) {
+        switch (contribution.kind()) {
+            case ABSENT -> {
+            }
+            case COUNTED -> applyCounted(getExtension(path), contribution.statistics(), sign);
+            case BINARY -> ignoredBinaryOrEncoding += sign;
+            case IGNORED_BY_GITIGNORE -> ignoredByGitignore += sign;
+            case IGNORED_BY_EXTENSION -> ignoredByExtension += sign;
+        }
+    }
+
+    private void applyCounted(String extension, FileStatistics statistics, int sign) {
+        ExtensionTotals current = extensions.getOrDefault(extension, ExtensionTotals.EMPTY);
+        ExtensionTotals updated = sign > 0 ? current.plus(statistics) : current.minus(statistics);
+        if (updated.fileCount() == 0) {
+            extensions.remove(extension);
+        } else {
+            extensions.put(extension, updated);
+        }
+    }
+
+    public Map<String, ExtensionTotals> extensions() {
+        return Collections.unmodifiableMap(extensions);
+    }
+
+    public long ignoredByGitignore() {
+        return ignoredByGitignore;
+    }
+
+    public long ignoredByExtension() {
+        return ignoredByExtension;
+    }
+
+    public long ignoredBinaryOrEncoding() {
+        return ignoredBinaryOrEncoding;
+    }
+
+    public AnalysisResult toAnalysisResult() {
+        Map<String, ExtensionStatistics> statistics = new HashMap<>();
+        extensions.forEach((extension, totals) -> {
+            ExtensionStatistics extensionStatistics = new ExtensionStatistics();
+            extensionStatistics.addTotals(totals.fileCount(), totals.totals());
+            statistics.put(extension, extensionStatistics);
+        });
+        return new AnalysisResult(statistics, ignoredBinaryOrEncoding);
+    }
+
+    public void addTo(IgnoredFilesStats ignoredFilesStats) {
+        ignoredFilesStats.add(ignoredByGitignore, ignoredByExtension, ignoredBinaryOrEncoding);
+    }
+
+    private String getExtension(String path) {
+        String fileName = path.substring(path.lastIndexOf('/') + 1);
+        int lastDotIndex = fileName.lastIndexOf('.');
+        if (lastDotIndex > 0 && lastDotIndex < fileName.length() - 1) {
+            return fileName.substring(lastDotIndex + 1).toLowerCase();
+        }
+        return "";
+    }
+}
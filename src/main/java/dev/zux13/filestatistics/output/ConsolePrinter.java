@@ -3,14 +3,31 @@ package dev.zux13.filestatistics.output;
 import lombok.AccessLevel;
 import lombok.NoArgsConstructor;
 
+import java.io.BufferedWriter;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.Charset;
+
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
 public class ConsolePrinter {
 
+    /**
+     * Where output goes while a daemon answers a request, or {@code null} for this process's
+     * own standard output.
+     */
+    private static volatile Redirection redirection;
+
     public static void printHelp() {
 
         String help =
             """
             Использование: java -jar <jar_name> <path> [options]
+                           java -jar <jar_name> merge <partial>... [--output=<plain,xml,json>] [--output-file=<file>] [--verbose]
+                           java -jar <jar_name> serve [--socket=<path>]
 
             Консольная утилита для подсчёта статистики по файлам в указанном каталоге.
 
@@ -19,17 +36,41 @@ public class ConsolePrinter {
               --recursive                Выполнять обход дерева рекурсивно.
               --max-depth=<number>       Глубина рекурсивного обхода (только если --recursive).
               --thread=<number>          Количество потоков используемого для обхода.
+              --executor=<platform,virtual>  Потоки для анализа: пул платформенных потоков (по умолчанию) или виртуальный поток на файл (Java 21+).
+              --max-concurrency=<number> Максимум одновременно анализируемых файлов при --executor=virtual (по умолчанию 256).
+              --scan-threads=<number>    Количество потоков для параллельного обхода каталогов (по умолчанию 1).
+              --cache=<dir>              Хранить результаты анализа в каталоге и не перечитывать неизменённые файлы.
+              --dedup                    Анализировать файлы с одинаковым содержимым один раз (по хешу содержимого).
+              --git-diff=<file>          Хранить итоги в файле и при следующем запуске анализировать только файлы, изменённые по данным Git (требует --git-ignore).
+              --shard=<number>/<count>   Обработать только свою часть каталогов из <count> (для распределения по машинам).
+              --partial=<file>           Сохранить итоги в файл для последующего объединения командой merge.
+              --watch[=<seconds>]        После обхода следить за изменениями и выводить отчёт заново, не чаще раза в <seconds> секунд (по умолчанию 5).
+              --mmap-threshold=<size>    Файлы больше этого размера читаются через memory-mapped I/O (по умолчанию 4m).
+              --comment-syntax=<file>    JSON-файл с описанием комментариев для дополнительных языков или замены встроенных.
               --include-ext=<ext1,ext2,..>  Обрабатывать файлы только с указанными расширениями (без точки).
               --exclude-ext=<ext1,ext2,..>  Не обрабатывать файлы с указанными расширениями (без точки).
               --git-ignore               Не обрабатывать файлы указанные в файле .gitignore (опционально).
+              --git-tracked              Брать список файлов из индекса Git вместо обхода каталогов.
+              --git-untracked            С --git-tracked: добавить неотслеживаемые файлы, которые Git не игнорирует.
               --output=<plain,xml,json>  Формат вывода статистики (по умолчанию plain).
+              --output-file=<file>       Записать отчёт в файл (UTF-8) вместо вывода в консоль.
               --verbose                  Выводить информацию о проигнорированных файлах.
+              --per-file[=<file>]        Выводить по строке JSON (NDJSON) на каждый файл по мере анализа: в файл или, без значения, вместо отчёта в stdout.
+              --gzip                     Сжимать вывод --per-file в gzip.
+              --per-file-format=<ndjson,columnar>  Формат --per-file: NDJSON (по умолчанию) или компактный бинарный колоночный.
+              --server[=<socket>]        Выполнить команду в запущенном процессе serve (если он не запущен — в этом процессе).
               -h, --help                 Показать это сообщение и выйти.
 
             Примеры:
               java -jar file-stats.jar /home/user/src
               java -jar file-stats.jar /home/user/src --recursive --include-ext=java,xml --output=json
               java -jar file-stats.jar /home/user/src --max-depth=2 --thread=4 --exclude-ext=tmp,log --verbose
+              java -jar file-stats.jar /home/user/src --recursive --per-file --gzip | gunzip | head
+              java -jar file-stats.jar /home/user/src --recursive --shard=1/2 --partial=part1.json
+              java -jar file-stats.jar merge part1.json part2.json --output=json
+              java -jar file-stats.jar /home/user/src --recursive --git-ignore --watch=10
+              java -jar file-stats.jar serve &
+              java -jar file-stats.jar /home/user/src --recursive --server
             """;
 
         print(help);
@@ -38,4 +79,61 @@ public class ConsolePrinter {
     public static void print(String output) {
         System.out.println(output);
     }
-}
\ No newline at end of file
+
+    /**
+     * Returns a buffered writer to standard output in the encoding {@link #print(String)} uses.
+     * It must be flushed, not closed, since closing it would close {@code System.out}.
+     */
+    public static Writer writer() {
+        Redirection current = redirection;
+        Charset charset = current != null ? current.charset() : standardOutputCharset();
+        return new BufferedWriter(new OutputStreamWriter(System.out, charset));
+    }
+
+    /**
+     * Returns standard output as raw bytes, bypassing {@code System.out}. Like {@link #writer()}
+     * it must not be closed.
+     */
+    public static OutputStream standardOutput() {
+        Redirection current = redirection;
+        return current != null ? current.out() : new FileOutputStream(FileDescriptor.out);
+    }
+
+    /**
+     * Sends standard output and standard error to {@code out} and {@code err} until
+     * {@link #restore()}, with text encoded in {@code charset}. Used by the daemon, which
+     * answers one request at a time, to hand a run's output to its client.
+     */
+    public static void redirect(OutputStream out, OutputStream err, Charset charset) {
+        redirection = new Redirection(out, charset, System.out, System.err);
+        System.setOut(new PrintStream(out, true, charset));
+        System.setErr(new PrintStream(err, true, charset));
+    }
+
+    public static void restore() {
+        Redirection current = redirection;
+        if (current != null) {
+            System.out.flush();
+            System.err.flush();
+            System.setOut(current.previousOut());
+            System.setErr(current.previousErr());
+            redirection = null;
+        }
+    }
+
+    /**
+     * The charset standard output of this process is encoded in.
+     */
+    public static Charset standardOutputCharset() {
+        // The properties System.out is created from, since PrintStream.charset() only exists as of Java 18
+        String encoding = System.getProperty("stdout.encoding", System.getProperty("sun.stdout.encoding"));
+        try {
+            return encoding != null ? Charset.forName(encoding) : Charset.defaultCharset();
+        } catch (IllegalArgumentException e) {
+            return Charset.defaultCharset();
+        }
+    }
+
+    private record Redirection(OutputStream out, Charset charset, PrintStream previousOut, PrintStream previousErr) {
+    }
+}
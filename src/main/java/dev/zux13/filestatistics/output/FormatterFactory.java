@@ -7,6 +7,12 @@ import dev.zux13.filestatistics.output.formatter.XmlFormatter;
 import lombok.AccessLevel;
 import lombok.NoArgsConstructor;
 
+/**
+ * Creates the formatter for an {@code --output} value. Only the selected formatter class is
+ * loaded, and none of them depends on a serialization library, so the report adds next to
+ * nothing to the startup of a short run. Keep it that way: a formatter that needs a heavy
+ * library should create it on first use, not in a static field of a class listed here.
+ */
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
 public class FormatterFactory {
 
@@ -0,0 +1,56 @@
+package dev.zux13.filestatistics.output;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+import java.io.IOException;
+
+/**
+ * The JSON string escaping shared by the report and the per-file records, so both write the
+ * same text for the same name.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public class JsonStrings {
+
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    /**
+     * Appends {@code value} as a JSON string, escaping quotes, backslashes and control
+     * characters; everything else is appended as is. Unchanged runs are appended in one call.
+     */
+    public static void append(Appendable out, String value) throws IOException {
+        out.append('"');
+        int start = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= 0x20 && c != '"' && c != '\\') {
+                continue;
+            }
+            out.append(value, start, i);
+            start = i + 1;
+            switch (c) {
+                case '"' -> out.append("\\\"");
+                case '\\' -> out.append("\\\\");
+                case '\b' -> out.append("\\b");
+                case '\f' -> out.append("\\f");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                case '\t' -> out.append("\\t");
+                default -> out.append("\\u00").append(HEX_DIGITS[c >> 4]).append(HEX_DIGITS[c & 0xF]);
+            }
+        }
+        out.append(value, start, value.length());
+        out.append('"');
+    }
+
+    /**
+     * {@link #append(Appendable, String)} for a {@link StringBuilder}, which cannot fail.
+     */
+    public static void append(StringBuilder out, String value) {
+        try {
+            append((Appendable) out, value);
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
@@ -1,12 +1,9 @@
 package dev.zux13.filestatistics.output.dto;
 
-import jakarta.xml.bind.annotation.XmlElement;
-import jakarta.xml.bind.annotation.XmlRootElement;
 import lombok.NoArgsConstructor;
 
 import java.util.List;
 
-@XmlRootElement(name = "statistics")
 @NoArgsConstructor
 public class OutputStatistics {
 
@@ -16,7 +13,6 @@ public class OutputStatistics {
         this.extensions = extensions;
     }
 
-    @XmlElement(name = "extension")
     public List<ExtensionStatDto> getExtensions() {
         return extensions;
     }
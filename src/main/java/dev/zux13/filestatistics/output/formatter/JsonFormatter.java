@@ -1,25 +1,53 @@
 package dev.zux13.filestatistics.output.formatter;
 
 import dev.zux13.filestatistics.analysis.StatisticsAggregator;
-import dev.zux13.filestatistics.output.dto.OutputStatistics;
-import lombok.extern.slf4j.Slf4j;
-import tools.jackson.databind.ObjectMapper;
+import dev.zux13.filestatistics.output.JsonStrings;
+import dev.zux13.filestatistics.output.dto.ExtensionStatDto;
 
-@Slf4j
-public class JsonFormatter implements OutputFormatter {
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
 
-    private static final ObjectMapper objectMapper = new ObjectMapper();
+/**
+ * Writes the report for its fixed schema by hand, with the pretty-printed layout and
+ * alphabetical field order Jackson produced before. No serialization library is loaded, which
+ * keeps {@code --output=json} off the class-loading path of a short run.
+ */
+public class JsonFormatter implements OutputFormatter {
 
     @Override
-    public String format(StatisticsAggregator aggregator) {
-        try {
-            OutputStatistics outputStats = aggregator.getOutputStatistics();
-            return objectMapper
-                    .writerWithDefaultPrettyPrinter()
-                    .writeValueAsString(outputStats);
-        } catch (Exception e) {
-            log.error("Error during JSON serialization: {}", e.getMessage());
-            return "{}";
+    public void write(StatisticsAggregator aggregator, Writer writer) throws IOException {
+        List<ExtensionStatDto> extensions = aggregator.getOutputStatistics().getExtensions();
+        if (extensions.isEmpty()) {
+            writer.write("{\n  \"extensions\" : [ ]\n}\n");
+            writer.flush();
+            return;
+        }
+
+        writer.write("{\n  \"extensions\" : [ ");
+        for (int i = 0; i < extensions.size(); i++) {
+            ExtensionStatDto extension = extensions.get(i);
+            writer.write(i == 0 ? "{\n" : ", {\n");
+            writeNumber(writer, "fileCount", extension.getFileCount());
+            writer.write("    \"name\" : ");
+            JsonStrings.append(writer, extension.getName());
+            writer.write(",\n");
+            writeNumber(writer, "totalCommentLines", extension.getTotalCommentLines());
+            writeNumber(writer, "totalLines", extension.getTotalLines());
+            writeNumber(writer, "totalNonEmptyLines", extension.getTotalNonEmptyLines());
+            writer.write("    \"totalSizeInBytes\" : ");
+            writer.write(Long.toString(extension.getTotalSizeInBytes()));
+            writer.write("\n  }");
         }
+        writer.write(" ]\n}\n");
+        writer.flush();
+    }
+
+    private void writeNumber(Writer writer, String name, long value) throws IOException {
+        writer.write("    \"");
+        writer.write(name);
+        writer.write("\" : ");
+        writer.write(Long.toString(value));
+        writer.write(",\n");
     }
-}
\ No newline at end of file
+}
@@ -2,6 +2,14 @@ package dev.zux13.filestatistics.output.formatter;
 
 import dev.zux13.filestatistics.analysis.StatisticsAggregator;
 
+import java.io.IOException;
+import java.io.Writer;
+
 public interface OutputFormatter {
-    String format(StatisticsAggregator aggregator);
-}
\ No newline at end of file
+
+    /**
+     * Writes the report to {@code writer} as it is produced, one extension at a time, so the
+     * whole document is never held in memory. Flushes {@code writer} but does not close it.
+     */
+    void write(StatisticsAggregator aggregator, Writer writer) throws IOException;
+}
@@ -3,19 +3,28 @@ package dev.zux13.filestatistics.output.formatter;
 import dev.zux13.filestatistics.analysis.StatisticsAggregator;
 import dev.zux13.filestatistics.analysis.model.ExtensionStatistics;
 
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 public class PlaintextFormatter implements OutputFormatter {
 
     @Override
-    public String format(StatisticsAggregator aggregator) {
+    public void write(StatisticsAggregator aggregator, Writer writer) throws IOException {
         Map<String, ExtensionStatistics> statsMap = aggregator.getStatisticsByExtension();
-
-        return statsMap.entrySet().stream()
-                .sorted(Map.Entry.comparingByKey())
-                .map(this::formatExtension)
-                .collect(Collectors.joining("\n---\n"));
+        List<Map.Entry<String, ExtensionStatistics>> entries = statsMap == null
+                ? List.of()
+                : statsMap.entrySet().stream().sorted(Map.Entry.comparingByKey()).toList();
+
+        for (int i = 0; i < entries.size(); i++) {
+            if (i > 0) {
+                writer.write("\n---\n");
+            }
+            writer.write(formatExtension(entries.get(i)));
+        }
+        writer.write('\n');
+        writer.flush();
     }
 
     private String formatExtension(Map.Entry<String, ExtensionStatistics> entry) {
@@ -1,43 +1,82 @@
 package dev.zux13.filestatistics.output.formatter;
 
 import dev.zux13.filestatistics.analysis.StatisticsAggregator;
-import dev.zux13.filestatistics.output.dto.OutputStatistics;
+import dev.zux13.filestatistics.output.dto.ExtensionStatDto;
 
-import jakarta.xml.bind.JAXBContext;
-import jakarta.xml.bind.JAXBException;
-import jakarta.xml.bind.Marshaller;
-import lombok.extern.slf4j.Slf4j;
+import java.io.IOException;
+import java.io.Writer;
 
-import java.io.StringWriter;
-
-@Slf4j
+/**
+ * Writes the report for its fixed schema by hand, indented and ordered as the JAXB marshaller
+ * formatted it. No XML library is loaded, which keeps {@code --output=xml} off the
+ * class-loading path of a short run.
+ */
 public class XmlFormatter implements OutputFormatter {
 
-    private static final JAXBContext jaxbContext;
+    private static final String DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n";
 
-    static {
-        try {
-            jaxbContext = JAXBContext.newInstance(OutputStatistics.class);
-        } catch (JAXBException e) {
-            throw new ExceptionInInitializerError("Error initializing JAXBContext: " + e.getMessage());
+    @Override
+    public void write(StatisticsAggregator aggregator, Writer writer) throws IOException {
+        writer.write(DECLARATION);
+        writer.write("<statistics>");
+        for (ExtensionStatDto extension : aggregator.getOutputStatistics().getExtensions()) {
+            writer.write("\n    <extension name=\"");
+            writeAttributeValue(writer, extension.getName());
+            writer.write("\">");
+            writeElement(writer, "fileCount", extension.getFileCount());
+            writeElement(writer, "totalCommentLines", extension.getTotalCommentLines());
+            writeElement(writer, "totalLines", extension.getTotalLines());
+            writeElement(writer, "totalNonEmptyLines", extension.getTotalNonEmptyLines());
+            writeElement(writer, "totalSizeInBytes", extension.getTotalSizeInBytes());
+            writer.write("\n    </extension>");
         }
+        writer.write("\n</statistics>\n");
+        writer.flush();
     }
 
-    @Override
-    public String format(StatisticsAggregator aggregator) {
-        try {
-            OutputStatistics outputStats = aggregator.getOutputStatistics();
-
-            Marshaller marshaller = jaxbContext.createMarshaller();
-            marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
+    private void writeElement(Writer writer, String name, long value) throws IOException {
+        writer.write("\n        <");
+        writer.write(name);
+        writer.write('>');
+        writer.write(Long.toString(value));
+        writer.write("</");
+        writer.write(name);
+        writer.write('>');
+    }
 
-            StringWriter writer = new StringWriter();
-            marshaller.marshal(outputStats, writer);
+    /**
+     * Writes {@code value} for a double-quoted attribute. Whitespace other than spaces is
+     * written as character references, which parsers do not normalize away, and characters
+     * XML 1.0 cannot represent become U+FFFD.
+     */
+    static void writeAttributeValue(Writer writer, String value) throws IOException {
+        int start = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            String replacement = switch (c) {
+                case '&' -> "&amp;";
+                case '<' -> "&lt;";
+                case '>' -> "&gt;";
+                case '"' -> "&quot;";
+                case '\t' -> "&#9;";
+                case '\n' -> "&#10;";
+                case '\r' -> "&#13;";
+                default -> c < 0x20 || c == 0xFFFE || c == 0xFFFF || isUnpairedSurrogate(value, i) ? "�" : null;
+            };
+            if (replacement != null) {
+                writer.write(value, start, i - start);
+                writer.write(replacement);
+                start = i + 1;
+            }
+        }
+        writer.write(value, start, value.length() - start);
+    }
 
-            return writer.toString();
-        } catch (JAXBException e) {
-            log.error("Error during XML serialization: {}", e.getMessage());
-            return "<statistics></statistics>";
+    private static boolean isUnpairedSurrogate(String value, int index) {
+        char c = value.charAt(index);
+        if (Character.isHighSurrogate(c)) {
+            return index + 1 == value.length() || !Character.isLowSurrogate(value.charAt(index + 1));
         }
+        return Character.isLowSurrogate(c) && (index == 0 || !Character.isHighSurrogate(value.charAt(index - 1)));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,236 @@
+package dev.zux13.filestatistics.output.perfile;
+
+import dev.zux13.filestatistics.analysis.model.FileStatistics;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Compact binary export of per-file statistics, read back by {@link ColumnarReader}. Files are
+ * written in blocks of up to {@link #BLOCK_SIZE}, each holding one column per field. Extensions
+ * and directories are dictionary-encoded: a block lists only the entries first used in it, and
+ * ids continue across blocks. The footer holds the totals per extension.
+ * <pre>
+ * int     magic "FSTX"
+ * int     format version
+ * blocks, each:
+ *   byte    {@link #BLOCK}
+ *   varint  file count, varint payload length
+ *   payload:
+ *     varint  new extension count, each: varint length, UTF-8 bytes
+ *     varint  new directory count, each: varint length of the prefix shared with the
+ *             previous new directory, varint suffix length, UTF-8 suffix bytes
+ *     columns, one value per file: varint directory id; varint name length and UTF-8
+ *             name; varint extension id; varlong size; varlong total lines;
+ *             varlong non-empty lines; varlong comment lines
+ *   int     CRC32 of the payload
+ * byte    {@link #END}
+ * varint  extension count, each: varint extension id, varlong file count, size, total lines,
+ *         non-empty lines, comment lines
+ * int     CRC32 of the footer after {@link #END}
+ * </pre>
+ * Paths are relative to the analyzed directory, split into the directory ({@code ""} at the
+ * top) and the file name.
+ */
+public class ColumnarFormat implements PerFileFormat<ColumnarFormat.Row> {
+
+    static final int MAGIC = 0x46535458;
+    static final int FORMAT_VERSION = 1;
+    static final byte BLOCK = 'B';
+    static final byte END = 'E';
+    static final int BLOCK_SIZE = 16 * 1024;
+
+    private final Map<String, Integer> extensionIds = new HashMap<>();
+    private final Map<String, Integer> directoryIds = new HashMap<>();
+    private final List<String> newExtensions = new ArrayList<>();
+    private final List<String> newDirectories = new ArrayList<>();
+    /**
+     * File count, size, total, non-empty and comment lines per extension id.
+     */
+    private long[][] totals = new long[16][];
+
+    private final int[] directoryColumn = new int[BLOCK_SIZE];
+    private final byte[][] nameColumn = new byte[BLOCK_SIZE][];
+    private final int[] extensionColumn = new int[BLOCK_SIZE];
+    private final FileStatistics[] statisticsColumn = new FileStatistics[BLOCK_SIZE];
+    private int rows;
+
+    private final Buffer payload = new Buffer(64 * 1024);
+    private boolean headerWritten;
+
+    record Row(String directory, byte[] name, String extension, FileStatistics statistics) {
+    }
+
+    @Override
+    public Row prepare(String path, String extension, FileStatistics statistics) {
+        int slash = path.lastIndexOf('/');
+        String directory = slash < 0 ? "" : path.substring(0, slash);
+        byte[] name = path.substring(slash + 1).getBytes(StandardCharsets.UTF_8);
+        return new Row(directory, name, extension, statistics);
+    }
+
+    @Override
+    public void write(Row row, OutputStream out) throws IOException {
+        writeHeader(out);
+        directoryColumn[rows] = directoryIds.computeIfAbsent(row.directory(), directory -> {
+            newDirectories.add(directory);
+            return directoryIds.size();
+        });
+        int extensionId = extensionIds.computeIfAbsent(row.extension(), extension -> {
+            newExtensions.add(extension);
+            return extensionIds.size();
+        });
+        extensionColumn[rows] = extensionId;
+        nameColumn[rows] = row.name();
+        statisticsColumn[rows] = row.statistics();
+        rows++;
+        addToTotals(extensionId, row.statistics());
+
+        if (rows == BLOCK_SIZE) {
+            writeBlock(out);
+        }
+    }
+
+    @Override
+    public void finish(OutputStream out) throws IOException {
+        writeHeader(out);
+        if (rows > 0) {
+            writeBlock(out);
+        }
+
+        payload.reset();
+        payload.writeVarLong(extensionIds.size());
+        for (int id = 0; id < extensionIds.size(); id++) {
+            payload.writeVarLong(id);
+            for (long value : totals[id]) {
+                payload.writeVarLong(value);
+            }
+        }
+        out.write(END);
+        payload.writeTo(out);
+        writeCrc(out, payload);
+    }
+
+    private void writeHeader(OutputStream out) throws IOException {
+        if (headerWritten) {
+            return;
+        }
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeInt(FORMAT_VERSION);
+        headerWritten = true;
+    }
+
+    private void writeBlock(OutputStream out) throws IOException {
+        payload.reset();
+
+        payload.writeVarLong(newExtensions.size());
+        for (String extension : newExtensions) {
+            payload.writeLengthPrefixed(extension.getBytes(StandardCharsets.UTF_8));
+        }
+        payload.writeVarLong(newDirectories.size());
+        byte[] previous = new byte[0];
+        for (String directory : newDirectories) {
+            byte[] bytes = directory.getBytes(StandardCharsets.UTF_8);
+            int prefix = Arrays.mismatch(previous, bytes);
+            prefix = prefix < 0 ? bytes.length : prefix;
+            payload.writeVarLong(prefix);
+            payload.writeVarLong(bytes.length - prefix);
+            payload.write(bytes, prefix, bytes.length - prefix);
+            previous = bytes;
+        }
+        newExtensions.clear();
+        newDirectories.clear();
+
+        for (int i = 0; i < rows; i++) {
+            payload.writeVarLong(directoryColumn[i]);
+        }
+        for (int i = 0; i < rows; i++) {
+            payload.writeLengthPrefixed(nameColumn[i]);
+        }
+        for (int i = 0; i < rows; i++) {
+            payload.writeVarLong(extensionColumn[i]);
+        }
+        for (int i = 0; i < rows; i++) {
+            payload.writeVarLong(statisticsColumn[i].sizeInBytes());
+        }
+        for (int i = 0; i < rows; i++) {
+            payload.writeVarLong(statisticsColumn[i].totalLines());
+        }
+        for (int i = 0; i < rows; i++) {
+            payload.writeVarLong(statisticsColumn[i].nonEmptyLines());
+        }
+        for (int i = 0; i < rows; i++) {
+            payload.writeVarLong(statisticsColumn[i].commentLines());
+        }
+
+        Buffer header = new Buffer(16);
+        header.write(BLOCK);
+        header.writeVarLong(rows);
+        header.writeVarLong(payload.size());
+        header.writeTo(out);
+        payload.writeTo(out);
+        writeCrc(out, payload);
+
+        Arrays.fill(nameColumn, 0, rows, null);
+        Arrays.fill(statisticsColumn, 0, rows, null);
+        rows = 0;
+    }
+
+    private void addToTotals(int extensionId, FileStatistics statistics) {
+        if (extensionId == totals.length) {
+            totals = Arrays.copyOf(totals, totals.length * 2);
+        }
+        if (totals[extensionId] == null) {
+            totals[extensionId] = new long[5];
+        }
+        long[] extensionTotals = totals[extensionId];
+        extensionTotals[0]++;
+        extensionTotals[1] += statistics.sizeInBytes();
+        extensionTotals[2] += statistics.totalLines();
+        extensionTotals[3] += statistics.nonEmptyLines();
+        extensionTotals[4] += statistics.commentLines();
+    }
+
+    private static void writeCrc(OutputStream out, Buffer content) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(content.array(), 0, content.size());
+        new DataOutputStream(out).writeInt((int) crc.getValue());
+    }
+
+    /**
+     * A byte array output stream that exposes its array and writes LEB128 varints.
+     */
+    private static final class Buffer extends ByteArrayOutputStream {
+
+        Buffer(int size) {
+            super(size);
+        }
+
+        byte[] array() {
+            return buf;
+        }
+
+        void writeVarLong(long value) {
+            while ((value & ~0x7FL) != 0) {
+                write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            write((int) value);
+        }
+
+        void writeLengthPrefixed(byte[] bytes) {
+            writeVarLong(bytes.length);
+            write(bytes, 0, bytes.length);
+        }
+    }
+}
@@ -0,0 +1,325 @@
+package dev.zux13.filestatistics.output.perfile;
+
+import dev.zux13.filestatistics.analysis.model.ExtensionStatistics;
+import dev.zux13.filestatistics.analysis.model.FileStatistics;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Reads a file written in {@link ColumnarFormat} one block at a time. Each block is read with
+ * a single bulk read, checked against its CRC32 and decoded into primitive columns; names
+ * stay UTF-8 bytes until {@link Block#path(int)} asks for them. Every count, length and
+ * dictionary id is checked before it is used, so a damaged file fails with an
+ * {@link IOException} rather than a runtime exception.
+ * <pre>
+ * try (ColumnarReader reader = ColumnarReader.open(file)) {
+ *     for (Block block; (block = reader.nextBlock()) != null; ) {
+ *         for (int i = 0; i &lt; block.size(); i++) {
+ *             ... block.path(i), block.totalLines(i) ...
+ *         }
+ *     }
+ *     Map&lt;String, ExtensionStatistics&gt; totals = reader.extensionTotals();
+ * }
+ * </pre>
+ */
+public class ColumnarReader implements Closeable {
+
+    private static final int MAX_PAYLOAD_LENGTH = Integer.MAX_VALUE - 8;
+
+    private final Path source;
+    private final DataInputStream in;
+    private final List<String> extensions = new ArrayList<>();
+    private final List<String> directories = new ArrayList<>();
+    private Map<String, ExtensionStatistics> extensionTotals;
+
+    private ColumnarReader(Path source, DataInputStream in) {
+        this.source = source;
+        this.in = in;
+    }
+
+    /**
+     * @throws IOException if the file cannot be read or is not in {@link ColumnarFormat}
+     */
+    public static ColumnarReader open(Path source) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(source), 64 * 1024));
+        try {
+            if (in.readInt() != ColumnarFormat.MAGIC) {
+                throw new IOException("Not a columnar export: " + source);
+            }
+            int version = in.readInt();
+            if (version != ColumnarFormat.FORMAT_VERSION) {
+                throw new IOException("Unsupported columnar export version " + version + ": " + source);
+            }
+            return new ColumnarReader(source, in);
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the next block, or {@code null} once the footer has been read.
+     *
+     * @throws IOException if the file is truncated, a checksum does not match or a value is out
+     *                     of range
+     */
+    public Block nextBlock() throws IOException {
+        if (extensionTotals != null) {
+            return null;
+        }
+        try {
+            byte tag = in.readByte();
+            if (tag == ColumnarFormat.END) {
+                readFooter();
+                return null;
+            }
+            if (tag != ColumnarFormat.BLOCK) {
+                throw new IOException("Corrupted columnar export " + source + ": unexpected tag " + tag);
+            }
+            // The block header is not covered by the checksum
+            int rows = checkRange(readVarLong(in), ColumnarFormat.BLOCK_SIZE, "block size");
+            int length = checkRange(readVarLong(in), MAX_PAYLOAD_LENGTH, "block length");
+            // Read in steps, so a damaged length runs into the end of the file instead of allocating it
+            byte[] payload = in.readNBytes(length);
+            if (payload.length < length) {
+                throw new EOFException();
+            }
+            checkCrc(payload);
+            return decodeBlock(new Cursor(payload), rows);
+        } catch (EOFException e) {
+            throw new IOException("Truncated columnar export: " + source, e);
+        }
+    }
+
+    /**
+     * Totals per extension from the footer, available once {@link #nextBlock()} has returned
+     * {@code null}.
+     */
+    public Map<String, ExtensionStatistics> extensionTotals() {
+        if (extensionTotals == null) {
+            throw new IllegalStateException("The footer is read after the last block");
+        }
+        return extensionTotals;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private Block decodeBlock(Cursor payload, int rows) throws IOException {
+        int newExtensions = checkRange(payload.readVarLong(), rows, "new extension count");
+        for (int i = 0; i < newExtensions; i++) {
+            extensions.add(payload.readString(payload.readLength()));
+        }
+        int newDirectories = checkRange(payload.readVarLong(), rows, "new directory count");
+        byte[] previous = new byte[0];
+        for (int i = 0; i < newDirectories; i++) {
+            int prefix = checkRange(payload.readVarLong(), previous.length, "directory prefix");
+            int suffix = payload.readLength();
+            byte[] directory = Arrays.copyOf(previous, prefix + suffix);
+            payload.readBytes(directory, prefix, suffix);
+            directories.add(new String(directory, StandardCharsets.UTF_8));
+            previous = directory;
+        }
+
+        Block block = new Block(payload.bytes, rows);
+        for (int i = 0; i < rows; i++) {
+            block.directoryIds[i] = checkRange(payload.readVarLong(), directories.size() - 1, "directory id");
+        }
+        for (int i = 0; i < rows; i++) {
+            block.nameLengths[i] = payload.readLength();
+            block.nameOffsets[i] = payload.position;
+            payload.position += block.nameLengths[i];
+        }
+        for (int i = 0; i < rows; i++) {
+            block.extensionIds[i] = checkRange(payload.readVarLong(), extensions.size() - 1, "extension id");
+        }
+        for (long[] column : List.of(block.sizes, block.totalLines, block.nonEmptyLines, block.commentLines)) {
+            for (int i = 0; i < rows; i++) {
+                column[i] = payload.readVarLong();
+            }
+        }
+        return block;
+    }
+
+    private void readFooter() throws IOException {
+        CRC32 crc = new CRC32();
+        int count = checkRange(readVarLong(in, crc), extensions.size(), "extension count");
+        Map<String, ExtensionStatistics> totals = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            String extension = extensions.get(checkRange(readVarLong(in, crc), extensions.size() - 1, "extension id"));
+            long fileCount = readVarLong(in, crc);
+            FileStatistics sums = new FileStatistics(readVarLong(in, crc), readVarLong(in, crc),
+                    readVarLong(in, crc), readVarLong(in, crc));
+            ExtensionStatistics statistics = new ExtensionStatistics();
+            statistics.addTotals(fileCount, sums);
+            totals.put(extension, statistics);
+        }
+        if (in.readInt() != (int) crc.getValue()) {
+            throw new IOException("Checksum mismatch in columnar export " + source);
+        }
+        extensionTotals = totals;
+    }
+
+    /**
+     * Returns {@code value} when it lies in {@code [0, max]}.
+     *
+     * @throws IOException naming {@code what} otherwise
+     */
+    private int checkRange(long value, long max, String what) throws IOException {
+        if (value < 0 || value > max) {
+            throw new IOException("Corrupted columnar export " + source + ": " + what + " " + value
+                    + " is outside [0, " + max + "]");
+        }
+        return (int) value;
+    }
+
+    private void checkCrc(byte[] content) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        if (in.readInt() != (int) crc.getValue()) {
+            throw new IOException("Checksum mismatch in columnar export " + source);
+        }
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        return readVarLong(in, null);
+    }
+
+    private static long readVarLong(DataInputStream in, CRC32 crc) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.readByte();
+            if (crc != null) {
+                crc.update(b);
+            }
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    /**
+     * Files of one block, column by column. Row {@code i} of every column is the same file.
+     */
+    public final class Block {
+
+        private final byte[] payload;
+        private final int[] directoryIds;
+        private final int[] nameOffsets;
+        private final int[] nameLengths;
+        private final int[] extensionIds;
+        private final long[] sizes;
+        private final long[] totalLines;
+        private final long[] nonEmptyLines;
+        private final long[] commentLines;
+
+        private Block(byte[] payload, int rows) {
+            this.payload = payload;
+            this.directoryIds = new int[rows];
+            this.nameOffsets = new int[rows];
+            this.nameLengths = new int[rows];
+            this.extensionIds = new int[rows];
+            this.sizes = new long[rows];
+            this.totalLines = new long[rows];
+            this.nonEmptyLines = new long[rows];
+            this.commentLines = new long[rows];
+        }
+
+        public int size() {
+            return sizes.length;
+        }
+
+        /**
+         * The path relative to the analyzed directory, with {@code /} as the separator.
+         */
+        public String path(int row) {
+            String name = new String(payload, nameOffsets[row], nameLengths[row], StandardCharsets.UTF_8);
+            String directory = directories.get(directoryIds[row]);
+            return directory.isEmpty() ? name : directory + '/' + name;
+        }
+
+        public String extension(int row) {
+            return extensions.get(extensionIds[row]);
+        }
+
+        public long sizeInBytes(int row) {
+            return sizes[row];
+        }
+
+        public long totalLines(int row) {
+            return totalLines[row];
+        }
+
+        public long nonEmptyLines(int row) {
+            return nonEmptyLines[row];
+        }
+
+        public long commentLines(int row) {
+            return commentLines[row];
+        }
+
+        public FileStatistics statistics(int row) {
+            return new FileStatistics(sizes[row], totalLines[row], nonEmptyLines[row], commentLines[row]);
+        }
+    }
+
+    private final class Cursor {
+
+        private final byte[] bytes;
+        private int position;
+
+        Cursor(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        long readVarLong() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                if (position == bytes.length) {
+                    throw new IOException("Corrupted columnar export " + source + ": block ends inside a value");
+                }
+                byte b = bytes[position++];
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Malformed varint in columnar export " + source);
+        }
+
+        /**
+         * Reads the length of bytes that follow in this block.
+         */
+        int readLength() throws IOException {
+            return checkRange(readVarLong(), bytes.length - position, "length");
+        }
+
+        String readString(int length) {
+            String value = new String(bytes, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+
+        void readBytes(byte[] target, int offset, int length) {
+            System.arraycopy(bytes, position, target, offset, length);
+            position += length;
+        }
+    }
+}
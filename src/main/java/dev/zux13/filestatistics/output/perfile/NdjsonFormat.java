@@ -0,0 +1,40 @@
+package dev.zux13.filestatistics.output.perfile;
+
+import dev.zux13.filestatistics.analysis.model.FileStatistics;
+import dev.zux13.filestatistics.output.JsonStrings;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * One JSON object per line. Records are encoded to bytes on the analysis threads, so the
+ * writer thread only copies them.
+ */
+public class NdjsonFormat implements PerFileFormat<byte[]> {
+
+    @Override
+    public byte[] prepare(String path, String extension, FileStatistics statistics) {
+        StringBuilder json = new StringBuilder(128);
+        json.append("{\"path\":");
+        JsonStrings.append(json, path);
+        json.append(",\"extension\":");
+        JsonStrings.append(json, extension);
+        json.append(",\"sizeInBytes\":").append(statistics.sizeInBytes())
+                .append(",\"totalLines\":").append(statistics.totalLines())
+                .append(",\"nonEmptyLines\":").append(statistics.nonEmptyLines())
+                .append(",\"commentLines\":").append(statistics.commentLines())
+                .append("}\n");
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void write(byte[] record, OutputStream out) throws IOException {
+        out.write(record);
+    }
+
+    @Override
+    public void finish(OutputStream out) {
+        // Every line is complete on its own
+    }
+}
@@ -0,0 +1,32 @@
+package dev.zux13.filestatistics.output.perfile;
+
+import dev.zux13.filestatistics.analysis.model.FileStatistics;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Encoding of the records {@link PerFileWriter} streams. Work that does not depend on
+ * earlier records belongs in {@link #prepare}, which runs on the analysis threads; everything
+ * else runs on the single writer thread, so implementations need no synchronization.
+ *
+ * @param <R> a record as handed from the analysis threads to the writer thread
+ */
+public interface PerFileFormat<R> {
+
+    /**
+     * Called on an analysis thread. {@code path} is relative to the analyzed directory and
+     * uses {@code /} as the separator.
+     */
+    R prepare(String path, String extension, FileStatistics statistics);
+
+    /**
+     * Called on the writer thread, once per record.
+     */
+    void write(R record, OutputStream out) throws IOException;
+
+    /**
+     * Called on the writer thread after the last record.
+     */
+    void finish(OutputStream out) throws IOException;
+}
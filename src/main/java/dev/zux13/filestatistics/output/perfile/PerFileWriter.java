@@ -0,0 +1,195 @@
+package dev.zux13.filestatistics.output.perfile;
+
+import dev.zux13.filestatistics.analysis.model.FileStatistics;
+import dev.zux13.filestatistics.output.ConsolePrinter;
+import dev.zux13.filestatistics.processing.AnalyzedFileListener;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streams a record per analyzed file while the analysis is still running, so no per-file
+ * record is kept in memory past the moment it is written.
+ * <p>
+ * Analysis threads prepare their record themselves and append it to a lock-free queue; a
+ * single writer thread owns the stream and drains the queue into a {@link #BUFFER_SIZE}
+ * buffer, which reaches the stream whenever it fills and at the latest {@link #FLUSH_DELAY_MILLIS}
+ * after the last record when no more arrive. A writer that falls behind, e.g. on a slow pipe,
+ * makes analysis threads wait once {@link #MAX_PENDING_RECORDS} are queued. With gzip every
+ * flush is a sync flush, so a reader can decompress what it has received so far. Any error
+ * on the writer thread, including an unchecked one from the format, stops the output and is
+ * rethrown by {@link #close()}.
+ *
+ * @param <R> the record type of the {@link PerFileFormat}
+ */
+public class PerFileWriter<R> implements AnalyzedFileListener, Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_PENDING_RECORDS = 64 * 1024;
+    private static final long FLUSH_DELAY_MILLIS = 50;
+    private static final long BACKPRESSURE_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private final Path root;
+    private final PerFileFormat<R> format;
+    private final OutputStream out;
+    private final ConcurrentLinkedQueue<R> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingRecords = new AtomicInteger();
+    private final AtomicBoolean writerParked = new AtomicBoolean();
+    private final Thread writerThread;
+    private volatile boolean closed;
+    private volatile IOException failure;
+
+    /**
+     * @param root   paths are written relative to it, with {@code /} as the separator
+     * @param target closed together with this writer
+     */
+    public PerFileWriter(Path root, PerFileFormat<R> format, OutputStream target, boolean gzip) throws IOException {
+        this.root = root;
+        this.format = format;
+        this.out = new BufferedOutputStream(gzip ? new GZIPOutputStream(target, BUFFER_SIZE, true) : target,
+                BUFFER_SIZE);
+        this.writerThread = new Thread(this::drain, "per-file-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Opens a writer to {@code file}, or to standard output when {@code file} is {@code null}.
+     * Standard output is flushed but stays open when the writer is closed.
+     */
+    public static <R> PerFileWriter<R> open(Path root, PerFileFormat<R> format, Path file, boolean gzip)
+            throws IOException {
+        OutputStream target = file != null ? Files.newOutputStream(file) : standardOutput();
+        return new PerFileWriter<>(root, format, target, gzip);
+    }
+
+    @Override
+    public void fileAnalyzed(Path file, String extension, FileStatistics statistics) {
+        if (closed) {
+            throw new IllegalStateException("Per-file output is already closed");
+        }
+        if (failure != null) {
+            return;
+        }
+        R record = format.prepare(relativePath(file), extension, statistics);
+        while (pendingRecords.get() >= MAX_PENDING_RECORDS && failure == null) {
+            LockSupport.parkNanos(BACKPRESSURE_PARK_NANOS);
+        }
+        pendingRecords.incrementAndGet();
+        queue.offer(record);
+        if (writerParked.get() && writerParked.compareAndSet(true, false)) {
+            LockSupport.unpark(writerThread);
+        }
+    }
+
+    /**
+     * Writes the records still queued and closes the stream. Rethrows the first write error,
+     * wrapped in an {@link IOException} when it was not one; records analyzed after it were
+     * dropped.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        LockSupport.unpark(writerThread);
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while writing per-file output", e);
+        }
+
+        IOException error = failure;
+        try {
+            out.close();
+        } catch (IOException e) {
+            if (error == null) {
+                error = e;
+            } else {
+                error.addSuppressed(e);
+            }
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    private void drain() {
+        long flushDelay = TimeUnit.MILLISECONDS.toNanos(FLUSH_DELAY_MILLIS);
+        boolean unflushed = false;
+        try {
+            while (true) {
+                R record;
+                while ((record = queue.poll()) != null) {
+                    format.write(record, out);
+                    pendingRecords.decrementAndGet();
+                    unflushed = true;
+                }
+                if (closed) {
+                    if (queue.isEmpty()) {
+                        format.finish(out);
+                        return;
+                    }
+                    continue;
+                }
+
+                // Producers unpark the writer only after seeing this flag, and it is set before
+                // the queue is checked again, so a record offered in between is never missed
+                writerParked.set(true);
+                if (queue.isEmpty() && !closed) {
+                    if (unflushed) {
+                        LockSupport.parkNanos(this, flushDelay);
+                        if (queue.isEmpty()) {
+                            out.flush();
+                            unflushed = false;
+                        }
+                    } else {
+                        LockSupport.park(this);
+                    }
+                }
+                writerParked.set(false);
+            }
+        } catch (IOException e) {
+            fail(e);
+        } catch (RuntimeException | Error e) {
+            // Also unblocks producers waiting on backpressure, which would otherwise spin forever
+            fail(new IOException("Per-file output failed", e));
+        }
+    }
+
+    private void fail(IOException e) {
+        failure = e;
+        queue.clear();
+        pendingRecords.set(0);
+    }
+
+    private String relativePath(Path file) {
+        String path = file.startsWith(root) ? root.relativize(file).toString() : file.toString();
+        return File.separatorChar == '/' ? path : path.replace(File.separatorChar, '/');
+    }
+
+    private static OutputStream standardOutput() {
+        return new FilterOutputStream(ConsolePrinter.standardOutput()) {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                flush();
+            }
+        };
+    }
+}
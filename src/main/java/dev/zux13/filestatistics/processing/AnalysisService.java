@@ -5,69 +5,101 @@ import dev.zux13.filestatistics.analysis.FileAnalyzer;
 import dev.zux13.filestatistics.analysis.model.AnalysisResult;
 import dev.zux13.filestatistics.analysis.model.ExtensionStatistics;
 import dev.zux13.filestatistics.analysis.model.FileStatistics;
+import dev.zux13.filestatistics.cache.AnalysisCache;
 
 import dev.zux13.filestatistics.scan.model.IgnoredFilesStats;
+import dev.zux13.filestatistics.scan.model.ScannedFile;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Path;
 import java.util.List;
-import java.util.concurrent.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 @Slf4j
 public class AnalysisService {
 
-    private final int numThreads;
+    private final FileTaskRunner taskRunner;
     private final FileAnalyzer fileAnalyzer;
+    private final AnalysisCache analysisCache;
+    private final AnalyzedFileListener listener;
 
     public AnalysisService(int numThreads) {
-        this.numThreads = numThreads;
-        this.fileAnalyzer = new FileAnalyzer(new CommentAnalyzer());
+        this(new FixedThreadPoolRunner(numThreads), new FileAnalyzer(new CommentAnalyzer()), null);
     }
 
-    public AnalysisResult processFiles(List<Path> filesToProcess, IgnoredFilesStats ignoredFilesStats) {
+    public AnalysisService(FileTaskRunner taskRunner, FileAnalyzer fileAnalyzer, AnalysisCache analysisCache) {
+        this(taskRunner, fileAnalyzer, analysisCache, null);
+    }
 
-        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
-        ConcurrentMap<String, ExtensionStatistics> extensionStatisticsMap = new ConcurrentHashMap<>();
+    /**
+     * @param listener when not {@code null}, receives every analyzed text file in addition to
+     *                 the per-extension totals
+     */
+    public AnalysisService(FileTaskRunner taskRunner, FileAnalyzer fileAnalyzer, AnalysisCache analysisCache,
+                           AnalyzedFileListener listener) {
+        this.taskRunner = taskRunner;
+        this.fileAnalyzer = fileAnalyzer;
+        this.analysisCache = analysisCache;
+        this.listener = listener;
+    }
 
-        for (Path file : filesToProcess) {
-            executor.submit(analyzeFileTask(file, extensionStatisticsMap, ignoredFilesStats));
+    /**
+     * Analyzes files that did not come from a walk; their attributes are read first.
+     */
+    public AnalysisResult processFiles(List<Path> filesToProcess, IgnoredFilesStats ignoredFilesStats) {
+        try {
+            return processFiles(sink -> {
+                for (Path file : filesToProcess) {
+                    try {
+                        sink.accept(ScannedFile.read(file));
+                    } catch (IOException e) {
+                        log.error("Failed to analyze file {}: {}", file, e.getMessage());
+                    }
+                }
+            }, ignoredFilesStats);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
+    }
 
-        shutdownAndAwaitTermination(executor);
+    /**
+     * Analyzes files while the source is still producing them.
+     */
+    public AnalysisResult processFiles(FileSource source, IgnoredFilesStats ignoredFilesStats) throws IOException {
+
+        ConcurrentMap<String, ExtensionStatistics> extensionStatisticsMap = new ConcurrentHashMap<>();
+
+        taskRunner.run(source, file -> analyzeFile(file, extensionStatisticsMap, ignoredFilesStats));
 
         return new AnalysisResult(extensionStatisticsMap, ignoredFilesStats.getIgnoredBinaryOrEncoding());
     }
 
-    private void shutdownAndAwaitTermination(ExecutorService executor) {
-        executor.shutdown();
+    private void analyzeFile(ScannedFile scannedFile,
+                             ConcurrentMap<String, ExtensionStatistics> extensionStatisticsMap,
+                             IgnoredFilesStats ignoredFilesStats) {
+        Path file = scannedFile.path();
         try {
-            if (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
-                executor.shutdownNow();
-            }
-        } catch (InterruptedException e) {
-            executor.shutdownNow();
-            Thread.currentThread().interrupt();
-        }
-    }
-
-    private Runnable analyzeFileTask(Path file,
-                                     ConcurrentMap<String, ExtensionStatistics> extensionStatisticsMap,
-                                     IgnoredFilesStats ignoredFilesStats) {
-        return () -> {
-            try {
-                FileStatistics stats = fileAnalyzer.analyzeFile(file);
-                if (stats != null) {
-                    String extension = getExtension(file);
-                    extensionStatisticsMap.computeIfAbsent(extension, k -> new ExtensionStatistics())
-                            .addFileStats(stats);
-                } else {
-                    ignoredFilesStats.incrementIgnoredBinaryOrEncoding();
+            // The attributes from the walk stand in for the stat calls of the cache and the analyzer
+            FileStatistics stats = analysisCache != null
+                    ? analysisCache.getOrAnalyze(file, scannedFile.attributes(),
+                            path -> fileAnalyzer.analyzeFile(path, scannedFile.size()))
+                    : fileAnalyzer.analyzeFile(file, scannedFile.size());
+            if (stats != null) {
+                String extension = getExtension(file);
+                extensionStatisticsMap.computeIfAbsent(extension, k -> new ExtensionStatistics())
+                        .addFileStats(stats);
+                if (listener != null) {
+                    listener.fileAnalyzed(file, extension, stats);
                 }
-            } catch (IOException e) {
-                log.error("Failed to analyze file {}: {}", file, e.getMessage());
+            } else {
+                ignoredFilesStats.incrementIgnoredBinaryOrEncoding();
             }
-        };
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to analyze file {}: {}", file, e.getMessage());
+        }
     }
 
     private String getExtension(Path path) {
@@ -0,0 +1,14 @@
+package dev.zux13.filestatistics.processing;
+
+import dev.zux13.filestatistics.analysis.model.FileStatistics;
+
+import java.nio.file.Path;
+
+/**
+ * Receives the statistics of each text file as soon as it is analyzed. Called concurrently
+ * from the analysis threads, so implementations must be thread-safe and should not block.
+ */
+@FunctionalInterface
+public interface AnalyzedFileListener {
+    void fileAnalyzed(Path file, String extension, FileStatistics statistics);
+}
@@ -0,0 +1,11 @@
+package dev.zux13.filestatistics.processing;
+
+import dev.zux13.filestatistics.scan.model.ScannedFile;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+
+@FunctionalInterface
+public interface FileSource {
+    void forEachFile(Consumer<ScannedFile> sink) throws IOException;
+}
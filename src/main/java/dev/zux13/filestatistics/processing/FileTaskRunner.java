@@ -0,0 +1,15 @@
+package dev.zux13.filestatistics.processing;
+
+import dev.zux13.filestatistics.scan.model.ScannedFile;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+
+public interface FileTaskRunner {
+
+    /**
+     * Runs {@code task} for every file produced by {@code source} and returns once all of them are done.
+     * The task is expected to handle its own errors.
+     */
+    void run(FileSource source, Consumer<ScannedFile> task) throws IOException;
+}
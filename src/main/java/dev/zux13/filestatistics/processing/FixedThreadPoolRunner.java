@@ -0,0 +1,80 @@
+package dev.zux13.filestatistics.processing;
+
+import dev.zux13.filestatistics.scan.model.ScannedFile;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+
+/**
+ * Runs tasks on a fixed number of platform threads. The source runs on the calling
+ * thread and blocks once the queue is full, so a slow analysis throttles the scan
+ * instead of letting pending paths pile up in memory.
+ */
+@Slf4j
+public class FixedThreadPoolRunner implements FileTaskRunner {
+
+    private static final int QUEUE_CAPACITY = 1024;
+    private static final ScannedFile END_OF_FILES = new ScannedFile(Path.of(""), null);
+
+    private final int numThreads;
+
+    public FixedThreadPoolRunner(int numThreads) {
+        this.numThreads = numThreads;
+    }
+
+    @Override
+    public void run(FileSource source, Consumer<ScannedFile> task) throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        BlockingQueue<ScannedFile> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+
+        for (int i = 0; i < numThreads; i++) {
+            executor.submit(workerTask(queue, task));
+        }
+
+        try {
+            source.forEachFile(file -> enqueue(queue, file));
+        } finally {
+            stopWorkers(executor, queue);
+        }
+    }
+
+    private void enqueue(BlockingQueue<ScannedFile> queue, ScannedFile file) {
+        try {
+            queue.put(file);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while queueing file " + file.path());
+        }
+    }
+
+    private void stopWorkers(ExecutorService executor, BlockingQueue<ScannedFile> queue) {
+        try {
+            for (int i = 0; i < numThreads; i++) {
+                queue.put(END_OF_FILES);
+            }
+            executor.shutdown();
+            while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                log.debug("Waiting for {} analysis threads to finish", numThreads);
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Runnable workerTask(BlockingQueue<ScannedFile> queue, Consumer<ScannedFile> task) {
+        return () -> {
+            try {
+                ScannedFile file;
+                while ((file = queue.take()) != END_OF_FILES) {
+                    task.accept(file);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+    }
+}
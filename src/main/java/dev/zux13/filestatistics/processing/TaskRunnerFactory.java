@@ -0,0 +1,16 @@
+package dev.zux13.filestatistics.processing;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public class TaskRunnerFactory {
+
+    public static FileTaskRunner createRunner(String executor, int numThreads, int maxConcurrency) {
+        return switch (executor.toLowerCase()) {
+            case "platform" -> new FixedThreadPoolRunner(numThreads);
+            case "virtual" -> new VirtualThreadRunner(maxConcurrency);
+            default -> throw new IllegalArgumentException("Unsupported executor: " + executor);
+        };
+    }
+}
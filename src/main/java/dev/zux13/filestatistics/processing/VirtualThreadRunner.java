@@ -0,0 +1,97 @@
+package dev.zux13.filestatistics.processing;
+
+import dev.zux13.filestatistics.scan.model.ScannedFile;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+
+/**
+ * Runs every task on its own virtual thread, so blocking reads on slow or cold storage
+ * overlap without tuning a pool size. At most {@code maxConcurrency} tasks are in flight;
+ * the source blocks until a permit frees up.
+ * <p>
+ * The project targets Java 17, so the virtual thread executor is looked up reflectively
+ * and is only available when running on Java 21 or newer.
+ */
+@Slf4j
+public class VirtualThreadRunner implements FileTaskRunner {
+
+    private final int maxConcurrency;
+    private final Method executorFactory;
+
+    public VirtualThreadRunner(int maxConcurrency) {
+        this.maxConcurrency = maxConcurrency;
+        this.executorFactory = findExecutorFactory();
+    }
+
+    public static boolean isSupported() {
+        try {
+            findExecutorFactory();
+            return true;
+        } catch (UnsupportedOperationException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public void run(FileSource source, Consumer<ScannedFile> task) throws IOException {
+        ExecutorService executor = newVirtualThreadPerTaskExecutor();
+        Semaphore permits = new Semaphore(maxConcurrency);
+
+        try {
+            source.forEachFile(file -> {
+                acquire(permits, file);
+                executor.execute(() -> {
+                    try {
+                        task.accept(file);
+                    } finally {
+                        permits.release();
+                    }
+                });
+            });
+        } finally {
+            awaitTermination(executor);
+        }
+    }
+
+    private void acquire(Semaphore permits, ScannedFile file) {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while scheduling file " + file.path());
+        }
+    }
+
+    private void awaitTermination(ExecutorService executor) {
+        executor.shutdown();
+        try {
+            while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                log.debug("Waiting for virtual analysis threads to finish");
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) executorFactory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot create virtual thread executor: " + e.getMessage(), e);
+        }
+    }
+
+    private static Method findExecutorFactory() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            throw new UnsupportedOperationException(
+                    "Virtual threads require Java 21 or newer, running on Java " + Runtime.version().feature());
+        }
+    }
+}
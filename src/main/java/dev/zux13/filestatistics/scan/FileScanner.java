@@ -3,13 +3,19 @@ package dev.zux13.filestatistics.scan;
 import dev.zux13.filestatistics.cli.Config;
 import dev.zux13.filestatistics.scan.model.IgnoredFilesStats;
 import dev.zux13.filestatistics.scan.model.ScanResult;
+import dev.zux13.filestatistics.scan.model.ScannedFile;
+import dev.zux13.filestatistics.scan.model.Shard;
+import lombok.extern.slf4j.Slf4j;
 
 import java.io.IOException;
 import java.nio.file.*;
-import java.util.List;
-import java.util.function.Predicate;
-import java.util.stream.Stream;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
+@Slf4j
 public class FileScanner {
 
     private final Config config;
@@ -22,52 +28,201 @@ public class FileScanner {
 
     public ScanResult scanFiles() throws IOException {
         IgnoredFilesStats ignoredFilesStats = new IgnoredFilesStats();
-        List<Path> files;
+        List<ScannedFile> files = Collections.synchronizedList(new ArrayList<>());
 
-        Predicate<Path> combinedFilter = ((Predicate<Path>) path -> !path.getFileName().toString().equals(".gitignore"))
-                .and(gitIgnoreFilter(ignoredFilesStats))
-                .and(extensionFilter(ignoredFilesStats));
-
-        try (Stream<Path> walk = Files.walk(config.path(), resolveMaxDepth(), FileVisitOption.FOLLOW_LINKS)) {
-            files = walk
-                    .filter(Files::isRegularFile)
-                    .filter(combinedFilter)
-                    .toList();
-        }
+        scanFiles(files::add, ignoredFilesStats);
 
         return new ScanResult(files, ignoredFilesStats);
     }
 
-    private int resolveMaxDepth() {
-        if (!config.recursive()) {
-            return 1;
+    /**
+     * Walks the tree lazily and hands every accepted file to {@code sink} as soon as it is found,
+     * with the attributes read by the walk. With more than one scan thread the sink is called
+     * concurrently. With {@code --git-tracked} the files are listed from the Git index instead.
+     * <p>
+     * Links are followed, so one file may be reached under several paths. Only the first of them
+     * is accepted, judged by file key; the incremental Git mode tracks files by path and keeps
+     * them all.
+     * <p>
+     * With {@code --shard} every directory is still walked, but only the entries of directories
+     * owned by the shard are accepted or counted as ignored.
+     * <p>
+     * Directory cycles and unreadable directories are skipped with a warning, whichever walker
+     * {@code --scan-threads} selects.
+     */
+    public void scanFiles(Consumer<ScannedFile> sink, IgnoredFilesStats ignoredFilesStats) throws IOException {
+        Set<Object> seenFileKeys = config.gitDiffState() == null ? ConcurrentHashMap.newKeySet() : null;
+        BiConsumer<Path, BasicFileAttributes> visitor = (path, attributes) -> {
+            if (!ownedByShard(path) || !accept(path, ignoredFilesStats)) {
+                return;
+            }
+            Object fileKey = attributes.fileKey();
+            if (seenFileKeys != null && fileKey != null && !seenFileKeys.add(fileKey)) {
+                ignoredFilesStats.incrementIgnoredDuplicates();
+                return;
+            }
+            sink.accept(new ScannedFile(path, attributes));
+        };
+
+        if (config.gitTracked()) {
+            new GitIndexWalker(config.gitUntracked()).walk(config.path(), resolveMaxDepth(), visitor);
+            return;
         }
-        return config.maxDepth() == -1
-                ? Integer.MAX_VALUE
-                : config.maxDepth();
+
+        if (config.scanThreads() > 1) {
+            new ParallelTreeWalker(config.scanThreads(), resolveMaxDepth(), dir -> enter(dir, ignoredFilesStats))
+                    .walk(config.path(), visitor);
+            return;
+        }
+
+        Files.walkFileTree(config.path(), EnumSet.of(FileVisitOption.FOLLOW_LINKS), resolveMaxDepth(),
+                new SimpleFileVisitor<>() {
+                    @Override
+                    public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attributes) {
+                        return dir.equals(config.path()) || enter(dir, ignoredFilesStats)
+                                ? FileVisitResult.CONTINUE
+                                : FileVisitResult.SKIP_SUBTREE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                        if (attributes.isRegularFile()) {
+                            visitor.accept(file, attributes);
+                        }
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFileFailed(Path file, IOException e) {
+                        if (e instanceof FileSystemLoopException) {
+                            log.warn("Skipping directory cycle at {}", file);
+                        } else {
+                            log.warn("Cannot read directory {}: {}", file, e.getMessage());
+                        }
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult postVisitDirectory(Path dir, IOException e) {
+                        if (e != null) {
+                            log.warn("Cannot read directory {}: {}", dir, e.getMessage());
+                        }
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
     }
 
-    private Predicate<Path> gitIgnoreFilter(IgnoredFilesStats stats) {
-        return path -> {
-            if (gitIgnoreManager != null && gitIgnoreManager.shouldBeIgnored(path)) {
-                stats.incrementIgnoredByGitignore();
+    /**
+     * Tells whether a walk from the configured root would reach {@code file}, honouring
+     * {@code --recursive}, {@code --max-depth} and the directories it does not enter.
+     */
+    public boolean isInScope(Path file) {
+        Path absolutePath = file.toAbsolutePath().normalize();
+        if (!absolutePath.startsWith(config.path()) || absolutePath.equals(config.path())) {
+            return false;
+        }
+        if (config.path().relativize(absolutePath).getNameCount() > resolveMaxDepth()) {
+            return false;
+        }
+        for (Path dir = absolutePath.getParent(); !dir.equals(config.path()); dir = dir.getParent()) {
+            if (isPruned(dir)) {
                 return false;
             }
-            return true;
+        }
+        return true;
+    }
+
+    /**
+     * Applies the same filters a walk applies to every file it finds, without counting the outcome.
+     */
+    public Decision decide(Path file) {
+        if (file.getFileName().toString().equals(".gitignore")) {
+            return Decision.SKIP;
+        }
+        if (gitIgnoreManager != null && GitIgnoreManager.isVcsMetadata(file)) {
+            return Decision.SKIP;
+        }
+        if (gitIgnoreManager != null && gitIgnoreManager.isIgnored(file, false)) {
+            return Decision.IGNORED_BY_GITIGNORE;
+        }
+        if (isExcludedByExtension(getExtension(file))) {
+            return Decision.IGNORED_BY_EXTENSION;
+        }
+        return Decision.ACCEPT;
+    }
+
+    /**
+     * Applies the same rules a walk applies to every directory it finds above the depth limit:
+     * {@link Decision#ACCEPT} to enter it, {@link Decision#SKIP} for version control metadata
+     * and {@link Decision#IGNORED_BY_GITIGNORE} for an ignored directory.
+     */
+    public Decision decideDirectory(Path dir) {
+        if (gitIgnoreManager == null) {
+            return Decision.ACCEPT;
+        }
+        if (GitIgnoreManager.isVcsMetadata(dir)) {
+            return Decision.SKIP;
+        }
+        return gitIgnoreManager.isIgnored(dir, true) ? Decision.IGNORED_BY_GITIGNORE : Decision.ACCEPT;
+    }
+
+    /**
+     * How many levels below the root a walk visits: 1 without {@code --recursive}.
+     */
+    public int getMaxDepth() {
+        return resolveMaxDepth();
+    }
+
+    /**
+     * Decides whether a walk descends into {@code dir}. An ignored directory is counted once,
+     * however many files it holds, since it is never read.
+     */
+    private boolean enter(Path dir, IgnoredFilesStats stats) {
+        return switch (decideDirectory(dir)) {
+            case ACCEPT -> true;
+            case IGNORED_BY_GITIGNORE -> {
+                if (ownedByShard(dir)) {
+                    stats.incrementIgnoredByGitignore();
+                }
+                yield false;
+            }
+            default -> false;
         };
     }
 
-    private Predicate<Path> extensionFilter(IgnoredFilesStats stats) {
-        return path -> {
-            String extension = getExtension(path);
-            if (isExcludedByExtension(extension)) {
+    private boolean ownedByShard(Path entry) {
+        Shard shard = config.shard();
+        return shard == null || shard.owns(config.path(), entry);
+    }
+
+    private boolean isPruned(Path dir) {
+        return decideDirectory(dir) != Decision.ACCEPT;
+    }
+
+    private boolean accept(Path path, IgnoredFilesStats stats) {
+        return switch (decide(path)) {
+            case ACCEPT -> true;
+            case SKIP -> false;
+            case IGNORED_BY_GITIGNORE -> {
+                stats.incrementIgnoredByGitignore();
+                yield false;
+            }
+            case IGNORED_BY_EXTENSION -> {
                 stats.incrementIgnoredByExtension();
-                return false;
+                yield false;
             }
-            return true;
         };
     }
 
+    private int resolveMaxDepth() {
+        if (!config.recursive()) {
+            return 1;
+        }
+        return config.maxDepth() == -1
+                ? Integer.MAX_VALUE
+                : config.maxDepth();
+    }
+
     private boolean isExcludedByExtension(String extension) {
         if (extension == null) {
             return !config.includeExtensions().isEmpty() || config.excludeExtensions().contains("");
@@ -87,4 +242,11 @@ public class FileScanner {
         }
         return null;
     }
-}
\ No newline at end of file
+
+    public enum Decision {
+        ACCEPT,
+        SKIP,
+        IGNORED_BY_GITIGNORE,
+        IGNORED_BY_EXTENSION
+    }
+}
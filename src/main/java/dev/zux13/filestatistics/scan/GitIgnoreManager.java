@@ -5,71 +5,150 @@ import org.eclipse.jgit.ignore.IgnoreNode;
 
 import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
-import java.util.HashMap;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Evaluates {@code .gitignore} files below a base directory. Every directory's applicable
+ * rules are compiled once into an {@link IgnoreRules} chain built from its parent's chain,
+ * so a lookup reads no file and walks no ancestors. Safe for concurrent walkers.
+ * <p>
+ * Walkers are expected to ask about a directory before entering it and to skip it when it is
+ * ignored: as in Git, nothing inside an ignored directory can be included again. Directories
+ * holding version control metadata, such as {@code .git}, are always skipped.
+ * <p>
+ * A manager created as reusable remembers the state of every {@code .gitignore} it looked
+ * for, so it can be kept between runs over the same tree and {@link #revalidate() revalidated}
+ * instead of compiling every rule again.
+ */
 @Slf4j
 public class GitIgnoreManager {
 
+    private static final String GITIGNORE_FILE = ".gitignore";
+    private static final Set<String> VCS_METADATA = Set.of(".git", ".hg", ".svn");
+
     private final Path basePath;
-    private final Map<Path, IgnoreNode> ignoreNodeCache = new HashMap<>();
+    private final String basePathPrefix;
+    private final Map<Path, IgnoreRules> rulesByDirectory = new ConcurrentHashMap<>();
+    private final Map<Path, IgnoreFileVersion> ignoreFileVersions = new ConcurrentHashMap<>();
+    private final boolean reusable;
 
     public GitIgnoreManager(Path basePath) {
+        this(basePath, false);
+    }
+
+    public GitIgnoreManager(Path basePath, boolean reusable) {
+        this.reusable = reusable;
         this.basePath = basePath.toAbsolutePath().normalize();
+        String base = this.basePath.toString();
+        this.basePathPrefix = base.endsWith(this.basePath.getFileSystem().getSeparator())
+                ? base
+                : base + this.basePath.getFileSystem().getSeparator();
     }
 
-    private IgnoreNode getIgnoreNode(Path dir) {
-        return ignoreNodeCache.computeIfAbsent(dir, d -> {
-            Path gitIgnoreFile = d.resolve(".gitignore");
-            if (Files.exists(gitIgnoreFile)) {
-                try {
-                    IgnoreNode node = new IgnoreNode();
-                    try (var inputStream = Files.newInputStream(gitIgnoreFile)) {
-                        node.parse(inputStream);
-                    }
-                    return node;
-                } catch (IOException e) {
-                    log.error("Cannot read .gitignore file {}: {}", gitIgnoreFile, e.getMessage());
-                }
-            }
-            return null;
-        });
+    public static boolean isVcsMetadata(Path path) {
+        Path fileName = path.getFileName();
+        return fileName != null && VCS_METADATA.contains(fileName.toString());
     }
 
     public boolean shouldBeIgnored(Path path) {
+        return isIgnored(path, Files.isDirectory(path));
+    }
+
+    /**
+     * Same as {@link #shouldBeIgnored(Path)} for a caller that already knows whether
+     * {@code path} is a directory, which saves a {@code stat} per entry.
+     */
+    public boolean isIgnored(Path path, boolean directory) {
         Path absolutePath = path.toAbsolutePath().normalize();
+        Path parent = absolutePath.getParent();
 
-        if (!absolutePath.startsWith(basePath)) {
+        if (parent == null || !absolutePath.startsWith(basePath) || absolutePath.equals(basePath)) {
             // Path is outside basePath, cannot be ignored
             return false;
         }
 
-        Path current = absolutePath.getParent();
-        while (current != null && current.startsWith(basePath)) {
-            IgnoreNode node = getIgnoreNode(current);
-            if (node != null) {
-                Path relativePath = current.relativize(absolutePath);
-                String relativePathStr = relativePath.toString().replace('\\', '/');
-
-                IgnoreNode.MatchResult result = node.isIgnored(relativePathStr, Files.isDirectory(absolutePath));
-
-                switch (result) {
-                    case IGNORED:
-                        return true;
-                    case NOT_IGNORED:
-                        return false;
-                    case CHECK_PARENT, CHECK_PARENT_NEGATE_FIRST_MATCH:
-                        // Continue to the parent directory's .gitignore
-                        break;
-                }
-            }
-            if (current.equals(basePath)) {
-                break;
+        return rulesFor(parent).isIgnored(relativize(absolutePath), directory);
+    }
+
+    /**
+     * Drops every compiled rule if a {@code .gitignore} file looked for so far has been
+     * created, changed or deleted since, so the manager answers as a new one would. Costs a
+     * {@code stat} per directory seen and must not run concurrently with lookups.
+     *
+     * @return whether the rules were dropped
+     */
+    public boolean revalidate() {
+        if (!reusable) {
+            throw new IllegalStateException("Only a reusable manager tracks its .gitignore files");
+        }
+        for (Map.Entry<Path, IgnoreFileVersion> entry : ignoreFileVersions.entrySet()) {
+            if (!IgnoreFileVersion.of(entry.getKey().resolve(GITIGNORE_FILE)).equals(entry.getValue())) {
+                rulesByDirectory.clear();
+                ignoreFileVersions.clear();
+                return true;
             }
-            current = current.getParent();
         }
-
         return false;
     }
+
+    private IgnoreRules rulesFor(Path directory) {
+        IgnoreRules rules = rulesByDirectory.get(directory);
+        if (rules != null) {
+            return rules;
+        }
+
+        // The parent chain is resolved outside of any map update, so concurrent walkers never nest them
+        IgnoreRules inherited = directory.equals(basePath) ? IgnoreRules.NONE : rulesFor(directory.getParent());
+        if (reusable) {
+            // Taken before reading, so a change made in between is seen by the next revalidation
+            ignoreFileVersions.put(directory, IgnoreFileVersion.of(directory.resolve(GITIGNORE_FILE)));
+        }
+        IgnoreNode node = loadIgnoreNode(directory);
+        IgnoreRules compiled = node == null
+                ? inherited
+                : inherited.withNearest(node, directory.equals(basePath) ? 0 : relativize(directory).length() + 1);
+
+        IgnoreRules existing = rulesByDirectory.putIfAbsent(directory, compiled);
+        return existing != null ? existing : compiled;
+    }
+
+    private IgnoreNode loadIgnoreNode(Path dir) {
+        Path gitIgnoreFile = dir.resolve(GITIGNORE_FILE);
+        try (var inputStream = Files.newInputStream(gitIgnoreFile)) {
+            IgnoreNode node = new IgnoreNode();
+            node.parse(inputStream);
+            return node.getRules().isEmpty() ? null : node;
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            log.error("Cannot read .gitignore file {}: {}", gitIgnoreFile, e.getMessage());
+            return null;
+        }
+    }
+
+    private String relativize(Path absolutePath) {
+        String relativePath = absolutePath.toString().substring(basePathPrefix.length());
+        return relativePath.replace('\\', '/');
+    }
+
+    /**
+     * A missing or unreadable file is recorded with {@code size} -1.
+     */
+    private record IgnoreFileVersion(Object fileKey, FileTime modifiedTime, long size) {
+
+        static IgnoreFileVersion of(Path file) {
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                return new IgnoreFileVersion(attributes.fileKey(), attributes.lastModifiedTime(), attributes.size());
+            } catch (IOException e) {
+                return new IgnoreFileVersion(null, null, -1);
+            }
+        }
+    }
 }
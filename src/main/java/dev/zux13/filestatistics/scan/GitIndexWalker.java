@@ -0,0 +1,130 @@
+package dev.zux13.filestatistics.scan;
+
+import org.eclipse.jgit.dircache.DirCache;
+import org.eclipse.jgit.dircache.DirCacheEntry;
+import org.eclipse.jgit.dircache.DirCacheIterator;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.eclipse.jgit.treewalk.FileTreeIterator;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.WorkingTreeIterator;
+import org.eclipse.jgit.treewalk.filter.PathFilter;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.function.BiConsumer;
+
+/**
+ * Lists files from the Git index instead of walking directories. Tracked files come straight
+ * from the {@link DirCache}, so no directory is listed and no ignore rule is evaluated.
+ * Untracked files that Git does not ignore can be added; finding them does walk the working
+ * tree, but ignored directories are never entered. Depth follows {@link Files#walk}: files
+ * directly in {@code root} are at depth 1.
+ */
+class GitIndexWalker {
+
+    private final boolean includeUntracked;
+
+    GitIndexWalker(boolean includeUntracked) {
+        this.includeUntracked = includeUntracked;
+    }
+
+    void walk(Path root, int maxDepth, BiConsumer<Path, BasicFileAttributes> visitor) throws IOException {
+        try (Repository repository = openRepository(root)) {
+            Path workTree = repository.getWorkTree().toPath().toAbsolutePath().normalize();
+            Path absoluteRoot = root.toAbsolutePath().normalize();
+            String prefix = workTree.relativize(absoluteRoot).toString().replace('\\', '/');
+            DirCache index = repository.readDirCache();
+
+            walkTracked(index, workTree, prefix, maxDepth, visitor);
+            if (includeUntracked) {
+                walkUntracked(repository, index, workTree, prefix, maxDepth, visitor);
+            }
+        }
+    }
+
+    private void walkTracked(DirCache index, Path workTree, String prefix, int maxDepth,
+                             BiConsumer<Path, BasicFileAttributes> visitor) {
+        String previousPath = null;
+        for (DirCacheEntry entry : index.getEntriesWithin(prefix)) {
+            String path = entry.getPathString();
+            // A conflicted file has one entry per stage
+            if (path.equals(previousPath) || entry.getFileMode() == FileMode.GITLINK) {
+                continue;
+            }
+            previousPath = path;
+
+            if (depth(path, prefix) <= maxDepth) {
+                visitIfRegularFile(workTree.resolve(path), visitor);
+            }
+        }
+    }
+
+    private void walkUntracked(Repository repository, DirCache index, Path workTree, String prefix,
+                               int maxDepth, BiConsumer<Path, BasicFileAttributes> visitor) throws IOException {
+        try (TreeWalk walk = new TreeWalk(repository)) {
+            walk.addTree(new DirCacheIterator(index));
+            walk.addTree(new FileTreeIterator(repository));
+            if (!prefix.isEmpty()) {
+                walk.setFilter(PathFilter.create(prefix));
+            }
+
+            while (walk.next()) {
+                String path = walk.getPathString();
+                boolean insideRoot = prefix.isEmpty() || path.startsWith(prefix + "/");
+                WorkingTreeIterator file = walk.getTree(1, WorkingTreeIterator.class);
+
+                if (walk.isSubtree()) {
+                    // Directories above the root lead to it; below the root only unignored ones are entered
+                    boolean leadsToRoot = !insideRoot;
+                    boolean enter = leadsToRoot || path.equals(prefix)
+                            || (depth(path, prefix) < maxDepth && (file == null || !file.isEntryIgnored()));
+                    if (enter) {
+                        walk.enterSubtree();
+                    }
+                    continue;
+                }
+
+                boolean untracked = walk.getTree(0, DirCacheIterator.class) == null;
+                if (insideRoot && untracked && file != null && file.getEntryFileMode() != FileMode.GITLINK
+                        && !file.isEntryIgnored() && depth(path, prefix) <= maxDepth) {
+                    visitIfRegularFile(workTree.resolve(path), visitor);
+                }
+            }
+        }
+    }
+
+    private void visitIfRegularFile(Path file, BiConsumer<Path, BasicFileAttributes> visitor) {
+        // Tracked files may be missing from the working tree; links are followed as in a walk
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (IOException e) {
+            return;
+        }
+        if (attributes.isRegularFile()) {
+            visitor.accept(file, attributes);
+        }
+    }
+
+    private int depth(String path, String prefix) {
+        int depth = 1;
+        for (int i = prefix.isEmpty() ? 0 : prefix.length() + 1; i < path.length(); i++) {
+            if (path.charAt(i) == '/') {
+                depth++;
+            }
+        }
+        return depth;
+    }
+
+    private Repository openRepository(Path root) throws IOException {
+        FileRepositoryBuilder builder = new FileRepositoryBuilder().findGitDir(root.toFile());
+        if (builder.getGitDir() == null) {
+            throw new IllegalArgumentException("The --git-tracked parameter requires a path inside a Git working tree: " + root);
+        }
+        return builder.build();
+    }
+}
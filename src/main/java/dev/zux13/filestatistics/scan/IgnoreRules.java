@@ -0,0 +1,51 @@
+package dev.zux13.filestatistics.scan;
+
+import org.eclipse.jgit.ignore.IgnoreNode;
+
+/**
+ * The parsed {@code .gitignore} files that apply to the entries of one directory, nearest first.
+ * Each node is stored with the offset at which its directory's entries start in a path relative
+ * to the scan root, so the path a node matches against is a plain substring. Instances are
+ * immutable and shared by all threads.
+ */
+final class IgnoreRules {
+
+    static final IgnoreRules NONE = new IgnoreRules(new IgnoreNode[0], new int[0]);
+
+    private final IgnoreNode[] nodes;
+    private final int[] offsets;
+
+    private IgnoreRules(IgnoreNode[] nodes, int[] offsets) {
+        this.nodes = nodes;
+        this.offsets = offsets;
+    }
+
+    /**
+     * Returns the rules for a subdirectory that has its own {@code .gitignore}.
+     */
+    IgnoreRules withNearest(IgnoreNode node, int offset) {
+        IgnoreNode[] extendedNodes = new IgnoreNode[nodes.length + 1];
+        int[] extendedOffsets = new int[offsets.length + 1];
+        extendedNodes[0] = node;
+        extendedOffsets[0] = offset;
+        System.arraycopy(nodes, 0, extendedNodes, 1, nodes.length);
+        System.arraycopy(offsets, 0, extendedOffsets, 1, offsets.length);
+        return new IgnoreRules(extendedNodes, extendedOffsets);
+    }
+
+    boolean isIgnored(String relativePath, boolean directory) {
+        for (int i = 0; i < nodes.length; i++) {
+            String localPath = offsets[i] == 0 ? relativePath : relativePath.substring(offsets[i]);
+            switch (nodes[i].isIgnored(localPath, directory)) {
+                case IGNORED:
+                    return true;
+                case NOT_IGNORED:
+                    return false;
+                case CHECK_PARENT, CHECK_PARENT_NEGATE_FIRST_MATCH:
+                    // Continue with the next .gitignore up the tree
+                    break;
+            }
+        }
+        return false;
+    }
+}
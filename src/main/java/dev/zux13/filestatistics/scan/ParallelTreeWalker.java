@@ -0,0 +1,135 @@
+package dev.zux13.filestatistics.scan;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+
+/**
+ * Walks a directory tree with one fork/join task per directory, so slow {@code readdir}
+ * and {@code stat} calls on wide trees or network filesystems overlap across threads.
+ * Follows symbolic links like {@code Files.walk(start, maxDepth, FOLLOW_LINKS)}, but skips
+ * directory cycles and unreadable directories with a warning instead of failing the walk.
+ * The file consumer is called concurrently, with the attributes read while listing.
+ */
+@Slf4j
+public class ParallelTreeWalker {
+
+    private final int parallelism;
+    private final int maxDepth;
+    private final Predicate<Path> directoryFilter;
+
+    public ParallelTreeWalker(int parallelism, int maxDepth) {
+        this(parallelism, maxDepth, directory -> true);
+    }
+
+    /**
+     * @param directoryFilter decides whether a subdirectory is entered; called concurrently
+     */
+    public ParallelTreeWalker(int parallelism, int maxDepth, Predicate<Path> directoryFilter) {
+        this.parallelism = parallelism;
+        this.maxDepth = maxDepth;
+        this.directoryFilter = directoryFilter;
+    }
+
+    public void walk(Path start, BiConsumer<Path, BasicFileAttributes> fileSink) throws IOException {
+        if (maxDepth < 1) {
+            return;
+        }
+        BasicFileAttributes startAttributes = Files.readAttributes(start, BasicFileAttributes.class);
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(new DirectoryTask(start, startAttributes.fileKey(), 0, null, fileSink));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private class DirectoryTask extends RecursiveAction {
+
+        private final Path directory;
+        private final Object fileKey;
+        private final int depth;
+        private final DirectoryTask parent;
+        private final BiConsumer<Path, BasicFileAttributes> fileSink;
+
+        DirectoryTask(Path directory, Object fileKey, int depth, DirectoryTask parent,
+                      BiConsumer<Path, BasicFileAttributes> fileSink) {
+            this.directory = directory;
+            this.fileKey = fileKey;
+            this.depth = depth;
+            this.parent = parent;
+            this.fileSink = fileSink;
+        }
+
+        @Override
+        protected void compute() {
+            List<DirectoryTask> subdirectories = new ArrayList<>();
+
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+                for (Path entry : entries) {
+                    visit(entry, subdirectories);
+                }
+            } catch (IOException e) {
+                log.warn("Cannot read directory {}: {}", directory, e.getMessage());
+            }
+
+            invokeAll(subdirectories);
+        }
+
+        private void visit(Path entry, List<DirectoryTask> subdirectories) {
+            BasicFileAttributes attributes = readAttributes(entry);
+            if (attributes == null) {
+                return;
+            }
+            if (attributes.isRegularFile()) {
+                fileSink.accept(entry, attributes);
+            } else if (attributes.isDirectory() && depth + 1 < maxDepth) {
+                if (isCycle(entry, attributes.fileKey())) {
+                    log.warn("Skipping directory cycle at {}", entry);
+                    return;
+                }
+                if (!directoryFilter.test(entry)) {
+                    return;
+                }
+                subdirectories.add(new DirectoryTask(entry, attributes.fileKey(), depth + 1, this, fileSink));
+            }
+        }
+
+        private BasicFileAttributes readAttributes(Path entry) {
+            try {
+                return Files.readAttributes(entry, BasicFileAttributes.class);
+            } catch (IOException e) {
+                // Broken links end up here; Files.walk treats them as neither files nor directories either
+                return null;
+            }
+        }
+
+        private boolean isCycle(Path entry, Object entryKey) {
+            for (DirectoryTask ancestor = this; ancestor != null; ancestor = ancestor.parent) {
+                if (entryKey != null ? entryKey.equals(ancestor.fileKey) : isSameFile(entry, ancestor.directory)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean isSameFile(Path first, Path second) {
+            try {
+                return Files.isSameFile(first, second);
+            } catch (IOException e) {
+                return false;
+            }
+        }
+    }
+}
@@ -1,22 +1,57 @@
 package dev.zux13.filestatistics.scan.model;
 
-import lombok.Getter;
+import java.util.concurrent.atomic.LongAdder;
 
-@Getter
+/**
+ * Counters updated concurrently by the scanner and the analysis threads.
+ */
 public class IgnoredFilesStats {
-    private long ignoredByGitignore;
-    private long ignoredByExtension;
-    private long ignoredBinaryOrEncoding;
+    private final LongAdder ignoredByGitignore = new LongAdder();
+    private final LongAdder ignoredByExtension = new LongAdder();
+    private final LongAdder ignoredBinaryOrEncoding = new LongAdder();
+    private final LongAdder ignoredDuplicates = new LongAdder();
 
     public void incrementIgnoredByGitignore() {
-        ignoredByGitignore++;
+        ignoredByGitignore.increment();
     }
 
     public void incrementIgnoredByExtension() {
-        ignoredByExtension++;
+        ignoredByExtension.increment();
     }
 
     public void incrementIgnoredBinaryOrEncoding() {
-        ignoredBinaryOrEncoding++;
+        ignoredBinaryOrEncoding.increment();
+    }
+
+    /**
+     * Counts a file skipped because a hard or symbolic link to it was already accepted.
+     */
+    public void incrementIgnoredDuplicates() {
+        ignoredDuplicates.increment();
+    }
+
+    /**
+     * Adds counts that were not produced by this run, e.g. totals restored from a previous one.
+     */
+    public void add(long byGitignore, long byExtension, long binaryOrEncoding) {
+        ignoredByGitignore.add(byGitignore);
+        ignoredByExtension.add(byExtension);
+        ignoredBinaryOrEncoding.add(binaryOrEncoding);
+    }
+
+    public long getIgnoredByGitignore() {
+        return ignoredByGitignore.sum();
+    }
+
+    public long getIgnoredByExtension() {
+        return ignoredByExtension.sum();
+    }
+
+    public long getIgnoredBinaryOrEncoding() {
+        return ignoredBinaryOrEncoding.sum();
+    }
+
+    public long getIgnoredDuplicates() {
+        return ignoredDuplicates.sum();
     }
 }
@@ -3,4 +3,9 @@ package dev.zux13.filestatistics.scan.model;
 import java.nio.file.Path;
 import java.util.List;
 
-public record ScanResult(List<Path> filesToAnalyze, IgnoredFilesStats ignoredFilesStats) {}
+public record ScanResult(List<ScannedFile> filesToAnalyze, IgnoredFilesStats ignoredFilesStats) {
+
+    public List<Path> paths() {
+        return filesToAnalyze.stream().map(ScannedFile::path).toList();
+    }
+}
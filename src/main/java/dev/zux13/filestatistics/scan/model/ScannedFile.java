@@ -0,0 +1,33 @@
+package dev.zux13.filestatistics.scan.model;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * A file found by a walk together with the attributes the walk read for it, so that later
+ * stages learn its size, modification time and file key without another {@code stat}.
+ * Attributes are those of the link target when the file was reached through a symbolic link.
+ */
+public record ScannedFile(Path path, BasicFileAttributes attributes) {
+
+    /**
+     * Reads the attributes of a file that did not come from a walk, following links.
+     */
+    public static ScannedFile read(Path path) throws IOException {
+        return new ScannedFile(path, Files.readAttributes(path, BasicFileAttributes.class));
+    }
+
+    public long size() {
+        return attributes.size();
+    }
+
+    /**
+     * Identifies the underlying file, e.g. device and inode, or {@code null} where the
+     * platform has no such notion.
+     */
+    public Object fileKey() {
+        return attributes.fileKey();
+    }
+}
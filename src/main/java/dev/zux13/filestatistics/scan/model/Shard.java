@@ -0,0 +1,52 @@
+package dev.zux13.filestatistics.scan.model;
+
+import java.io.File;
+import java.nio.file.Path;
+
+/**
+ * Slice {@code number} of {@code count} of a tree, numbered from 1. Every entry belongs to the
+ * shard of the directory that holds it, chosen by a hash of that directory's path relative to
+ * the root. The hash depends only on the path string, so processes on different machines agree
+ * on the partition, and a directory's files, ignored entries and subdirectory entries are all
+ * counted by the same shard.
+ */
+public record Shard(int number, int count) {
+
+    public Shard {
+        if (count < 1 || number < 1 || number > count) {
+            throw new IllegalArgumentException("Invalid shard " + number + "/" + count);
+        }
+    }
+
+    /**
+     * Whether {@code entry}, a file or directory below {@code root}, belongs to this shard.
+     */
+    public boolean owns(Path root, Path entry) {
+        if (count == 1) {
+            return true;
+        }
+        Path parent = entry.getParent();
+        String directory = parent == null || parent.equals(root) ? "" : root.relativize(parent).toString();
+        if (File.separatorChar != '/') {
+            directory = directory.replace(File.separatorChar, '/');
+        }
+        return Math.floorMod(mix(directory.hashCode()), count) == number - 1;
+    }
+
+    /**
+     * The MurmurHash3 finalizer, so that similar paths still spread over all shards.
+     */
+    private static int mix(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        hash ^= hash >>> 16;
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return number + "/" + count;
+    }
+}
@@ -0,0 +1,136 @@
+package dev.zux13.filestatistics.shard;
+
+import dev.zux13.filestatistics.analysis.StatisticsAggregator;
+import dev.zux13.filestatistics.analysis.model.ExtensionStatistics;
+import dev.zux13.filestatistics.analysis.model.FileStatistics;
+import dev.zux13.filestatistics.cli.Config;
+import dev.zux13.filestatistics.scan.model.Shard;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Exact totals of one run, usually over one {@code --shard} of a tree, that {@code merge}
+ * adds up with the partial results of other runs. Counters are stored as they are, so the
+ * merged report equals the report of a single run over the whole tree, with two exceptions:
+ * <ul>
+ *     <li>a file reached through links from directories owned by different shards is counted
+ *     by each of those shards, as it is by a single run under each of its paths;</li>
+ *     <li>{@code --dedup} only recognizes content seen in the same process, so a file whose
+ *     copies fall into different shards is analyzed once per shard rather than once.</li>
+ * </ul>
+ * <p>
+ * {@code options} identifies the settings that shape the totals; only partial results with
+ * equal options are merged. {@code shardNumber} and {@code shardCount} are 1 for a run over
+ * the whole tree.
+ */
+public record PartialResult(
+        int formatVersion,
+        String options,
+        String root,
+        int shardNumber,
+        int shardCount,
+        Map<String, Totals> extensions,
+        long ignoredByGitignore,
+        long ignoredByExtension,
+        long ignoredBinaryOrEncoding,
+        long ignoredDuplicates,
+        long deduplicatedFiles,
+        long deduplicatedBytes
+) {
+
+    static final int FORMAT_VERSION = 1;
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    public record Totals(long fileCount, long sizeInBytes, long totalLines, long nonEmptyLines, long commentLines) {
+    }
+
+    /**
+     * Captures the report of a finished run.
+     */
+    public static PartialResult of(Config config, String analyzerFingerprint, StatisticsAggregator aggregator) {
+        Shard shard = config.shard() != null ? config.shard() : new Shard(1, 1);
+        Map<String, Totals> extensions = new TreeMap<>();
+        aggregator.getStatisticsByExtension().forEach((extension, stats) -> extensions.put(extension,
+                new Totals(stats.getFileCount(), stats.getTotalSizeInBytes(), stats.getTotalLines(),
+                        stats.getTotalNonEmptyLines(), stats.getTotalCommentLines())));
+
+        return new PartialResult(FORMAT_VERSION, options(config, analyzerFingerprint), config.path().toString(),
+                shard.number(), shard.count(), extensions,
+                aggregator.getIgnoredByGitignoreCount(),
+                aggregator.getIgnoredByExtensionCount(),
+                aggregator.getIgnoredBinaryOrEncodingCount(),
+                aggregator.getIgnoredDuplicatesCount(),
+                aggregator.getDeduplicatedFileCount(),
+                aggregator.getDeduplicatedBytes());
+    }
+
+    /**
+     * @throws IOException if the file cannot be read, is not a partial result or was written
+     *                     by another format version
+     */
+    public static PartialResult read(Path file) throws IOException {
+        PartialResult result;
+        try (InputStream in = Files.newInputStream(file)) {
+            result = objectMapper.readValue(in, PartialResult.class);
+        } catch (JacksonException e) {
+            throw new IOException("Not a partial result: " + file + " (" + e.getOriginalMessage() + ")", e);
+        }
+        if (result.formatVersion() != FORMAT_VERSION) {
+            throw new IOException("Partial result " + file + " was written in format version "
+                    + result.formatVersion() + ", expected " + FORMAT_VERSION);
+        }
+        return result;
+    }
+
+    /**
+     * Writes to a temporary file first, so a run that fails midway never leaves a partial
+     * result behind that {@code merge} would accept.
+     */
+    public void write(Path file) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+
+        Path tempFile = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(tempFile)) {
+                objectMapper.writerWithDefaultPrettyPrinter().writeValue(out, this);
+            } catch (JacksonException e) {
+                throw new IOException("Cannot write partial result " + file, e);
+            }
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    private static String options(Config config, String analyzerFingerprint) {
+        return String.join(";",
+                analyzerFingerprint,
+                String.valueOf(config.recursive()),
+                String.valueOf(config.maxDepth()),
+                String.join(",", new TreeSet<>(config.includeExtensions())),
+                String.join(",", new TreeSet<>(config.excludeExtensions())),
+                String.valueOf(config.useGitIgnore()),
+                String.valueOf(config.gitTracked()),
+                String.valueOf(config.gitUntracked()),
+                String.valueOf(config.deduplicateContent()));
+    }
+
+    void addTo(Map<String, ExtensionStatistics> statisticsByExtension) {
+        extensions.forEach((extension, totals) -> statisticsByExtension
+                .computeIfAbsent(extension, k -> new ExtensionStatistics())
+                .addTotals(totals.fileCount(), new FileStatistics(totals.sizeInBytes(), totals.totalLines(),
+                        totals.nonEmptyLines(), totals.commentLines())));
+    }
+}
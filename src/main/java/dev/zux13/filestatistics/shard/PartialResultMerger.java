@@ -0,0 +1,95 @@
+package dev.zux13.filestatistics.shard;
+
+import dev.zux13.filestatistics.analysis.StatisticsAggregator;
+import dev.zux13.filestatistics.analysis.model.ExtensionStatistics;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Adds up partial results into one report. Partial results may come from shards of one tree
+ * and from different trees, but every shard of a tree may only be given once, and all of them
+ * must have been produced with the same options. A tree whose shards are not all present is
+ * merged anyway, with a warning.
+ */
+@Slf4j
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public class PartialResultMerger {
+
+    public static StatisticsAggregator merge(List<Path> files) throws IOException {
+        List<PartialResult> partials = new ArrayList<>();
+        for (Path file : files) {
+            partials.add(PartialResult.read(file));
+        }
+        return merge(partials, files);
+    }
+
+    static StatisticsAggregator merge(List<PartialResult> partials, List<Path> files) {
+        validate(partials, files);
+
+        Map<String, ExtensionStatistics> statisticsByExtension = new HashMap<>();
+        long ignoredByGitignore = 0;
+        long ignoredByExtension = 0;
+        long ignoredBinaryOrEncoding = 0;
+        long ignoredDuplicates = 0;
+        long deduplicatedFiles = 0;
+        long deduplicatedBytes = 0;
+        for (PartialResult partial : partials) {
+            partial.addTo(statisticsByExtension);
+            ignoredByGitignore += partial.ignoredByGitignore();
+            ignoredByExtension += partial.ignoredByExtension();
+            ignoredBinaryOrEncoding += partial.ignoredBinaryOrEncoding();
+            ignoredDuplicates += partial.ignoredDuplicates();
+            deduplicatedFiles += partial.deduplicatedFiles();
+            deduplicatedBytes += partial.deduplicatedBytes();
+        }
+
+        StatisticsAggregator aggregator = new StatisticsAggregator();
+        aggregator.setStatisticsByExtension(statisticsByExtension);
+        aggregator.setIgnoredByGitignoreCount(ignoredByGitignore);
+        aggregator.setIgnoredByExtensionCount(ignoredByExtension);
+        aggregator.setIgnoredBinaryOrEncodingCount(ignoredBinaryOrEncoding);
+        aggregator.setIgnoredDuplicatesCount(ignoredDuplicates);
+        aggregator.setDeduplicatedFileCount(deduplicatedFiles);
+        aggregator.setDeduplicatedBytes(deduplicatedBytes);
+        return aggregator;
+    }
+
+    private static void validate(List<PartialResult> partials, List<Path> files) {
+        Map<String, Integer> shardCounts = new HashMap<>();
+        Map<String, TreeSet<Integer>> shardsByRoot = new HashMap<>();
+
+        for (int i = 0; i < partials.size(); i++) {
+            PartialResult partial = partials.get(i);
+            if (!partial.options().equals(partials.get(0).options())) {
+                throw new IllegalArgumentException("Partial results " + files.get(0) + " and " + files.get(i)
+                        + " were produced with different options or analyzer versions");
+            }
+            Integer shardCount = shardCounts.putIfAbsent(partial.root(), partial.shardCount());
+            if (shardCount != null && shardCount != partial.shardCount()) {
+                throw new IllegalArgumentException("Partial results for " + partial.root()
+                        + " were split into different numbers of shards: " + shardCount + " and " + partial.shardCount());
+            }
+            if (!shardsByRoot.computeIfAbsent(partial.root(), k -> new TreeSet<>()).add(partial.shardNumber())) {
+                throw new IllegalArgumentException("Shard " + partial.shardNumber() + "/" + partial.shardCount()
+                        + " of " + partial.root() + " is given more than once, last in " + files.get(i));
+            }
+        }
+
+        shardsByRoot.forEach((root, shards) -> {
+            int shardCount = shardCounts.get(root);
+            if (shards.size() < shardCount) {
+                log.warn("Only {} of {} shards of {} are merged; the report does not cover the whole tree",
+                        shards.size(), shardCount, root);
+            }
+        });
+    }
+}
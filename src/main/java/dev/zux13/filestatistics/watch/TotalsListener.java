@@ -0,0 +1,14 @@
+package dev.zux13.filestatistics.watch;
+
+import dev.zux13.filestatistics.incremental.RunningTotals;
+
+import java.io.IOException;
+
+/**
+ * Receives the totals of a watched tree after the first scan and whenever they change. Called
+ * on the watching thread; the totals must not be kept past the call.
+ */
+@FunctionalInterface
+public interface TotalsListener {
+    void totalsChanged(RunningTotals totals) throws IOException;
+}
@@ -0,0 +1,448 @@
+package dev.zux13.filestatistics.watch;
+
+import dev.zux13.filestatistics.analysis.FileAnalyzer;
+import dev.zux13.filestatistics.analysis.model.FileStatistics;
+import dev.zux13.filestatistics.cache.AnalysisCache;
+import dev.zux13.filestatistics.incremental.FileContribution;
+import dev.zux13.filestatistics.incremental.RunningTotals;
+import dev.zux13.filestatistics.processing.FileTaskRunner;
+import dev.zux13.filestatistics.scan.FileScanner;
+import dev.zux13.filestatistics.scan.GitIgnoreManager;
+import dev.zux13.filestatistics.scan.model.ScannedFile;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.NotDirectoryException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the totals of a tree up to date while it changes ({@code --watch}). A first walk
+ * registers every directory a scan would enter with a {@link WatchService} and records what
+ * each entry contributes; after that, only the entries that events point at are looked at
+ * again, and their old contribution is replaced by the new one.
+ * <p>
+ * Events are collected until the tree has been quiet for {@link #QUIET_PERIOD}, and for no
+ * longer than {@link #MAX_BATCH_DELAY}, so that a storm such as a {@code git checkout} is
+ * applied as one batch. A file is analyzed at most once per batch, and not at all while its
+ * size and modification time stay the same. When the events of a directory overflow, only
+ * that directory is listed again: its subdirectories have watch keys of their own. A changed
+ * {@code .gitignore} has the subtree of its directory listed again.
+ * <p>
+ * As with {@code --git-diff}, files are tracked by path, so a file reached through several
+ * links is counted under each of them.
+ */
+@Slf4j
+public class TreeWatcher implements Closeable {
+
+    static final Duration QUIET_PERIOD = Duration.ofMillis(200);
+    static final Duration MAX_BATCH_DELAY = Duration.ofSeconds(2);
+
+    private static final String GITIGNORE_FILE = ".gitignore";
+
+    private final Path root;
+    private final FileScanner scanner;
+    private final GitIgnoreManager ignoreManager;
+    private final FileAnalyzer fileAnalyzer;
+    private final AnalysisCache analysisCache;
+    private final FileTaskRunner taskRunner;
+    private final WatchService watchService;
+
+    private final Map<Path, WatchedDirectory> directories = new HashMap<>();
+    private final Map<Path, ScannedFile> pendingFiles = new LinkedHashMap<>();
+    private final RunningTotals totals = RunningTotals.empty();
+    private boolean changed;
+
+    /**
+     * @param ignoreManager the manager {@code scanner} uses, or {@code null}; it must be
+     *                      {@link GitIgnoreManager#GitIgnoreManager(Path, boolean) reusable}
+     * @param analysisCache consulted before a file is analyzed and saved after the first scan,
+     *                      or {@code null}
+     */
+    public TreeWatcher(Path root, FileScanner scanner, GitIgnoreManager ignoreManager, FileAnalyzer fileAnalyzer,
+                       AnalysisCache analysisCache, FileTaskRunner taskRunner) throws IOException {
+        this.root = root;
+        this.scanner = scanner;
+        this.ignoreManager = ignoreManager;
+        this.fileAnalyzer = fileAnalyzer;
+        this.analysisCache = analysisCache;
+        this.taskRunner = taskRunner;
+        this.watchService = root.getFileSystem().newWatchService();
+    }
+
+    /**
+     * Scans the tree, reports its totals and keeps reporting them whenever they have changed,
+     * at most once per {@code interval}. Returns when the watcher is closed or the thread is
+     * interrupted.
+     */
+    public void watch(Duration interval, TotalsListener listener) throws IOException {
+        WatchedDirectory rootDirectory = register(root, null, Files.readAttributes(root, BasicFileAttributes.class));
+        list(rootDirectory, true);
+        analyzePendingFiles();
+        if (analysisCache != null) {
+            analysisCache.save();
+        }
+        log.debug("Watching {} directories below {}", directories.size(), root);
+        listener.totalsChanged(totals);
+        changed = false;
+
+        long lastReport = System.nanoTime();
+        try {
+            while (true) {
+                long untilReport = interval.toNanos() - (System.nanoTime() - lastReport);
+                WatchKey key = changed
+                        ? watchService.poll(Math.max(untilReport, 0), TimeUnit.NANOSECONDS)
+                        : watchService.take();
+                if (key != null) {
+                    applyBatch(collectBatch(key));
+                }
+                if (changed && System.nanoTime() - lastReport >= interval.toNanos()) {
+                    listener.totalsChanged(totals);
+                    changed = false;
+                    lastReport = System.nanoTime();
+                }
+            }
+        } catch (ClosedWatchServiceException e) {
+            log.debug("Stopped watching {}", root);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+
+    private Batch collectBatch(WatchKey first) throws InterruptedException {
+        Batch batch = new Batch();
+        batch.add(first);
+        long deadline = System.nanoTime() + MAX_BATCH_DELAY.toNanos();
+        while (true) {
+            long wait = Math.min(QUIET_PERIOD.toNanos(), deadline - System.nanoTime());
+            WatchKey key = wait > 0 ? watchService.poll(wait, TimeUnit.NANOSECONDS) : null;
+            if (key == null) {
+                return batch;
+            }
+            batch.add(key);
+        }
+    }
+
+    private void applyBatch(Batch batch) throws IOException {
+        if (ignoreManager != null && batch.changedIgnoreFiles() && ignoreManager.revalidate()) {
+            for (Path path : batch.changedPaths) {
+                WatchedDirectory directory = directories.get(path.getParent());
+                if (directory != null && isFileName(path, GITIGNORE_FILE)) {
+                    list(directory, true);
+                }
+            }
+        }
+        for (Path overflowed : batch.overflowedDirectories) {
+            WatchedDirectory directory = directories.get(overflowed);
+            if (directory != null) {
+                list(directory, false);
+            }
+        }
+        for (Path path : batch.changedPaths) {
+            WatchedDirectory parent = directories.get(path.getParent());
+            if (parent != null) {
+                update(parent, path, false);
+            }
+        }
+        analyzePendingFiles();
+        log.debug("Applied a batch of {} changed paths and {} overflowed directories",
+                batch.changedPaths.size(), batch.overflowedDirectories.size());
+    }
+
+    /**
+     * Brings the entries of {@code directory} in line with its current listing; with
+     * {@code deep}, the entries of its subdirectories too.
+     */
+    private void list(WatchedDirectory directory, boolean deep) {
+        Set<String> present = new HashSet<>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory.path)) {
+            for (Path entry : entries) {
+                present.add(entry.getFileName().toString());
+                update(directory, entry, deep);
+            }
+        } catch (NoSuchFileException | NotDirectoryException e) {
+            // Removed meanwhile; the event in its parent removes it from the totals
+            return;
+        } catch (IOException e) {
+            log.warn("Cannot list directory {}: {}", directory.path, e.getMessage());
+            return;
+        }
+        for (String name : List.copyOf(directory.entries.keySet())) {
+            if (!present.contains(name)) {
+                setEntry(directory, name, null);
+            }
+        }
+        for (String name : List.copyOf(directory.subdirectories)) {
+            if (!present.contains(name)) {
+                removeSubdirectory(directory, name);
+            }
+        }
+    }
+
+    /**
+     * Brings the entry at {@code path}, a child of {@code parent}, in line with the file system.
+     * A file to analyze is left in {@link #pendingFiles}.
+     */
+    private void update(WatchedDirectory parent, Path path, boolean deep) {
+        String name = path.getFileName().toString();
+        BasicFileAttributes attributes = readAttributes(path);
+        if (attributes == null) {
+            setEntry(parent, name, null);
+            removeSubdirectory(parent, name);
+            return;
+        }
+
+        if (attributes.isDirectory()) {
+            boolean aboveDepthLimit = root.relativize(path).getNameCount() < scanner.getMaxDepth();
+            FileScanner.Decision decision = aboveDepthLimit ? scanner.decideDirectory(path) : FileScanner.Decision.SKIP;
+            setEntry(parent, name, decision == FileScanner.Decision.IGNORED_BY_GITIGNORE
+                    ? new Entry(FileContribution.IGNORED_BY_GITIGNORE, attributes)
+                    : null);
+            if (decision != FileScanner.Decision.ACCEPT) {
+                removeSubdirectory(parent, name);
+                return;
+            }
+            WatchedDirectory directory = directories.get(path);
+            if (directory == null && !isCycle(parent, attributes.fileKey())) {
+                parent.subdirectories.add(name);
+                list(register(path, parent, attributes), true);
+            } else if (directory != null && deep) {
+                list(directory, true);
+            }
+            return;
+        }
+
+        removeSubdirectory(parent, name);
+        if (!attributes.isRegularFile()) {
+            setEntry(parent, name, null);
+            return;
+        }
+        switch (scanner.decide(path)) {
+            case ACCEPT -> {
+                Entry previous = parent.entries.get(name);
+                if (previous == null || !previous.isAnalysisOf(attributes)) {
+                    pendingFiles.put(path, new ScannedFile(path, attributes));
+                }
+            }
+            case SKIP -> setEntry(parent, name, null);
+            case IGNORED_BY_GITIGNORE -> setEntry(parent, name, new Entry(FileContribution.IGNORED_BY_GITIGNORE, attributes));
+            case IGNORED_BY_EXTENSION -> setEntry(parent, name, new Entry(FileContribution.IGNORED_BY_EXTENSION, attributes));
+        }
+    }
+
+    private void analyzePendingFiles() throws IOException {
+        if (pendingFiles.isEmpty()) {
+            return;
+        }
+        List<ScannedFile> files = new ArrayList<>(pendingFiles.values());
+        pendingFiles.clear();
+
+        Map<Path, FileContribution> contributions = new ConcurrentHashMap<>();
+        taskRunner.run(sink -> files.forEach(sink), file -> contributions.put(file.path(), analyze(file)));
+
+        for (ScannedFile file : files) {
+            WatchedDirectory parent = directories.get(file.path().getParent());
+            if (parent == null) {
+                continue;
+            }
+            FileContribution contribution = contributions.getOrDefault(file.path(), FileContribution.ABSENT);
+            setEntry(parent, file.path().getFileName().toString(),
+                    contribution.kind() != FileContribution.Kind.ABSENT ? new Entry(contribution, file.attributes()) : null);
+        }
+    }
+
+    private FileContribution analyze(ScannedFile file) {
+        try {
+            FileStatistics statistics = analysisCache != null
+                    ? analysisCache.getOrAnalyze(file.path(), file.attributes(),
+                            path -> fileAnalyzer.analyzeFile(path, file.size()))
+                    : fileAnalyzer.analyzeFile(file.path(), file.size());
+            return statistics != null ? FileContribution.counted(statistics) : FileContribution.BINARY;
+        } catch (NoSuchFileException e) {
+            // Deleted before it was read; the deletion event follows
+            return FileContribution.ABSENT;
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to analyze file {}: {}", file.path(), e.getMessage());
+            return FileContribution.ABSENT;
+        }
+    }
+
+    /**
+     * Replaces what {@code name} in {@code directory} contributes; {@code null} for nothing.
+     */
+    private void setEntry(WatchedDirectory directory, String name, Entry entry) {
+        Entry previous = entry != null ? directory.entries.put(name, entry) : directory.entries.remove(name);
+        FileContribution before = previous != null ? previous.contribution() : FileContribution.ABSENT;
+        FileContribution after = entry != null ? entry.contribution() : FileContribution.ABSENT;
+        if (!before.equals(after)) {
+            String path = relativePath(directory.path.resolve(name));
+            totals.remove(path, before);
+            totals.add(path, after);
+            changed = true;
+        }
+    }
+
+    private WatchedDirectory register(Path path, WatchedDirectory parent, BasicFileAttributes attributes) {
+        WatchKey key = null;
+        try {
+            key = path.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException e) {
+            log.warn("Cannot watch directory {}, its changes will be missed: {}", path, e.getMessage());
+        }
+        WatchedDirectory directory = new WatchedDirectory(path, parent, attributes.fileKey(), key);
+        directories.put(path, directory);
+        return directory;
+    }
+
+    private void removeSubdirectory(WatchedDirectory parent, String name) {
+        if (parent.subdirectories.remove(name)) {
+            removeDirectory(parent.path.resolve(name));
+        }
+    }
+
+    private void removeDirectory(Path path) {
+        WatchedDirectory directory = directories.remove(path);
+        if (directory == null) {
+            return;
+        }
+        if (directory.key != null) {
+            directory.key.cancel();
+        }
+        for (String name : List.copyOf(directory.entries.keySet())) {
+            setEntry(directory, name, null);
+        }
+        for (String name : directory.subdirectories) {
+            removeDirectory(path.resolve(name));
+        }
+    }
+
+    /**
+     * Tells whether entering a directory with {@code fileKey} below {@code parent} would loop
+     * through a link back into one of its ancestors.
+     */
+    private boolean isCycle(WatchedDirectory parent, Object fileKey) {
+        if (fileKey == null) {
+            return false;
+        }
+        for (WatchedDirectory ancestor = parent; ancestor != null; ancestor = ancestor.parent) {
+            if (fileKey.equals(ancestor.fileKey)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private BasicFileAttributes readAttributes(Path path) {
+        try {
+            return Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private String relativePath(Path path) {
+        String relative = root.relativize(path).toString();
+        return File.separatorChar == '/' ? relative : relative.replace(File.separatorChar, '/');
+    }
+
+    private static boolean isFileName(Path path, String name) {
+        Path fileName = path.getFileName();
+        return fileName != null && fileName.toString().equals(name);
+    }
+
+    /**
+     * What an entry contributes, with the size and modification time it had when this was
+     * determined.
+     */
+    private record Entry(FileContribution contribution, long size, FileTime modifiedTime) {
+
+        Entry(FileContribution contribution, BasicFileAttributes attributes) {
+            this(contribution, attributes.size(), attributes.lastModifiedTime());
+        }
+
+        /**
+         * Whether this entry holds the analysis of a file that still has these attributes.
+         */
+        boolean isAnalysisOf(BasicFileAttributes attributes) {
+            FileContribution.Kind kind = contribution.kind();
+            return (kind == FileContribution.Kind.COUNTED || kind == FileContribution.Kind.BINARY)
+                    && size == attributes.size()
+                    && Objects.equals(modifiedTime, attributes.lastModifiedTime());
+        }
+    }
+
+    /**
+     * A directory the scan enters: its entries that contribute something, files and ignored
+     * directories, and the names of the subdirectories that are watched themselves.
+     */
+    private static final class WatchedDirectory {
+
+        private final Path path;
+        private final WatchedDirectory parent;
+        private final Object fileKey;
+        private final WatchKey key;
+        private final Map<String, Entry> entries = new HashMap<>();
+        private final Set<String> subdirectories = new HashSet<>();
+
+        WatchedDirectory(Path path, WatchedDirectory parent, Object fileKey, WatchKey key) {
+            this.path = path;
+            this.parent = parent;
+            this.fileKey = fileKey;
+            this.key = key;
+        }
+    }
+
+    /**
+     * Paths named by the events of one batch, each once.
+     */
+    private static final class Batch {
+
+        private final Set<Path> changedPaths = new LinkedHashSet<>();
+        private final Set<Path> overflowedDirectories = new LinkedHashSet<>();
+
+        void add(WatchKey key) {
+            Path directory = (Path) key.watchable();
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    overflowedDirectories.add(directory);
+                } else {
+                    changedPaths.add(directory.resolve((Path) event.context()));
+                }
+            }
+            key.reset();
+        }
+
+        boolean changedIgnoreFiles() {
+            return changedPaths.stream().anyMatch(path -> isFileName(path, GITIGNORE_FILE));
+        }
+    }
+}
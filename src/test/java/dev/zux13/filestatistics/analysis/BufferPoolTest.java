@@ -0,0 +1,38 @@
+package dev.zux13.filestatistics.analysis;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BufferPoolTest {
+
+    @Test
+    @DisplayName("Keeps the grown buffer of a read in place of the acquired one")
+    void shouldReuseGrownBuffer_whenItFitsThePool() {
+        BufferPool pool = new BufferPool(16, 1024);
+        ByteBuffer acquired = pool.acquire();
+        ByteBuffer grown = ByteBuffer.allocate(1024);
+
+        pool.release(acquired, grown);
+
+        assertSame(grown, pool.acquire());
+        assertNotSame(acquired, pool.acquire());
+    }
+
+    @Test
+    @DisplayName("Keeps the acquired buffer when the grown one is too large to pool")
+    void shouldReuseAcquiredBuffer_whenGrownBufferIsTooLarge() {
+        BufferPool pool = new BufferPool(16, 1024);
+        ByteBuffer acquired = pool.acquire();
+        acquired.put((byte) 1);
+
+        pool.release(acquired, ByteBuffer.allocate(1025));
+
+        ByteBuffer reused = pool.acquire();
+        assertSame(acquired, reused);
+        assertEquals(0, reused.position());
+    }
+}
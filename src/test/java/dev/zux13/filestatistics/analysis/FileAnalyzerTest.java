@@ -1,5 +1,6 @@
 package dev.zux13.filestatistics.analysis;
 
+import dev.zux13.filestatistics.analysis.definition.CommentSyntaxLoader;
 import dev.zux13.filestatistics.analysis.model.FileStatistics;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -7,8 +8,15 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -114,6 +122,26 @@ class FileAnalyzerTest {
         assertEquals(0, stats.commentLines());
     }
 
+    @Test
+    @DisplayName("Counts comments of files named Dockerfile or Containerfile")
+    void shouldCountComments_whenFileIsNamedDockerfile() throws IOException {
+        String content = """
+                # syntax=docker/dockerfile:1
+                FROM eclipse-temurin:17
+                # Copy the application
+                COPY app.jar /app.jar
+                """;
+
+        for (String name : List.of("Dockerfile", "Containerfile")) {
+            Path file = Files.writeString(tempDir.resolve(name), content);
+
+            FileStatistics stats = fileAnalyzer.analyzeFile(file);
+
+            assertEquals(4, stats.totalLines(), name);
+            assertEquals(2, stats.commentLines(), name);
+        }
+    }
+
     @Test
     @DisplayName("Returns null for binary file")
     void shouldReturnNull_whenFileIsBinary() throws IOException {
@@ -144,4 +172,320 @@ class FileAnalyzerTest {
         assertEquals(3, stats.nonEmptyLines());
         assertEquals(0, stats.commentLines());
     }
+
+    @Test
+    @DisplayName("Counts comments of built-in languages beyond Java and Bash")
+    void shouldCountComments_whenLanguageIsBuiltIn() throws IOException {
+        Map<String, String> sources = Map.of(
+                "script.py", "# comment\nx = 1  # trailing\n",
+                "query.sql", "-- comment\n/* block\n   end */\nSELECT 1;\n",
+                "page.xml", "<root>\n  <!-- one\n  two -->\n</root>\n",
+                "config.yaml", "# comment\nkey: value\n",
+                "main.go", "// comment\nfunc main() {}\n");
+        Map<String, Long> expectedComments = Map.of(
+                "script.py", 1L, "query.sql", 3L, "page.xml", 2L, "config.yaml", 1L, "main.go", 1L);
+
+        for (Map.Entry<String, String> source : sources.entrySet()) {
+            Path file = Files.writeString(tempDir.resolve(source.getKey()), source.getValue());
+            assertEquals(expectedComments.get(source.getKey()), fileAnalyzer.analyzeFile(file).commentLines(), source.getKey());
+        }
+    }
+
+    @Test
+    @DisplayName("Tracks block comments reopened after a close, nested blocks and quoted delimiters")
+    void shouldTrackBlockComments_whenReopenedOnSameLine() throws IOException {
+        Path javaFile = Files.writeString(tempDir.resolve("Blocks.java"), """
+                /* one */ int a = 1; /* two
+                   still a comment */
+                /* three */ String s = "/* not a comment";
+                int b = 2;
+                """);
+        Path rustFile = Files.writeString(tempDir.resolve("nested.rs"), """
+                /* outer
+                   /* inner */
+                   still outer */
+                fn main() {}
+                """);
+
+        assertEquals(3, fileAnalyzer.analyzeFile(javaFile).commentLines());
+        assertEquals(3, fileAnalyzer.analyzeFile(rustFile).commentLines());
+    }
+
+    @Test
+    @DisplayName("Applies user-supplied syntaxes over built-in ones")
+    void shouldUseUserSyntax_whenLoadedFromFile() throws IOException {
+        Path syntaxFile = Files.writeString(tempDir.resolve("syntax.json"), """
+                [{"name": "elixir", "extensions": ["ex"], "lineComments": ["#"]},
+                 {"name": "shell-without-comments", "extensions": ["sh"]}]
+                """);
+        FileAnalyzer analyzer = new FileAnalyzer(new CommentAnalyzer(CommentSyntaxLoader.load(syntaxFile)));
+
+        Path elixirFile = Files.writeString(tempDir.resolve("app.ex"), "# comment\ndefmodule App do\nend\n");
+        Path shellFile = Files.writeString(tempDir.resolve("run.sh"), "# comment\necho hi\n");
+
+        assertEquals(1, analyzer.analyzeFile(elixirFile).commentLines());
+        assertEquals(0, analyzer.analyzeFile(shellFile).commentLines());
+        assertNotEquals(new CommentAnalyzer().getFingerprint(), new CommentAnalyzer(CommentSyntaxLoader.load(syntaxFile)).getFingerprint());
+    }
+
+    @Test
+    @DisplayName("Splits lines on LF, CR and CRLF like BufferedReader")
+    void shouldCountLines_whenFileHasMixedLineTerminators() throws IOException {
+        String content = "first\r\nsecond\rthird\n\r\nlast";
+        Path textFile = tempDir.resolve("mixed.txt");
+        Files.writeString(textFile, content);
+
+        FileStatistics stats = fileAnalyzer.analyzeFile(textFile);
+
+        assertNotNull(stats);
+        assertEquals(5, stats.totalLines());
+        assertEquals(4, stats.nonEmptyLines());
+    }
+
+    @Test
+    @DisplayName("Treats whitespace-only lines as empty")
+    void shouldNotCountWhitespaceOnlyLines_whenCountingNonEmptyLines() throws IOException {
+        String content = "code\n \t \n\u3000\u2003\n\u00A0\n\t// comment\n";
+        Path javaFile = tempDir.resolve("Whitespace.java");
+        Files.writeString(javaFile, "x".repeat(600) + "\n" + content);
+
+        FileStatistics stats = fileAnalyzer.analyzeFile(javaFile);
+
+        assertNotNull(stats);
+        assertEquals(6, stats.totalLines());
+        assertEquals(4, stats.nonEmptyLines());
+        assertEquals(1, stats.commentLines());
+    }
+
+    @Test
+    @DisplayName("Memory-mapped analysis matches buffered analysis")
+    void shouldProduceSameStatistics_whenFileIsMemoryMapped() throws IOException {
+        String content = """
+                /*
+                 * Header
+                 */
+                class Mapped {
+
+                    // field
+                    int value;
+                }
+                """;
+        Path javaFile = tempDir.resolve("Mapped.java");
+        Files.writeString(javaFile, content.repeat(1000));
+
+        FileStatistics buffered = fileAnalyzer.analyzeFile(javaFile);
+        FileStatistics mapped = new FileAnalyzer(new CommentAnalyzer(), 0).analyzeFile(javaFile);
+
+        assertNotNull(mapped);
+        assertEquals(buffered, mapped);
+        assertEquals(8000, mapped.totalLines());
+        assertEquals(4000, mapped.commentLines());
+    }
+
+    @Test
+    @DisplayName("Carries lines longer than a mapped window into the next window")
+    void shouldCarryLineState_whenLineIsLongerThanMappedWindow() throws IOException {
+        String content = "y".repeat(63) + "\r\n"
+                + "int a; // " + "x".repeat(100) + " /* " + "x".repeat(100) + "\n"
+                + "int b;\n"
+                + "String s = \"" + "x".repeat(100) + " /* \";\n"
+                + "int d;\n"
+                + "\u3000".repeat(60) + "// indented\n"
+                + "/* " + "x".repeat(200) + "\n"
+                + "*/ int c;";
+        Path javaFile = tempDir.resolve("Windows.java");
+        Files.writeString(javaFile, content);
+
+        FileStatistics buffered = fileAnalyzer.analyzeFile(javaFile);
+
+        for (int window : List.of(64, 68, 72, 76)) {
+            FileAnalyzer analyzer = new FileAnalyzer(new CommentAnalyzer(), 0, null, window);
+            assertEquals(buffered, analyzer.analyzeFile(javaFile), "window of " + window + " bytes");
+        }
+        assertEquals(8, buffered.totalLines());
+        assertEquals(3, buffered.commentLines());
+    }
+
+    @Test
+    @DisplayName("Counts non-ASCII UTF-8 text and skips its byte order mark")
+    void shouldAnalyzeFile_whenUtf8HasNonAsciiTextAndBom() throws IOException {
+        String content = "\uFEFF// Комментарий\nString s = \"привет\"; // ещё\n\u3000\n";
+        Path javaFile = tempDir.resolve("Utf8.java");
+        Files.writeString(javaFile, content);
+
+        FileStatistics stats = fileAnalyzer.analyzeFile(javaFile);
+
+        assertNotNull(stats);
+        assertEquals(content.getBytes(StandardCharsets.UTF_8).length, stats.sizeInBytes());
+        assertEquals(3, stats.totalLines());
+        assertEquals(2, stats.nonEmptyLines());
+        assertEquals(1, stats.commentLines());
+    }
+
+    @Test
+    @DisplayName("Counts UTF-16 and UTF-32 files with and without a byte order mark like UTF-8")
+    void shouldAnalyzeFile_whenEncodingIsWide() throws IOException {
+        String content = """
+                /* Заголовок
+                 * 😀 */
+                class Wide {
+                \u2003\u3000
+                    String s = "// не комментарий";
+                    // комментарий
+                }
+                """;
+        Path utf8File = tempDir.resolve("Wide.java");
+        Files.writeString(utf8File, content);
+        FileStatistics expected = fileAnalyzer.analyzeFile(utf8File);
+
+        for (String charset : List.of("UTF-16LE", "UTF-16BE", "UTF-32LE", "UTF-32BE")) {
+            byte[] encoded = content.getBytes(Charset.forName(charset));
+            Path wideFile = tempDir.resolve(charset + ".java");
+            Files.write(wideFile, encoded);
+            Path withBom = tempDir.resolve(charset + "-bom.java");
+            Files.writeString(withBom, "\uFEFF" + content, Charset.forName(charset));
+
+            assertEquals(withSize(expected, encoded.length), fileAnalyzer.analyzeFile(wideFile), charset);
+            assertEquals(withSize(expected, Files.size(withBom)), fileAnalyzer.analyzeFile(withBom), charset + " with BOM");
+        }
+        assertEquals(7, expected.totalLines());
+        assertEquals(3, expected.commentLines());
+    }
+
+    @Test
+    @DisplayName("Memory-mapped UTF-16 analysis matches UTF-8 across chunks and long lines")
+    void shouldAnalyzeMappedFile_whenEncodingIsUtf16() throws IOException {
+        String content = "// comment\n" + "x".repeat(200_000) + "\n\n/* open\nclose */ int a;\r\n";
+        Path utf8File = tempDir.resolve("Long.java");
+        Files.writeString(utf8File, content.repeat(3));
+        Path utf16File = tempDir.resolve("Long16.java");
+        Files.writeString(utf16File, "\uFEFF" + content.repeat(3), StandardCharsets.UTF_16LE);
+
+        FileStatistics expected = fileAnalyzer.analyzeFile(utf8File);
+        FileStatistics mapped = new FileAnalyzer(new CommentAnalyzer(), 0).analyzeFile(utf16File);
+
+        assertEquals(withSize(expected, Files.size(utf16File)), mapped);
+        assertEquals(15, mapped.totalLines());
+        assertEquals(9, mapped.commentLines());
+    }
+
+    @Test
+    @DisplayName("Counts UTF-16 lines longer than a chunk in pieces like UTF-8")
+    void shouldCarryLineState_whenUtf16LineIsLongerThanChunk() throws IOException {
+        String content = "y".repeat(65_535) + "\r\n"
+                + "int a; // " + "x".repeat(70_000) + " /* " + "x".repeat(70_000) + "\n"
+                + "int b;\n"
+                + "String s = \"" + "x".repeat(70_000) + " /* \";\n"
+                + "int d;\n"
+                + " ".repeat(100_000) + "// indented\n"
+                + "/* " + "x".repeat(200_000) + "\n"
+                + " ".repeat(100_000) + "inside\n"
+                + "*/ int c;";
+        Path utf8File = tempDir.resolve("Pieces.java");
+        Files.writeString(utf8File, content);
+        Path utf16File = tempDir.resolve("Pieces16.java");
+        Files.writeString(utf16File, content, StandardCharsets.UTF_16LE);
+
+        FileStatistics expected = fileAnalyzer.analyzeFile(utf8File);
+
+        assertEquals(withSize(expected, Files.size(utf16File)), fileAnalyzer.analyzeFile(utf16File));
+        assertEquals(9, expected.totalLines());
+        assertEquals(4, expected.commentLines());
+    }
+
+    @Test
+    @DisplayName("Counts text in legacy single-byte encodings")
+    void shouldAnalyzeFile_whenTextIsNotUtf8ButHasNoControlBytes() throws IOException {
+        Path cp1251File = tempDir.resolve("legacy.sh");
+        Files.writeString(cp1251File, "# Комментарий\necho 'Привет'\n", Charset.forName("windows-1251"));
+
+        FileStatistics stats = fileAnalyzer.analyzeFile(cp1251File);
+
+        assertNotNull(stats);
+        assertEquals(2, stats.totalLines());
+        assertEquals(1, stats.commentLines());
+    }
+
+    @Test
+    @DisplayName("Returns null for content with zero and control bytes in no text pattern")
+    void shouldReturnNull_whenZeroBytesDoNotFormCodeUnits() throws IOException {
+        byte[] content = new byte[1024];
+        new Random(7).nextBytes(content);
+        Path randomFile = tempDir.resolve("random.dat");
+        Files.write(randomFile, content);
+        Path intsFile = tempDir.resolve("ints.dat");
+        Files.write(intsFile, new byte[]{ 1, 0, 0, 0, 2, 0, 0, 0, 3, 0, 0, 0, 4, 0, 0, 0 });
+
+        assertNull(fileAnalyzer.analyzeFile(randomFile));
+        assertNull(fileAnalyzer.analyzeFile(intsFile));
+        assertNull(fileAnalyzer.analyzeContent(Path.of("a.txt"), "text\0".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    @DisplayName("Counts identical contents once per comment syntax when deduplicating")
+    void shouldReuseStatistics_whenContentIsDuplicated() throws IOException {
+        String content = "// comment\nint a = 1;\n";
+        ContentDeduplicator deduplicator = new ContentDeduplicator();
+        CommentAnalyzer commentAnalyzer = new CommentAnalyzer();
+        FileAnalyzer buffered = new FileAnalyzer(commentAnalyzer, FileAnalyzer.DEFAULT_MMAP_THRESHOLD, deduplicator);
+        FileAnalyzer mapped = new FileAnalyzer(commentAnalyzer, 0, deduplicator);
+        Path original = Files.writeString(tempDir.resolve("A.java"), content);
+        Path copy = Files.writeString(tempDir.resolve("B.java"), content);
+        Path otherSyntax = Files.writeString(tempDir.resolve("a.py"), content);
+        Path binary = Files.write(tempDir.resolve("a.bin"), new byte[]{0, 1, 2});
+        Path binaryCopy = Files.write(tempDir.resolve("b.bin"), new byte[]{0, 1, 2});
+
+        FileStatistics first = buffered.analyzeFile(original);
+
+        assertAll(
+                () -> assertEquals(first, buffered.analyzeFile(copy)),
+                () -> assertEquals(first, mapped.analyzeFile(copy)),
+                () -> assertEquals(0, buffered.analyzeFile(otherSyntax).commentLines()),
+                () -> assertNull(buffered.analyzeFile(binary)),
+                () -> assertNull(buffered.analyzeFile(binaryCopy)),
+                () -> assertEquals(1, first.commentLines())
+        );
+        // Buffered and mapped reads hash the same bytes alike
+        assertEquals(3, deduplicator.getDeduplicatedFiles());
+        assertEquals(2L * content.length() + 3, deduplicator.getDeduplicatedBytes());
+    }
+
+    @Test
+    @DisplayName("Forgets the oldest contents beyond the entry limit")
+    void shouldEvictOldestContent_whenDeduplicatorIsFull() throws IOException {
+        ContentDeduplicator deduplicator = new ContentDeduplicator(2);
+        FileAnalyzer analyzer = new FileAnalyzer(new CommentAnalyzer(), FileAnalyzer.DEFAULT_MMAP_THRESHOLD, deduplicator);
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            files.add(Files.writeString(tempDir.resolve(i + ".txt"), "line " + i));
+        }
+
+        for (Path file : files) {
+            analyzer.analyzeFile(file);
+        }
+        analyzer.analyzeFile(files.get(2));
+        analyzer.analyzeFile(files.get(0));
+
+        assertEquals(1, deduplicator.getDeduplicatedFiles());
+    }
+
+    @Test
+    @DisplayName("Hashes content like the XXH64 reference")
+    void shouldMatchReferenceHashes_whenHashingContent() {
+        assertAll(
+                () -> assertEquals(0xEF46DB3751D8E999L, hash("")),
+                () -> assertEquals(0x44BC2CF5AD770999L, hash("abc")),
+                () -> assertEquals(0xFBCEA83C8A378BF1L, hash("Nobody inspects the spammish repetition"))
+        );
+    }
+
+    private static long hash(String content) {
+        ByteBuffer buffer = ByteBuffer.wrap(content.getBytes(StandardCharsets.UTF_8));
+        return ContentHash.hash(buffer, 0, buffer.limit(), 0);
+    }
+
+    private static FileStatistics withSize(FileStatistics statistics, long sizeInBytes) {
+        return new FileStatistics(sizeInBytes, statistics.totalLines(),
+                statistics.nonEmptyLines(), statistics.commentLines());
+    }
 }
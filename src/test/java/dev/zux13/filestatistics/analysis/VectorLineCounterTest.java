@@ -0,0 +1,95 @@
+package dev.zux13.filestatistics.analysis;
+
+import dev.zux13.filestatistics.analysis.definition.CommentDefinition;
+import dev.zux13.filestatistics.analysis.model.FileStatistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class VectorLineCounterTest {
+
+    /**
+     * Long lines at the start make the kernel take its vector path for the rest of the content.
+     */
+    private static final String LONG_LINES = ("    " + "x".repeat(96) + "\n").repeat(41);
+
+    private static final List<String> FRAGMENTS = List.of(
+            "a", "word", "int x = 1;", " ", "    ", "\t", "\n", "\r\n", "\r", "\u2003", "\u00A0", "тест",
+            "//", "/*", "*/", "#", "\"", "'", "\"\"\"", "`", "\\", "\u001C", "\u000B");
+
+    private final CommentAnalyzer commentAnalyzer = new CommentAnalyzer();
+    private final LineCounter scalar = new LineCounter();
+    private LineCounter vector;
+
+    @BeforeEach
+    void setUp() {
+        assumeTrue(LineCounter.isVectorKernelAvailable(), "Module jdk.incubator.vector is not available");
+        vector = LineCounter.create();
+    }
+
+    @Test
+    @DisplayName("Selects the vector kernel when the module is available")
+    void shouldCreateVectorKernel_whenModuleIsAvailable() {
+        assertInstanceOf(VectorLineCounter.class, vector);
+    }
+
+    @Test
+    @DisplayName("Matches the scalar kernel on random content")
+    void shouldMatchScalarKernel_whenContentIsRandom() {
+        SplittableRandom random = new SplittableRandom(13);
+        for (int round = 0; round < 2000; round++) {
+            String content = randomContent(random, random.nextInt(400));
+            for (String fileName : List.of("Sample.java", "sample.sh", "sample.txt", "Sample.kt", "sample.py")) {
+                assertSameStatistics(fileName, content);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Splits CRLF terminators across block boundaries")
+    void shouldMatchScalarKernel_whenTerminatorSpansBlocks() {
+        for (int prefix = 0; prefix < 130; prefix++) {
+            String line = "x".repeat(prefix);
+            assertSameStatistics("sample.txt", line + "\r\n" + line + "\r\n\r\n");
+            assertSameStatistics("sample.sh", " ".repeat(prefix) + "\r\n# comment\r" + line);
+            assertSameStatistics("Sample.java", line + "\r\n/*\r\n" + line + "*/\r\n" + line);
+        }
+    }
+
+    @Test
+    @DisplayName("Reads content outside the heap, as for mapped files")
+    void shouldMatchScalarKernel_whenBufferIsDirect() {
+        byte[] bytes = (LONG_LINES + randomContent(new SplittableRandom(7), 5000)).getBytes(StandardCharsets.UTF_8);
+        ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length).put(bytes).flip();
+        CommentDefinition definition = commentAnalyzer.getDefinition(Path.of("Sample.java"));
+
+        FileStatistics expected = scalar.count(ByteBuffer.wrap(bytes), definition);
+
+        assertEquals(expected, vector.count(direct, definition));
+    }
+
+    private void assertSameStatistics(String fileName, String content) {
+        CommentDefinition definition = commentAnalyzer.getDefinition(Path.of(fileName));
+        byte[] bytes = (LONG_LINES + content).getBytes(StandardCharsets.UTF_8);
+        assertEquals(scalar.count(ByteBuffer.wrap(bytes), definition),
+                vector.count(ByteBuffer.wrap(bytes), definition),
+                () -> fileName + ": " + content.replace("\n", "\\n").replace("\r", "\\r"));
+    }
+
+    private static String randomContent(SplittableRandom random, int fragments) {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < fragments; i++) {
+            content.append(FRAGMENTS.get(random.nextInt(FRAGMENTS.size())));
+        }
+        return content.toString();
+    }
+}
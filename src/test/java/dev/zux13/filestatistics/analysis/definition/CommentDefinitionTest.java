@@ -0,0 +1,167 @@
+package dev.zux13.filestatistics.analysis.definition;
+
+import dev.zux13.filestatistics.analysis.AnalysisState;
+import dev.zux13.filestatistics.analysis.CommentAnalyzer;
+import dev.zux13.filestatistics.analysis.LineCounter;
+import dev.zux13.filestatistics.analysis.model.FileStatistics;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CommentDefinitionTest {
+
+    private final CommentAnalyzer commentAnalyzer = new CommentAnalyzer();
+    private final LineCounter lineCounter = new LineCounter();
+
+    @Test
+    @DisplayName("Ignores comment delimiters inside string and character literals")
+    void shouldIgnoreDelimiters_whenInsideLiterals() {
+        String content = """
+                String s = "/*";
+                int a = 1;
+                String t = "a \\" /* still a string";
+                char c = '"'; String u = "*/ // not a comment";
+                char q = '\\''; int b = 2;
+                "/* a string at the start of a line";
+                int d = 3;
+                """;
+
+        assertEquals(0, commentLines("Literals.java", content));
+    }
+
+    @Test
+    @DisplayName("Carries a block comment opened after code to the following lines")
+    void shouldTrackBlockComment_whenOpenedAfterCode() {
+        String content = """
+                foo(); /* x */ bar(); /*
+                   still a comment
+                */ baz();
+                int a = 1; // line comment /* does not open a block
+                int b = 2;
+                char c = '/'; /* opened after a character literal
+                  closed here */
+                int d = 4;
+                """;
+
+        assertEquals(3, commentLines("Calls.java", content));
+    }
+
+    @Test
+    @DisplayName("Treats text block lines as code")
+    void shouldSkipTextBlocks_whenTheySpanLines() {
+        String content = """
+                String sql = \"""
+                    /* not a comment
+                    // nor this
+                    \\\""" still inside
+                    \""";
+                // a comment again
+                String json = \""" { "a": "*/" }\"""; /*
+                   a real block
+                */
+                """;
+
+        assertEquals(3, commentLines("TextBlock.java", content));
+    }
+
+    @Test
+    @DisplayName("Ends unterminated literals at the end of the line")
+    void shouldCloseLiteral_whenLineEnds() {
+        String content = """
+                printf("unterminated /*
+                /* a comment */
+                printf("escaped line end \\
+                // another comment
+                """;
+
+        assertEquals(2, commentLines("strings.c", content));
+    }
+
+    @Test
+    @DisplayName("Handles multi-line strings of other C-family languages")
+    void shouldSkipMultiLineStrings_whenLanguageHasThem() {
+        String goSource = """
+                var query = `
+                // inside a raw string
+                /* also inside`
+                /* a comment */
+                """;
+        String kotlinSource = """
+                val s = \"""/* nested /* text */\"""
+                /* outer /* inner */ still outer
+                */
+                """;
+        String pythonSource = """
+                doc = \"""
+                # not a comment
+                \"""
+                # a comment
+                """;
+
+        assertEquals(1, commentLines("query.go", goSource));
+        assertEquals(2, commentLines("Text.kt", kotlinSource));
+        assertEquals(1, commentLines("doc.py", pythonSource));
+    }
+
+    @Test
+    @DisplayName("Counts the same lines with CRLF terminators")
+    void shouldLexLines_whenTerminatorsAreCrLf() {
+        String content = "int a; /* open\r\nstill open */ int b;\r\n\r\nString s = \"/*\";\r\n// done\r\n";
+
+        FileStatistics stats = count("Crlf.java", content);
+
+        assertEquals(5, stats.totalLines());
+        assertEquals(4, stats.nonEmptyLines());
+        assertEquals(2, stats.commentLines());
+    }
+
+    @Test
+    @DisplayName("Carries lexer state between ranges counted separately")
+    void shouldCarryState_whenContentIsCountedInRanges() {
+        String content = """
+                String s = \"""
+                    /* text */
+                    \"""; int a; /*
+                comment
+                */
+                """;
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        CommentDefinition definition = commentAnalyzer.getDefinition(Path.of("Ranges.java"));
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+
+        long commentLines = 0;
+        AnalysisState state = new AnalysisState();
+        int lineStart = 0;
+        for (int i = 0; i < bytes.length; i++) {
+            if (bytes[i] == '\n') {
+                commentLines += lineCounter.count(buffer, lineStart, i + 1, definition, state).commentLines();
+                lineStart = i + 1;
+            }
+        }
+
+        assertEquals(2, commentLines);
+        assertEquals(commentLines, count("Ranges.java", content).commentLines());
+    }
+
+    @Test
+    @DisplayName("Rejects tokens spanning lines")
+    void shouldRejectSyntax_whenTokenContainsLineTerminator() {
+        assertThrows(IllegalArgumentException.class, () -> new CommentSyntax(
+                "broken", List.of("x"), List.of("#\n"), List.of(), false, List.of(), List.of()));
+    }
+
+    private long commentLines(String fileName, String content) {
+        return count(fileName, content).commentLines();
+    }
+
+    private FileStatistics count(String fileName, String content) {
+        ByteBuffer buffer = ByteBuffer.wrap(content.getBytes(StandardCharsets.UTF_8));
+        return lineCounter.count(buffer, commentAnalyzer.getDefinition(Path.of(fileName)));
+    }
+}
@@ -0,0 +1,67 @@
+package dev.zux13.filestatistics.benchmark;
+
+import dev.zux13.filestatistics.analysis.CommentAnalyzer;
+import dev.zux13.filestatistics.analysis.ContentDeduplicator;
+import dev.zux13.filestatistics.analysis.FileAnalyzer;
+import dev.zux13.filestatistics.analysis.model.FileStatistics;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link FileAnalyzer#analyzeFile} end to end, including opening and reading the
+ * file, over Java sources of different size, line length and comment density.
+ * {@code analyzeDuplicate} measures a file whose content {@code --dedup} has already seen:
+ * the read and the hash without the count.
+ * <p>
+ * Run with {@code mvn -Pbenchmark test -Dbenchmark=AnalyzeFileBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AnalyzeFileBenchmark {
+
+    @Param({"4096", "65536", "1048576"})
+    private int fileSize;
+
+    @Param({"16", "80", "240"})
+    private int lineLength;
+
+    @Param({"0.0", "0.3", "0.8"})
+    private double commentDensity;
+
+    private Path file;
+    private FileAnalyzer analyzer;
+    private FileAnalyzer deduplicatingAnalyzer;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = Files.createTempFile("analyze-file-benchmark", ".java");
+        Files.write(file, SourceGenerator.generate("java", fileSize, lineLength, commentDensity, 42));
+        analyzer = new FileAnalyzer(new CommentAnalyzer());
+        deduplicatingAnalyzer = new FileAnalyzer(new CommentAnalyzer(), FileAnalyzer.DEFAULT_MMAP_THRESHOLD,
+                new ContentDeduplicator());
+        deduplicatingAnalyzer.analyzeFile(file);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public FileStatistics analyzeFile() throws IOException {
+        return analyzer.analyzeFile(file);
+    }
+
+    @Benchmark
+    public FileStatistics analyzeDuplicate() throws IOException {
+        return deduplicatingAnalyzer.analyzeFile(file);
+    }
+}
@@ -0,0 +1,87 @@
+package dev.zux13.filestatistics.benchmark;
+
+import dev.zux13.filestatistics.analysis.AnalysisState;
+import dev.zux13.filestatistics.analysis.CommentAnalyzer;
+import dev.zux13.filestatistics.analysis.definition.CommentDefinition;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures each {@link CommentDefinition} alone: the first non-whitespace byte of every line
+ * is found up front, so one operation is the {@code scanLine} calls for every line of 256 KiB
+ * of source. The default definition only searches for line terminators, so the difference to
+ * it is the cost of lexing. The Java source is used for the default definition.
+ * <p>
+ * Run with {@code mvn -Pbenchmark test -Dbenchmark=CommentDefinitionBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommentDefinitionBenchmark {
+
+    private static final int CONTENT_SIZE = 256 * 1024;
+
+    @Param({"java", "bash", "default"})
+    private String definitionName;
+
+    @Param({"16", "80", "240"})
+    private int lineLength;
+
+    @Param({"0.0", "0.3", "0.8"})
+    private double commentDensity;
+
+    private CommentDefinition definition;
+    private ByteBuffer content;
+    private int[] textStarts;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        String extension = switch (definitionName) {
+            case "java" -> "java";
+            case "bash" -> "sh";
+            default -> "txt";
+        };
+        definition = new CommentAnalyzer().getDefinition(Path.of("Sample." + extension));
+        String language = definitionName.equals("bash") ? "bash" : "java";
+        byte[] bytes = SourceGenerator.generate(language, CONTENT_SIZE, lineLength, commentDensity, 42);
+        content = ByteBuffer.wrap(bytes);
+        findLines(bytes);
+    }
+
+    private void findLines(byte[] bytes) {
+        textStarts = new int[bytes.length];
+        int lines = 0;
+        int lineStart = 0;
+        for (int i = 0; i <= bytes.length; i++) {
+            if (i == bytes.length || bytes[i] == '\n') {
+                int textStart = lineStart;
+                while (textStart < i && (bytes[textStart] == ' ' || bytes[textStart] == '\t')) {
+                    textStart++;
+                }
+                textStarts[lines++] = textStart;
+                lineStart = i + 1;
+            }
+        }
+        textStarts = Arrays.copyOf(textStarts, lines);
+    }
+
+    @Benchmark
+    public int scanLines() {
+        AnalysisState state = new AnalysisState();
+        int limit = content.limit();
+        int comments = 0;
+        for (int textStart : textStarts) {
+            if (definition.scanLine(content, textStart, limit, state) < 0) {
+                comments++;
+            }
+        }
+        return comments;
+    }
+}
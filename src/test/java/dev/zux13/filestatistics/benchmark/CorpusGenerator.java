@@ -0,0 +1,139 @@
+package dev.zux13.filestatistics.benchmark;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+
+/**
+ * Generates a reproducible source tree for end-to-end measurements: the same spec always
+ * yields byte-identical files at the same paths.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public class CorpusGenerator {
+
+    private static final int FILES_PER_DIRECTORY = 32;
+    private static final int MIN_FILE_SIZE = 256;
+    private static final int MAX_FILE_SIZE = 64 * 1024;
+    private static final String GITIGNORE_RULES = "*.log\nbuild/\n";
+
+    /**
+     * @param extensionWeights relative frequency of each source extension, e.g. {@code java=5, sh=1}
+     * @param binaryFraction   share of files with binary content
+     * @param ignoredFraction  share of files matched by a nested {@code .gitignore}, either as
+     *                         {@code *.log} files or inside an ignored {@code build/} directory
+     */
+    public record Spec(int fileCount, int maxDepth, Map<String, Integer> extensionWeights,
+                       double commentDensity, double binaryFraction, double ignoredFraction, long seed) {
+
+        public Spec {
+            extensionWeights = new TreeMap<>(extensionWeights);
+        }
+    }
+
+    public static Path generate(Spec spec) throws IOException {
+        return generate(spec, Files.createTempDirectory("file-stats-corpus"));
+    }
+
+    public static Path generate(Spec spec, Path root) throws IOException {
+        SplittableRandom random = new SplittableRandom(spec.seed());
+        List<Path> directories = createDirectories(spec, root, random);
+        List<String> extensions = weightedExtensions(spec.extensionWeights());
+
+        for (int i = 0; i < spec.fileCount(); i++) {
+            Path directory = directories.get(random.nextInt(directories.size()));
+            int size = fileSize(random);
+            double roll = random.nextDouble();
+
+            if (roll < spec.binaryFraction()) {
+                Files.write(directory.resolve("blob" + i + ".bin"), binaryContent(size, random));
+            } else if (roll < spec.binaryFraction() + spec.ignoredFraction()) {
+                writeIgnoredFile(directory, i, size, random);
+            } else {
+                String extension = extensions.get(random.nextInt(extensions.size()));
+                byte[] content = SourceGenerator.generate(language(extension), size,
+                        20 + random.nextInt(100), spec.commentDensity(), random.nextLong());
+                Files.write(directory.resolve("file" + i + "." + extension), content);
+            }
+        }
+        return root;
+    }
+
+    private static List<Path> createDirectories(Spec spec, Path root, SplittableRandom random) throws IOException {
+        int directoryCount = Math.max(1, spec.fileCount() / FILES_PER_DIRECTORY);
+        List<Path> directories = new ArrayList<>(directoryCount);
+        List<Integer> depths = new ArrayList<>(directoryCount);
+        directories.add(root);
+        depths.add(0);
+
+        for (int i = 1; i < directoryCount; i++) {
+            int parent = random.nextInt(directories.size());
+            if (depths.get(parent) >= spec.maxDepth()) {
+                parent = 0;
+            }
+            directories.add(Files.createDirectory(directories.get(parent).resolve("dir" + i)));
+            depths.add(depths.get(parent) + 1);
+        }
+        return directories;
+    }
+
+    private static void writeIgnoredFile(Path directory, int index, int size, SplittableRandom random) throws IOException {
+        Path gitIgnore = directory.resolve(".gitignore");
+        if (!Files.exists(gitIgnore)) {
+            Files.writeString(gitIgnore, GITIGNORE_RULES);
+        }
+
+        byte[] content = SourceGenerator.generate("plain", size, 80, 0, random.nextLong());
+        if (random.nextBoolean()) {
+            Files.write(directory.resolve("trace" + index + ".log"), content);
+        } else {
+            Path build = Files.createDirectories(directory.resolve("build"));
+            Files.write(build.resolve("Generated" + index + ".java"), content);
+        }
+    }
+
+    private static List<String> weightedExtensions(Map<String, Integer> weights) {
+        List<String> extensions = new ArrayList<>();
+        weights.forEach((extension, weight) -> {
+            for (int i = 0; i < weight; i++) {
+                extensions.add(extension);
+            }
+        });
+        if (extensions.isEmpty()) {
+            throw new IllegalArgumentException("At least one extension needs a positive weight");
+        }
+        return extensions;
+    }
+
+    private static String language(String extension) {
+        return switch (extension) {
+            case "java" -> "java";
+            case "sh", "bash" -> "bash";
+            default -> "plain";
+        };
+    }
+
+    /**
+     * Log-uniform between {@link #MIN_FILE_SIZE} and {@link #MAX_FILE_SIZE}, so small files dominate as in real trees.
+     */
+    private static int fileSize(SplittableRandom random) {
+        double exponent = random.nextDouble(Math.log(MIN_FILE_SIZE), Math.log(MAX_FILE_SIZE));
+        return (int) Math.exp(exponent);
+    }
+
+    private static byte[] binaryContent(int size, SplittableRandom random) {
+        byte[] content = new byte[size];
+        for (int i = 0; i < size; i++) {
+            content[i] = (byte) random.nextInt(256);
+        }
+        content[0] = 0;
+        return content;
+    }
+}
@@ -0,0 +1,82 @@
+package dev.zux13.filestatistics.benchmark;
+
+import dev.zux13.filestatistics.analysis.CommentAnalyzer;
+import dev.zux13.filestatistics.analysis.FileAnalyzer;
+import dev.zux13.filestatistics.analysis.model.AnalysisResult;
+import dev.zux13.filestatistics.processing.AnalysisService;
+import dev.zux13.filestatistics.processing.FileTaskRunner;
+import dev.zux13.filestatistics.processing.TaskRunnerFactory;
+import dev.zux13.filestatistics.scan.model.IgnoredFilesStats;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares platform thread pools with one virtual thread per file on a warm and a cold
+ * page cache. The cold case drops the Linux page cache before every iteration and
+ * therefore needs root; the virtual executor needs Java 21+.
+ * <p>
+ * Run with {@code JAVA_HOME=<jdk21> mvn -Pbenchmark test -Dbenchmark=ExecutorBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ExecutorBenchmark {
+
+    private static final int FILE_COUNT = 2_000;
+    private static final int FILE_SIZE = 16 * 1024;
+    private static final Path DROP_CACHES = Path.of("/proc/sys/vm/drop_caches");
+
+    @Param({"platform-1", "platform-8", "virtual"})
+    private String executor;
+
+    @Param({"warm", "cold"})
+    private String cache;
+
+    private Path corpus;
+    private List<Path> files;
+    private AnalysisService analysisService;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        corpus = Files.createTempDirectory("executor-benchmark");
+        files = new ArrayList<>(FILE_COUNT);
+
+        byte[] content = "int value = 1; // comment\n".repeat(FILE_SIZE / 26).getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i < FILE_COUNT; i++) {
+            files.add(Files.write(corpus.resolve("File" + i + ".java"), content));
+        }
+
+        String[] parts = executor.split("-");
+        int numThreads = parts.length > 1 ? Integer.parseInt(parts[1]) : 1;
+        FileTaskRunner runner = TaskRunnerFactory.createRunner(parts[0], numThreads, 256);
+        analysisService = new AnalysisService(runner, new FileAnalyzer(new CommentAnalyzer()), null);
+    }
+
+    @Setup(Level.Iteration)
+    public void prepareCache() throws IOException, InterruptedException {
+        if (cache.equals("cold")) {
+            new ProcessBuilder("sync").inheritIO().start().waitFor();
+            Files.writeString(DROP_CACHES, "1");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        TreeGenerator.delete(corpus);
+    }
+
+    @Benchmark
+    public AnalysisResult processFiles() {
+        return analysisService.processFiles(files, new IgnoredFilesStats());
+    }
+}
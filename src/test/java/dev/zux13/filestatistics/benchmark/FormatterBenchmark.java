@@ -0,0 +1,61 @@
+package dev.zux13.filestatistics.benchmark;
+
+import dev.zux13.filestatistics.analysis.StatisticsAggregator;
+import dev.zux13.filestatistics.analysis.model.ExtensionStatistics;
+import dev.zux13.filestatistics.analysis.model.FileStatistics;
+import dev.zux13.filestatistics.output.FormatterFactory;
+import dev.zux13.filestatistics.output.formatter.OutputFormatter;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.CharArrayWriter;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures each {@link OutputFormatter} rendering a report with {@code extensionCount}
+ * extensions into a reused in-memory writer.
+ * <p>
+ * Run with {@code mvn -Pbenchmark test -Dbenchmark=FormatterBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FormatterBenchmark {
+
+    @Param({"plain", "json", "xml"})
+    private String format;
+
+    @Param({"5", "50", "500"})
+    private int extensionCount;
+
+    private OutputFormatter formatter;
+    private StatisticsAggregator aggregator;
+    private final CharArrayWriter writer = new CharArrayWriter();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        formatter = FormatterFactory.createFormatter(format);
+
+        Map<String, ExtensionStatistics> statistics = new HashMap<>();
+        for (int i = 0; i < extensionCount; i++) {
+            ExtensionStatistics extensionStatistics = new ExtensionStatistics();
+            extensionStatistics.addTotals(1000L + i, new FileStatistics(1_000_000L * i, 40_000L * i, 30_000L * i, 5_000L * i));
+            statistics.put("ext" + i, extensionStatistics);
+        }
+
+        aggregator = new StatisticsAggregator();
+        aggregator.setStatisticsByExtension(statistics);
+    }
+
+    @Benchmark
+    public int format() throws IOException {
+        writer.reset();
+        formatter.write(aggregator, writer);
+        return writer.size();
+    }
+}
@@ -0,0 +1,75 @@
+package dev.zux13.filestatistics.benchmark;
+
+import dev.zux13.filestatistics.scan.GitIgnoreManager;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures ignore decisions for files {@code depth} directories below the root, with a
+ * {@code .gitignore} at the root and at every level. {@code shouldBeIgnored} pays a
+ * {@code stat} per file to learn whether it is a directory; {@code isIgnored} is the variant
+ * walkers use. Reported per file.
+ * <p>
+ * Run with {@code mvn -Pbenchmark test -Dbenchmark=GitIgnoreBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GitIgnoreBenchmark {
+
+    private static final int FILE_COUNT = 1000;
+    private static final String[] EXTENSIONS = {"java", "log", "bak", "tmp", "xml"};
+
+    @Param({"1", "4", "8"})
+    private int depth;
+
+    @Param({"shouldBeIgnored", "isIgnored"})
+    private String method;
+
+    private Path root;
+    private Path[] files;
+    private GitIgnoreManager manager;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        root = Files.createTempDirectory("git-ignore-benchmark");
+        Files.writeString(root.resolve(".gitignore"), "*.log\n!important.log\nbuild/\n/*.tmp\n**/generated/**\n");
+
+        Path directory = root;
+        for (int level = 1; level < depth; level++) {
+            directory = Files.createDirectory(directory.resolve("level" + level));
+            Files.writeString(directory.resolve(".gitignore"), "*.bak\n!keep" + level + ".bak\n");
+        }
+
+        files = new Path[FILE_COUNT];
+        for (int i = 0; i < FILE_COUNT; i++) {
+            files[i] = Files.createFile(directory.resolve("file" + i + "." + EXTENSIONS[i % EXTENSIONS.length]));
+        }
+        manager = new GitIgnoreManager(root);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        TreeGenerator.delete(root);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FILE_COUNT)
+    public int ignoredFiles() {
+        boolean checkDirectory = method.equals("shouldBeIgnored");
+        int ignored = 0;
+        for (Path file : files) {
+            if (checkDirectory ? manager.shouldBeIgnored(file) : manager.isIgnored(file, false)) {
+                ignored++;
+            }
+        }
+        return ignored;
+    }
+}
@@ -0,0 +1,63 @@
+package dev.zux13.filestatistics.benchmark;
+
+import dev.zux13.filestatistics.analysis.CommentAnalyzer;
+import dev.zux13.filestatistics.analysis.LineCounter;
+import dev.zux13.filestatistics.analysis.definition.CommentDefinition;
+import dev.zux13.filestatistics.analysis.model.FileStatistics;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the in-memory counting pass of the comment analysis: line splitting, blank
+ * detection and the comment definition together, without any I/O. One operation counts
+ * 1 MiB of source with the scalar kernel or the Vector API one; the forks add the incubator
+ * module so both are available. Results vary by a quarter between JVM runs on a busy
+ * machine, so three forks are measured and the reported error covers that spread.
+ * <p>
+ * Run with {@code mvn -Pbenchmark test -Dbenchmark=LineCounterBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 3, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class LineCounterBenchmark {
+
+    private static final int CONTENT_SIZE = 1024 * 1024;
+
+    @Param({"scalar", "vector"})
+    private String kernel;
+
+    @Param({"java", "bash", "plain"})
+    private String language;
+
+    @Param({"16", "80", "240"})
+    private int lineLength;
+
+    @Param({"0.0", "0.3", "0.8"})
+    private double commentDensity;
+
+    private ByteBuffer content;
+    private CommentDefinition definition;
+    private LineCounter lineCounter;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        content = ByteBuffer.wrap(SourceGenerator.generate(language, CONTENT_SIZE, lineLength, commentDensity, 42));
+        String extension = language.equals("bash") ? "sh" : language.equals("java") ? "java" : "txt";
+        definition = new CommentAnalyzer().getDefinition(Path.of("Sample." + extension));
+        lineCounter = kernel.equals("vector") ? LineCounter.create() : new LineCounter();
+        if (kernel.equals("vector") && lineCounter.getClass() == LineCounter.class) {
+            throw new IllegalStateException("Vector kernel is not available");
+        }
+    }
+
+    @Benchmark
+    public FileStatistics count() {
+        return lineCounter.count(content, definition);
+    }
+}
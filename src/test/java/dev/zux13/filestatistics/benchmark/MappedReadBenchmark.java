@@ -0,0 +1,74 @@
+package dev.zux13.filestatistics.benchmark;
+
+import dev.zux13.filestatistics.analysis.CommentAnalyzer;
+import dev.zux13.filestatistics.analysis.FileAnalyzer;
+import dev.zux13.filestatistics.analysis.model.FileStatistics;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the buffered and memory-mapped read paths of {@link FileAnalyzer}
+ * over files of growing size to locate the crossover point used as the
+ * default {@code --mmap-threshold}.
+ * <p>
+ * Run with {@code mvn -Pbenchmark test -Dbenchmark=MappedReadBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MappedReadBenchmark {
+
+    private static final String SAMPLE_LINES = """
+            /*
+             * Generated block comment
+             */
+            public final class Generated {
+                // single line comment
+                private final long value = 42L;
+
+                public long value() { return value; }
+            }
+            """;
+
+    @Param({"65536", "1048576", "4194304", "8388608", "16777216", "67108864"})
+    private int fileSize;
+
+    @Param({"buffered", "mapped"})
+    private String mode;
+
+    private Path file;
+    private FileAnalyzer analyzer;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        byte[] sample = SAMPLE_LINES.getBytes(StandardCharsets.UTF_8);
+        byte[] content = new byte[fileSize];
+        for (int i = 0; i < fileSize; i += sample.length) {
+            System.arraycopy(sample, 0, content, i, Math.min(sample.length, fileSize - i));
+        }
+
+        file = Files.createTempFile("mapped-read-benchmark", ".java");
+        Files.write(file, content);
+
+        long threshold = mode.equals("mapped") ? 0 : Long.MAX_VALUE;
+        analyzer = new FileAnalyzer(new CommentAnalyzer(), threshold);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public FileStatistics analyzeFile() throws IOException {
+        return analyzer.analyzeFile(file);
+    }
+}
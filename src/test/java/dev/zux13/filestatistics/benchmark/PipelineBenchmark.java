@@ -0,0 +1,243 @@
+package dev.zux13.filestatistics.benchmark;
+
+import dev.zux13.filestatistics.analysis.CommentAnalyzer;
+import dev.zux13.filestatistics.analysis.FileAnalyzer;
+import dev.zux13.filestatistics.analysis.StatisticsAggregator;
+import dev.zux13.filestatistics.analysis.model.AnalysisResult;
+import dev.zux13.filestatistics.cli.Config;
+import dev.zux13.filestatistics.cli.TestConfigs;
+import dev.zux13.filestatistics.output.FormatterFactory;
+import dev.zux13.filestatistics.processing.AnalysisService;
+import dev.zux13.filestatistics.processing.TaskRunnerFactory;
+import dev.zux13.filestatistics.scan.FileScanner;
+import dev.zux13.filestatistics.scan.GitIgnoreManager;
+import dev.zux13.filestatistics.scan.model.IgnoredFilesStats;
+import dev.zux13.filestatistics.scan.model.ScannedFile;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Runs the whole {@code Main} pipeline — scan, analysis and formatting — over a generated
+ * corpus at each thread count and prints the scaling curve. Every stage is also timed on its
+ * own: {@code scan} only lists files, {@code analyze} processes the listed paths, and
+ * {@code pipeline} streams scan into analysis and formats the result as {@code Main} does.
+ * Throughput is derived from the pipeline median. Files stay in the page cache between
+ * iterations, so the numbers describe a warm tree.
+ * <p>
+ * Options, all {@code --key=value}: {@code files}, {@code depth}, {@code extensions}
+ * ({@code java:5,sh:1,txt:2}), {@code comment-density}, {@code binary-fraction},
+ * {@code ignored-fraction}, {@code seed}, {@code threads} ({@code 1,2,4,8}),
+ * {@code scan-threads}, {@code executor}, {@code format}, {@code warmup}, {@code iterations}
+ * and {@code corpus} to reuse a directory instead of generating a temporary one.
+ * <p>
+ * Run with {@code mvn -Ppipeline-benchmark test -Dpipeline="--files=20000 --threads=1,2,4"}.
+ */
+public class PipelineBenchmark {
+
+    private static final Map<String, String> DEFAULTS = Map.ofEntries(
+            Map.entry("files", "20000"),
+            Map.entry("depth", "6"),
+            Map.entry("extensions", "java:5,sh:1,txt:2,xml:1"),
+            Map.entry("comment-density", "0.3"),
+            Map.entry("binary-fraction", "0.05"),
+            Map.entry("ignored-fraction", "0.1"),
+            Map.entry("seed", "42"),
+            Map.entry("threads", "1,2,4,8"),
+            Map.entry("scan-threads", "1"),
+            Map.entry("executor", "platform"),
+            Map.entry("format", "plain"),
+            Map.entry("warmup", "2"),
+            Map.entry("iterations", "5"));
+
+    private final Map<String, String> options;
+
+    private PipelineBenchmark(Map<String, String> options) {
+        this.options = options;
+    }
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = new HashMap<>(DEFAULTS);
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --key=value, got: " + arg);
+            }
+            String key = arg.substring(2, arg.indexOf('='));
+            if (!DEFAULTS.containsKey(key) && !key.equals("corpus")) {
+                throw new IllegalArgumentException("Unknown option: " + key);
+            }
+            options.put(key, arg.substring(arg.indexOf('=') + 1));
+        }
+        new PipelineBenchmark(options).run();
+    }
+
+    private void run() throws IOException {
+        Path corpus = options.containsKey("corpus") ? Path.of(options.get("corpus")) : null;
+        boolean temporary = corpus == null;
+        if (temporary || isEmptyDirectory(corpus)) {
+            long start = System.nanoTime();
+            corpus = temporary
+                    ? CorpusGenerator.generate(corpusSpec())
+                    : CorpusGenerator.generate(corpusSpec(), corpus);
+            System.out.printf("Generated %s in %d ms%n", corpus, millisSince(start));
+        }
+
+        try {
+            measure(corpus);
+        } finally {
+            if (temporary) {
+                TreeGenerator.delete(corpus);
+            }
+        }
+    }
+
+    private void measure(Path corpus) throws IOException {
+        List<ScannedFile> files = scan(config(corpus, 1));
+        long bytes = 0;
+        for (ScannedFile file : files) {
+            bytes += file.size();
+        }
+        System.out.printf("Corpus: %d files, %.1f MB after ignore rules; median of %s iterations%n%n",
+                files.size(), bytes / 1e6, options.get("iterations"));
+        System.out.printf("%7s %9s %11s %10s %12s %10s %8s %8s%n",
+                "threads", "scan ms", "analyze ms", "format ms", "pipeline ms", "files/s", "MB/s", "speedup");
+
+        double baseline = 0;
+        for (String value : options.get("threads").split(",")) {
+            int threads = Integer.parseInt(value.trim());
+            Config config = config(corpus, threads);
+            Map<String, long[]> timings = timeStages(config, files);
+
+            double pipelineSeconds = median(timings.get("pipeline")) / 1e9;
+            if (baseline == 0) {
+                baseline = pipelineSeconds;
+            }
+            System.out.printf("%7d %9.1f %11.1f %10.2f %12.1f %10.0f %8.1f %7.2fx%n",
+                    threads,
+                    median(timings.get("scan")) / 1e6,
+                    median(timings.get("analyze")) / 1e6,
+                    median(timings.get("format")) / 1e6,
+                    pipelineSeconds * 1e3,
+                    files.size() / pipelineSeconds,
+                    bytes / 1e6 / pipelineSeconds,
+                    baseline / pipelineSeconds);
+        }
+    }
+
+    private Map<String, long[]> timeStages(Config config, List<ScannedFile> files) throws IOException {
+        int warmup = Integer.parseInt(options.get("warmup"));
+        int iterations = Integer.parseInt(options.get("iterations"));
+        Map<String, long[]> timings = new LinkedHashMap<>();
+        for (String stage : List.of("scan", "analyze", "format", "pipeline")) {
+            timings.put(stage, new long[iterations]);
+        }
+
+        for (int i = -warmup; i < iterations; i++) {
+            long start = System.nanoTime();
+            scan(config);
+            long scanned = System.nanoTime();
+            AnalysisResult result = analysisService(config).processFiles(files::forEach, new IgnoredFilesStats());
+            long analyzed = System.nanoTime();
+            format(config, result);
+            long formatted = System.nanoTime();
+            pipeline(config);
+            long finished = System.nanoTime();
+
+            if (i >= 0) {
+                timings.get("scan")[i] = scanned - start;
+                timings.get("analyze")[i] = analyzed - scanned;
+                timings.get("format")[i] = formatted - analyzed;
+                timings.get("pipeline")[i] = finished - formatted;
+            }
+        }
+        return timings;
+    }
+
+    private List<ScannedFile> scan(Config config) throws IOException {
+        ConcurrentLinkedQueue<ScannedFile> files = new ConcurrentLinkedQueue<>();
+        scanner(config).scanFiles(files::add, new IgnoredFilesStats());
+        return new ArrayList<>(files);
+    }
+
+    private void pipeline(Config config) throws IOException {
+        FileScanner scanner = scanner(config);
+        IgnoredFilesStats ignoredFilesStats = new IgnoredFilesStats();
+        AnalysisResult result = analysisService(config)
+                .processFiles(sink -> scanner.scanFiles(sink, ignoredFilesStats), ignoredFilesStats);
+        format(config, result);
+    }
+
+    private void format(Config config, AnalysisResult result) throws IOException {
+        StatisticsAggregator aggregator = new StatisticsAggregator();
+        aggregator.setStatisticsByExtension(result.extensionStatistics());
+        FormatterFactory.createFormatter(config.outputFormat()).write(aggregator, Writer.nullWriter());
+    }
+
+    private FileScanner scanner(Config config) {
+        return new FileScanner(config, new GitIgnoreManager(config.path()));
+    }
+
+    private AnalysisService analysisService(Config config) {
+        return new AnalysisService(
+                TaskRunnerFactory.createRunner(config.executor(), config.numThreads(), config.maxConcurrency()),
+                new FileAnalyzer(new CommentAnalyzer(), config.mmapThreshold()),
+                null);
+    }
+
+    private Config config(Path corpus, int threads) {
+        return TestConfigs.defaults(corpus)
+                .recursive(true)
+                .numThreads(threads)
+                .executor(options.get("executor"))
+                .maxConcurrency(threads)
+                .scanThreads(Integer.parseInt(options.get("scan-threads")))
+                .useGitIgnore(true)
+                .outputFormat(options.get("format"))
+                .build();
+    }
+
+    private CorpusGenerator.Spec corpusSpec() {
+        Map<String, Integer> extensionWeights = new HashMap<>();
+        for (String entry : options.get("extensions").split(",")) {
+            String[] parts = entry.trim().split(":");
+            extensionWeights.put(parts[0], parts.length > 1 ? Integer.parseInt(parts[1]) : 1);
+        }
+        return new CorpusGenerator.Spec(
+                Integer.parseInt(options.get("files")),
+                Integer.parseInt(options.get("depth")),
+                extensionWeights,
+                Double.parseDouble(options.get("comment-density")),
+                Double.parseDouble(options.get("binary-fraction")),
+                Double.parseDouble(options.get("ignored-fraction")),
+                Long.parseLong(options.get("seed")));
+    }
+
+    private static boolean isEmptyDirectory(Path directory) throws IOException {
+        if (!Files.exists(directory)) {
+            Files.createDirectories(directory);
+            return true;
+        }
+        try (var entries = Files.list(directory)) {
+            return entries.findAny().isEmpty();
+        }
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    private static long millisSince(long start) {
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+}
@@ -0,0 +1,59 @@
+package dev.zux13.filestatistics.benchmark;
+
+import dev.zux13.filestatistics.cli.Config;
+import dev.zux13.filestatistics.cli.TestConfigs;
+import dev.zux13.filestatistics.scan.FileScanner;
+import dev.zux13.filestatistics.scan.model.IgnoredFilesStats;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures how directory enumeration in {@link FileScanner} scales with {@code --scan-threads}
+ * over a synthetic tree. Generating the default million files takes a while; use
+ * {@code -p fileCount=...} for quicker runs.
+ * <p>
+ * Run with {@code mvn -Pbenchmark test -Dbenchmark=ScanBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ScanBenchmark {
+
+    @Param({"1000000"})
+    private int fileCount;
+
+    @Param({"1", "2", "4", "8", "16"})
+    private int scanThreads;
+
+    private Path root;
+    private FileScanner scanner;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        root = TreeGenerator.generate(fileCount, 100, 16, new byte[0]);
+        Config config = TestConfigs.defaults(root)
+                .recursive(true)
+                .scanThreads(scanThreads)
+                .build();
+        scanner = new FileScanner(config, null);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        TreeGenerator.delete(root);
+    }
+
+    @Benchmark
+    public long scanFiles() throws IOException {
+        LongAdder found = new LongAdder();
+        scanner.scanFiles(path -> found.increment(), new IgnoredFilesStats());
+        return found.sum();
+    }
+}
@@ -0,0 +1,65 @@
+package dev.zux13.filestatistics.benchmark;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public class SourceGenerator {
+
+    private static final String IDENTIFIER_CHARS = "abcdefghijklmnopqrstuvwxyz_ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789 (){};=+.,";
+    private static final double BLANK_LINE_FRACTION = 0.05;
+
+    /**
+     * Builds {@code size} bytes of deterministic source text in the comment syntax of
+     * {@code language} ({@code java}, {@code bash} or {@code plain}). Lines are about
+     * {@code lineLength} characters long and roughly a {@code commentDensity} fraction of
+     * them are comments; Java comments mix line comments with multi-line blocks.
+     */
+    public static byte[] generate(String language, int size, int lineLength, double commentDensity, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        StringBuilder text = new StringBuilder(size + lineLength * 4);
+
+        while (text.length() < size) {
+            double roll = random.nextDouble();
+            if (roll < BLANK_LINE_FRACTION) {
+                text.append('\n');
+            } else if (roll < BLANK_LINE_FRACTION + commentDensity && !language.equals("plain")) {
+                appendComment(text, language, lineLength, random);
+            } else {
+                appendLine(text, "    ", lineLength, random);
+            }
+        }
+
+        byte[] content = new byte[size];
+        System.arraycopy(text.toString().getBytes(StandardCharsets.UTF_8), 0, content, 0, size);
+        return content;
+    }
+
+    private static void appendComment(StringBuilder text, String language, int lineLength, SplittableRandom random) {
+        if (language.equals("bash")) {
+            appendLine(text, "# ", lineLength, random);
+        } else if (random.nextInt(4) == 0) {
+            appendLine(text, "/* ", lineLength, random);
+            appendLine(text, " * ", lineLength, random);
+            appendLine(text, " * ", lineLength - 3, random, " */");
+        } else {
+            appendLine(text, "// ", lineLength, random);
+        }
+    }
+
+    private static void appendLine(StringBuilder text, String prefix, int lineLength, SplittableRandom random) {
+        appendLine(text, prefix, lineLength, random, "");
+    }
+
+    private static void appendLine(StringBuilder text, String prefix, int lineLength,
+                                   SplittableRandom random, String suffix) {
+        text.append(prefix);
+        for (int i = prefix.length(); i < lineLength; i++) {
+            text.append(IDENTIFIER_CHARS.charAt(random.nextInt(IDENTIFIER_CHARS.length())));
+        }
+        text.append(suffix).append('\n');
+    }
+}
@@ -0,0 +1,191 @@
+package dev.zux13.filestatistics.benchmark;
+
+import dev.zux13.filestatistics.Main;
+import dev.zux13.filestatistics.RunResources;
+import dev.zux13.filestatistics.analysis.StatisticsAggregator;
+import dev.zux13.filestatistics.analysis.model.ExtensionStatistics;
+import dev.zux13.filestatistics.analysis.model.FileStatistics;
+import dev.zux13.filestatistics.output.FormatterFactory;
+import dev.zux13.filestatistics.output.dto.ExtensionStatDto;
+import dev.zux13.filestatistics.output.formatter.OutputFormatter;
+import org.openjdk.jmh.annotations.*;
+import tools.jackson.core.JsonGenerator;
+import tools.jackson.core.StreamWriteFeature;
+import tools.jackson.databind.ObjectMapper;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.CharArrayWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Measures what the first report costs in a fresh JVM, where class loading and static
+ * initialization dominate. Every measurement runs once in a fork of its own.
+ * <p>
+ * {@code firstReport} renders a small report with each formatter. {@code jackson-json} and
+ * {@code stax-xml} are the library-backed writers the hand-written {@code json} and
+ * {@code xml} formatters replaced, kept here as the baseline. {@code firstRun} runs
+ * {@code Main} over a small tree and writes the report to a file.
+ * <p>
+ * Run with {@code mvn -Pbenchmark test -Dbenchmark=StartupBenchmark -Dbenchmark.profilers=}.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(20)
+public class StartupBenchmark {
+
+    private static final int FILES = 50;
+
+    @State(Scope.Benchmark)
+    public static class ReportState {
+
+        @Param({"plain", "json", "xml", "jackson-json", "stax-xml"})
+        private String format;
+
+        private StatisticsAggregator aggregator;
+        private final CharArrayWriter writer = new CharArrayWriter();
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            Map<String, ExtensionStatistics> statistics = new HashMap<>();
+            for (String extension : new String[]{"java", "xml", "md", "sh", "txt"}) {
+                ExtensionStatistics extensionStatistics = new ExtensionStatistics();
+                extensionStatistics.addTotals(10, new FileStatistics(10_000, 400, 300, 50));
+                statistics.put(extension, extensionStatistics);
+            }
+            aggregator = new StatisticsAggregator();
+            aggregator.setStatisticsByExtension(statistics);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class RunState {
+
+        @Param({"plain", "json", "xml"})
+        private String format;
+
+        private Path directory;
+        private Path report;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            directory = Files.createTempDirectory("startup-benchmark");
+            for (int i = 0; i < FILES; i++) {
+                Files.writeString(directory.resolve("File" + i + (i % 2 == 0 ? ".java" : ".txt")),
+                        "// file " + i + "\nclass File" + i + " {\n}\n");
+            }
+            report = Files.createTempFile("startup-benchmark", ".report");
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            Files.deleteIfExists(report);
+            try (Stream<Path> files = Files.list(directory)) {
+                for (Path file : files.toList()) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(directory);
+        }
+    }
+
+    @Benchmark
+    public int firstReport(ReportState state) throws IOException {
+        OutputFormatter formatter = switch (state.format) {
+            case "jackson-json" -> new JacksonJsonFormatter();
+            case "stax-xml" -> new StaxXmlFormatter();
+            default -> FormatterFactory.createFormatter(state.format);
+        };
+        formatter.write(state.aggregator, state.writer);
+        return state.writer.size();
+    }
+
+    @Benchmark
+    public int firstRun(RunState state) {
+        String[] args = {state.directory.toString(), "--output=" + state.format, "--output-file=" + state.report};
+        return Main.execute(args, Path.of(""), RunResources.fresh());
+    }
+
+    /**
+     * The JSON formatter before it was written by hand: a Jackson generator from an
+     * {@link ObjectMapper}.
+     */
+    private static final class JacksonJsonFormatter implements OutputFormatter {
+
+        @Override
+        public void write(StatisticsAggregator aggregator, Writer writer) throws IOException {
+            try (JsonGenerator generator = new ObjectMapper().writerWithDefaultPrettyPrinter()
+                    .without(StreamWriteFeature.AUTO_CLOSE_TARGET).createGenerator(writer)) {
+                generator.writeStartObject();
+                generator.writeName("extensions");
+                generator.writeStartArray();
+                for (ExtensionStatDto extension : aggregator.getOutputStatistics().getExtensions()) {
+                    generator.writeStartObject();
+                    generator.writeNumberProperty("fileCount", extension.getFileCount());
+                    generator.writeStringProperty("name", extension.getName());
+                    generator.writeNumberProperty("totalCommentLines", extension.getTotalCommentLines());
+                    generator.writeNumberProperty("totalLines", extension.getTotalLines());
+                    generator.writeNumberProperty("totalNonEmptyLines", extension.getTotalNonEmptyLines());
+                    generator.writeNumberProperty("totalSizeInBytes", extension.getTotalSizeInBytes());
+                    generator.writeEndObject();
+                }
+                generator.writeEndArray();
+                generator.writeEndObject();
+            }
+            writer.write('\n');
+            writer.flush();
+        }
+    }
+
+    /**
+     * The XML formatter before it was written by hand: a StAX stream writer.
+     */
+    private static final class StaxXmlFormatter implements OutputFormatter {
+
+        @Override
+        public void write(StatisticsAggregator aggregator, Writer writer) throws IOException {
+            writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n");
+            try {
+                XMLStreamWriter xml = XMLOutputFactory.newFactory().createXMLStreamWriter(writer);
+                xml.writeStartElement("statistics");
+                for (ExtensionStatDto extension : aggregator.getOutputStatistics().getExtensions()) {
+                    xml.writeCharacters("\n    ");
+                    xml.writeStartElement("extension");
+                    xml.writeAttribute("name", extension.getName());
+                    writeElement(xml, "fileCount", extension.getFileCount());
+                    writeElement(xml, "totalCommentLines", extension.getTotalCommentLines());
+                    writeElement(xml, "totalLines", extension.getTotalLines());
+                    writeElement(xml, "totalNonEmptyLines", extension.getTotalNonEmptyLines());
+                    writeElement(xml, "totalSizeInBytes", extension.getTotalSizeInBytes());
+                    xml.writeCharacters("\n    ");
+                    xml.writeEndElement();
+                }
+                xml.writeCharacters("\n");
+                xml.writeEndElement();
+                xml.writeEndDocument();
+                xml.close();
+            } catch (XMLStreamException e) {
+                throw new IOException(e);
+            }
+            writer.write('\n');
+            writer.flush();
+        }
+
+        private void writeElement(XMLStreamWriter xml, String name, long value) throws XMLStreamException {
+            xml.writeCharacters("\n        ");
+            xml.writeStartElement(name);
+            xml.writeCharacters(Long.toString(value));
+            xml.writeEndElement();
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package dev.zux13.filestatistics.benchmark;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public class TreeGenerator {
+
+    /**
+     * Creates {@code fileCount} files spread over a balanced directory tree where every
+     * directory holds {@code filesPerDirectory} files and up to {@code fanOut} subdirectories.
+     */
+    public static Path generate(int fileCount, int filesPerDirectory, int fanOut, byte[] content) throws IOException {
+        Path root = Files.createTempDirectory("file-stats-tree");
+        int directoryCount = Math.max(1, (fileCount + filesPerDirectory - 1) / filesPerDirectory);
+
+        Path[] directories = new Path[directoryCount];
+        directories[0] = root;
+        for (int i = 1; i < directoryCount; i++) {
+            directories[i] = Files.createDirectory(directories[(i - 1) / fanOut].resolve("dir" + i));
+        }
+
+        for (int i = 0; i < fileCount; i++) {
+            Files.write(directories[i / filesPerDirectory].resolve("file" + i + ".java"), content);
+        }
+        return root;
+    }
+
+    public static void delete(Path root) throws IOException {
+        try (Stream<Path> walk = Files.walk(root)) {
+            for (Path path : walk.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+}
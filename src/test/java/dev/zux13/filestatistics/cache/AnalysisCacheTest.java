@@ -0,0 +1,165 @@
+package dev.zux13.filestatistics.cache;
+
+import dev.zux13.filestatistics.analysis.model.FileStatistics;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AnalysisCacheTest {
+
+    private static final FileStatistics STATS = new FileStatistics(5, 3, 2, 1);
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("Reuses saved statistics for unchanged files")
+    void shouldNotAnalyzeAgain_whenFileIsUnchanged() throws IOException {
+        Path file = Files.writeString(tempDir.resolve("a.java"), "x\ny\nz");
+        Path binary = Files.write(tempDir.resolve("b.bin"), new byte[]{0});
+        Path cacheDir = tempDir.resolve("cache");
+        AtomicInteger analyzed = new AtomicInteger();
+
+        AnalysisCache firstRun = AnalysisCache.open(cacheDir, "v1");
+        firstRun.getOrAnalyze(file, countingLoader(analyzed, STATS));
+        firstRun.getOrAnalyze(binary, countingLoader(analyzed, null));
+        firstRun.save();
+
+        AnalysisCache secondRun = AnalysisCache.open(cacheDir, "v1");
+
+        assertAll(
+                () -> assertEquals(STATS, secondRun.getOrAnalyze(file, countingLoader(analyzed, null))),
+                () -> assertNull(secondRun.getOrAnalyze(binary, countingLoader(analyzed, STATS))),
+                () -> assertEquals(2, analyzed.get()),
+                () -> assertEquals(2, secondRun.getHits())
+        );
+    }
+
+    @Test
+    @DisplayName("Analyzes files again when they were modified")
+    void shouldAnalyzeAgain_whenFileWasModified() throws IOException {
+        Path file = Files.writeString(tempDir.resolve("a.java"), "x\ny\nz");
+        Path cacheDir = tempDir.resolve("cache");
+        AtomicInteger analyzed = new AtomicInteger();
+
+        AnalysisCache firstRun = AnalysisCache.open(cacheDir, "v1");
+        firstRun.getOrAnalyze(file, countingLoader(analyzed, STATS));
+        firstRun.save();
+
+        Files.setLastModifiedTime(file, FileTime.from(Instant.now().plusSeconds(60)));
+        AnalysisCache secondRun = AnalysisCache.open(cacheDir, "v1");
+        secondRun.getOrAnalyze(file, countingLoader(analyzed, STATS));
+
+        assertEquals(2, analyzed.get());
+        assertEquals(1, secondRun.getMisses());
+    }
+
+    @Test
+    @DisplayName("Discards the cache when the analyzer fingerprint changes")
+    void shouldAnalyzeAgain_whenFingerprintChanged() throws IOException {
+        Path file = Files.writeString(tempDir.resolve("a.java"), "x\ny\nz");
+        Path cacheDir = tempDir.resolve("cache");
+        AtomicInteger analyzed = new AtomicInteger();
+
+        AnalysisCache firstRun = AnalysisCache.open(cacheDir, "v1");
+        firstRun.getOrAnalyze(file, countingLoader(analyzed, STATS));
+        firstRun.save();
+
+        AnalysisCache secondRun = AnalysisCache.open(cacheDir, "v2");
+        secondRun.getOrAnalyze(file, countingLoader(analyzed, STATS));
+
+        assertEquals(2, analyzed.get());
+    }
+
+    @Test
+    @DisplayName("Merges entries saved concurrently by another run")
+    void shouldKeepEntriesOfBothRuns_whenSavedConcurrently() throws IOException {
+        Path first = Files.writeString(tempDir.resolve("a.java"), "a");
+        Path second = Files.writeString(tempDir.resolve("b.java"), "b");
+        Path cacheDir = tempDir.resolve("cache");
+        AtomicInteger analyzed = new AtomicInteger();
+
+        AnalysisCache runA = AnalysisCache.open(cacheDir, "v1");
+        AnalysisCache runB = AnalysisCache.open(cacheDir, "v1");
+        runA.getOrAnalyze(first, countingLoader(analyzed, STATS));
+        runB.getOrAnalyze(second, countingLoader(analyzed, STATS));
+        runA.save();
+        runB.save();
+
+        AnalysisCache merged = AnalysisCache.open(cacheDir, "v1");
+        merged.getOrAnalyze(first, countingLoader(analyzed, STATS));
+        merged.getOrAnalyze(second, countingLoader(analyzed, STATS));
+
+        assertEquals(2, merged.getHits());
+    }
+
+    @Test
+    @DisplayName("Ignores a cache file whose counts or lengths are corrupted, with a warning")
+    void shouldStartEmpty_whenCacheFileIsCorrupted() throws IOException {
+        Path file = Files.writeString(tempDir.resolve("a.java"), "x\ny\nz");
+        Path cacheDir = tempDir.resolve("cache");
+        AtomicInteger analyzed = new AtomicInteger();
+        AnalysisCache firstRun = AnalysisCache.open(cacheDir, "v1");
+        firstRun.getOrAnalyze(file, countingLoader(analyzed, STATS));
+        firstRun.save();
+        Path cacheFile = cacheDir.resolve("file-stats.cache");
+        byte[] saved = Files.readAllBytes(cacheFile);
+
+        // Magic, version and the fingerprint "v1" take 12 bytes; then the count, prefix and suffix
+        int countOffset = 12;
+        byte[][] corruptions = {
+                {-1, -1, -1, -1, -1, -1, -1, -1, -1, 1},  // negative entry count
+                {1, 0x7F},                                  // prefix longer than the previous path
+                {1, 0, -1, -1, -1, 0x7F}                    // suffix of 256 MB
+        };
+        for (byte[] corruption : corruptions) {
+            byte[] corrupted = saved.clone();
+            System.arraycopy(corruption, 0, corrupted, countOffset, corruption.length);
+            Files.write(cacheFile, corrupted);
+
+            String warnings = captureStandardError(() -> {
+                AnalysisCache run = AnalysisCache.open(cacheDir, "v1");
+                run.getOrAnalyze(file, countingLoader(analyzed, STATS));
+                assertEquals(0, run.getHits());
+            });
+            assertTrue(warnings.contains("Ignoring unreadable analysis cache"), warnings);
+        }
+        assertEquals(1 + corruptions.length, analyzed.get());
+    }
+
+    private static String captureStandardError(CacheAction action) throws IOException {
+        PrintStream original = System.err;
+        ByteArrayOutputStream captured = new ByteArrayOutputStream();
+        System.setErr(new PrintStream(captured, true, StandardCharsets.UTF_8));
+        try {
+            action.run();
+        } finally {
+            System.setErr(original);
+        }
+        return captured.toString(StandardCharsets.UTF_8);
+    }
+
+    @FunctionalInterface
+    private interface CacheAction {
+        void run() throws IOException;
+    }
+
+    private FileStatisticsLoader countingLoader(AtomicInteger counter, FileStatistics result) {
+        return file -> {
+            counter.incrementAndGet();
+            return result;
+        };
+    }
+}
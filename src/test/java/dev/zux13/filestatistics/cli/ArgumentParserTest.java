@@ -1,5 +1,6 @@
 package dev.zux13.filestatistics.cli;
 
+import dev.zux13.filestatistics.analysis.FileAnalyzer;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -32,11 +33,21 @@ class ArgumentParserTest {
                 "--recursive",
                 "--max-depth=10",
                 "--thread=8",
+                "--mmap-threshold=16m",
+                "--executor=virtual",
+                "--max-concurrency=64",
+                "--scan-threads=4",
+                "--dedup",
                 "--include-ext=java,xml",
                 "--exclude-ext=log,tmp",
                 "--git-ignore",
+                "--git-tracked",
+                "--git-untracked",
                 "--output=json",
-                "--verbose"
+                "--output-file=report.json",
+                "--verbose",
+                "--per-file=files.ndjson.gz",
+                "--gzip"
         };
 
         Config config = parser.parse(args);
@@ -46,11 +57,22 @@ class ArgumentParserTest {
                 () -> assertTrue(config.recursive()),
                 () -> assertEquals(10, config.maxDepth()),
                 () -> assertEquals(8, config.numThreads()),
+                () -> assertEquals(16L * 1024 * 1024, config.mmapThreshold()),
+                () -> assertEquals("virtual", config.executor()),
+                () -> assertEquals(64, config.maxConcurrency()),
+                () -> assertEquals(4, config.scanThreads()),
+                () -> assertTrue(config.deduplicateContent()),
                 () -> assertEquals(List.of("java", "xml"), config.includeExtensions()),
                 () -> assertEquals(List.of("log", "tmp"), config.excludeExtensions()),
                 () -> assertTrue(config.useGitIgnore()),
+                () -> assertTrue(config.gitTracked()),
+                () -> assertTrue(config.gitUntracked()),
                 () -> assertEquals("json", config.outputFormat()),
-                () -> assertTrue(config.verbose())
+                () -> assertEquals(Path.of("report.json"), config.outputFile()),
+                () -> assertTrue(config.verbose()),
+                () -> assertTrue(config.perFile()),
+                () -> assertEquals(Path.of("files.ndjson.gz"), config.perFileOutput()),
+                () -> assertTrue(config.perFileGzip())
         );
     }
 
@@ -65,14 +87,27 @@ class ArgumentParserTest {
                 () -> assertFalse(config.recursive()),
                 () -> assertEquals(-1, config.maxDepth()),
                 () -> assertEquals(1, config.numThreads()),
+                () -> assertEquals(FileAnalyzer.DEFAULT_MMAP_THRESHOLD, config.mmapThreshold()),
+                () -> assertNull(config.commentSyntaxFile()),
+                () -> assertEquals("platform", config.executor()),
+                () -> assertEquals(1, config.scanThreads()),
                 () -> assertTrue(config.includeExtensions().isEmpty()),
                 () -> assertTrue(config.excludeExtensions().isEmpty()),
                 () -> assertFalse(config.useGitIgnore()),
+                () -> assertFalse(config.gitTracked()),
                 () -> assertEquals("plain", config.outputFormat()),
                 () -> assertFalse(config.verbose())
         );
     }
 
+    @Test
+    @DisplayName("Parses a bare path into the test defaults")
+    void shouldMatchTestDefaults_whenOnlyPathIsGiven() {
+        Config config = parser.parse(new String[]{tempDir.toString()});
+
+        assertEquals(TestConfigs.defaults(tempDir.toAbsolutePath().normalize()).build(), config);
+    }
+
     @Test
     @DisplayName("Throws exception for unknown argument")
     void shouldThrowException_whenArgumentIsUnknown() {
@@ -82,6 +117,18 @@ class ArgumentParserTest {
         assertEquals("Unknown argument: --unknown-arg", exception.getMessage());
     }
 
+    @Test
+    @DisplayName("Parses comment syntax file and rejects a missing one")
+    void shouldParseCommentSyntaxFile_whenFileExists() throws IOException {
+        Path syntaxFile = Files.writeString(tempDir.resolve("syntax.json"), "[]");
+
+        Config config = parser.parse(new String[]{tempDir.toString(), "--comment-syntax=" + syntaxFile});
+        assertEquals(syntaxFile.toAbsolutePath().normalize(), config.commentSyntaxFile());
+
+        String[] args = {tempDir.toString(), "--comment-syntax=" + tempDir.resolve("missing.json")};
+        assertThrows(IllegalArgumentException.class, () -> parser.parse(args));
+    }
+
     @Test
     @DisplayName("Throws exception when path is missing")
     void shouldThrowException_whenPathIsMissing() {
@@ -120,6 +167,15 @@ class ArgumentParserTest {
         assertTrue(exception.getMessage().contains("Invalid value for --max-depth"));
     }
 
+    @Test
+    @DisplayName("Throws exception for invalid mmap-threshold value")
+    void shouldThrowException_whenMmapThresholdValueIsInvalid() {
+        String[] args = {tempDir.toString(), "--mmap-threshold=8x"};
+
+        var exception = assertThrows(IllegalArgumentException.class, () -> parser.parse(args));
+        assertTrue(exception.getMessage().contains("Invalid value for --mmap-threshold"));
+    }
+
     @Test
     @DisplayName("Throws exception when extensions overlap between include and exclude")
     void shouldThrowException_whenExtensionsOverlapInIncludeAndExclude() {
@@ -128,4 +184,86 @@ class ArgumentParserTest {
         var exception = assertThrows(IllegalArgumentException.class, () -> parser.parse(args));
         assertTrue(exception.getMessage().contains("Extensions cannot be both included and excluded"));
     }
+
+    @Test
+    @DisplayName("Throws exception when git-diff is used without git-ignore")
+    void shouldThrowException_whenGitDiffIsUsedWithoutGitIgnore() {
+        String[] args = {tempDir.toString(), "--git-diff=" + tempDir.resolve("state.json")};
+
+        var exception = assertThrows(IllegalArgumentException.class, () -> parser.parse(args));
+        assertTrue(exception.getMessage().contains("requires --git-ignore"));
+    }
+
+    @Test
+    @DisplayName("Writes per-file records to standard output when no file is given")
+    void shouldUseStandardOutput_whenPerFileHasNoValue() {
+        Config config = parser.parse(new String[]{tempDir.toString(), "--per-file"});
+
+        assertTrue(config.perFile());
+        assertNull(config.perFileOutput());
+    }
+
+    @Test
+    @DisplayName("Throws exception when per-file records on standard output are combined with verbose")
+    void shouldThrowException_whenPerFileToStandardOutputIsUsedWithVerbose() {
+        String[] args = {tempDir.toString(), "--per-file", "--verbose"};
+
+        var exception = assertThrows(IllegalArgumentException.class, () -> parser.parse(args));
+        assertTrue(exception.getMessage().contains("requires --per-file=<file>"));
+    }
+
+    @Test
+    @DisplayName("Throws exception when gzip is used without per-file")
+    void shouldThrowException_whenGzipIsUsedWithoutPerFile() {
+        String[] args = {tempDir.toString(), "--gzip"};
+
+        var exception = assertThrows(IllegalArgumentException.class, () -> parser.parse(args));
+        assertTrue(exception.getMessage().contains("requires --per-file"));
+    }
+
+    @Test
+    @DisplayName("Parses the shard number and count")
+    void shouldParseShard_whenShardIsGiven() {
+        Config config = parser.parse(new String[]{tempDir.toString(), "--shard=2/3"});
+
+        assertEquals(2, config.shard().number());
+        assertEquals(3, config.shard().count());
+    }
+
+    @Test
+    @DisplayName("Throws exception when the shard number is out of range")
+    void shouldThrowException_whenShardNumberIsOutOfRange() {
+        for (String value : new String[]{"0/3", "4/3", "1", "a/b"}) {
+            String[] args = {tempDir.toString(), "--shard=" + value};
+
+            var exception = assertThrows(IllegalArgumentException.class, () -> parser.parse(args));
+            assertTrue(exception.getMessage().contains("Usage: --shard=<number>/<count>"));
+        }
+    }
+
+    @Test
+    @DisplayName("Parses the watch interval and rejects modes that keep their own totals")
+    void shouldParseWatchInterval_whenWatchIsGiven() {
+        assertEquals(5, parser.parse(new String[]{tempDir.toString(), "--watch"}).watchInterval().toSeconds());
+        assertEquals(30, parser.parse(new String[]{tempDir.toString(), "--watch=30"}).watchInterval().toSeconds());
+        assertNull(parser.parse(new String[]{tempDir.toString()}).watchInterval());
+
+        String[] invalid = {tempDir.toString(), "--watch=0"};
+        var invalidException = assertThrows(IllegalArgumentException.class, () -> parser.parse(invalid));
+        assertTrue(invalidException.getMessage().contains("Usage: --watch[=<seconds>]"));
+
+        String[] combined = {tempDir.toString(), "--watch", "--shard=1/2"};
+        var combinedException = assertThrows(IllegalArgumentException.class, () -> parser.parse(combined));
+        assertTrue(combinedException.getMessage().contains("cannot be combined"));
+    }
+
+    @Test
+    @DisplayName("Resolves relative paths against the given working directory")
+    void shouldResolveRelativePaths_whenWorkingDirectoryIsGiven() throws IOException {
+        Files.createDirectory(tempDir.resolve("src"));
+        Config config = new ArgumentParser(tempDir).parse(new String[]{"src", "--output-file=report.txt"});
+
+        assertEquals(tempDir.resolve("src"), config.path());
+        assertEquals(tempDir.resolve("report.txt"), config.outputFile());
+    }
 }
@@ -0,0 +1,31 @@
+package dev.zux13.filestatistics.cli;
+
+import dev.zux13.filestatistics.analysis.FileAnalyzer;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+import java.nio.file.Path;
+import java.util.List;
+
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public class TestConfigs {
+
+    /**
+     * A builder preset to the values {@link ArgumentParser} uses for a bare {@code <path>}, so a
+     * test only sets the options it is about.
+     */
+    public static Config.ConfigBuilder defaults(Path path) {
+        return Config.builder()
+                .path(path)
+                .maxDepth(-1)
+                .numThreads(1)
+                .mmapThreshold(FileAnalyzer.DEFAULT_MMAP_THRESHOLD)
+                .executor("platform")
+                .maxConcurrency(256)
+                .scanThreads(1)
+                .includeExtensions(List.of())
+                .excludeExtensions(List.of())
+                .outputFormat("plain")
+                .perFileFormat("ndjson");
+    }
+}
@@ -0,0 +1,181 @@
+package dev.zux13.filestatistics.daemon;
+
+import dev.zux13.filestatistics.Main;
+import dev.zux13.filestatistics.RunResources;
+import dev.zux13.filestatistics.output.ConsolePrinter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.UserPrincipal;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class DaemonServerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path tree;
+    private Path socket;
+    private ServerSocketChannel server;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        tree = Files.createDirectory(tempDir.resolve("tree"));
+        Files.writeString(tree.resolve("Main.java"), "// main\nclass Main {}\n");
+        Files.writeString(tree.resolve("run.sh"), "# run\necho hi\n\n");
+        Files.writeString(tree.resolve("debug.log"), "ignored\n");
+        Files.writeString(tree.resolve(".gitignore"), "*.log\n");
+
+        socket = tempDir.resolve("daemon.sock");
+        server = DaemonServer.bind(socket);
+        Thread serving = new Thread(() -> {
+            try {
+                new DaemonServer(socket).acceptLoop(server);
+            } catch (IOException ignored) {
+                // Closed by the test
+            }
+        });
+        serving.setDaemon(true);
+        serving.start();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        server.close();
+    }
+
+    @Test
+    @DisplayName("Answers with the output of an in-process run")
+    void shouldMatchInProcessRun_whenCommandIsSentToDaemon() {
+        String[] args = {tree.toString(), "--recursive", "--git-ignore", "--output=json"};
+
+        Result daemon = viaDaemon(args);
+
+        assertAll(
+                () -> assertEquals(0, daemon.status()),
+                () -> assertEquals(inProcess(args), daemon.stdout()),
+                () -> assertTrue(daemon.stdout().contains("\"sh\""))
+        );
+    }
+
+    @Test
+    @DisplayName("Sees changed files and .gitignore rules in later requests")
+    void shouldReflectChanges_whenTreeChangesBetweenRequests() throws Exception {
+        String[] args = {tree.toString(), "--recursive", "--git-ignore", "--output=json"};
+        viaDaemon(args);
+
+        Files.writeString(tree.resolve(".gitignore"), "*.sh\n");
+        Files.writeString(tree.resolve("Main.java"), "// main\n// more\nclass Main {}\n");
+        Result second = viaDaemon(args);
+
+        assertAll(
+                () -> assertEquals(inProcess(args), second.stdout()),
+                () -> assertFalse(second.stdout().contains("\"sh\"")),
+                () -> assertTrue(second.stdout().contains("\"log\""))
+        );
+    }
+
+    @Test
+    @DisplayName("Returns the exit status and error output of a failed run")
+    void shouldReturnFailure_whenArgumentsAreInvalid() {
+        Result result = viaDaemon(new String[]{tree.resolve("missing").toString()});
+
+        assertAll(
+                () -> assertEquals(1, result.status()),
+                () -> assertTrue(result.stderr().contains("does not exist"))
+        );
+    }
+
+    @Test
+    @DisplayName("Treats a connection closed before the request as a probe, not a failure")
+    void shouldStayQuiet_whenPeerDisconnectsBeforeRequest() throws IOException {
+        String[] args = {tree.toString(), "--output=json"};
+        PrintStream originalErr = System.err;
+        ByteArrayOutputStream logged = new ByteArrayOutputStream();
+        System.setErr(new PrintStream(logged, true, StandardCharsets.UTF_8));
+        Result result;
+        try {
+            SocketChannel.open(UnixDomainSocketAddress.of(socket)).close();
+            // Requests are answered in order, so the probe has been handled once this returns
+            result = viaDaemon(args);
+        } finally {
+            System.setErr(originalErr);
+        }
+
+        assertEquals(0, result.status());
+        assertFalse(logged.toString(StandardCharsets.UTF_8).contains("Request failed"), logged::toString);
+    }
+
+    @Test
+    @DisplayName("Runs in this process instead of using a socket of another user")
+    void shouldRunLocally_whenSocketBelongsToAnotherUser() throws IOException {
+        Path foreignSocket = tempDir.resolve("foreign.sock");
+        try (ServerSocketChannel foreign = DaemonServer.bind(foreignSocket)) {
+            UserPrincipal nobody;
+            try {
+                nobody = foreignSocket.getFileSystem().getUserPrincipalLookupService().lookupPrincipalByName("nobody");
+                Files.setOwner(foreignSocket, nobody);
+            } catch (IOException | UnsupportedOperationException e) {
+                assumeTrue(false, "Changing the owner of a file needs root: " + e);
+                return;
+            }
+            String[] args = {tree.toString(), "--output=json"};
+            String[] command = {tree.toString(), "--output=json", "--server=" + foreignSocket};
+
+            // Nothing accepts on the foreign socket, so a client that used it would wait forever
+            ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+            ConsolePrinter.redirect(stdout, new ByteArrayOutputStream(), StandardCharsets.UTF_8);
+            int status;
+            try {
+                status = assertTimeoutPreemptively(Duration.ofSeconds(30),
+                        () -> DaemonClient.run(command, new ByteArrayOutputStream(), new ByteArrayOutputStream()));
+            } finally {
+                ConsolePrinter.restore();
+            }
+
+            assertEquals(0, status);
+            assertEquals(inProcess(args), stdout.toString(StandardCharsets.UTF_8));
+        }
+    }
+
+    private record Result(int status, String stdout, String stderr) {
+    }
+
+    private Result viaDaemon(String[] args) {
+        String[] command = new String[args.length + 1];
+        System.arraycopy(args, 0, command, 0, args.length);
+        command[args.length] = "--server=" + socket;
+
+        ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+        ByteArrayOutputStream stderr = new ByteArrayOutputStream();
+        int status = DaemonClient.run(command, stdout, stderr);
+        return new Result(status, stdout.toString(StandardCharsets.UTF_8), stderr.toString(StandardCharsets.UTF_8));
+    }
+
+    private String inProcess(String[] args) {
+        ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+        ConsolePrinter.redirect(stdout, new ByteArrayOutputStream(), StandardCharsets.UTF_8);
+        try {
+            Main.execute(args, Paths.get(""), RunResources.fresh());
+        } finally {
+            ConsolePrinter.restore();
+        }
+        return stdout.toString(StandardCharsets.UTF_8);
+    }
+}
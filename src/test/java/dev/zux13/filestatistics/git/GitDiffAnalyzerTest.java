@@ -0,0 +1,156 @@
+package dev.zux13.filestatistics.git;
+
+import dev.zux13.filestatistics.analysis.CommentAnalyzer;
+import dev.zux13.filestatistics.analysis.FileAnalyzer;
+import dev.zux13.filestatistics.analysis.model.AnalysisResult;
+import dev.zux13.filestatistics.analysis.model.ExtensionStatistics;
+import dev.zux13.filestatistics.analysis.model.FileStatistics;
+import dev.zux13.filestatistics.cli.Config;
+import dev.zux13.filestatistics.cli.TestConfigs;
+import dev.zux13.filestatistics.processing.AnalysisService;
+import dev.zux13.filestatistics.processing.FixedThreadPoolRunner;
+import dev.zux13.filestatistics.scan.FileScanner;
+import dev.zux13.filestatistics.scan.GitIgnoreManager;
+import dev.zux13.filestatistics.scan.model.IgnoredFilesStats;
+import org.eclipse.jgit.api.Git;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GitDiffAnalyzerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path workTree;
+    private Path stateFile;
+    private Git git;
+    private final List<Path> analyzedFiles = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        workTree = Files.createDirectory(tempDir.resolve("repo"));
+        stateFile = tempDir.resolve("state.json");
+        git = Git.init().setDirectory(workTree.toFile()).call();
+    }
+
+    @AfterEach
+    void tearDown() {
+        git.close();
+    }
+
+    @Test
+    @DisplayName("Re-analyzes only changed files and matches a full scan")
+    void shouldMatchFullScan_whenOnlyChangedFilesAreAnalyzed() throws Exception {
+        write("src/Main.java", "class Main {}\n// comment\n");
+        write("src/Util.java", "class Util {}\n");
+        write("run.sh", "# run\necho hi\n");
+        write("data.bin", "\0\1\2");
+        write(".gitignore", "*.log\n");
+        commitAll("initial");
+        write("debug.log", "ignored\n");
+        write("src/Util.java", "class Util {\n}\n");
+
+        analyze(); // full scan, Util.java is dirty
+
+        write("src/Main.java", "class Main {\n  // more\n}\n");
+        Files.delete(workTree.resolve("run.sh"));
+        write("src/New.java", "/* new */\nclass New {}\n");
+        commitAll("second");
+        git.checkout().addPath("src/Util.java").call();
+        write("notes.txt", "untracked\n\n");
+
+        analyzedFiles.clear();
+        AnalysisResult incremental = analyze();
+        List<String> analyzedNames = analyzedFiles.stream().map(path -> path.getFileName().toString()).sorted().toList();
+
+        Files.delete(stateFile);
+        AnalysisResult full = analyze();
+
+        assertAll(
+                () -> assertEquals(List.of("Main.java", "New.java", "Util.java", "notes.txt"), analyzedNames),
+                () -> assertEquals(snapshot(full), snapshot(incremental)),
+                () -> assertEquals(full.ignoredBinaryOrEncodingCount(), incremental.ignoredBinaryOrEncodingCount())
+        );
+    }
+
+    @Test
+    @DisplayName("Scans the whole tree again when a .gitignore file changes")
+    void shouldScanEverything_whenGitignoreChanged() throws Exception {
+        write("A.java", "class A {}\n");
+        write("B.java", "class B {}\n");
+        write(".gitignore", "");
+        commitAll("initial");
+        analyze();
+
+        write(".gitignore", "B.java\n");
+        analyzedFiles.clear();
+        AnalysisResult result = analyze();
+
+        assertAll(
+                () -> assertEquals(1, analyzedFiles.size()),
+                () -> assertEquals(1, result.extensionStatistics().get("java").getFileCount())
+        );
+    }
+
+    private AnalysisResult analyze() throws IOException {
+        Config config = TestConfigs.defaults(workTree)
+                .recursive(true)
+                .gitDiffState(stateFile)
+                .useGitIgnore(true)
+                .build();
+        FileAnalyzer fileAnalyzer = new FileAnalyzer(new CommentAnalyzer()) {
+            @Override
+            public FileStatistics analyzeFile(Path filePath) throws IOException {
+                analyzedFiles.add(filePath);
+                return super.analyzeFile(filePath);
+            }
+
+            @Override
+            public FileStatistics analyzeFile(Path filePath, long expectedSize) throws IOException {
+                analyzedFiles.add(filePath);
+                return super.analyzeFile(filePath, expectedSize);
+            }
+        };
+        FileScanner scanner = new FileScanner(config, new GitIgnoreManager(workTree));
+        AnalysisService analysisService = new AnalysisService(new FixedThreadPoolRunner(1), fileAnalyzer, null);
+
+        return new GitDiffAnalyzer(config, scanner, fileAnalyzer, analysisService).analyze(new IgnoredFilesStats());
+    }
+
+    private Map<String, List<Long>> snapshot(AnalysisResult result) {
+        Map<String, List<Long>> snapshot = new TreeMap<>();
+        result.extensionStatistics().forEach((extension, stats) -> snapshot.put(extension, values(stats)));
+        return snapshot;
+    }
+
+    private List<Long> values(ExtensionStatistics stats) {
+        return List.of(stats.getFileCount(), stats.getTotalSizeInBytes(), stats.getTotalLines(),
+                stats.getTotalNonEmptyLines(), stats.getTotalCommentLines());
+    }
+
+    private void write(String path, String content) throws IOException {
+        Path file = workTree.resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+    }
+
+    private void commitAll(String message) throws Exception {
+        git.add().addFilepattern(".").call();
+        git.add().addFilepattern(".").setUpdate(true).call();
+        git.commit().setMessage(message).setSign(false)
+                .setAuthor("test", "test@example.com").setCommitter("test", "test@example.com").call();
+    }
+}
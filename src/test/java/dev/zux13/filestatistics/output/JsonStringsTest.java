@@ -0,0 +1,38 @@
+package dev.zux13.filestatistics.output;
+
+import dev.zux13.filestatistics.analysis.model.FileStatistics;
+import dev.zux13.filestatistics.output.perfile.NdjsonFormat;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JsonStringsTest {
+
+    private static final String NAME = "a\"b\\c\td\u0001e\u001Fé😀";
+
+    @Test
+    @DisplayName("Escapes a name the same way into a writer and into a per-file record")
+    void shouldEscapeIdentically_whenWritingToWriterOrStringBuilder() throws Exception {
+        StringWriter writer = new StringWriter();
+        JsonStrings.append(writer, NAME);
+        StringBuilder builder = new StringBuilder();
+        JsonStrings.append(builder, NAME);
+
+        String record = new String(new NdjsonFormat().prepare(NAME, NAME, new FileStatistics(1, 1, 1, 0)),
+                StandardCharsets.UTF_8);
+        JsonNode parsed = new ObjectMapper().readTree(record);
+
+        assertAll(
+                () -> assertEquals("\"a\\\"b\\\\c\\td\\u0001e\\u001Fé😀\"", writer.toString()),
+                () -> assertEquals(writer.toString(), builder.toString()),
+                () -> assertTrue(record.contains("\"path\":" + writer + ",")),
+                () -> assertEquals(NAME, parsed.get("path").asString())
+        );
+    }
+}
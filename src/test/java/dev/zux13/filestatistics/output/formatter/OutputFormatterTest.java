@@ -0,0 +1,98 @@
+package dev.zux13.filestatistics.output.formatter;
+
+import dev.zux13.filestatistics.analysis.StatisticsAggregator;
+import dev.zux13.filestatistics.analysis.model.ExtensionStatistics;
+import dev.zux13.filestatistics.analysis.model.FileStatistics;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.ObjectMapper;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.ByteArrayInputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OutputFormatterTest {
+
+    private static final String ODD_EXTENSION = "a\"<&>\\b";
+
+    @Test
+    @DisplayName("Streams JSON that parses back to the sorted statistics")
+    void shouldWriteParsableJson_whenExtensionNeedsEscaping() throws Exception {
+        String json = write(new JsonFormatter());
+
+        JsonNode extensions = new ObjectMapper().readTree(json).get("extensions");
+        assertAll(
+                () -> assertEquals(2, extensions.size()),
+                () -> assertEquals(ODD_EXTENSION, extensions.get(0).get("name").asString()),
+                () -> assertEquals("java", extensions.get(1).get("name").asString()),
+                () -> assertEquals(3, extensions.get(1).get("fileCount").asLong()),
+                () -> assertEquals(40, extensions.get(1).get("totalLines").asLong()),
+                () -> assertEquals(5, extensions.get(1).get("totalCommentLines").asLong()),
+                () -> assertTrue(json.endsWith("}\n"))
+        );
+    }
+
+    @Test
+    @DisplayName("Streams well-formed XML that parses back to the sorted statistics")
+    void shouldWriteWellFormedXml_whenExtensionNeedsEscaping() throws Exception {
+        String xml = write(new XmlFormatter());
+
+        Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+                .parse(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+        NodeList extensions = document.getDocumentElement().getElementsByTagName("extension");
+        Element java = (Element) extensions.item(1);
+        assertAll(
+                () -> assertEquals("statistics", document.getDocumentElement().getTagName()),
+                () -> assertEquals(2, extensions.getLength()),
+                () -> assertEquals(ODD_EXTENSION, ((Element) extensions.item(0)).getAttribute("name")),
+                () -> assertEquals("java", java.getAttribute("name")),
+                () -> assertEquals("3", java.getElementsByTagName("fileCount").item(0).getTextContent()),
+                () -> assertEquals("30", java.getElementsByTagName("totalNonEmptyLines").item(0).getTextContent())
+        );
+    }
+
+    @Test
+    @DisplayName("Escapes control characters and whitespace so the name parses back unchanged")
+    void shouldRoundTripName_whenExtensionHasControlCharacters() throws Exception {
+        String name = "a\tb\nc\rd\u0001e\u00e9\uD83D\uDE00";
+
+        String json = write(new JsonFormatter(), name);
+        String xml = write(new XmlFormatter(), name);
+
+        JsonNode extensions = new ObjectMapper().readTree(json).get("extensions");
+        Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+                .parse(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+        Element extension = (Element) document.getDocumentElement().getElementsByTagName("extension").item(0);
+        assertAll(
+                () -> assertEquals(name, extensions.get(0).get("name").asString()),
+                // XML 1.0 cannot hold U+0001, so only that character is replaced
+                () -> assertEquals(name.replace('\u0001', '\uFFFD'), extension.getAttribute("name"))
+        );
+    }
+
+    private static String write(OutputFormatter formatter) throws Exception {
+        return write(formatter, ODD_EXTENSION);
+    }
+
+    private static String write(OutputFormatter formatter, String oddExtension) throws Exception {
+        ExtensionStatistics java = new ExtensionStatistics();
+        java.addTotals(3, new FileStatistics(1000, 40, 30, 5));
+        ExtensionStatistics odd = new ExtensionStatistics();
+        odd.addFileStats(new FileStatistics(1, 1, 1, 0));
+
+        StatisticsAggregator aggregator = new StatisticsAggregator();
+        aggregator.setStatisticsByExtension(Map.of("java", java, oddExtension, odd));
+
+        StringWriter writer = new StringWriter();
+        formatter.write(aggregator, writer);
+        return writer.toString();
+    }
+}
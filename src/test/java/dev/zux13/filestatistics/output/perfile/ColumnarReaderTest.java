@@ -0,0 +1,124 @@
+package dev.zux13.filestatistics.output.perfile;
+
+import dev.zux13.filestatistics.analysis.model.ExtensionStatistics;
+import dev.zux13.filestatistics.analysis.model.FileStatistics;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ColumnarReaderTest {
+
+    private static final String[] EXTENSIONS = {"java", "", "тест", "xml"};
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("Reads back every file and the extension totals written from many threads")
+    void shouldReadBackAllRecords_whenWrittenConcurrentlyAcrossBlocks() throws IOException {
+        Path export = tempDir.resolve("files.fstx");
+        int fileCount = 3 * ColumnarFormat.BLOCK_SIZE + 123;
+        Path root = tempDir.resolve("root");
+
+        try (PerFileWriter<ColumnarFormat.Row> writer = PerFileWriter.open(root, new ColumnarFormat(), export, false)) {
+            IntStream.range(0, fileCount).parallel().forEach(i -> writer.fileAnalyzed(
+                    root.resolve(directory(i)).resolve("file" + i),
+                    EXTENSIONS[i % EXTENSIONS.length],
+                    statistics(i)));
+        }
+
+        Map<String, FileStatistics> read = new HashMap<>();
+        Map<String, ExtensionStatistics> totals;
+        try (ColumnarReader reader = ColumnarReader.open(export)) {
+            for (ColumnarReader.Block block; (block = reader.nextBlock()) != null; ) {
+                for (int row = 0; row < block.size(); row++) {
+                    int i = Integer.parseInt(block.path(row).substring(block.path(row).lastIndexOf("file") + 4));
+                    assertEquals(EXTENSIONS[i % EXTENSIONS.length], block.extension(row));
+                    read.put(block.path(row), block.statistics(row));
+                }
+            }
+            totals = reader.extensionTotals();
+        }
+
+        assertEquals(fileCount, read.size());
+        for (int i = 0; i < fileCount; i++) {
+            String directory = directory(i);
+            String path = directory.isEmpty() ? "file" + i : directory + "/file" + i;
+            assertEquals(statistics(i), read.get(path), path);
+        }
+        long javaFiles = IntStream.range(0, fileCount).filter(i -> i % EXTENSIONS.length == 0).count();
+        long javaLines = IntStream.range(0, fileCount).filter(i -> i % EXTENSIONS.length == 0)
+                .mapToLong(i -> statistics(i).totalLines()).sum();
+        assertAll(
+                () -> assertEquals(EXTENSIONS.length, totals.size()),
+                () -> assertEquals(javaFiles, totals.get("java").getFileCount()),
+                () -> assertEquals(javaLines, totals.get("java").getTotalLines())
+        );
+    }
+
+    @Test
+    @DisplayName("Rejects a block whose checksum does not match")
+    void shouldFail_whenBlockIsCorrupted() throws IOException {
+        Path export = tempDir.resolve("files.fstx");
+        try (PerFileWriter<ColumnarFormat.Row> writer = PerFileWriter.open(tempDir, new ColumnarFormat(), export, false)) {
+            for (int i = 0; i < 100; i++) {
+                writer.fileAnalyzed(tempDir.resolve("file" + i + ".java"), "java", statistics(i));
+            }
+        }
+        byte[] bytes = Files.readAllBytes(export);
+        bytes[bytes.length / 2] ^= 0x40;
+        Files.write(export, bytes);
+
+        try (ColumnarReader reader = ColumnarReader.open(export)) {
+            var exception = assertThrows(IOException.class, reader::nextBlock);
+            assertTrue(exception.getMessage().contains("Checksum mismatch"));
+        }
+    }
+
+    @Test
+    @DisplayName("Rejects a block header with an impossible row count or length")
+    void shouldFail_whenBlockHeaderIsCorrupted() throws IOException {
+        Path export = tempDir.resolve("files.fstx");
+        try (PerFileWriter<ColumnarFormat.Row> writer = PerFileWriter.open(tempDir, new ColumnarFormat(), export, false)) {
+            for (int i = 0; i < 100; i++) {
+                writer.fileAnalyzed(tempDir.resolve("file" + i + ".java"), "java", statistics(i));
+            }
+        }
+        byte[] saved = Files.readAllBytes(export);
+
+        // Magic and version take 8 bytes and the block tag one; then the row count (one byte
+        // for 100 rows) and the payload length follow
+        int rowsOffset = 9;
+        byte[][] corruptions = {
+                {-1, -1, 0x7F},                 // more rows than a block holds
+                {100, -1, -1, -1, -1, 0x0F},    // a payload length beyond any array
+                {100, -1, -1, -1, 0x7F}         // a payload length beyond the end of the file
+        };
+        for (byte[] corruption : corruptions) {
+            byte[] corrupted = saved.clone();
+            System.arraycopy(corruption, 0, corrupted, rowsOffset, corruption.length);
+            Files.write(export, corrupted);
+
+            try (ColumnarReader reader = ColumnarReader.open(export)) {
+                assertThrows(IOException.class, reader::nextBlock);
+            }
+        }
+    }
+
+    private static String directory(int i) {
+        return i % 7 == 0 ? "" : "src/module" + (i % 5) + "/package" + (i % 11);
+    }
+
+    private static FileStatistics statistics(int i) {
+        return new FileStatistics(i * 37L, i % 1000, i % 900, i % 50);
+    }
+}
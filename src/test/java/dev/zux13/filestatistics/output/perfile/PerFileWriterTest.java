@@ -0,0 +1,52 @@
+package dev.zux13.filestatistics.output.perfile;
+
+import dev.zux13.filestatistics.analysis.model.FileStatistics;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PerFileWriterTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("Fails on close and does not block producers when the format throws an unchecked exception")
+    void shouldFailOnClose_whenFormatThrowsUncheckedException() {
+        PerFileFormat<String> failing = new PerFileFormat<>() {
+            @Override
+            public String prepare(String path, String extension, FileStatistics statistics) {
+                return path;
+            }
+
+            @Override
+            public void write(String record, OutputStream out) {
+                throw new IllegalStateException("broken format");
+            }
+
+            @Override
+            public void finish(OutputStream out) {
+            }
+        };
+        FileStatistics statistics = new FileStatistics(10, 1, 1, 0);
+
+        IOException error = assertTimeoutPreemptively(Duration.ofSeconds(30), () -> {
+            PerFileWriter<String> writer = new PerFileWriter<>(tempDir, failing, new ByteArrayOutputStream(), false);
+            // More records than the backpressure limit, so producers would wait on a dead writer
+            IntStream.range(0, 200_000).parallel()
+                    .forEach(i -> writer.fileAnalyzed(tempDir.resolve("file" + i), "txt", statistics));
+            return assertThrows(IOException.class, writer::close);
+        });
+
+        assertInstanceOf(IllegalStateException.class, error.getCause());
+    }
+}
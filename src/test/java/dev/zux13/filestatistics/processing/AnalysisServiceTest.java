@@ -1,18 +1,30 @@
 package dev.zux13.filestatistics.processing;
 
+import dev.zux13.filestatistics.analysis.CommentAnalyzer;
+import dev.zux13.filestatistics.analysis.FileAnalyzer;
 import dev.zux13.filestatistics.analysis.model.AnalysisResult;
+import dev.zux13.filestatistics.output.perfile.NdjsonFormat;
+import dev.zux13.filestatistics.output.perfile.PerFileWriter;
 import dev.zux13.filestatistics.scan.model.IgnoredFilesStats;
+import dev.zux13.filestatistics.scan.model.ScannedFile;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Collections;
 import java.util.List;
+import java.util.zip.GZIPInputStream;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
 class AnalysisServiceTest {
 
@@ -86,4 +98,122 @@ class AnalysisServiceTest {
                 () -> assertEquals(1, ignoredFilesStats.getIgnoredBinaryOrEncoding())
         );
     }
+
+    @Test
+    @DisplayName("Analyzes files streamed by a source larger than the work queue")
+    void shouldAnalyzeAllFiles_whenSourceStreamsMoreFilesThanQueueCapacity() throws Exception {
+        Path textFile = Files.createFile(tempDir.resolve("line.txt"));
+        Files.writeString(textFile, "one line");
+        ScannedFile scannedText = ScannedFile.read(textFile);
+        int fileCount = 5_000;
+        IgnoredFilesStats ignoredFilesStats = new IgnoredFilesStats();
+
+        AnalysisResult result = new AnalysisService(1).processFiles(sink -> {
+            for (int i = 0; i < fileCount; i++) {
+                sink.accept(scannedText);
+            }
+        }, ignoredFilesStats);
+
+        assertAll(
+                () -> assertEquals(fileCount, result.extensionStatistics().get("txt").getFileCount()),
+                () -> assertEquals(fileCount, result.extensionStatistics().get("txt").getTotalLines())
+        );
+    }
+
+    @Test
+    @DisplayName("Analyzes files on virtual threads when running on Java 21+")
+    void shouldAggregateStatistics_whenUsingVirtualThreads() throws Exception {
+        assumeTrue(VirtualThreadRunner.isSupported(), "Virtual threads are not available");
+
+        Path javaFile = Files.createFile(tempDir.resolve("Virtual.java"));
+        Files.writeString(javaFile, "// comment\nclass Virtual {}\n");
+        IgnoredFilesStats ignoredFilesStats = new IgnoredFilesStats();
+        AnalysisService virtualService = new AnalysisService(
+                new VirtualThreadRunner(8), new FileAnalyzer(new CommentAnalyzer()), null);
+
+        AnalysisResult result = virtualService.processFiles(List.of(javaFile), ignoredFilesStats);
+
+        assertAll(
+                () -> assertEquals(1, result.extensionStatistics().get("java").getFileCount()),
+                () -> assertEquals(2, result.extensionStatistics().get("java").getTotalLines()),
+                () -> assertEquals(1, result.extensionStatistics().get("java").getTotalCommentLines())
+        );
+    }
+
+    @Test
+    @DisplayName("Keeps exact totals when many threads update the same extension")
+    void shouldKeepExactTotals_whenManyThreadsUpdateSameExtension() throws Exception {
+        Path textFile = Files.createFile(tempDir.resolve("lines.txt"));
+        Files.writeString(textFile, "one\ntwo\n");
+        Path binaryFile = Files.createFile(tempDir.resolve("data.bin"));
+        Files.write(binaryFile, new byte[]{0x00, 0x01});
+        ScannedFile scannedText = ScannedFile.read(textFile);
+        ScannedFile scannedBinary = ScannedFile.read(binaryFile);
+        int fileCount = 20_000;
+        IgnoredFilesStats ignoredFilesStats = new IgnoredFilesStats();
+
+        AnalysisResult result = new AnalysisService(16).processFiles(sink -> {
+            for (int i = 0; i < fileCount; i++) {
+                sink.accept(scannedText);
+                sink.accept(scannedBinary);
+            }
+        }, ignoredFilesStats);
+
+        assertAll(
+                () -> assertEquals(fileCount, result.extensionStatistics().get("txt").getFileCount()),
+                () -> assertEquals(2L * fileCount, result.extensionStatistics().get("txt").getTotalLines()),
+                () -> assertEquals(8L * fileCount, result.extensionStatistics().get("txt").getTotalSizeInBytes()),
+                () -> assertEquals(fileCount, ignoredFilesStats.getIgnoredBinaryOrEncoding())
+        );
+    }
+
+    @Test
+    @DisplayName("Streams one JSON line per analyzed text file")
+    void shouldWriteRecordPerFile_whenPerFileWriterIsAttached() throws Exception {
+        Path sourceDir = Files.createDirectory(tempDir.resolve("src"));
+        Path javaFile = Files.writeString(sourceDir.resolve("Quote\"Name.java"), "// comment\nclass Test {}\n\n");
+        Path binaryFile = Files.write(tempDir.resolve("data.bin"), new byte[]{0x00, 0x01});
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        try (PerFileWriter<byte[]> writer = new PerFileWriter<>(tempDir, new NdjsonFormat(), output, false)) {
+            new AnalysisService(new FixedThreadPoolRunner(2), new FileAnalyzer(new CommentAnalyzer()), null, writer)
+                    .processFiles(List.of(javaFile, binaryFile), new IgnoredFilesStats());
+        }
+
+        assertEquals("{\"path\":\"src/Quote\\\"Name.java\",\"extension\":\"java\",\"sizeInBytes\":26,"
+                        + "\"totalLines\":3,\"nonEmptyLines\":2,\"commentLines\":1}\n",
+                output.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("Writes every record exactly once when many threads stream through gzip")
+    void shouldWriteAllRecords_whenManyThreadsStreamThroughGzip() throws Exception {
+        Path textFile = Files.writeString(tempDir.resolve("lines.txt"), "one\ntwo\n");
+        ScannedFile scannedText = ScannedFile.read(textFile);
+        int fileCount = 50_000;
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        try (PerFileWriter<byte[]> writer = new PerFileWriter<>(tempDir, new NdjsonFormat(), output, true)) {
+            new AnalysisService(new FixedThreadPoolRunner(16), new FileAnalyzer(new CommentAnalyzer()), null, writer)
+                    .processFiles(sink -> {
+                        for (int i = 0; i < fileCount; i++) {
+                            sink.accept(scannedText);
+                        }
+                    }, new IgnoredFilesStats());
+        }
+
+        String record = "{\"path\":\"lines.txt\",\"extension\":\"txt\",\"sizeInBytes\":8,"
+                + "\"totalLines\":2,\"nonEmptyLines\":2,\"commentLines\":0}";
+        List<String> lines = gunzip(output.toByteArray()).lines().toList();
+        assertAll(
+                () -> assertEquals(fileCount, lines.size()),
+                () -> assertTrue(lines.stream().allMatch(record::equals))
+        );
+    }
+
+    private static String gunzip(byte[] compressed) throws IOException {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
 }
@@ -1,7 +1,10 @@
 package dev.zux13.filestatistics.scan;
 
 import dev.zux13.filestatistics.cli.Config;
+import dev.zux13.filestatistics.cli.TestConfigs;
 import dev.zux13.filestatistics.scan.model.ScanResult;
+import dev.zux13.filestatistics.scan.model.Shard;
+import org.eclipse.jgit.api.Git;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -10,9 +13,12 @@ import org.junit.jupiter.api.io.TempDir;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
 class FileScannerTest {
 
@@ -40,14 +46,14 @@ class FileScannerTest {
     @Test
     @DisplayName("Scans recursively and returns all non-ignored files")
     void shouldReturnAllFiles_whenScanningRecursivelyWithoutIgnoreRules() throws Exception {
-        Config config = new Config(tempDir, true, -1, 1, List.of(), List.of(), false, false, "plain");
+        Config config = config(true, -1, List.of(), List.of(), false);
         FileScanner scanner = new FileScanner(config, null);
 
         ScanResult result = scanner.scanFiles();
 
         assertAll(
-                () -> assertEquals(4, result.filesToAnalyze().size()),
-                () -> assertTrue(result.filesToAnalyze().containsAll(List.of(file1, file2, file3, file4))),
+                () -> assertEquals(4, result.paths().size()),
+                () -> assertTrue(result.paths().containsAll(List.of(file1, file2, file3, file4))),
                 () -> assertEquals(0, result.ignoredFilesStats().getIgnoredByGitignore()),
                 () -> assertEquals(0, result.ignoredFilesStats().getIgnoredByExtension())
         );
@@ -56,15 +62,15 @@ class FileScannerTest {
     @Test
     @DisplayName("Applies .gitignore rules")
     void shouldApplyGitIgnoreRules_whenGitIgnoreIsEnabled() throws Exception {
-        Config config = new Config(tempDir, true, -1, 1, List.of(), List.of(), true, false, "plain");
+        Config config = config(true, -1, List.of(), List.of(), true);
         GitIgnoreManager gitIgnoreManager = new GitIgnoreManager(tempDir);
         FileScanner scanner = new FileScanner(config, gitIgnoreManager);
 
         ScanResult result = scanner.scanFiles();
 
         assertAll(
-                () -> assertEquals(2, result.filesToAnalyze().size()),
-                () -> assertTrue(result.filesToAnalyze().containsAll(List.of(file1, file3))),
+                () -> assertEquals(2, result.paths().size()),
+                () -> assertTrue(result.paths().containsAll(List.of(file1, file3))),
                 () -> assertEquals(2, result.ignoredFilesStats().getIgnoredByGitignore()),
                 () -> assertEquals(0, result.ignoredFilesStats().getIgnoredByExtension())
         );
@@ -73,14 +79,14 @@ class FileScannerTest {
     @Test
     @DisplayName("Filters files by included extensions")
     void shouldIncludeOnlySpecifiedExtensions_whenIncludeListIsProvided() throws Exception {
-        Config config = new Config(tempDir, true, -1, 1, List.of("java"), List.of(), false, false, "plain");
+        Config config = config(true, -1, List.of("java"), List.of(), false);
         FileScanner scanner = new FileScanner(config, null);
 
         ScanResult result = scanner.scanFiles();
 
         assertAll(
-                () -> assertEquals(2, result.filesToAnalyze().size()),
-                () -> assertTrue(result.filesToAnalyze().containsAll(List.of(file1, file3))),
+                () -> assertEquals(2, result.paths().size()),
+                () -> assertTrue(result.paths().containsAll(List.of(file1, file3))),
                 () -> assertEquals(0, result.ignoredFilesStats().getIgnoredByGitignore()),
                 () -> assertEquals(2, result.ignoredFilesStats().getIgnoredByExtension())
         );
@@ -89,14 +95,14 @@ class FileScannerTest {
     @Test
     @DisplayName("Filters files by excluded extensions")
     void shouldExcludeSpecifiedExtensions_whenExcludeListIsProvided() throws Exception {
-        Config config = new Config(tempDir, true, -1, 1, List.of(), List.of("log", "tmp"), false, false, "plain");
+        Config config = config(true, -1, List.of(), List.of("log", "tmp"), false);
         FileScanner scanner = new FileScanner(config, null);
 
         ScanResult result = scanner.scanFiles();
 
         assertAll(
-                () -> assertEquals(2, result.filesToAnalyze().size()),
-                () -> assertTrue(result.filesToAnalyze().containsAll(List.of(file1, file3))),
+                () -> assertEquals(2, result.paths().size()),
+                () -> assertTrue(result.paths().containsAll(List.of(file1, file3))),
                 () -> assertEquals(0, result.ignoredFilesStats().getIgnoredByGitignore()),
                 () -> assertEquals(2, result.ignoredFilesStats().getIgnoredByExtension())
         );
@@ -105,29 +111,239 @@ class FileScannerTest {
     @Test
     @DisplayName("Respects max-depth configuration")
     void shouldLimitScanDepth_whenMaxDepthIsConfigured() throws Exception {
-        Config config = new Config(tempDir, true, 2, 1, List.of(), List.of(), false, false, "plain");
+        Config config = config(true, 2, List.of(), List.of(), false);
         FileScanner scanner = new FileScanner(config, null);
 
         ScanResult result = scanner.scanFiles();
 
         assertAll(
-                () -> assertEquals(3, result.filesToAnalyze().size()),
-                () -> assertTrue(result.filesToAnalyze().containsAll(List.of(file1, file2, file3))),
-                () -> assertFalse(result.filesToAnalyze().contains(file4))
+                () -> assertEquals(3, result.paths().size()),
+                () -> assertTrue(result.paths().containsAll(List.of(file1, file2, file3))),
+                () -> assertFalse(result.paths().contains(file4))
         );
     }
 
     @Test
     @DisplayName("Scans only top-level directory when recursive = false")
     void shouldScanOnlyTopLevelDirectory_whenRecursiveDisabled() throws Exception {
-        Config config = new Config(tempDir, false, -1, 1, List.of(), List.of(), false, false, "plain");
+        Config config = config(false, -1, List.of(), List.of(), false);
         FileScanner scanner = new FileScanner(config, null);
 
         ScanResult result = scanner.scanFiles();
 
         assertAll(
-                () -> assertEquals(2, result.filesToAnalyze().size()),
-                () -> assertTrue(result.filesToAnalyze().containsAll(List.of(file1, file2)))
+                () -> assertEquals(2, result.paths().size()),
+                () -> assertTrue(result.paths().containsAll(List.of(file1, file2)))
         );
     }
+
+    @Test
+    @DisplayName("Parallel scan finds the same files and applies the same filters")
+    void shouldMatchSequentialScan_whenScanningInParallel() throws Exception {
+        Config config = config(true, 2, List.of(), List.of("log"), true, 4);
+        FileScanner scanner = new FileScanner(config, new GitIgnoreManager(tempDir));
+
+        ScanResult result = scanner.scanFiles();
+
+        assertAll(
+                () -> assertEquals(2, result.paths().size()),
+                () -> assertTrue(result.paths().containsAll(List.of(file1, file3))),
+                () -> assertEquals(1, result.ignoredFilesStats().getIgnoredByGitignore()),
+                () -> assertEquals(0, result.ignoredFilesStats().getIgnoredByExtension())
+        );
+    }
+
+    @Test
+    @DisplayName("Sequential and parallel scans skip symbolic link cycles")
+    void shouldSkipSymlinkCycles_whenScanningSequentiallyOrInParallel() throws Exception {
+        try {
+            Files.createSymbolicLink(tempDir.resolve("dir1").resolve("loop"), tempDir);
+        } catch (UnsupportedOperationException | IOException e) {
+            assumeTrue(false, "Symbolic links are not supported: " + e.getMessage());
+        }
+
+        for (int scanThreads : new int[]{1, 4}) {
+            Config config = config(true, -1, List.of(), List.of(), false, scanThreads);
+            ScanResult result = new FileScanner(config, null).scanFiles();
+
+            assertEquals(4, result.paths().size(), scanThreads + " scan threads");
+            assertTrue(result.paths().containsAll(List.of(file1, file2, file3, file4)), scanThreads + " scan threads");
+        }
+    }
+
+    @Test
+    @DisplayName("Skips ignored directories and VCS metadata without entering them")
+    void shouldSkipIgnoredDirectories_whenGitIgnoreIsEnabled() throws Exception {
+        Files.writeString(tempDir.resolve(".gitignore"), "build/\n!build/Keep.java\n");
+        Path build = Files.createDirectory(tempDir.resolve("build"));
+        Files.createFile(build.resolve("Keep.java"));
+        Files.createFile(build.resolve("Other.java"));
+        Path gitDir = Files.createDirectory(tempDir.resolve(".git"));
+        Files.writeString(gitDir.resolve("HEAD"), "ref: refs/heads/main");
+
+        for (int scanThreads : new int[]{1, 4}) {
+            Config config = config(true, -1, List.of(), List.of(), true, scanThreads);
+            FileScanner scanner = new FileScanner(config, new GitIgnoreManager(tempDir));
+
+            ScanResult result = scanner.scanFiles();
+
+            assertAll(
+                    () -> assertEquals(4, result.paths().size()),
+                    () -> assertTrue(result.paths().containsAll(List.of(file1, file2, file3, file4))),
+                    () -> assertEquals(1, result.ignoredFilesStats().getIgnoredByGitignore())
+            );
+        }
+    }
+
+    @Test
+    @DisplayName("Shards split the files and ignored counts without overlap")
+    void shouldPartitionFiles_whenScanningShards() throws Exception {
+        for (int i = 0; i < 20; i++) {
+            Path dir = Files.createDirectories(tempDir.resolve("many").resolve("dir" + i));
+            Files.createFile(dir.resolve("File" + i + ".java"));
+            Files.createFile(dir.resolve("file" + i + ".log"));
+            Files.createFile(dir.resolve("file" + i + ".txt"));
+        }
+        ScanResult whole = new FileScanner(config(true, -1, List.of(), List.of("txt"), true, 1),
+                new GitIgnoreManager(tempDir)).scanFiles();
+
+        for (int scanThreads : new int[]{1, 4}) {
+            Set<Path> union = new HashSet<>();
+            long ignoredByGitignore = 0;
+            long ignoredByExtension = 0;
+            for (int number = 1; number <= 3; number++) {
+                Config config = config(true, -1, List.of(), List.of("txt"), true, scanThreads, new Shard(number, 3));
+                ScanResult part = new FileScanner(config, new GitIgnoreManager(tempDir)).scanFiles();
+
+                for (Path path : part.paths()) {
+                    assertTrue(union.add(path), "Scanned by two shards: " + path);
+                }
+                ignoredByGitignore += part.ignoredFilesStats().getIgnoredByGitignore();
+                ignoredByExtension += part.ignoredFilesStats().getIgnoredByExtension();
+            }
+
+            assertEquals(new HashSet<>(whole.paths()), union);
+            assertEquals(whole.ignoredFilesStats().getIgnoredByGitignore(), ignoredByGitignore);
+            assertEquals(whole.ignoredFilesStats().getIgnoredByExtension(), ignoredByExtension);
+        }
+    }
+
+    @Test
+    @DisplayName("Accepts a file reached through hard and symbolic links only once")
+    void shouldSkipDuplicates_whenFileIsReachedThroughLinks() throws Exception {
+        Path hardLink;
+        try {
+            hardLink = Files.createLink(tempDir.resolve("hardlink.java"), file1);
+            Files.createSymbolicLink(tempDir.resolve("linked"), tempDir.resolve("dir1"));
+        } catch (UnsupportedOperationException | IOException e) {
+            assumeTrue(false, "Links are not supported: " + e.getMessage());
+            return;
+        }
+
+        for (int scanThreads : new int[]{1, 4}) {
+            Config config = config(true, -1, List.of(), List.of(), false, scanThreads);
+
+            ScanResult result = new FileScanner(config, null).scanFiles();
+
+            assertAll(
+                    () -> assertEquals(4, result.paths().size()),
+                    () -> assertEquals(1, result.paths().stream()
+                            .filter(path -> path.equals(file1) || path.equals(hardLink)).count()),
+                    () -> assertEquals(3, result.ignoredFilesStats().getIgnoredDuplicates()),
+                    () -> assertTrue(result.filesToAnalyze().stream().allMatch(file -> file.attributes().isRegularFile()))
+            );
+        }
+    }
+
+    @Test
+    @DisplayName("Lets a nested .gitignore re-include files ignored by its parent")
+    void shouldApplyNestedRules_whenSubdirectoryHasGitignore() throws Exception {
+        Files.writeString(tempDir.resolve(".gitignore"), "*.java\n");
+        Files.writeString(tempDir.resolve("dir1").resolve(".gitignore"), "!file3.java\n");
+        GitIgnoreManager manager = new GitIgnoreManager(tempDir);
+
+        assertAll(
+                () -> assertTrue(manager.isIgnored(file1, false)),
+                () -> assertFalse(manager.isIgnored(file3, false)),
+                () -> assertFalse(manager.isIgnored(file4, false)),
+                () -> assertFalse(manager.isIgnored(tempDir.resolve("dir1"), true))
+        );
+    }
+
+    @Test
+    @DisplayName("Lists tracked files from the Git index")
+    void shouldReturnTrackedFiles_whenGitTrackedIsEnabled() throws Exception {
+        Path untracked = createGitRepository();
+        FileScanner scanner = new FileScanner(gitConfig(false), null);
+
+        ScanResult result = scanner.scanFiles();
+
+        assertAll(
+                () -> assertEquals(2, result.paths().size()),
+                () -> assertTrue(result.paths().containsAll(List.of(file1, file3))),
+                () -> assertFalse(result.paths().contains(untracked)),
+                () -> assertEquals(0, result.ignoredFilesStats().getIgnoredByGitignore())
+        );
+    }
+
+    @Test
+    @DisplayName("Adds untracked files that Git does not ignore")
+    void shouldAddUntrackedFiles_whenGitUntrackedIsEnabled() throws Exception {
+        Path untracked = createGitRepository();
+        FileScanner scanner = new FileScanner(gitConfig(true), null);
+
+        ScanResult result = scanner.scanFiles();
+
+        assertAll(
+                () -> assertEquals(3, result.paths().size()),
+                () -> assertTrue(result.paths().containsAll(List.of(file1, file3, untracked)))
+        );
+    }
+
+    /**
+     * Tracks file1 and file3, leaves file2 and file4 ignored and adds an untracked file
+     * next to one inside an ignored directory. Returns the untracked file.
+     */
+    private Path createGitRepository() throws Exception {
+        Files.writeString(tempDir.resolve(".gitignore"), "*.log\n**/*.tmp\nbuild/\n");
+        Path build = Files.createDirectory(tempDir.resolve("build"));
+        Files.createFile(build.resolve("Generated.java"));
+
+        try (Git git = Git.init().setDirectory(tempDir.toFile()).call()) {
+            git.add().addFilepattern(".").call();
+        }
+        return Files.createFile(tempDir.resolve("dir1").resolve("Untracked.java"));
+    }
+
+    private Config gitConfig(boolean includeUntracked) {
+        return TestConfigs.defaults(tempDir)
+                .recursive(true)
+                .useGitIgnore(true)
+                .gitTracked(true)
+                .gitUntracked(includeUntracked)
+                .build();
+    }
+
+    private Config config(boolean recursive, int maxDepth, List<String> includeExtensions,
+                          List<String> excludeExtensions, boolean useGitIgnore) {
+        return config(recursive, maxDepth, includeExtensions, excludeExtensions, useGitIgnore, 1);
+    }
+
+    private Config config(boolean recursive, int maxDepth, List<String> includeExtensions,
+                          List<String> excludeExtensions, boolean useGitIgnore, int scanThreads) {
+        return config(recursive, maxDepth, includeExtensions, excludeExtensions, useGitIgnore, scanThreads, null);
+    }
+
+    private Config config(boolean recursive, int maxDepth, List<String> includeExtensions,
+                          List<String> excludeExtensions, boolean useGitIgnore, int scanThreads, Shard shard) {
+        return TestConfigs.defaults(tempDir)
+                .recursive(recursive)
+                .maxDepth(maxDepth)
+                .scanThreads(scanThreads)
+                .includeExtensions(includeExtensions)
+                .excludeExtensions(excludeExtensions)
+                .useGitIgnore(useGitIgnore)
+                .shard(shard)
+                .build();
+    }
 }
@@ -0,0 +1,135 @@
+package dev.zux13.filestatistics.shard;
+
+import dev.zux13.filestatistics.analysis.CommentAnalyzer;
+import dev.zux13.filestatistics.analysis.FileAnalyzer;
+import dev.zux13.filestatistics.analysis.StatisticsAggregator;
+import dev.zux13.filestatistics.analysis.model.AnalysisResult;
+import dev.zux13.filestatistics.analysis.model.ExtensionStatistics;
+import dev.zux13.filestatistics.cli.Config;
+import dev.zux13.filestatistics.cli.TestConfigs;
+import dev.zux13.filestatistics.processing.AnalysisService;
+import dev.zux13.filestatistics.processing.FixedThreadPoolRunner;
+import dev.zux13.filestatistics.scan.FileScanner;
+import dev.zux13.filestatistics.scan.GitIgnoreManager;
+import dev.zux13.filestatistics.scan.model.IgnoredFilesStats;
+import dev.zux13.filestatistics.scan.model.Shard;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PartialResultMergerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path tree;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        tree = Files.createDirectory(tempDir.resolve("tree"));
+        Files.writeString(tree.resolve(".gitignore"), "*.log\n");
+        for (int i = 0; i < 12; i++) {
+            Path dir = Files.createDirectories(tree.resolve("module" + i % 4).resolve("pkg" + i));
+            Files.writeString(dir.resolve("Class" + i + ".java"), "// class " + i + "\nclass C" + i + " {}\n\n");
+            Files.writeString(dir.resolve("script" + i + ".sh"), "#!/bin/sh\n".repeat(i + 1));
+            Files.writeString(dir.resolve("debug" + i + ".log"), "ignored\n");
+            Files.write(dir.resolve("data" + i + ".bin"), new byte[]{0, 1, 2, (byte) i});
+        }
+    }
+
+    @Test
+    @DisplayName("Merged shards add up to the report of a single run")
+    void shouldMatchSingleRun_whenAllShardsAreMerged() throws Exception {
+        StatisticsAggregator whole = run(null).aggregator();
+
+        List<Path> partials = new ArrayList<>();
+        for (int number = 1; number <= 3; number++) {
+            Path partial = tempDir.resolve("part" + number + ".json");
+            Run run = run(new Shard(number, 3));
+            PartialResult.of(run.config(), run.fingerprint(), run.aggregator()).write(partial);
+            partials.add(partial);
+        }
+        StatisticsAggregator merged = PartialResultMerger.merge(partials);
+
+        assertAll(
+                () -> assertEquals(snapshot(whole), snapshot(merged)),
+                () -> assertEquals(whole.getIgnoredByGitignoreCount(), merged.getIgnoredByGitignoreCount()),
+                () -> assertEquals(whole.getIgnoredBinaryOrEncodingCount(), merged.getIgnoredBinaryOrEncodingCount())
+        );
+    }
+
+    @Test
+    @DisplayName("Rejects a shard given twice")
+    void shouldThrowException_whenShardIsGivenTwice() throws Exception {
+        Run run = run(new Shard(1, 2));
+        Path first = tempDir.resolve("first.json");
+        Path second = tempDir.resolve("second.json");
+        PartialResult.of(run.config(), run.fingerprint(), run.aggregator()).write(first);
+        PartialResult.of(run.config(), run.fingerprint(), run.aggregator()).write(second);
+
+        var exception = assertThrows(IllegalArgumentException.class,
+                () -> PartialResultMerger.merge(List.of(first, second)));
+        assertTrue(exception.getMessage().contains("more than once"));
+    }
+
+    @Test
+    @DisplayName("Rejects partial results produced with different options")
+    void shouldThrowException_whenOptionsDiffer() throws Exception {
+        Run run = run(new Shard(1, 2));
+        Path first = tempDir.resolve("first.json");
+        Path second = tempDir.resolve("second.json");
+        PartialResult.of(run.config(), run.fingerprint(), run.aggregator()).write(first);
+        PartialResult.of(run.config(), "other", run.aggregator()).write(second);
+
+        var exception = assertThrows(IllegalArgumentException.class,
+                () -> PartialResultMerger.merge(List.of(first, second)));
+        assertTrue(exception.getMessage().contains("different options"));
+    }
+
+    private record Run(Config config, String fingerprint, StatisticsAggregator aggregator) {
+    }
+
+    private Run run(Shard shard) throws IOException {
+        Config config = TestConfigs.defaults(tree)
+                .recursive(true)
+                .useGitIgnore(true)
+                .shard(shard)
+                .build();
+        FileAnalyzer fileAnalyzer = new FileAnalyzer(new CommentAnalyzer());
+        FileScanner scanner = new FileScanner(config, new GitIgnoreManager(tree));
+        AnalysisService analysisService = new AnalysisService(new FixedThreadPoolRunner(2), fileAnalyzer, null);
+
+        IgnoredFilesStats ignoredFilesStats = new IgnoredFilesStats();
+        AnalysisResult result = analysisService.processFiles(
+                sink -> scanner.scanFiles(sink, ignoredFilesStats), ignoredFilesStats);
+
+        StatisticsAggregator aggregator = new StatisticsAggregator();
+        aggregator.setStatisticsByExtension(result.extensionStatistics());
+        aggregator.setIgnoredByGitignoreCount(ignoredFilesStats.getIgnoredByGitignore());
+        aggregator.setIgnoredByExtensionCount(ignoredFilesStats.getIgnoredByExtension());
+        aggregator.setIgnoredBinaryOrEncodingCount(ignoredFilesStats.getIgnoredBinaryOrEncoding());
+        return new Run(config, fileAnalyzer.getFingerprint(), aggregator);
+    }
+
+    private Map<String, List<Long>> snapshot(StatisticsAggregator aggregator) {
+        Map<String, List<Long>> snapshot = new TreeMap<>();
+        aggregator.getStatisticsByExtension().forEach((extension, stats) -> snapshot.put(extension, values(stats)));
+        return snapshot;
+    }
+
+    private List<Long> values(ExtensionStatistics stats) {
+        return List.of(stats.getFileCount(), stats.getTotalSizeInBytes(), stats.getTotalLines(),
+                stats.getTotalNonEmptyLines(), stats.getTotalCommentLines());
+    }
+}
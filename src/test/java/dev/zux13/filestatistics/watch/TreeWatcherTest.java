@@ -0,0 +1,184 @@
+package dev.zux13.filestatistics.watch;
+
+import dev.zux13.filestatistics.analysis.CommentAnalyzer;
+import dev.zux13.filestatistics.analysis.FileAnalyzer;
+import dev.zux13.filestatistics.analysis.model.AnalysisResult;
+import dev.zux13.filestatistics.analysis.model.ExtensionStatistics;
+import dev.zux13.filestatistics.analysis.model.FileStatistics;
+import dev.zux13.filestatistics.cli.Config;
+import dev.zux13.filestatistics.cli.TestConfigs;
+import dev.zux13.filestatistics.incremental.RunningTotals;
+import dev.zux13.filestatistics.processing.AnalysisService;
+import dev.zux13.filestatistics.processing.FixedThreadPoolRunner;
+import dev.zux13.filestatistics.scan.FileScanner;
+import dev.zux13.filestatistics.scan.GitIgnoreManager;
+import dev.zux13.filestatistics.scan.model.IgnoredFilesStats;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TreeWatcherTest {
+
+    private static final long TIMEOUT_MILLIS = 15_000;
+
+    @TempDir
+    Path tempDir;
+
+    private final BlockingQueue<Map<String, List<Long>>> reports = new LinkedBlockingQueue<>();
+    private final List<Path> analyzedFiles = new ArrayList<>();
+    private TreeWatcher watcher;
+    private Thread watchThread;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        write("src/A.java", "class A {}\n// comment\n");
+        write("src/b/B.java", "class B {}\n");
+        write("notes.txt", "notes\n\n");
+        write("README.md", "# readme\n");
+        write("data.bin", "\0\1\2");
+        write("build/out.log", "log\n");
+        write(".gitignore", "build/\n*.tmp\n");
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (watcher != null) {
+            watcher.close();
+            watchThread.join(TIMEOUT_MILLIS);
+        }
+    }
+
+    @Test
+    @DisplayName("Keeps the totals equal to a full scan while files are created, changed and deleted")
+    void shouldMatchFullScan_whenFilesChange() throws Exception {
+        startWatching();
+        assertEquals(fullScan(), reports.poll(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+
+        analyzedFiles.clear();
+        write("src/A.java", "class A {\n  // more\n}\n");
+        write("src/b/C.java", "/* new */\nclass C {}\n");
+        write("docs/guide/intro.txt", "intro\n");
+        write("scratch.tmp", "ignored\n");
+        Files.delete(tempDir.resolve("notes.txt"));
+        awaitFullScanTotals();
+
+        List<String> analyzedNames = analyzedFiles.stream().map(path -> path.getFileName().toString())
+                .distinct().sorted().toList();
+        assertEquals(List.of("A.java", "C.java", "intro.txt"), analyzedNames);
+    }
+
+    @Test
+    @DisplayName("Applies changed .gitignore rules and removes deleted directories")
+    void shouldMatchFullScan_whenGitignoreChangesAndDirectoriesAreDeleted() throws Exception {
+        startWatching();
+        assertEquals(fullScan(), reports.poll(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+
+        write(".gitignore", "*.tmp\nsrc/b/\n");
+        awaitFullScanTotals();
+
+        deleteRecursively(tempDir.resolve("src"));
+        awaitFullScanTotals();
+    }
+
+    private void startWatching() throws IOException {
+        Config config = config();
+        GitIgnoreManager ignoreManager = new GitIgnoreManager(tempDir, true);
+        FileAnalyzer fileAnalyzer = new FileAnalyzer(new CommentAnalyzer()) {
+            @Override
+            public FileStatistics analyzeFile(Path filePath, long expectedSize)
+                    throws IOException {
+                synchronized (analyzedFiles) {
+                    analyzedFiles.add(filePath);
+                }
+                return super.analyzeFile(filePath, expectedSize);
+            }
+        };
+        watcher = new TreeWatcher(tempDir, new FileScanner(config, ignoreManager), ignoreManager, fileAnalyzer,
+                null, new FixedThreadPoolRunner(2));
+        watchThread = new Thread(() -> {
+            try {
+                watcher.watch(Duration.ofMillis(50), totals -> reports.add(snapshot(totals)));
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        watchThread.start();
+    }
+
+    /**
+     * Waits for a report that matches a full scan of the tree as it is now.
+     */
+    private void awaitFullScanTotals() throws Exception {
+        Map<String, List<Long>> expected = fullScan();
+        Map<String, List<Long>> last = null;
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (!expected.equals(last) && System.currentTimeMillis() < deadline) {
+            Map<String, List<Long>> report = reports.poll(100, TimeUnit.MILLISECONDS);
+            last = report != null ? report : last;
+        }
+        assertEquals(expected, last);
+    }
+
+    private Map<String, List<Long>> fullScan() throws IOException {
+        Config config = config();
+        IgnoredFilesStats ignoredFilesStats = new IgnoredFilesStats();
+        FileScanner scanner = new FileScanner(config, new GitIgnoreManager(tempDir));
+        AnalysisResult result = new AnalysisService(new FixedThreadPoolRunner(1), new FileAnalyzer(new CommentAnalyzer()), null)
+                .processFiles(sink -> scanner.scanFiles(sink, ignoredFilesStats), ignoredFilesStats);
+        return snapshot(RunningTotals.of(result, ignoredFilesStats));
+    }
+
+    private Config config() {
+        return TestConfigs.defaults(tempDir)
+                .recursive(true)
+                .excludeExtensions(List.of("md"))
+                .useGitIgnore(true)
+                .watchInterval(Duration.ofSeconds(1))
+                .build();
+    }
+
+    private static Map<String, List<Long>> snapshot(RunningTotals totals) {
+        Map<String, List<Long>> snapshot = new TreeMap<>();
+        totals.toAnalysisResult().extensionStatistics().forEach((extension, stats) -> snapshot.put(extension, values(stats)));
+        snapshot.put("(ignored)", List.of(totals.ignoredByGitignore(), totals.ignoredByExtension(),
+                totals.ignoredBinaryOrEncoding()));
+        return snapshot;
+    }
+
+    private static List<Long> values(ExtensionStatistics stats) {
+        return List.of(stats.getFileCount(), stats.getTotalSizeInBytes(), stats.getTotalLines(),
+                stats.getTotalNonEmptyLines(), stats.getTotalCommentLines());
+    }
+
+    private void write(String path, String content) throws IOException {
+        Path file = tempDir.resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+}